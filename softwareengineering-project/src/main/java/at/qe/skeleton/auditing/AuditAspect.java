@@ -9,6 +9,7 @@ import at.qe.skeleton.repositories.WorkGroupRepository;
 import at.qe.skeleton.rest.dto.APINotificationDTO;
 import at.qe.skeleton.rest.dto.LogTemperaDeviceDTO;
 import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementStatusDTO;
 import at.qe.skeleton.rest.dto.TimeRecordDTO;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.AfterThrowing;
@@ -900,6 +901,98 @@ public class AuditAspect {
         }
     }
 
+    /**
+     * Logs an error when queueing a ClimateMeasurement fails to return a successful response.
+     *
+     * @param measurementDTO The MeasurementDTO being processed.
+     * @param accessPointId The ID of the AccessPoint.
+     * @param response The ResponseEntity returned by the method.
+     */
+    @AfterReturning(pointcut = "execution(* at.qe.skeleton.rest.controllers.RestController.enqueueMeasurement(..)) && args(measurementDTO, accessPointId)",
+            argNames = "measurementDTO, accessPointId, response",
+            returning = "response")
+    public void logEnqueueMeasurementFailure(MeasurementDTO measurementDTO, String accessPointId, ResponseEntity<MeasurementDTO> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            AuditLog log = new AuditLog();
+            log.setAction(Action.DEVICE_CONNECTION);
+            log.setStatus(ActionStatus.ERROR);
+            log.setAccessedResource(ACCESS_POINT + accessPointId);
+            log.setAuthenticatedUser(getAuthenticatedUser());
+            log.setTimestamp(LocalDateTime.now());
+            if (response.getStatusCode().equals(HttpStatus.FORBIDDEN)) {
+                log.setAdditionalDetails("AccessPoint tried to queue a measurement but is not active/not found/not valid.");
+            } else if (response.getStatusCode().equals(HttpStatus.TOO_MANY_REQUESTS)) {
+                log.setAdditionalDetails("AccessPoint tried to queue a measurement but the ingestion queue is full.");
+            } else if (response.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR)) {
+                log.setAdditionalDetails("AccessPoint tried to queue a measurement but an internal server error occurred. DataAccessException was thrown.");
+            }
+            logRepository.save(log);
+            String logMessage = log.toString();
+            logger.info("{}", logMessage);
+            errorLogger.error("{}", logMessage);
+        }
+    }
+
+    /**
+     * Logs an error when creating a batch of ClimateMeasurements fails to return a successful response.
+     *
+     * @param measurementDTOs The MeasurementDTOs being processed.
+     * @param accessPointId The ID of the AccessPoint.
+     * @param response The ResponseEntity returned by the method.
+     */
+    @AfterReturning(pointcut = "execution(* at.qe.skeleton.rest.controllers.RestController.createMeasurements(..)) && args(measurementDTOs, accessPointId)",
+            argNames = "measurementDTOs, accessPointId, response",
+            returning = "response")
+    public void logCreateMeasurementsFailure(List<MeasurementDTO> measurementDTOs, String accessPointId, ResponseEntity<List<MeasurementStatusDTO>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            AuditLog log = new AuditLog();
+            log.setAction(Action.DEVICE_CONNECTION);
+            log.setStatus(ActionStatus.ERROR);
+            log.setAccessedResource(ACCESS_POINT + accessPointId);
+            log.setAuthenticatedUser(getAuthenticatedUser());
+            log.setTimestamp(LocalDateTime.now());
+            if (response.getStatusCode().equals(HttpStatus.FORBIDDEN)) {
+                log.setAdditionalDetails("AccessPoint tried to create a batch of " + measurementDTOs.size() + " measurements but is not active/not found/not valid.");
+            } else if (response.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR)) {
+                log.setAdditionalDetails("AccessPoint tried to create a batch of " + measurementDTOs.size() + " measurements but an internal server error occurred. DataAccessException was thrown.");
+            }
+            logRepository.save(log);
+            String logMessage = log.toString();
+            logger.info("{}", logMessage);
+            errorLogger.error("{}", logMessage);
+        }
+    }
+
+    /**
+     * Logs an error when backfilling historical ClimateMeasurements fails to return a successful response.
+     *
+     * @param measurementDTOs The MeasurementDTOs being processed.
+     * @param accessPointId The ID of the AccessPoint.
+     * @param response The ResponseEntity returned by the method.
+     */
+    @AfterReturning(pointcut = "execution(* at.qe.skeleton.rest.controllers.RestController.backfillMeasurements(..)) && args(measurementDTOs, accessPointId)",
+            argNames = "measurementDTOs, accessPointId, response",
+            returning = "response")
+    public void logBackfillMeasurementsFailure(List<MeasurementDTO> measurementDTOs, String accessPointId, ResponseEntity<List<MeasurementStatusDTO>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            AuditLog log = new AuditLog();
+            log.setAction(Action.DEVICE_CONNECTION);
+            log.setStatus(ActionStatus.ERROR);
+            log.setAccessedResource(ACCESS_POINT + accessPointId);
+            log.setAuthenticatedUser(getAuthenticatedUser());
+            log.setTimestamp(LocalDateTime.now());
+            if (response.getStatusCode().equals(HttpStatus.FORBIDDEN)) {
+                log.setAdditionalDetails("AccessPoint tried to backfill " + measurementDTOs.size() + " measurements but is not active/not found/not valid.");
+            } else if (response.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR)) {
+                log.setAdditionalDetails("AccessPoint tried to backfill " + measurementDTOs.size() + " measurements but an internal server error occurred. DataAccessException was thrown.");
+            }
+            logRepository.save(log);
+            String logMessage = log.toString();
+            logger.info("{}", logMessage);
+            errorLogger.error("{}", logMessage);
+        }
+    }
+
     /**
      * Logs an error when getting LogTemperaDevice by AccessPointId fails to return a successful response.
      *
@@ -1268,6 +1361,6 @@ public class AuditAspect {
 
     private String getAuthenticatedUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return auth.isAuthenticated() ? auth.getName() : "unauthenticated user";
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "unauthenticated user";
     }
 }
\ No newline at end of file
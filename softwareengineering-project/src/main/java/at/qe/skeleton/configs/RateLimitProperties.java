@@ -0,0 +1,48 @@
+package at.qe.skeleton.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Budgets of the requests every AccessPoint may send to the REST API (tempera.rate-limit.*).
+ * Every endpoint, identified by the name of its method in the RestController, has a budget of its own per
+ * AccessPoint. Endpoints without an entry in {@code endpoints} use the default budget.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tempera.rate-limit")
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    private Budget defaultBudget = new Budget();
+
+    private Map<String, Budget> endpoints = new HashMap<>();
+
+    /**
+     * @param endpoint the name of the endpoint's method
+     * @return the budget of the endpoint
+     */
+    public Budget budgetOf(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultBudget);
+    }
+
+    /**
+     * a token bucket: up to {@code capacity} requests can be sent at once, afterwards {@code refillPerSecond}
+     * requests per second.
+     */
+    @Getter
+    @Setter
+    public static class Budget {
+
+        private int capacity = 30;
+
+        private double refillPerSecond = 5;
+    }
+}
@@ -0,0 +1,23 @@
+package at.qe.skeleton.configs;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method or class that only reads from the database. It runs in a read-only transaction, which is sent to
+ * the read replica if one is configured, see {@link ReadWriteRoutingDataSource}. Only use it where data that lags
+ * behind the primary is acceptable and is not cached.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
@@ -0,0 +1,163 @@
+package at.qe.skeleton.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Spring configuration of a read replica, active if {@code tempera.datasource.replica.url} is set.
+ * The primary database is configured with the usual spring.datasource.* properties; the read-only transactions of
+ * {@link ReadOnlyTransactional} methods are sent to the replica by the {@link ReadWriteRoutingDataSource}. The lag of the replica is checked every lag-check interval; on PostgreSQL it is
+ * the age of the last replayed transaction while the replica has not replayed all received WAL, on other databases it
+ * is 0 as long as the replica is reachable.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tempera.datasource.replica.url")
+public class ReadWriteRoutingConfig {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    @Value("${tempera.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${tempera.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${tempera.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${tempera.datasource.replica.maximum-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${tempera.datasource.replica.read-your-writes-millis:5000}")
+    private long readYourWritesMillis;
+
+    @Value("${tempera.datasource.replica.max-lag-millis:10000}")
+    private long maxLagMillis;
+
+    private JdbcTemplate replicaJdbcTemplate;
+    private ReadWriteRoutingDataSource routingDataSource;
+    private Boolean replicaPostgres;
+    private boolean replicaUsable = true;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(replicaUrl).username(replicaUsername).password(replicaPassword).build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(replicaPoolSize);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                                                 MeterRegistry meterRegistry) {
+        routingDataSource = new ReadWriteRoutingDataSource(readYourWritesMillis, maxLagMillis);
+        routingDataSource.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.Route.REPLICA, replicaDataSource));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        Gauge.builder("tempera.datasource.replica.lag", routingDataSource, ReadWriteRoutingDataSource::getReplicaLagMillis)
+                .description("lag of the read replica in milliseconds, -1 if it is not available")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return routingDataSource;
+    }
+
+    /**
+     * marks the invocations of {@link ReadOnlyTransactional} methods, as only their transactions may be sent to the
+     * replica. It wraps the transaction interceptor, so the mark is set before the transaction begins.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor readOnlyTransactionalAdvisor() {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(ReadOnlyTransactional.class, true))
+                .union(new AnnotationMatchingPointcut(null, ReadOnlyTransactional.class, true));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut,
+                (MethodInterceptor) ReadWriteRoutingDataSource::invokeReplicaAllowed);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * the data source used by JPA and all JdbcTemplates. The connection is only taken from the routing data source
+     * once the first statement is executed, when it is known whether the transaction is read-only.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    /**
+     * measures the lag of the replica. If it cannot be reached, all transactions are sent to the primary.
+     */
+    @Scheduled(fixedDelayString = "${tempera.datasource.replica.lag-check-interval-millis:2000}")
+    public void checkReplicaLag() {
+        long lagMillis;
+        try {
+            if (replicaPostgres == null) {
+                replicaPostgres = replicaJdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                        "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            }
+            if (Boolean.TRUE.equals(replicaPostgres)) {
+                Double lag = replicaJdbcTemplate.queryForObject(LAG_SQL, Double.class);
+                lagMillis = lag == null ? 0 : Math.round(lag);
+            } else {
+                replicaJdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                lagMillis = 0;
+            }
+        } catch (DataAccessException e) {
+            errorLogger.error("Could not check the lag of the read replica.", e);
+            lagMillis = -1;
+        }
+        routingDataSource.updateReplicaLag(lagMillis);
+
+        if (routingDataSource.isReplicaUsable() != replicaUsable) {
+            replicaUsable = routingDataSource.isReplicaUsable();
+            generalLogger.warn(replicaUsable ? "Read replica caught up, sending read-only transactions to it again."
+                    : "Read replica unavailable or lagging {} ms behind, sending all transactions to the primary.", lagMillis);
+        }
+    }
+}
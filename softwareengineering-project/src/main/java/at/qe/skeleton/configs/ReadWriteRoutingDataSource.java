@@ -0,0 +1,149 @@
+package at.qe.skeleton.configs;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sends the connections of the read-only transactions of {@link ReadOnlyTransactional} methods to the read replica and
+ * all others to the primary database. Other read-only transactions, e.g. the implicit ones of the repositories' find
+ * methods or the ones loading the in-memory caches, use the primary, as they might cache what they read.
+ * <p>
+ * A read-only transaction still uses the primary if the replica is unavailable or lags behind more than the maximal
+ * lag, or if the current user committed a write transaction within the read-your-writes window (plus the current
+ * lag of the replica), so a user sees their own changes, e.g. on the dashboard right after saving.
+ * The route is determined when the transaction's first statement is executed, so the data source has to be wrapped
+ * in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    /**
+     * set while a {@link ReadOnlyTransactional} method is invoked, see {@link #invokeReplicaAllowed}
+     */
+    private static final ThreadLocal<Boolean> replicaAllowed = new ThreadLocal<>();
+
+    private final long readYourWritesMillis;
+    private final long maxLagMillis;
+
+    /**
+     * the time of the last committed write transaction by username
+     */
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    /**
+     * the lag of the replica in milliseconds, -1 if it is not available
+     */
+    private volatile long replicaLagMillis;
+
+    public ReadWriteRoutingDataSource(long readYourWritesMillis, long maxLagMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = currentRoute();
+        if (route == Route.PRIMARY && TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWriteOnCommit();
+        }
+        return route;
+    }
+
+    /**
+     * @return the database the current transaction is sent to
+     */
+    public Route currentRoute() {
+        if (!Boolean.TRUE.equals(replicaAllowed.get()) || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !isReplicaUsable()) {
+            return Route.PRIMARY;
+        }
+        String username = currentUsername();
+        if (username != null) {
+            Long lastWrite = lastWrites.get(username);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite < readYourWritesWindow()) {
+                return Route.PRIMARY;
+            }
+        }
+        return Route.REPLICA;
+    }
+
+    /**
+     * invokes a {@link ReadOnlyTransactional} method, so its read-only transaction may be sent to the replica.
+     * @param invocation the invocation of the method
+     * @return the result of the method
+     * @throws Throwable the exception thrown by the method
+     */
+    public static Object invokeReplicaAllowed(MethodInvocation invocation) throws Throwable {
+        Boolean previous = replicaAllowed.get();
+        replicaAllowed.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            if (previous == null) {
+                replicaAllowed.remove();
+            }
+        }
+    }
+
+    /**
+     * updates the lag of the replica and forgets the writes that are older than the read-your-writes window.
+     * @param lagMillis the lag of the replica in milliseconds, -1 if it is not available
+     */
+    public void updateReplicaLag(long lagMillis) {
+        replicaLagMillis = lagMillis;
+        long oldestWrite = System.currentTimeMillis() - readYourWritesWindow();
+        lastWrites.values().removeIf(lastWrite -> lastWrite < oldestWrite);
+    }
+
+    /**
+     * @return the lag of the replica in milliseconds, -1 if it is not available
+     */
+    public long getReplicaLagMillis() {
+        return replicaLagMillis;
+    }
+
+    /**
+     * @return true if read-only transactions may be sent to the replica
+     */
+    public boolean isReplicaUsable() {
+        long lag = replicaLagMillis;
+        return lag >= 0 && lag <= maxLagMillis;
+    }
+
+    private long readYourWritesWindow() {
+        return readYourWritesMillis + Math.max(replicaLagMillis, 0);
+    }
+
+    private void recordWriteOnCommit() {
+        String username = currentUsername();
+        if (username == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(username, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
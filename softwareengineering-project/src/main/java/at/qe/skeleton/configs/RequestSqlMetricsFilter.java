@@ -0,0 +1,134 @@
+package at.qe.skeleton.configs;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the SQL statements executed per HTTP request (see {@link RequestSqlStatistics}) as metrics by method and
+ * route (/actuator/metrics): the number of statements ({@code tempera.http.sql.statements}), the total time spent in
+ * the database ({@code tempera.http.sql.time}) and the slowest statement ({@code tempera.http.sql.slowest}).
+ * The route is the mapping of REST endpoints and the view of JSF pages, e.g. {@code /admin/users.xhtml}.
+ * <p>
+ * If {@code tempera.sql-metrics.debug-headers} is set, which must not be done in production, every response
+ * additionally carries the statements executed until it was committed in an {@code X-SQL-Statements} and a
+ * {@code Server-Timing} header (shown by the network tab of the browser's developer tools).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestSqlMetricsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.sql-metrics.debug-headers:false}")
+    private boolean debugHeaders;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestSqlStatistics statistics = RequestSqlStatistics.start();
+        DebugHeaderResponseWrapper debugResponse = debugHeaders ? new DebugHeaderResponseWrapper(response, statistics) : null;
+        try {
+            filterChain.doFilter(request, debugResponse != null ? debugResponse : response);
+        } finally {
+            RequestSqlStatistics.stop();
+            if (debugResponse != null && !response.isCommitted()) {
+                debugResponse.writeHeaders();
+            }
+            record(request, response.getStatus(), statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, RequestSqlStatistics statistics) {
+        Tags tags = Tags.of("method", request.getMethod(), "route", route(request, status));
+        DistributionSummary.builder("tempera.http.sql.statements")
+                .description("SQL statements executed per request")
+                .baseUnit("statements")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getStatementCount());
+        Timer.builder("tempera.http.sql.time")
+                .description("time spent executing SQL statements per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getTotalNanos(), TimeUnit.NANOSECONDS);
+        if (statistics.getStatementCount() > 0) {
+            Timer.builder("tempera.http.sql.slowest")
+                    .description("slowest SQL statement per request")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(statistics.getSlowestNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * the route of the request, bounded to the mappings of the REST endpoints and the JSF views so the number of
+     * tagged meters does not grow with the requested URLs.
+     */
+    private static String route(HttpServletRequest request, int status) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        if (status == HttpStatus.NOT_FOUND.value()) {
+            return "NOT_FOUND";
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.endsWith(".xhtml") || path.endsWith(".jsf")) {
+            return path;
+        }
+        return "UNKNOWN";
+    }
+
+    /**
+     * adds the debug headers right before the response is committed, afterwards headers would be ignored.
+     */
+    private static class DebugHeaderResponseWrapper extends OnCommittedResponseWrapper {
+
+        private final RequestSqlStatistics statistics;
+        private boolean headersWritten;
+
+        DebugHeaderResponseWrapper(HttpServletResponse response, RequestSqlStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeaders();
+        }
+
+        void writeHeaders() {
+            if (headersWritten) {
+                return;
+            }
+            headersWritten = true;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(STATEMENTS_HEADER, String.valueOf(statistics.getStatementCount()));
+            response.setHeader(SERVER_TIMING_HEADER, String.format(Locale.ROOT, "db;dur=%.1f;desc=\"%d statements, slowest %.1f ms\"",
+                    statistics.getTotalNanos() / 1e6, statistics.getStatementCount(), statistics.getSlowestNanos() / 1e6));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package at.qe.skeleton.configs;
+
+/**
+ * The SQL statements executed while the current thread handles an HTTP request: their number, the total time spent
+ * executing them and the slowest one. Collected by the {@link SqlStatementCountingDataSource} between
+ * {@link #start()} and {@link #stop()} of the {@link RequestSqlMetricsFilter}; statements of other threads (scheduled
+ * jobs, ingestion writers, async request processing) are not attributed to any request.
+ */
+public final class RequestSqlStatistics {
+
+    private static final ThreadLocal<RequestSqlStatistics> current = new ThreadLocal<>();
+
+    private int statementCount;
+    private long totalNanos;
+    private long slowestNanos;
+
+    private RequestSqlStatistics() {
+    }
+
+    /**
+     * starts collecting the statements of the current thread.
+     * @return the statistics of the current request
+     */
+    public static RequestSqlStatistics start() {
+        RequestSqlStatistics statistics = new RequestSqlStatistics();
+        current.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * stops collecting the statements of the current thread.
+     */
+    public static void stop() {
+        current.remove();
+    }
+
+    /**
+     * @return the statistics of the request handled by the current thread, null if there is none
+     */
+    public static RequestSqlStatistics current() {
+        return current.get();
+    }
+
+    /**
+     * adds a statement to the statistics of the request handled by the current thread, if there is one.
+     * @param nanos the time spent executing the statement
+     */
+    public static void record(long nanos) {
+        RequestSqlStatistics statistics = current.get();
+        if (statistics != null) {
+            statistics.recordStatement(nanos);
+        }
+    }
+
+    void recordStatement(long nanos) {
+        statementCount++;
+        totalNanos += nanos;
+        slowestNanos = Math.max(slowestNanos, nanos);
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getSlowestNanos() {
+        return slowestNanos;
+    }
+}
@@ -0,0 +1,94 @@
+package at.qe.skeleton.configs;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Measures every statement executed on a connection of the wrapped data source (queries, single
+ * inserts/updates/deletes and JDBC batches) and adds it to the {@link RequestSqlStatistics} of the current request.
+ * The connections and their statements are wrapped in proxies, so the statements of Hibernate and of the
+ * JdbcTemplates are counted alike. Everything else, including {@link Connection#unwrap}, is passed through; statements
+ * executed on an unwrapped connection, e.g. a COPY, have to be recorded by the caller.
+ * Installed around the data source of the application by the {@link SqlStatementCountingPostProcessor}.
+ */
+public class SqlStatementCountingDataSource extends DelegatingDataSource {
+
+    public SqlStatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlStatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return invokeIdentityMethod(proxy, method, args);
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        // Statement, PreparedStatement or CallableStatement
+                        return countingStatement(statement, method.getReturnType(), (Connection) proxy);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object countingStatement(Statement statement, Class<?> type, Connection connection) {
+        return Proxy.newProxyInstance(SqlStatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return invokeIdentityMethod(proxy, method, args);
+                    }
+                    if ("getConnection".equals(method.getName())) {
+                        return connection;
+                    }
+                    if (!method.getName().startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        RequestSqlStatistics.record(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class && !"toString".equals(method.getName());
+    }
+
+    /**
+     * equals and hashCode of a proxy, which is only equal to itself.
+     */
+    private static Object invokeIdentityMethod(Object proxy, Method method, Object[] args) {
+        if ("equals".equals(method.getName())) {
+            return proxy == args[0];
+        }
+        return System.identityHashCode(proxy);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
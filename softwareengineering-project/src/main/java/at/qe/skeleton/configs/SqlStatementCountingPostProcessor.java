@@ -0,0 +1,27 @@
+package at.qe.skeleton.configs;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source used by JPA and all JdbcTemplates (the bean named dataSource, with a read replica the
+ * {@link ReadWriteRoutingConfig#dataSource} in front of both pools) in a {@link SqlStatementCountingDataSource}, so
+ * the statements of every request are counted no matter which API executes them. The pools themselves are not
+ * wrapped, so no statement is counted twice.
+ */
+@Component
+public class SqlStatementCountingPostProcessor implements BeanPostProcessor {
+
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource
+                && !(bean instanceof SqlStatementCountingDataSource)) {
+            return new SqlStatementCountingDataSource(dataSource);
+        }
+        return bean;
+    }
+}
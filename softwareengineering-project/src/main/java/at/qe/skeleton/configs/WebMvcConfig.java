@@ -0,0 +1,32 @@
+package at.qe.skeleton.configs;
+
+import at.qe.skeleton.rest.interceptor.LoadSheddingInterceptor;
+import at.qe.skeleton.rest.interceptor.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring configuration for the REST API: the requests of the AccessPoints are rate limited first, the ingestion
+ * endpoints that write to the database are additionally subject to load shedding.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private LoadSheddingInterceptor loadSheddingInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/api/**");
+        registry.addInterceptor(loadSheddingInterceptor)
+                .addPathPatterns("/api/measurements/**", "/api/timerecords/**")
+                // only enqueues the measurements, the writer threads take their connections one after another
+                .excludePathPatterns("/api/measurements/*/async");
+    }
+}
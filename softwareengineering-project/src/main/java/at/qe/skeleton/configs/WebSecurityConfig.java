@@ -57,6 +57,7 @@ public class WebSecurityConfig {
                             .requestMatchers(new AntPathRequestMatcher("/error/**")).permitAll()
                             .requestMatchers(new AntPathRequestMatcher("/secured/**")).hasAnyAuthority(MANAGER, GROUP_LEADER, ADMINISTRATOR, EMPLOYEE)
                             .requestMatchers(new AntPathRequestMatcher("/admin/**")).hasAnyAuthority(ADMINISTRATOR)
+                            .requestMatchers(new AntPathRequestMatcher("/actuator/**")).hasAnyAuthority(ADMINISTRATOR)
                             .requestMatchers(new AntPathRequestMatcher("/projects/**")).hasAnyAuthority(MANAGER, GROUP_LEADER, ADMINISTRATOR)
                             .requestMatchers(new AntPathRequestMatcher("/workgroups/**")).hasAnyAuthority(MANAGER, GROUP_LEADER, ADMINISTRATOR)
 
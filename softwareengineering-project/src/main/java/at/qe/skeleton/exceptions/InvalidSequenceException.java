@@ -0,0 +1,11 @@
+package at.qe.skeleton.exceptions;
+
+/**
+ * Exception thrown when an AccessPoint transmits an item with a sequence number that is not positive.
+ */
+public class InvalidSequenceException extends RuntimeException {
+
+    public InvalidSequenceException(String message) {
+        super(message);
+    }
+}
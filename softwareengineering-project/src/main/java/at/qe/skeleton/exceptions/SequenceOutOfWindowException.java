@@ -0,0 +1,23 @@
+package at.qe.skeleton.exceptions;
+
+/**
+ * Exception thrown when an AccessPoint transmits an item with a sequence number too far above the ones received
+ * without gaps. None of the transmitted items are saved, the AccessPoint has to resend its items from the
+ * acknowledged sequence on.
+ */
+public class SequenceOutOfWindowException extends RuntimeException {
+
+    private final long acknowledgedSequence;
+
+    public SequenceOutOfWindowException(String message, long acknowledgedSequence) {
+        super(message);
+        this.acknowledgedSequence = acknowledgedSequence;
+    }
+
+    /**
+     * @return the highest sequence up to which all items were received
+     */
+    public long getAcknowledgedSequence() {
+        return acknowledgedSequence;
+    }
+}
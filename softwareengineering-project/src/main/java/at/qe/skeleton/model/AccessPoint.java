@@ -3,6 +3,8 @@ package at.qe.skeleton.model;
 import at.qe.skeleton.exceptions.EntityStillInUseException;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -18,13 +20,25 @@ import java.util.List;
 @EqualsAndHashCode(exclude = {"temperaDevices", "logTemperaDevices"})
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accessPoint")
+@NamedEntityGraph(name = AccessPoint.TEMPERA_DEVICES_GRAPH,
+        attributeNodes = {@NamedAttributeNode("room"), @NamedAttributeNode("temperaDevices")})
 public class AccessPoint extends Metadata implements Serializable, Persistable<Long>, Device {
+
+    /**
+     * fetch plan of the admin's AccessPoint list and of single AccessPoints: the AccessPoint with its Room and
+     * TemperaDevices, without their sensors.
+     */
+    public static final String TEMPERA_DEVICES_GRAPH = "AccessPoint.temperaDevices";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "access_point_gen")
     @SequenceGenerator(name = "access_point_gen", sequenceName = "access_point_seq", allocationSize = 1, initialValue = 100)
     private Long id;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "accessPoint", cascade = CascadeType.PERSIST)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "accessPoint", cascade = CascadeType.PERSIST)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accessPoint.temperaDevices")
     private List<TemperaDevice> temperaDevices;
 
     @Enumerated(EnumType.STRING)
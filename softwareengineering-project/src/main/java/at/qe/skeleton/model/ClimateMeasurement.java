@@ -13,10 +13,11 @@ import java.time.LocalDateTime;
 @Setter
 @EqualsAndHashCode
 @Entity
+@Table(indexes = @Index(name = "climate_measurement_sensor_time_idx", columnList = "sensor_id, time_stamp"))
 public class ClimateMeasurement implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "climate_measurement_gen")
-    @SequenceGenerator(name = "climate_measurement_gen", sequenceName = "climate_measurement_seq", allocationSize = 1, initialValue = 1000)
+    @SequenceGenerator(name = "climate_measurement_gen", sequenceName = "climate_measurement_seq", allocationSize = 50, initialValue = 1000)
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,28 @@
+package at.qe.skeleton.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Marks a data migration that ran at startup as finished, so it is not repeated on the next start.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "data_migration")
+public class DataMigration implements Serializable {
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime completedAt;
+
+    private long migratedRows;
+}
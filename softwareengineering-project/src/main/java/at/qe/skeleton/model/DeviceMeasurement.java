@@ -0,0 +1,71 @@
+package at.qe.skeleton.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Wide-row alternative to {@link ClimateMeasurement}: one row holds all four values a TemperaDevice measured at one
+ * point in time, stored as 32-bit floats. This needs a quarter of the rows (and index entries) of the
+ * ClimateMeasurement table, which stores every value in its own row.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+@Entity
+@Table(indexes = @Index(name = "device_measurement_device_time_idx", columnList = "tempera_device_id, time_stamp", unique = true))
+public class DeviceMeasurement implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_measurement_gen")
+    @SequenceGenerator(name = "device_measurement_gen", sequenceName = "device_measurement_seq", allocationSize = 50, initialValue = 1000)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "tempera_device_id", nullable = false)
+    private TemperaDevice temperaDevice;
+
+    @Column(nullable = false)
+    private LocalDateTime timeStamp;
+
+    private float airTemperature;
+    private float airHumidity;
+    private float airQuality;
+    private float lightIntensity;
+
+    public double getValue(SensorType sensorType) {
+        return switch (sensorType) {
+            case AIR_TEMPERATURE -> airTemperature;
+            case AIR_HUMIDITY -> airHumidity;
+            case AIR_QUALITY -> airQuality;
+            case LIGHT_INTENSITY -> lightIntensity;
+        };
+    }
+
+    public void setValue(SensorType sensorType, double value) {
+        switch (sensorType) {
+            case AIR_TEMPERATURE -> airTemperature = (float) value;
+            case AIR_HUMIDITY -> airHumidity = (float) value;
+            case AIR_QUALITY -> airQuality = (float) value;
+            case LIGHT_INTENSITY -> lightIntensity = (float) value;
+        }
+    }
+
+    /**
+     * Converts the value of the given sensor to a (not persisted) ClimateMeasurement, so code working with
+     * ClimateMeasurements can be served from this table.
+     * @param sensor one of the sensors of the TemperaDevice
+     * @return the ClimateMeasurement of the sensor at the time of this DeviceMeasurement
+     */
+    public ClimateMeasurement toClimateMeasurement(Sensor sensor) {
+        return ClimateMeasurement.builder()
+                .sensor(sensor)
+                .timeStamp(timeStamp)
+                .measuredValue(getValue(sensor.getSensorType()))
+                .build();
+    }
+}
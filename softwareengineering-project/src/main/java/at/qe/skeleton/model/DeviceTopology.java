@@ -0,0 +1,112 @@
+package at.qe.skeleton.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the device topology: for every sensor its TemperaDevice, AccessPoint, Room and the Limits of
+ * the room for the sensor's type. Only ids and values are kept, no entities, so the snapshot can be shared by all
+ * threads without a persistence context.
+ */
+public final class DeviceTopology {
+
+    private final long version;
+    private final Map<Long, SensorNode> sensorsById;
+
+    private DeviceTopology(long version, Map<Long, SensorNode> sensorsById) {
+        this.version = version;
+        this.sensorsById = Map.copyOf(sensorsById);
+    }
+
+    /**
+     * @return a topology without any sensors
+     */
+    public static DeviceTopology empty() {
+        return new DeviceTopology(0, Map.of());
+    }
+
+    /**
+     * builds the topology of the given TemperaDevices. Their sensors, AccessPoint, Room and Limits are read, so
+     * they have to be loaded or loadable.
+     * @param version the version of the topology
+     * @param temperaDevices all TemperaDevices
+     * @return the topology
+     */
+    public static DeviceTopology of(long version, Collection<TemperaDevice> temperaDevices) {
+        Map<Long, SensorNode> sensorsById = new HashMap<>();
+        for (TemperaDevice temperaDevice : temperaDevices) {
+            if (temperaDevice.getSensors() == null) {
+                continue;
+            }
+            AccessPoint accessPoint = temperaDevice.getAccessPoint();
+            Room room = accessPoint == null ? null : accessPoint.getRoom();
+            for (Sensor sensor : temperaDevice.getSensors()) {
+                if (sensor.getId() == null) {
+                    continue;
+                }
+                sensorsById.put(sensor.getId(), new SensorNode(sensor.getId(), sensor.getSensorType(), temperaDevice.getId(),
+                        accessPoint == null ? null : accessPoint.getId(),
+                        room == null ? null : room.getId(),
+                        room == null ? null : LimitRange.of(room.getLimitsList(), sensor.getSensorType())));
+            }
+        }
+        return new DeviceTopology(version, sensorsById);
+    }
+
+    /**
+     * @param sensorId the id of a sensor
+     * @return the position of the sensor in the topology or null, if the sensor belongs to no TemperaDevice
+     */
+    public SensorNode findBySensorId(Long sensorId) {
+        return sensorId == null ? null : sensorsById.get(sensorId);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return sensorsById.size();
+    }
+
+    /**
+     * @param sensorId the id of the sensor
+     * @param sensorType the type of the sensor
+     * @param temperaDeviceId the id of the TemperaDevice the sensor belongs to
+     * @param accessPointId the id of the AccessPoint of the TemperaDevice, null if it is not connected
+     * @param roomId the id (room number) of the Room of the AccessPoint, null if there is none
+     * @param limits the Limits of the room for the sensor type, null if there are none
+     */
+    public record SensorNode(Long sensorId, SensorType sensorType, Long temperaDeviceId, Long accessPointId, String roomId,
+                             LimitRange limits) {
+    }
+
+    /**
+     * @param lowerLimit the lower limit
+     * @param upperLimit the upper limit
+     */
+    public record LimitRange(double lowerLimit, double upperLimit) {
+
+        private static LimitRange of(List<Limits> limitsList, SensorType sensorType) {
+            if (limitsList == null) {
+                return null;
+            }
+            for (Limits limits : limitsList) {
+                if (limits.getSensorType() == sensorType) {
+                    return new LimitRange(limits.getLowerLimit(), limits.getUpperLimit());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param measuredValue a measured value
+         * @return true, if the value is below the lower or above the upper limit
+         */
+        public boolean isViolatedBy(double measuredValue) {
+            return lowerLimit > measuredValue || upperLimit < measuredValue;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package at.qe.skeleton.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Persisted {@link SequenceWindow} of the items one AccessPoint transmitted for one {@link IngestionStream}, so
+ * retried items are recognized after a restart as well.
+ */
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "ingestion_cursor_access_point_idx", columnList = "access_point_id, stream", unique = true))
+public class IngestionCursor implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingestion_cursor_gen")
+    @SequenceGenerator(name = "ingestion_cursor_gen", sequenceName = "ingestion_cursor_seq", allocationSize = 1, initialValue = 100)
+    private Long id;
+
+    @Column(name = "access_point_id", nullable = false)
+    private Long accessPointId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "varchar(20)", nullable = false)
+    private IngestionStream stream;
+
+    private long highWaterMark;
+
+    private long received;
+
+    public SequenceWindow getWindow() {
+        return new SequenceWindow(highWaterMark, received);
+    }
+
+    public void setWindow(SequenceWindow window) {
+        highWaterMark = window.highWaterMark();
+        received = window.received();
+    }
+}
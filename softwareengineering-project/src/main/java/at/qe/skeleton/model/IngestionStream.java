@@ -0,0 +1,9 @@
+package at.qe.skeleton.model;
+
+/**
+ * Enumeration of the data an AccessPoint transmits with its own sequence numbers.
+ */
+public enum IngestionStream {
+    MEASUREMENTS,
+    TIME_RECORDS
+}
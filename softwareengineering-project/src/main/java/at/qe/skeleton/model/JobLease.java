@@ -0,0 +1,36 @@
+package at.qe.skeleton.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Lease of a scheduled job, held by the application instance that runs the job, see
+ * {@link at.qe.skeleton.services.JobLeaseManager}.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "job_lease")
+public class JobLease implements Serializable {
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    /**
+     * the node id of the instance holding the lease
+     */
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime acquiredAt;
+}
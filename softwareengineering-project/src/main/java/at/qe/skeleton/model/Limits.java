@@ -2,6 +2,8 @@ package at.qe.skeleton.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -15,6 +17,8 @@ import java.io.Serializable;
 @EqualsAndHashCode
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "limits")
 public class Limits extends Metadata implements Serializable, Persistable<Long> {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "limit_gen")
@@ -0,0 +1,22 @@
+package at.qe.skeleton.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of the ClimateMeasurements of one sensor within one time bucket, as returned by the
+ * bucketing queries of the ClimateMeasurementRepository.
+ * @param timeStamp the timestamp of the first measurement in the bucket
+ * @param average the average measured value
+ * @param minimum the lowest measured value
+ * @param maximum the highest measured value
+ */
+public record MeasurementBucket(LocalDateTime timeStamp, Double average, Double minimum, Double maximum) {
+
+    /**
+     * @param sensor the sensor the bucket belongs to
+     * @return a transient ClimateMeasurement holding the average value of the bucket
+     */
+    public ClimateMeasurement toClimateMeasurement(Sensor sensor) {
+        return new ClimateMeasurement(null, timeStamp, sensor, average);
+    }
+}
@@ -0,0 +1,47 @@
+package at.qe.skeleton.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate of all ClimateMeasurements of one sensor within one minute, hour or day.
+ * Rollups are maintained incrementally while measurements are saved, see
+ * {@link at.qe.skeleton.services.climate.MeasurementRollupService}.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+@Entity
+@Table(indexes = @Index(name = "measurement_rollup_bucket_idx", columnList = "sensor_id, resolution, bucket_start", unique = true))
+public class MeasurementRollup implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "measurement_rollup_gen")
+    @SequenceGenerator(name = "measurement_rollup_gen", sequenceName = "measurement_rollup_seq", allocationSize = 50, initialValue = 1000)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "sensor_id", nullable = false)
+    private Sensor sensor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "varchar(10)", nullable = false)
+    private RollupResolution resolution;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    private double minValue;
+    private double maxValue;
+    private double sumValue;
+    private long sampleCount;
+
+    public double getAverage() {
+        return sampleCount == 0 ? 0 : sumValue / sampleCount;
+    }
+}
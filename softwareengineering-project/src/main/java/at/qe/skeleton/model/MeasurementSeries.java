@@ -0,0 +1,43 @@
+package at.qe.skeleton.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Read-only series of measured values of one sensor, stored as primitive arrays instead of ClimateMeasurements.
+ * @param timeStamps the timestamps as milliseconds since the epoch (UTC), in ascending order
+ * @param values the measured values, one per timestamp
+ */
+public record MeasurementSeries(long[] timeStamps, double[] values) {
+
+    /**
+     * @return an empty series
+     */
+    public static MeasurementSeries empty() {
+        return new MeasurementSeries(new long[0], new double[0]);
+    }
+
+    /**
+     * @return the number of points of the series
+     */
+    public int size() {
+        return timeStamps.length;
+    }
+
+    /**
+     * @param index the index of a point
+     * @return the timestamp of the point as LocalDateTime
+     */
+    public LocalDateTime timeStampAt(int index) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timeStamps[index]), ZoneOffset.UTC);
+    }
+
+    /**
+     * @param timeStamp a timestamp of a measurement
+     * @return the timestamp as milliseconds since the epoch, as stored in a series
+     */
+    public static long toEpochMilli(LocalDateTime timeStamp) {
+        return timeStamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
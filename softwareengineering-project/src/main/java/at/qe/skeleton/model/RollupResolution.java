@@ -0,0 +1,47 @@
+package at.qe.skeleton.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Enumeration of the time resolutions measurements are aggregated to in {@link MeasurementRollup}s.
+ */
+@Getter
+public enum RollupResolution {
+    MINUTE (1, ChronoUnit.MINUTES),
+    HOUR (60, ChronoUnit.HOURS),
+    DAY (1440, ChronoUnit.DAYS);
+
+    private final int minutes;
+    private final ChronoUnit unit;
+
+    RollupResolution(int minutes, ChronoUnit unit) {
+        this.minutes = minutes;
+        this.unit = unit;
+    }
+
+    /**
+     * @param timeStamp the timestamp of a measurement
+     * @return the start of the bucket of this resolution the timestamp belongs to
+     */
+    public LocalDateTime bucketStart(LocalDateTime timeStamp) {
+        return timeStamp.truncatedTo(unit);
+    }
+
+    /**
+     * Returns the coarsest resolution whose buckets are not wider than the given granularity.
+     * @param granularityInMinutes the requested minimum time difference between two data points
+     * @return the coarsest matching resolution or null, if the granularity is finer than a minute
+     */
+    public static RollupResolution coarsestFor(int granularityInMinutes) {
+        RollupResolution coarsest = null;
+        for (RollupResolution resolution : values()) {
+            if (resolution.minutes <= granularityInMinutes) {
+                coarsest = resolution;
+            }
+        }
+        return coarsest;
+    }
+}
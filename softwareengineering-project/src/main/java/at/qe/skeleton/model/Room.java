@@ -3,6 +3,8 @@ package at.qe.skeleton.model;
 import at.qe.skeleton.configs.DefaultLimits;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -17,6 +19,8 @@ import java.util.List;
 @EqualsAndHashCode(exclude = "limitsList")
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "room")
 public class Room extends Metadata implements Serializable, Persistable<String> {
     @Id
     @Column(length = 50)
@@ -27,6 +31,7 @@ public class Room extends Metadata implements Serializable, Persistable<String>
 
 
     @OneToMany(mappedBy = "room", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "room.limitsList")
     private List<Limits> limitsList;
 
     @Override
@@ -2,6 +2,8 @@ package at.qe.skeleton.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -17,6 +19,8 @@ import java.util.List;
 @EqualsAndHashCode(exclude = "climateMeasurements")
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sensor")
 public class Sensor extends Metadata implements Serializable, Persistable<Long> {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensor_gen")
@@ -0,0 +1,61 @@
+package at.qe.skeleton.model;
+
+/**
+ * Sequence numbers an AccessPoint's items were already saved with: all sequences up to the high-water mark, and the
+ * ones received out of order within the {@value #SIZE} sequences above it, stored as a bit mask (bit 0 stands for
+ * highWaterMark + 1).
+ * Only sequences within the window can be added, a missing sequence is never given up. The AccessPoint therefore
+ * has to send its items roughly in order: no item more than {@value #SIZE} sequences above the first one missing.
+ * @param highWaterMark the highest sequence up to which all items were received, 0 if none
+ * @param received bit mask of the sequences received above the high-water mark
+ */
+public record SequenceWindow(long highWaterMark, long received) {
+
+    public static final int SIZE = Long.SIZE;
+
+    public static SequenceWindow empty() {
+        return new SequenceWindow(0, 0);
+    }
+
+    /**
+     * @param sequence sequence number of an item
+     * @return true if an item with this sequence was already received
+     */
+    public boolean contains(long sequence) {
+        if (sequence <= highWaterMark) {
+            return true;
+        }
+        long offset = sequence - highWaterMark - 1;
+        return offset < SIZE && (received & (1L << offset)) != 0;
+    }
+
+    /**
+     * @param sequence sequence number of an item
+     * @return true if the sequence can be added, i.e. it is at most {@value #SIZE} above the high-water mark
+     */
+    public boolean fits(long sequence) {
+        return sequence - highWaterMark <= SIZE;
+    }
+
+    /**
+     * @param sequence sequence number of a received item
+     * @return the window including the given sequence, with the high-water mark moved up as far as the received
+     * sequences are contiguous
+     * @throws IllegalArgumentException if the sequence does not {@link #fits fit} into the window
+     */
+    public SequenceWindow add(long sequence) {
+        if (contains(sequence)) {
+            return this;
+        }
+        if (!fits(sequence)) {
+            throw new IllegalArgumentException("Sequence " + sequence + " is beyond the window above " + highWaterMark + ".");
+        }
+        long bits = received | 1L << (sequence - highWaterMark - 1);
+
+        int contiguous = Long.numberOfTrailingZeros(~bits);
+        if (contiguous == SIZE) {
+            return new SequenceWindow(highWaterMark + SIZE, 0);
+        }
+        return new SequenceWindow(highWaterMark + contiguous, bits >>> contiguous);
+    }
+}
@@ -2,6 +2,8 @@ package at.qe.skeleton.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -16,7 +18,27 @@ import java.util.List;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "temperaDevice")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = TemperaDevice.SENSORS_GRAPH, attributeNodes = @NamedAttributeNode("sensors")),
+        @NamedEntityGraph(name = TemperaDevice.SENSORS_AND_ROOM_GRAPH,
+                attributeNodes = {@NamedAttributeNode("sensors"), @NamedAttributeNode(value = "accessPoint", subgraph = "accessPoint")},
+                subgraphs = @NamedSubgraph(name = "accessPoint", attributeNodes = @NamedAttributeNode("room")))
+})
 public class TemperaDevice extends Metadata implements Serializable, Persistable<Long>, Device {
+
+    /**
+     * fetch plan of the measurement ingestion: the TemperaDevice with its sensors.
+     */
+    public static final String SENSORS_GRAPH = "TemperaDevice.sensors";
+
+    /**
+     * fetch plan of the device topology and the admin's device list: the TemperaDevice with its sensors, AccessPoint
+     * and Room.
+     */
+    public static final String SENSORS_AND_ROOM_GRAPH = "TemperaDevice.sensorsAndRoom";
+
     @Id
     @EqualsAndHashCode.Include
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tempera_device_gen")
@@ -28,7 +50,8 @@ public class TemperaDevice extends Metadata implements Serializable, Persistable
     @Column(columnDefinition = "varchar(20) default 'DISABLED'")
     private DeviceStatus status;
 
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "temperaDevice.sensors")
     private List<Sensor> sensors;
 
     @OneToMany(cascade = CascadeType.ALL)
@@ -25,10 +25,18 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
+@NamedEntityGraph(name = Userx.DASHBOARD_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "temperaDevice", subgraph = "temperaDevice"),
+        subgraphs = @NamedSubgraph(name = "temperaDevice", attributeNodes = @NamedAttributeNode("sensors")))
 public class Userx extends Metadata implements Persistable<Long>, Serializable, Comparable<Userx> {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * fetch plan of the current user of a session: the TemperaDevice with its sensors for the dashboard.
+     */
+    public static final String DASHBOARD_GRAPH = "Userx.dashboard";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_gen")
     @SequenceGenerator(name = "user_gen", sequenceName = "user_seq", allocationSize = 1, initialValue = 100)
@@ -59,7 +67,7 @@ public class Userx extends Metadata implements Persistable<Long>, Serializable,
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<TimeRecord> timeRecords;
 
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<Notification> notifications = new ArrayList<>();
 
     @OneToOne(cascade = CascadeType.ALL)
@@ -17,8 +17,14 @@ import java.util.List;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
 @AllArgsConstructor
+@NamedEntityGraph(name = Notification.BELL_GRAPH, attributeNodes = @NamedAttributeNode("buttons"))
 public abstract class Notification implements Persistable<Long>, Serializable {
 
+    /**
+     * fetch plan of the notification bell: the notifications with their buttons.
+     */
+    public static final String BELL_GRAPH = "Notification.bell";
+
     @Id
     @EqualsAndHashCode.Include
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_gen")
@@ -32,7 +38,7 @@ public abstract class Notification implements Persistable<Long>, Serializable {
      */
     @Getter
     @Setter
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<NotificationButton> buttons;
 
 
@@ -1,15 +1,28 @@
 package at.qe.skeleton.repositories;
 
 import at.qe.skeleton.model.*;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Repository for managing {@link AccessPoint} entities.
  */
 public interface AccessPointRepository extends AbstractRepository<AccessPoint, Long> {
+    @EntityGraph(value = AccessPoint.TEMPERA_DEVICES_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     AccessPoint findAccessPointById(Long id);
 
+    /**
+     * @return all AccessPoints with their Room and TemperaDevices in one query
+     */
+    @EntityGraph(value = AccessPoint.TEMPERA_DEVICES_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    @Query("SELECT ap FROM AccessPoint ap")
+    List<AccessPoint> findAllWithTemperaDevices();
+
     List<AccessPoint> findAllByStatusIs(String status);
 
     AccessPoint findAccessPointByTemperaDevicesContains(TemperaDevice temperaDevice);
@@ -21,6 +34,38 @@ public interface AccessPointRepository extends AbstractRepository<AccessPoint, L
      */
     AccessPoint findAccessPointByTemperaDevices(TemperaDevice temperaDevice);
 
+    @EntityGraph(value = AccessPoint.TEMPERA_DEVICES_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     List<AccessPoint> findAccessPointByRoom(Room room);
 
+    /**
+     * @param id the id of the AccessPoint
+     * @return the status of the AccessPoint, null if there is no AccessPoint with the given id
+     */
+    @Query("SELECT ap.status FROM AccessPoint ap WHERE ap.id = :id")
+    DeviceStatus findStatusById(@Param("id") Long id);
+
+    @Query("SELECT td.id FROM TemperaDevice td WHERE td.accessPoint.id = :id")
+    List<Long> findTemperaDeviceIdsById(@Param("id") Long id);
+
+    /**
+     * sets the last connection of an AccessPoint that is already connected.
+     * @return the number of updated AccessPoints, 0 if the AccessPoint is not connected
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccessPoint ap SET ap.lastConnection = :lastConnection WHERE ap.id = :id AND ap.connected = true")
+    int updateLastConnectionIfConnected(@Param("id") Long id, @Param("lastConnection") LocalDateTime lastConnection);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccessPoint ap SET ap.lastConnection = :lastConnection, ap.connected = true WHERE ap.id = :id")
+    int updateLastConnectionAndConnect(@Param("id") Long id, @Param("lastConnection") LocalDateTime lastConnection);
+
+    /**
+     * disconnects an AccessPoint that is connected and whose last connection is not newer than the given one.
+     * @return the number of updated AccessPoints, 0 if the AccessPoint is not connected or a newer contact was recorded
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AccessPoint ap SET ap.lastConnection = :lastConnection, ap.connected = false WHERE ap.id = :id "
+            + "AND ap.connected = true AND (ap.lastConnection IS NULL OR ap.lastConnection <= :lastConnection)")
+    int disconnectIfNotContactedSince(@Param("id") Long id, @Param("lastConnection") LocalDateTime lastConnection);
+
 }
@@ -1,7 +1,9 @@
 package at.qe.skeleton.repositories;
 
 import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.MeasurementBucket;
 import at.qe.skeleton.model.Sensor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -21,8 +23,31 @@ public interface ClimateMeasurementRepository extends AbstractRepository<Climate
 
     List<ClimateMeasurement> findAllBySensorAndTimeStampAfterAndTimeStampBefore(Sensor sensor, LocalDateTime after, LocalDateTime before);
 
+    /**
+     * Groups the measurements of a sensor within the given time range (both exclusive) into buckets of the given
+     * width, so only one row per bucket is transferred instead of every single measurement.
+     * @param sensor the sensor for which to retrieve the measurements
+     * @param after the start of the time range
+     * @param before the end of the time range
+     * @param bucketSeconds the width of one bucket in seconds, counted from the epoch
+     * @return one MeasurementBucket per bucket containing measurements, sorted by timestamp
+     */
+    @Query("SELECT new at.qe.skeleton.model.MeasurementBucket(MIN(cm.timeStamp), AVG(cm.measuredValue), MIN(cm.measuredValue), MAX(cm.measuredValue)) "
+            + "FROM ClimateMeasurement cm WHERE cm.sensor = :sensor AND cm.timeStamp > :after AND cm.timeStamp < :before "
+            + "GROUP BY FLOOR(EXTRACT(EPOCH FROM cm.timeStamp) / :bucketSeconds) "
+            + "ORDER BY MIN(cm.timeStamp)")
+    List<MeasurementBucket> findBucketsBySensorAndTimeStampBetween(@Param("sensor") Sensor sensor, @Param("after") LocalDateTime after,
+                                                                   @Param("before") LocalDateTime before, @Param("bucketSeconds") long bucketSeconds);
+
     @Query(nativeQuery = true, value = "SELECT * FROM climate_measurement cm WHERE cm.sensor_id = :sensorId AND cm.time_stamp >= :minTimestamp ORDER BY cm.time_stamp DESC LIMIT 1")
     Optional<ClimateMeasurement> findNewestBySensorAndNotOlderThan(@Param("sensorId") Long sensorId, @Param("minTimestamp") LocalDateTime minTimestamp);
 
-    void deleteAllBySensor(Sensor sensor);
+    /**
+     * Deletes all measurements of a sensor with a single bulk statement, using the (sensor_id, time_stamp) index of
+     * every partition instead of loading and deleting the measurements one by one.
+     * @param sensor the sensor whose measurements are deleted
+     */
+    @Modifying
+    @Query("DELETE FROM ClimateMeasurement cm WHERE cm.sensor = :sensor")
+    void deleteAllBySensor(@Param("sensor") Sensor sensor);
 }
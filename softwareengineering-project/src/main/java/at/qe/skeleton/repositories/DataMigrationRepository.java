@@ -0,0 +1,9 @@
+package at.qe.skeleton.repositories;
+
+import at.qe.skeleton.model.DataMigration;
+
+/**
+ * Repository for managing {@link DataMigration} entities.
+ */
+public interface DataMigrationRepository extends AbstractRepository<DataMigration, String> {
+}
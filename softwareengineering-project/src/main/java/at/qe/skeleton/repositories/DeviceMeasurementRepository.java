@@ -0,0 +1,29 @@
+package at.qe.skeleton.repositories;
+
+import at.qe.skeleton.model.DeviceMeasurement;
+import at.qe.skeleton.model.TemperaDevice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Repository for managing {@link DeviceMeasurement} entities.
+ */
+public interface DeviceMeasurementRepository extends AbstractRepository<DeviceMeasurement, Long> {
+
+    List<DeviceMeasurement> findAllByTemperaDeviceOrderByTimeStamp(TemperaDevice temperaDevice);
+
+    List<DeviceMeasurement> findAllByTemperaDeviceAndTimeStampAfterAndTimeStampBeforeOrderByTimeStamp(TemperaDevice temperaDevice, LocalDateTime after, LocalDateTime before);
+
+    @Query(nativeQuery = true, value = "SELECT * FROM device_measurement dm WHERE dm.tempera_device_id = :temperaDeviceId AND dm.time_stamp >= :minTimestamp ORDER BY dm.time_stamp DESC LIMIT 1")
+    Optional<DeviceMeasurement> findNewestByTemperaDeviceAndNotOlderThan(@Param("temperaDeviceId") Long temperaDeviceId, @Param("minTimestamp") LocalDateTime minTimestamp);
+
+    @Modifying
+    @Query("DELETE FROM DeviceMeasurement dm WHERE dm.temperaDevice = :temperaDevice")
+    void deleteAllByTemperaDevice(@Param("temperaDevice") TemperaDevice temperaDevice);
+}
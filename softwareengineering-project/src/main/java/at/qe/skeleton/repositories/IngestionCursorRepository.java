@@ -0,0 +1,29 @@
+package at.qe.skeleton.repositories;
+
+import at.qe.skeleton.model.IngestionCursor;
+import at.qe.skeleton.model.IngestionStream;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Repository for managing {@link IngestionCursor} entities.
+ */
+public interface IngestionCursorRepository extends AbstractRepository<IngestionCursor, Long> {
+
+    IngestionCursor findByAccessPointIdAndStream(Long accessPointId, IngestionStream stream);
+
+    /**
+     * loads the cursor and locks its row (SELECT ... FOR UPDATE) until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM IngestionCursor c WHERE c.accessPointId = :accessPointId AND c.stream = :stream")
+    IngestionCursor findLockedByAccessPointIdAndStream(@Param("accessPointId") Long accessPointId,
+                                                       @Param("stream") IngestionStream stream);
+
+    @Modifying
+    @Query("DELETE FROM IngestionCursor c WHERE c.accessPointId = :accessPointId")
+    void deleteAllByAccessPointId(@Param("accessPointId") Long accessPointId);
+}
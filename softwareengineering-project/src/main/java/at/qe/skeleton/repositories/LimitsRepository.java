@@ -4,6 +4,9 @@ package at.qe.skeleton.repositories;
 import at.qe.skeleton.model.Limits;
 import at.qe.skeleton.model.Room;
 import at.qe.skeleton.model.SensorType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
@@ -12,6 +15,8 @@ import java.util.Optional;
  */
 public interface LimitsRepository extends AbstractRepository<Limits, Long> {
 
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "reference-queries")})
     Optional<Limits> findFirstByRoomAndSensorTypeIs(Room room, SensorType sensorType);
 
 
@@ -0,0 +1,26 @@
+package at.qe.skeleton.repositories;
+
+import at.qe.skeleton.model.MeasurementRollup;
+import at.qe.skeleton.model.RollupResolution;
+import at.qe.skeleton.model.Sensor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+/**
+ * Repository for managing {@link MeasurementRollup} entities.
+ */
+public interface MeasurementRollupRepository extends AbstractRepository<MeasurementRollup, Long> {
+
+    List<MeasurementRollup> findAllBySensorAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(Sensor sensor, RollupResolution resolution, LocalDateTime from, LocalDateTime to);
+
+    long count();
+
+    @Modifying
+    @Query("DELETE FROM MeasurementRollup r WHERE r.sensor = :sensor")
+    void deleteAllBySensor(@Param("sensor") Sensor sensor);
+}
@@ -2,9 +2,13 @@ package at.qe.skeleton.repositories;
 
 import at.qe.skeleton.model.Userx;
 import at.qe.skeleton.model.notifications.Notification;
+import org.springframework.data.jpa.repository.EntityGraph;
 
 import java.util.List;
 
 public interface NotificationRepository extends AbstractRepository<Notification, Long> {
+    @EntityGraph(value = Notification.BELL_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     List<Notification> findAllByUser(Userx user);
+
+    long countByUser(Userx user);
 }
@@ -1,11 +1,16 @@
 package at.qe.skeleton.repositories;
 
 import at.qe.skeleton.model.Room;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.QueryHints;
 
 /**
  * Repository for managing {@link Room} entities.
  */
 public interface RoomRepository extends AbstractRepository<Room, Long> {
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "reference-queries")})
     Room findByRoomNumber(String roomNumber);
 
 
@@ -3,17 +3,44 @@ package at.qe.skeleton.repositories;
 import at.qe.skeleton.model.Sensor;
 import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.model.Warning;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for managing {@link TemperaDevice} entities.
  */
 public interface TemperaDeviceRepository extends AbstractRepository<TemperaDevice, Long> {
+    @EntityGraph(value = TemperaDevice.SENSORS_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
     TemperaDevice findTemperaDeviceById(Long id);
 
+    /**
+     * @return all TemperaDevices with their sensors, AccessPoint and Room in one query
+     */
+    @EntityGraph(value = TemperaDevice.SENSORS_AND_ROOM_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    @Query("SELECT td FROM TemperaDevice td")
+    List<TemperaDevice> findAllWithSensorsAndRoom();
+
     List<TemperaDevice> findByStatusIs(String status);
 
+    /**
+     * loads the TemperaDevice and locks its row (SELECT ... FOR UPDATE) until the transaction ends, so the warnings
+     * of a TemperaDevice are changed by one transaction at a time, across all instances of the application.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT td FROM TemperaDevice td WHERE td.id = :id")
+    Optional<TemperaDevice> findLockedById(@Param("id") Long id);
+
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "reference-queries")})
     TemperaDevice findTemperaDeviceBySensorsContains(Sensor sensor);
 
     TemperaDevice findTemperaDeviceByWarningsContains(Warning warning);
@@ -23,4 +23,6 @@ public interface TimeRecordRepository extends AbstractRepository<TimeRecord, Lon
     List<TimeRecord> findAllByWorkGroup(WorkGroup workGroup);
 
     List<TimeRecord> findAllByEndTimeIsNull();
+
+    List<TimeRecord> findAllByEndTimeIsNullAndStartTimeBefore(LocalDateTime startTime);
 }
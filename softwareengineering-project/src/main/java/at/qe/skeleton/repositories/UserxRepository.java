@@ -5,6 +5,7 @@ import at.qe.skeleton.model.*;
 import java.util.List;
 
 import at.qe.skeleton.model.WorkGroup;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -18,6 +19,22 @@ public interface UserxRepository extends AbstractRepository<Userx, String> {
 
     Userx findFirstByUsername(String username);
 
+    /**
+     * Retrieves a User entity by its username together with the sensors of its TemperaDevice, as shown on the
+     * dashboard. The notifications are not loaded.
+     *
+     * @param username the username of the user
+     * @return The user with the given username, null if there is none.
+     */
+    @EntityGraph(value = Userx.DASHBOARD_GRAPH, type = EntityGraph.EntityGraphType.LOAD)
+    Userx findDashboardUserByUsername(String username);
+
+    /**
+     * @return all users that have a TemperaDevice, together with the TemperaDevice
+     */
+    @Query("SELECT u FROM Userx u JOIN FETCH u.temperaDevice")
+    List<Userx> findAllWithTemperaDevice();
+
     Userx findFirstByTemperaDevice(TemperaDevice temperaDevice);
 
     List<Userx> findByUsernameContainingIgnoreCase(String username);
@@ -0,0 +1,31 @@
+package at.qe.skeleton.rest.controllers;
+
+import at.qe.skeleton.services.climate.DashboardPushHub;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+
+/**
+ * Provides the stream of the climate dashboard for logged-in users.
+ */
+@org.springframework.web.bind.annotation.RestController
+public class DashboardStreamController {
+
+    @Autowired
+    private DashboardPushHub dashboardPushHub;
+
+    /**
+     * provides a Get-Method accessible under /secured/dashboard/stream to receive the newest measurements and the
+     * warnings of the user's TemperaDevice as server-sent events ("measurement" and "warning").
+     *
+     * @param principal the logged-in user.
+     * @return SseEmitter the stream, completed immediately if the user has no TemperaDevice.
+     */
+    @GetMapping(value = "/secured/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Principal principal) {
+        return dashboardPushHub.subscribe(principal.getName());
+    }
+}
@@ -0,0 +1,67 @@
+package at.qe.skeleton.rest.controllers;
+
+import at.qe.skeleton.model.SensorType;
+import at.qe.skeleton.services.climate.MeasurementExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * Provides the export of the measurement history for administrators.
+ */
+@org.springframework.web.bind.annotation.RestController
+public class MeasurementExportController {
+
+    @Autowired
+    private MeasurementExportService measurementExportService;
+
+    /**
+     * provides a Get-Method accessible under /admin/export/measurements to download the measurements matching the
+     * given filters as NDJSON (one JSON object per line) or CSV. The rows are streamed while they are read from the
+     * database, so exports of any size can be downloaded.
+     *
+     * @param format          "ndjson" (default) or "csv".
+     * @param gzip            true to download the export compressed with gzip.
+     * @param sensorType      only measurements of this SensorType.
+     * @param temperaDeviceId only measurements of the TemperaDevice with this id.
+     * @param roomNumber      only measurements of TemperaDevices in the room with this number.
+     * @param from            only measurements taken at or after this time (ISO format, e.g. 2024-05-01T00:00).
+     * @param to              only measurements taken before this time (ISO format).
+     * @return ResponseEntity<StreamingResponseBody> the streamed export. StatusCodes: 200 if successful, 400 if the
+     * format is unknown.
+     */
+    @GetMapping("/admin/export/measurements")
+    public ResponseEntity<StreamingResponseBody> exportMeasurements(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) SensorType sensorType,
+            @RequestParam(required = false) Long temperaDeviceId,
+            @RequestParam(required = false) String roomNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        MeasurementExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = MeasurementExportService.ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        MeasurementExportService.ExportFilter filter =
+                new MeasurementExportService.ExportFilter(sensorType, temperaDeviceId, roomNumber, from, to);
+
+        String fileName = "measurements." + exportFormat.getFileExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = outputStream -> measurementExportService.export(filter, exportFormat, gzip, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -4,10 +4,14 @@ package at.qe.skeleton.rest.controllers;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.exceptions.EntityStillInUseException;
 import at.qe.skeleton.exceptions.EntityValidationException;
+import at.qe.skeleton.exceptions.InvalidSequenceException;
+import at.qe.skeleton.exceptions.SequenceOutOfWindowException;
 import at.qe.skeleton.model.notifications.*;
 import at.qe.skeleton.model.notifications.visitorpattern.APINotificationValidationVisitorInterface;
 import at.qe.skeleton.rest.dto.LogTemperaDeviceDTO;
 import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
+import at.qe.skeleton.rest.dto.MeasurementStatusDTO;
 import at.qe.skeleton.rest.dto.APINotificationDTO;
 import at.qe.skeleton.rest.dto.TimeRecordDTO;
 import at.qe.skeleton.rest.mapper.LogTemperaDeviceDTOMapper;
@@ -17,24 +21,37 @@ import at.qe.skeleton.rest.mapper.TimeRecordMapper;
 import at.qe.skeleton.services.*;
 
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.MeasurementIngestionQueue;
+import at.qe.skeleton.services.climate.MeasurementWriteAheadLog;
 import at.qe.skeleton.services.climate.WarningService;
 import at.qe.skeleton.services.notifications.NotificationService;
 import at.qe.skeleton.services.notifications.TokenService;
 import at.qe.skeleton.services.timeTracking.TimeRecordService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @org.springframework.web.bind.annotation.RestController
 public class RestController implements APINotificationValidationVisitorInterface {
 
+    /**
+     * response header with the sequence up to which the AccessPoint can discard its transmitted items.
+     */
+    public static final String ACKNOWLEDGED_SEQUENCE_HEADER = "X-Acknowledged-Sequence";
+
     @Autowired
     private ClimateMeasurementService climateMeasurementService;
 
@@ -69,65 +86,443 @@ public class RestController implements APINotificationValidationVisitorInterface
     @Autowired
     private APINotificationDeviceBodyDTOMapper apiNotificationDeviceBodyDTOMapper;
 
+    @Autowired
+    private MeasurementIngestionQueue measurementIngestionQueue;
+
+    @Autowired
+    private IngestionCursorService ingestionCursorService;
+
+    @Autowired
+    private MeasurementWriteAheadLog measurementWriteAheadLog;
+
+    @Value("${tempera.measurements.ingestion.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
     /**
      * provides a Post-Method accessible under /api/timerecords/{accessPointId} to transmit a TimeRecord.
      * The TimeRecordDTO is converted to a new TimeRecord and saved in the database. Furthermore the former, open
-     * TimeRecord is closed and saved as well.
+     * TimeRecord is closed and saved as well. The id of the TimeRecordDTO is the AccessPoint's sequence number of the
+     * TimeRecord, a TimeRecord that was already received is not saved again (see {@link IngestionCursorService}).
      *
      * @param timeRecord    The TimeRecord to be saved.
      * @param accessPointId The id of the AccessPoint, that transmit the data.
-     * @return ResponseEntity<TimeRecordDTO> The TimeRecord that was sent. StatusCodes: 201 if successful, 403 if
-     * AccessPoint is not active/not found/not valid, 500 if an error occurred.
+     * @return ResponseEntity<TimeRecordDTO> The TimeRecord that was sent, with the acknowledged sequence in the
+     * X-Acknowledged-Sequence header. StatusCodes: 201 if successful, 200 if the TimeRecord was already received, 400
+     * if the id is not positive, 403 if AccessPoint is not active/not found/not valid, 409 if the id is too far above
+     * the acknowledged sequence (nothing was saved, the TimeRecords have to be resent in order), 500 if an error
+     * occurred.
      */
 
     @PostMapping("/api/timerecords/{accessPointId}")
     public ResponseEntity<TimeRecordDTO> createTimeRecord(@RequestBody TimeRecordDTO timeRecord, @PathVariable String accessPointId) throws EntityValidationException {
         try {
-            AccessPoint accessPoint = accessPointService.getActiveAccessPointById(accessPointId);
-            updateConnection(accessPoint);
+            AccessPointRegistry.RegisteredAccessPoint accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
 
-            TimeRecord newTimeRecord = timeRecordMapper.mapFrom(timeRecord);
+            IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(accessPoint.id(),
+                    IngestionStream.TIME_RECORDS, Collections.singletonList(timeRecord.id()),
+                    fresh -> timeRecordService.saveNewAndCloseOldTimeRecord(timeRecordMapper.mapFrom(timeRecord)));
 
-            timeRecordService.saveNewAndCloseOldTimeRecord(newTimeRecord);
+            return ResponseEntity.status(acknowledgement.isDuplicate(0) ? HttpStatus.OK : HttpStatus.CREATED)
+                    .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(acknowledgement.acknowledgedSequence()))
+                    .body(timeRecord);
 
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (SequenceOutOfWindowException e) {
+            return outOfWindow(e);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (DataAccessException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
-
-        return ResponseEntity.status(201).body(timeRecord);
     }
 
     /**
      * provides a Post-Method accessible under /api/measurements/{accessPointId} to transmit a ClimateMeasurements.
-     * The ClimateMeasurementsDTO is mapped to new ClimateMeasurements and saved in the database.
+     * The ClimateMeasurementsDTO is mapped to new ClimateMeasurements and saved in the database. The id of the
+     * MeasurementDTO is the AccessPoint's sequence number of the measurements, measurements that were already
+     * received are not saved again (see {@link IngestionCursorService}). While the database is unavailable, the
+     * measurements are written to the {@link MeasurementWriteAheadLog} and saved later.
      *
      * @param measurementDTO The ClimateMeasurements to be saved.
      * @param accessPointId  The id of the AccessPoint, that transmit the data.
-     * @return ResponseEntity<MeasurementDTO> The MeasurementDTO that was sent. StatusCodes: 201 if successful, 403 if
-     * AccessPoint is not active/not found/not valid, 500 if an error occurred.
+     * @return ResponseEntity<MeasurementDTO> The MeasurementDTO that was sent, with the acknowledged sequence in the
+     * X-Acknowledged-Sequence header. StatusCodes: 201 if successful, 200 if the measurements were already received,
+     * 202 if the measurements were written to the write-ahead log, 400 if the id is not positive, 403 if AccessPoint is
+     * not active/not found/not valid, 409 if the id is too far above the acknowledged sequence (nothing was saved, the
+     * measurements have to be resent in order), 500 if an error occurred.
      */
     @PostMapping("/api/measurements/{accessPointId}")
     public ResponseEntity<MeasurementDTO> createMeasurement(@RequestBody MeasurementDTO measurementDTO, @PathVariable String accessPointId) throws EntityValidationException {
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = null;
         try {
             //Exception will be thrown if accessPointId is not valid/active
-            AccessPoint accessPoint = accessPointService.getActiveAccessPointById(accessPointId);
-            updateConnection(accessPoint);
+            accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+            IngestionCursorService.checkSequences(Collections.singletonList(measurementDTO.id()));
+            if (measurementWriteAheadLog.hasPending()) {
+                return appendToWriteAheadLog(accessPoint, measurementDTO);
+            }
             List<ClimateMeasurement> climateMeasurements = measurementMapper.mapFrom(measurementDTO);
 
-            climateMeasurementService.saveAll(climateMeasurements);
-            climateMeasurementService.checkLimits(climateMeasurements);
+            IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(accessPoint.id(),
+                    IngestionStream.MEASUREMENTS, Collections.singletonList(measurementDTO.id()),
+                    fresh -> climateMeasurementService.saveAll(climateMeasurements));
+            if (!acknowledgement.isDuplicate(0)) {
+                climateMeasurementService.checkLimits(climateMeasurements);
+            }
 
-            return ResponseEntity.status(201).body(measurementDTO);
+            return ResponseEntity.status(acknowledgement.isDuplicate(0) ? HttpStatus.OK : HttpStatus.CREATED)
+                    .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(acknowledgement.acknowledgedSequence()))
+                    .body(measurementDTO);
 
 
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (SequenceOutOfWindowException e) {
+            return outOfWindow(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (DataAccessException | CannotCreateTransactionException e) {
+            if (accessPoint != null && MeasurementWriteAheadLog.isOutage(e)) {
+                return appendToWriteAheadLog(accessPoint, measurementDTO);
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+    }
+
+    /**
+     * provides a Post-Method accessible under /api/measurements/{accessPointId}/async to transmit ClimateMeasurements
+     * without waiting for them to be saved.
+     * The MeasurementDTO is mapped to new ClimateMeasurements, which are put on the {@link MeasurementIngestionQueue}.
+     * Saving them, recording their sequence number and checking the limits happens later on a writer thread; while the
+     * {@link MeasurementWriteAheadLog} has pending measurements, they are appended to it instead.
+     *
+     * @param measurementDTO The ClimateMeasurements to be saved.
+     * @param accessPointId  The id of the AccessPoint, that transmit the data.
+     * @return ResponseEntity<MeasurementDTO> The MeasurementDTO that was sent. StatusCodes: 202 if queued, 400 if the
+     * id is not positive, 403 if AccessPoint is not active/not found/not valid, 429 with a Retry-After header if the
+     * queue is full, 500 if an error occurred.
+     */
+    @PostMapping("/api/measurements/{accessPointId}/async")
+    public ResponseEntity<MeasurementDTO> enqueueMeasurement(@RequestBody MeasurementDTO measurementDTO, @PathVariable String accessPointId) throws EntityValidationException {
+        try {
+            AccessPointRegistry.RegisteredAccessPoint accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+            IngestionCursorService.checkSequences(Collections.singletonList(measurementDTO.id()));
+            if (measurementWriteAheadLog.hasPending()) {
+                return appendToWriteAheadLog(accessPoint, measurementDTO);
+            }
+            List<ClimateMeasurement> climateMeasurements = measurementMapper.mapFrom(measurementDTO);
+
+            if (!measurementIngestionQueue.offer(accessPoint.id(), measurementDTO, climateMeasurements)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                        .build();
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(measurementDTO);
+
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (DataAccessException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
+    }
+
+    /**
+     * provides a Post-Method accessible under /api/measurements/{accessPointId}/batch to transmit the buffered
+     * ClimateMeasurements of several TemperaDevices and timestamps at once.
+     * The AccessPoint is authenticated once for the whole batch, the MeasurementDTOs are mapped with
+     * {@link MeasurementMapper#mapAllFrom(List)} and all accepted ClimateMeasurements are saved in one transaction.
+     * MeasurementDTOs of TemperaDevices that are unknown or not connected to the AccessPoint are rejected, the ones
+     * with a sequence number (id) that was already received are reported as duplicates and not saved again.
+     * While the database is unavailable, the accepted MeasurementDTOs are written to the
+     * {@link MeasurementWriteAheadLog} and saved later.
+     *
+     * @param measurementDTOs The ClimateMeasurements to be saved.
+     * @param accessPointId   The id of the AccessPoint, that transmit the data.
+     * @return ResponseEntity<List<MeasurementStatusDTO>> The status of every transmitted MeasurementDTO in the order
+     * they were sent, with the acknowledged sequence in the X-Acknowledged-Sequence header. StatusCodes: 201 if
+     * successful, 202 if the batch was written to the write-ahead log, 400 if the batch contains null elements or ids
+     * that are not positive, 403 if AccessPoint is not active/not found/not valid, 409 if an id is too far above the
+     * acknowledged sequence (nothing of the batch was saved, the measurements have to be resent in order), 500 if an
+     * error occurred (nothing of the batch was saved).
+     */
+    @PostMapping("/api/measurements/{accessPointId}/batch")
+    public ResponseEntity<List<MeasurementStatusDTO>> createMeasurements(@RequestBody List<MeasurementDTO> measurementDTOs, @PathVariable String accessPointId) throws EntityValidationException {
+        if (measurementDTOs.contains(null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = null;
+        try {
+            accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+            IngestionCursorService.checkSequences(ids(measurementDTOs));
+            if (measurementWriteAheadLog.hasPending()) {
+                return appendToWriteAheadLog(accessPoint, measurementDTOs);
+            }
+
+            List<MeasurementStatusDTO> statuses = new ArrayList<>();
+            List<List<ClimateMeasurement>> acceptedMeasurements = new ArrayList<>();
+            IngestionCursorService.Acknowledgement acknowledgement = ingestConnectedMeasurements(accessPoint,
+                    ids(measurementDTOs), temperaDeviceIds(measurementDTOs), measurementMapper.mapAllFrom(measurementDTOs),
+                    statuses, acceptedMeasurements,
+                    measurements -> climateMeasurementService.saveAll(measurements.stream().flatMap(List::stream).toList()));
+            acceptedMeasurements.forEach(climateMeasurementService::checkLimits);
+
+            return ResponseEntity.status(201)
+                    .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(acknowledgement.acknowledgedSequence()))
+                    .body(statuses);
+
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (SequenceOutOfWindowException e) {
+            return outOfWindow(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (DataAccessException | CannotCreateTransactionException e) {
+            if (accessPoint != null && MeasurementWriteAheadLog.isOutage(e)) {
+                return appendToWriteAheadLog(accessPoint, measurementDTOs);
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
+    /**
+     * provides a Post-Method accessible under /api/measurements/{accessPointId}/backfill to replay the historical
+     * ClimateMeasurements an AccessPoint buffered while it was offline.
+     * The MeasurementDTOs are accepted or rejected like in {@link #createMeasurements(List, String)}, but the accepted
+     * ClimateMeasurements are bulk loaded with {@link ClimateMeasurementService#backfill(List)} and no warnings are
+     * created for them. Current measurements should therefore still be sent to the other endpoints.
+     *
+     * @param measurementDTOs The historical ClimateMeasurements to be saved.
+     * @param accessPointId   The id of the AccessPoint, that transmit the data.
+     * @return ResponseEntity<List<MeasurementStatusDTO>> The status of every transmitted MeasurementDTO in the order
+     * they were sent, with the acknowledged sequence in the X-Acknowledged-Sequence header. StatusCodes: 201 if
+     * successful, 400 if the batch contains null elements or ids that are not positive, 403 if AccessPoint is not
+     * active/not found/not valid, 409 if an id is too far above the acknowledged sequence (nothing of the batch was
+     * saved, the measurements have to be resent in order), 500 if an error occurred (nothing of the batch was saved).
+     */
+    @PostMapping("/api/measurements/{accessPointId}/backfill")
+    public ResponseEntity<List<MeasurementStatusDTO>> backfillMeasurements(@RequestBody List<MeasurementDTO> measurementDTOs, @PathVariable String accessPointId) throws EntityValidationException {
+        if (measurementDTOs.contains(null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            AccessPointRegistry.RegisteredAccessPoint accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+
+            List<MeasurementStatusDTO> statuses = new ArrayList<>();
+            IngestionCursorService.Acknowledgement acknowledgement = ingestConnectedMeasurements(accessPoint,
+                    ids(measurementDTOs), temperaDeviceIds(measurementDTOs), measurementMapper.mapAllFrom(measurementDTOs),
+                    statuses, new ArrayList<>(),
+                    measurements -> climateMeasurementService.backfill(measurements.stream().flatMap(List::stream).toList()));
+
+            return ResponseEntity.status(201)
+                    .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(acknowledgement.acknowledgedSequence()))
+                    .body(statuses);
+
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (SequenceOutOfWindowException e) {
+            return outOfWindow(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (DataAccessException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * provides a Post-Method accessible under /api/measurements/{accessPointId} for AccessPoints sending the binary
+     * {@link MeasurementFrame} format instead of JSON. The frame has to contain exactly one measurement, which is
+     * handled like in {@link #createMeasurement(MeasurementDTO, String)}, but only accepted if its TemperaDevice is
+     * connected to the AccessPoint.
+     *
+     * @param frame         The frame with the ClimateMeasurements to be saved.
+     * @param accessPointId The id of the AccessPoint, that transmit the data.
+     * @return ResponseEntity<Void> with the acknowledged sequence in the X-Acknowledged-Sequence header. StatusCodes:
+     * 201 if successful, 200 if the measurements were already received, 202 if the measurements were written to the
+     * write-ahead log, 400 if the frame does not contain exactly one measurement or its id is not positive, 403 if
+     * AccessPoint is not active/not found/not valid or the TemperaDevice is unknown/not connected, 409 if the id is too
+     * far above the acknowledged sequence (nothing was saved), 500 if an error occurred.
+     */
+    @PostMapping(value = "/api/measurements/{accessPointId}", consumes = MeasurementFrame.MEDIA_TYPE_VALUE)
+    public ResponseEntity<Void> createMeasurementFromFrame(@RequestBody MeasurementFrame frame, @PathVariable String accessPointId) throws EntityValidationException {
+        if (frame.size() != 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        ResponseEntity<List<MeasurementStatusDTO>> response = createMeasurementsFromFrame(frame, accessPointId);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).build();
+        }
+        String status = response.getBody().get(0).status();
+        if (MeasurementStatusDTO.REJECTED.equals(status)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (MeasurementStatusDTO.QUEUED.equals(status)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+        }
+        return ResponseEntity.status(MeasurementStatusDTO.DUPLICATE.equals(status) ? HttpStatus.OK : HttpStatus.CREATED)
+                .headers(response.getHeaders())
+                .build();
+    }
+
+    /**
+     * provides a Post-Method accessible under /api/measurements/{accessPointId}/batch for AccessPoints sending the
+     * binary {@link MeasurementFrame} format instead of JSON. The measurements of the frame are mapped without
+     * creating MeasurementDTOs and handled like in {@link #createMeasurements(List, String)}.
+     *
+     * @param frame         The frame with the ClimateMeasurements to be saved.
+     * @param accessPointId The id of the AccessPoint, that transmit the data.
+     * @return ResponseEntity<List<MeasurementStatusDTO>> The status of every measurement of the frame in its order,
+     * with the acknowledged sequence in the X-Acknowledged-Sequence header. StatusCodes: 201 if successful, 202 if the
+     * frame was written to the write-ahead log, 400 if an id is not positive, 403 if AccessPoint is not active/not
+     * found/not valid, 409 if an id is too far above the acknowledged sequence (nothing of the frame was saved, the
+     * measurements have to be resent in order), 500 if an error occurred (nothing of the frame was saved).
+     */
+    @PostMapping(value = "/api/measurements/{accessPointId}/batch", consumes = MeasurementFrame.MEDIA_TYPE_VALUE)
+    public ResponseEntity<List<MeasurementStatusDTO>> createMeasurementsFromFrame(@RequestBody MeasurementFrame frame, @PathVariable String accessPointId) throws EntityValidationException {
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = null;
+        try {
+            accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+
+            List<Long> ids = new ArrayList<>(frame.size());
+            List<Long> temperaDeviceIds = new ArrayList<>(frame.size());
+            for (int i = 0; i < frame.size(); i++) {
+                ids.add(frame.id(i));
+                temperaDeviceIds.add(frame.temperaDeviceId(i));
+            }
+            IngestionCursorService.checkSequences(ids);
+            if (measurementWriteAheadLog.hasPending()) {
+                return appendToWriteAheadLog(accessPoint, frame.toMeasurementDTOs());
+            }
+
+            List<MeasurementStatusDTO> statuses = new ArrayList<>();
+            List<List<ClimateMeasurement>> acceptedMeasurements = new ArrayList<>();
+            IngestionCursorService.Acknowledgement acknowledgement = ingestConnectedMeasurements(accessPoint,
+                    ids, temperaDeviceIds, measurementMapper.mapFrame(frame), statuses, acceptedMeasurements,
+                    measurements -> climateMeasurementService.saveAll(measurements.stream().flatMap(List::stream).toList()));
+            acceptedMeasurements.forEach(climateMeasurementService::checkLimits);
+
+            return ResponseEntity.status(201)
+                    .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(acknowledgement.acknowledgedSequence()))
+                    .body(statuses);
+
+        } catch (InvalidSequenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (SequenceOutOfWindowException e) {
+            return outOfWindow(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (DataAccessException | CannotCreateTransactionException e) {
+            if (accessPoint != null && MeasurementWriteAheadLog.isOutage(e)) {
+                return appendToWriteAheadLog(accessPoint, frame.toMeasurementDTOs());
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * accepts the mapped ClimateMeasurements of TemperaDevices that are known and connected to the given AccessPoint.
+     * The accepted ClimateMeasurements that were not received before are passed to the writer, in the same
+     * transaction as their sequence numbers are recorded.
+     *
+     * @param accessPoint          The AccessPoint, that transmit the data.
+     * @param ids                  The ids (sequence numbers) of the transmitted measurements.
+     * @param temperaDeviceIds     The ids of the TemperaDevices of the transmitted measurements.
+     * @param mappedMeasurements   The ClimateMeasurements of every transmitted measurement, empty if the
+     *                             TemperaDevice is unknown.
+     * @param statuses             The list the status of every measurement is added to, in the order they were sent.
+     * @param acceptedMeasurements The list the saved ClimateMeasurements are added to, grouped by measurement.
+     * @param writer               Saves the ClimateMeasurements, grouped by measurement.
+     * @return the acknowledgement of the transmitted sequence numbers.
+     */
+    private IngestionCursorService.Acknowledgement ingestConnectedMeasurements(AccessPointRegistry.RegisteredAccessPoint accessPoint, List<Long> ids, List<Long> temperaDeviceIds, List<List<ClimateMeasurement>> mappedMeasurements, List<MeasurementStatusDTO> statuses, List<List<ClimateMeasurement>> acceptedMeasurements, Consumer<List<List<ClimateMeasurement>>> writer) {
+        IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(accessPoint.id(),
+                IngestionStream.MEASUREMENTS, ids, fresh -> {
+                    List<List<ClimateMeasurement>> freshMeasurements = new ArrayList<>();
+                    for (int i : fresh) {
+                        List<ClimateMeasurement> climateMeasurements = mappedMeasurements.get(i);
+                        if (!climateMeasurements.isEmpty() && accessPoint.isConnected(temperaDeviceIds.get(i))) {
+                            freshMeasurements.add(climateMeasurements);
+                        }
+                    }
+                    writer.accept(freshMeasurements);
+                    acceptedMeasurements.addAll(freshMeasurements);
+                });
+
+        for (int i = 0; i < ids.size(); i++) {
+            List<ClimateMeasurement> climateMeasurements = mappedMeasurements.get(i);
+
+            if (acknowledgement.isDuplicate(i)) {
+                statuses.add(new MeasurementStatusDTO(ids.get(i), MeasurementStatusDTO.DUPLICATE));
+            } else if (climateMeasurements.isEmpty() || !accessPoint.isConnected(temperaDeviceIds.get(i))) {
+                statuses.add(new MeasurementStatusDTO(ids.get(i), MeasurementStatusDTO.REJECTED));
+            } else {
+                statuses.add(new MeasurementStatusDTO(ids.get(i), MeasurementStatusDTO.ACCEPTED));
+            }
+        }
+        return acknowledgement;
+    }
+
+    /**
+     * rejects items with a sequence number too far above the acknowledged one, the AccessPoint has to resend its items
+     * from the acknowledged sequence on.
+     *
+     * @param e The exception thrown by the {@link IngestionCursorService}.
+     * @return ResponseEntity with status 409 and the acknowledged sequence in the X-Acknowledged-Sequence header.
+     */
+    private static <T> ResponseEntity<T> outOfWindow(SequenceOutOfWindowException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(ACKNOWLEDGED_SEQUENCE_HEADER, String.valueOf(e.getAcknowledgedSequence()))
+                .build();
+    }
+
+    /**
+     * writes the MeasurementDTOs of TemperaDevices connected to the AccessPoint to the {@link MeasurementWriteAheadLog},
+     * they are saved as soon as the database is available again.
+     *
+     * @param accessPoint     The AccessPoint, that transmit the data.
+     * @param measurementDTOs The transmitted MeasurementDTOs.
+     * @return ResponseEntity<List<MeasurementStatusDTO>> The status of every transmitted MeasurementDTO in the order
+     * they were sent. StatusCodes: 202 if successful, 500 if the write-ahead log could not be written.
+     */
+    private ResponseEntity<List<MeasurementStatusDTO>> appendToWriteAheadLog(AccessPointRegistry.RegisteredAccessPoint accessPoint, List<MeasurementDTO> measurementDTOs) {
+        List<MeasurementStatusDTO> statuses = new ArrayList<>();
+        List<MeasurementDTO> queuedMeasurementDTOs = new ArrayList<>();
+        for (MeasurementDTO measurementDTO : measurementDTOs) {
+            if (measurementDTO.timestamp() != null && accessPoint.isConnected(measurementDTO.temperaDeviceId())) {
+                queuedMeasurementDTOs.add(measurementDTO);
+                statuses.add(new MeasurementStatusDTO(measurementDTO.id(), MeasurementStatusDTO.QUEUED));
+            } else {
+                statuses.add(new MeasurementStatusDTO(measurementDTO.id(), MeasurementStatusDTO.REJECTED));
+            }
+        }
+        if (!queuedMeasurementDTOs.isEmpty() && !measurementWriteAheadLog.append(accessPoint.id(), queuedMeasurementDTOs)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(statuses);
+    }
+
+    private ResponseEntity<MeasurementDTO> appendToWriteAheadLog(AccessPointRegistry.RegisteredAccessPoint accessPoint, MeasurementDTO measurementDTO) {
+        if (measurementDTO.timestamp() == null || !measurementWriteAheadLog.append(accessPoint.id(), List.of(measurementDTO))) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(measurementDTO);
+    }
+
+    private static List<Long> ids(List<MeasurementDTO> measurementDTOs) {
+        return measurementDTOs.stream().map(MeasurementDTO::id).toList();
+    }
+
+    private static List<Long> temperaDeviceIds(List<MeasurementDTO> measurementDTOs) {
+        return measurementDTOs.stream().map(MeasurementDTO::temperaDeviceId).toList();
     }
 
     /**
@@ -147,7 +542,7 @@ public class RestController implements APINotificationValidationVisitorInterface
 
         try {
             accessPoint = accessPointService.getActiveAccessPointById(accessPointId);
-            updateConnection(accessPoint);
+            updateConnection(accessPoint.getId());
 
             LogTemperaDevice logTemperaDevice = accessPoint.getLogTemperaDevices().get(0);
 
@@ -177,7 +572,7 @@ public class RestController implements APINotificationValidationVisitorInterface
 
         try {
             accessPoint = accessPointService.getActiveAccessPointById(accessPointId);
-            updateConnection(accessPoint);
+            updateConnection(accessPoint.getId());
             accessPointService.resetLogTemperaDevice(accessPoint);
 
         } catch (IllegalArgumentException e) {
@@ -189,6 +584,31 @@ public class RestController implements APINotificationValidationVisitorInterface
         return ResponseEntity.ok("Deleted latest LogTemperaDevice for AccessPoint with id: " + accessPointId);
     }
 
+    /**
+     * provides a Delete-Method accessible under /api/cursors/{accessPointId} for an AccessPoint that restarts its
+     * sequence numbers, e.g. after it lost its state. The sequences already received from the AccessPoint are
+     * forgotten (see {@link IngestionCursorService#reset}), otherwise its new items would be taken for items received
+     * before. It has to be called before the first item with a restarted sequence number is transmitted.
+     *
+     * @param accessPointId The id of the AccessPoint, that restarts its sequence numbers.
+     * @return ResponseEntity<String> The message that the sequences were reset. StatusCodes: 200 if successful, 403 if
+     * AccessPoint is not active/not found/not valid, 500 if an error occurred.
+     */
+    @DeleteMapping("/api/cursors/{accessPointId}")
+    public ResponseEntity<String> resetIngestionCursors(@PathVariable String accessPointId) throws EntityValidationException {
+        try {
+            AccessPointRegistry.RegisteredAccessPoint accessPoint = accessPointService.authenticate(accessPointId);
+            updateConnection(accessPoint.id());
+            ingestionCursorService.reset(accessPoint.id());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (DataAccessException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        return ResponseEntity.ok("Reset the sequences of AccessPoint with id: " + accessPointId);
+    }
+
     /**
      * provides a Get-Method accessible under /api/warnings to set the status of a specific warning.
      *
@@ -249,7 +669,7 @@ public class RestController implements APINotificationValidationVisitorInterface
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("AccessPoint is not allowed to send messages because it is not enabled.");
             }
 
-            updateConnection(sender);
+            updateConnection(sender.getId());
 
             APINotificationDeviceBody apiNotification = apiNotificationDeviceBodyDTOMapper.mapFrom(apiNotificationDTO);
 
@@ -271,13 +691,12 @@ public class RestController implements APINotificationValidationVisitorInterface
      * This method is used to update the LastConnection timestamp as well as check if a notification about the Connection establishment between Server
      * and Access Point has to be sent.
      * 
-     * @param accessPoint The Access Point that established a connection/ needs to be updated
+     * @param accessPointId The id of the Access Point that established a connection/ needs to be updated
      * @throws EntityValidationException
      */
-    public void updateConnection(AccessPoint accessPoint) throws EntityValidationException{
-        accessPointService.updateLastConnection(accessPoint);
-        if (!accessPoint.isConnected()){
-            accessPointService.setConnected(accessPoint);
+    public void updateConnection(Long accessPointId) throws EntityValidationException{
+        if (accessPointService.updateConnection(accessPointId)){
+            AccessPoint accessPoint = accessPointService.getAccessPointById(accessPointId);
             APINotification notification = new APINotification();
             notification.setDeviceType(DeviceType.SERVER);
             notification.setNotificationType(NotificationType.INFO);
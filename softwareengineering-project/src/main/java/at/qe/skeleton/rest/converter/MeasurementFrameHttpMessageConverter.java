@@ -0,0 +1,76 @@
+package at.qe.skeleton.rest.converter;
+
+import at.qe.skeleton.rest.dto.MeasurementFrame;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads request bodies of the content type {@value MeasurementFrame#MEDIA_TYPE_VALUE} into a
+ * {@link MeasurementFrame}. Spring Boot registers every HttpMessageConverter bean next to the JSON converter, so
+ * AccessPoints choose the format with the Content-Type header.
+ * The endpoints accepting frames are reachable without a login, so at most tempera.measurements.frame.max-bytes are
+ * read; larger bodies are rejected with 413 Payload Too Large before they are buffered.
+ */
+@Component
+public class MeasurementFrameHttpMessageConverter extends AbstractHttpMessageConverter<MeasurementFrame> {
+
+    public static final int DEFAULT_MAX_FRAME_BYTES = 1024 * 1024;
+
+    @Value("${tempera.measurements.frame.max-bytes:" + DEFAULT_MAX_FRAME_BYTES + "}")
+    private int maxFrameBytes = DEFAULT_MAX_FRAME_BYTES;
+
+    public MeasurementFrameHttpMessageConverter() {
+        super(MeasurementFrame.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MeasurementFrame.class == clazz;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        // frames are only received, responses stay JSON
+        return false;
+    }
+
+    @Override
+    protected MeasurementFrame readInternal(Class<? extends MeasurementFrame> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        if (inputMessage.getHeaders().getContentLength() > maxFrameBytes) {
+            throw frameTooLarge();
+        }
+        // one byte more than allowed, to recognize larger bodies without a Content-Length header
+        byte[] bytes = inputMessage.getBody().readNBytes(maxFrameBytes + 1);
+        if (bytes.length > maxFrameBytes) {
+            throw frameTooLarge();
+        }
+        try {
+            return MeasurementFrame.read(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    private ResponseStatusException frameTooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Measurement frames must not be larger than " + maxFrameBytes + " bytes.");
+    }
+
+    @Override
+    protected void writeInternal(MeasurementFrame measurementFrame, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        throw new HttpMessageNotWritableException("Measurement frames are not written.");
+    }
+}
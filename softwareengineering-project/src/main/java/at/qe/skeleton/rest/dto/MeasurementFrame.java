@@ -0,0 +1,154 @@
+package at.qe.skeleton.rest.dto;
+
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary alternative to a list of {@link MeasurementDTO}s, sent with the content type
+ * {@value #MEDIA_TYPE_VALUE}. The values are kept in primitive arrays, one entry per measurement.
+ * <p>
+ * Layout (little-endian): a header of version (1 byte), number of records (int32) and base timestamp (int64), followed
+ * by one record of {@value #RECORD_SIZE} bytes per MeasurementDTO: id (int64, 0 if none), timestamp delta (int32),
+ * temperaDeviceId (int64), air temperature, air humidity, air quality and light intensity (float32 each).
+ * Timestamps are milliseconds since 1970-01-01T00:00 of the AccessPoint's local time, the delta of a record is relative
+ * to the timestamp of the previous record, the delta of the first record to the base timestamp.
+ */
+public final class MeasurementFrame {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.tempera.measurements";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 1 + Integer.BYTES + Long.BYTES;
+    public static final int RECORD_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + 4 * Float.BYTES;
+
+    private final long[] ids;
+    private final long[] timestamps;
+    private final long[] temperaDeviceIds;
+    private final float[] values;
+
+    private MeasurementFrame(int size) {
+        ids = new long[size];
+        timestamps = new long[size];
+        temperaDeviceIds = new long[size];
+        values = new float[4 * size];
+    }
+
+    /**
+     * reads a frame.
+     * @param buffer the bytes of the frame
+     * @return the read frame
+     * @throws IllegalArgumentException if the bytes are not a valid frame
+     */
+    public static MeasurementFrame read(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Measurement frame is too short.");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported measurement frame version " + version + ".");
+        }
+        int size = buffer.getInt();
+        if (size < 0 || (long) size * RECORD_SIZE != buffer.remaining() - Long.BYTES) {
+            throw new IllegalArgumentException("Measurement frame does not contain " + size + " records.");
+        }
+        long timestamp = buffer.getLong();
+
+        MeasurementFrame frame = new MeasurementFrame(size);
+        for (int i = 0; i < size; i++) {
+            frame.ids[i] = buffer.getLong();
+            timestamp += buffer.getInt();
+            frame.timestamps[i] = timestamp;
+            frame.temperaDeviceIds[i] = buffer.getLong();
+            for (int value = 0; value < 4; value++) {
+                frame.values[4 * i + value] = buffer.getFloat();
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * writes the given MeasurementDTOs as a frame, as an AccessPoint does.
+     * @param measurementDTOs the MeasurementDTOs, their timestamps must not be null
+     * @return the bytes of the frame
+     */
+    public static byte[] write(List<MeasurementDTO> measurementDTOs) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + measurementDTOs.size() * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long previous = measurementDTOs.isEmpty() ? 0 : toMillis(measurementDTOs.get(0).timestamp());
+        buffer.put(VERSION).putInt(measurementDTOs.size()).putLong(previous);
+        for (MeasurementDTO measurementDTO : measurementDTOs) {
+            long timestamp = toMillis(measurementDTO.timestamp());
+            buffer.putLong(measurementDTO.id() != null ? measurementDTO.id() : 0)
+                    .putInt(Math.toIntExact(timestamp - previous))
+                    .putLong(measurementDTO.temperaDeviceId() != null ? measurementDTO.temperaDeviceId() : 0)
+                    .putFloat(measurementDTO.airTemperature())
+                    .putFloat(measurementDTO.airHumidity())
+                    .putFloat(measurementDTO.airQuality())
+                    .putFloat(measurementDTO.lightIntensity());
+            previous = timestamp;
+        }
+        return buffer.array();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the measurements of the frame as MeasurementDTOs, e.g. to keep them in the write-ahead log
+     */
+    public List<MeasurementDTO> toMeasurementDTOs() {
+        List<MeasurementDTO> measurementDTOs = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            measurementDTOs.add(new MeasurementDTO(id(i), timestamp(i), temperaDeviceId(i),
+                    airTemperature(i), airHumidity(i), airQuality(i), lightIntensity(i)));
+        }
+        return measurementDTOs;
+    }
+
+    /**
+     * @return the id of the i-th measurement, null if the AccessPoint sent none
+     */
+    public Long id(int i) {
+        return ids[i] != 0 ? ids[i] : null;
+    }
+
+    public LocalDateTime timestamp(int i) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamps[i]), ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the id of the TemperaDevice of the i-th measurement, null if the AccessPoint sent none
+     */
+    public Long temperaDeviceId(int i) {
+        return temperaDeviceIds[i] != 0 ? temperaDeviceIds[i] : null;
+    }
+
+    public float airTemperature(int i) {
+        return values[4 * i];
+    }
+
+    public float airHumidity(int i) {
+        return values[4 * i + 1];
+    }
+
+    public float airQuality(int i) {
+        return values[4 * i + 2];
+    }
+
+    public float lightIntensity(int i) {
+        return values[4 * i + 3];
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,29 @@
+package at.qe.skeleton.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Data transfer object for the per-item result of a measurement batch upload.
+ * @param id id of the MeasurementDTO as sent by the AccessPoint
+ * @param status "ACCEPTED" if the measurement was saved, "QUEUED" if the database is unavailable and the measurement
+ *               was written to the server's write-ahead log to be saved later, "DUPLICATE" if it was already saved
+ *               before or "REJECTED" if it cannot be saved at all (e.g. the TemperaDevice is unknown or not connected
+ *               to the AccessPoint). The AccessPoint can delete all of them from its buffer.
+ */
+public record MeasurementStatusDTO(
+        @JsonProperty("id") Long id,
+        @JsonProperty("status") String status
+) implements Serializable {
+
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String QUEUED = "QUEUED";
+    public static final String REJECTED = "REJECTED";
+    public static final String DUPLICATE = "DUPLICATE";
+
+    @Serial
+    private static final long serialVersionUID = 1;
+
+}
@@ -0,0 +1,60 @@
+package at.qe.skeleton.rest.interceptor;
+
+import at.qe.skeleton.services.LoadShedder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rejects ingestion requests with 503 and a Retry-After header while the {@link LoadShedder} does not admit them.
+ * The AccessPoints keep the rejected items and send them again later.
+ */
+@Component
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED = LoadSheddingInterceptor.class.getName() + ".ADMITTED";
+
+    @Autowired
+    private LoadShedder loadShedder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.load-shedding.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        rejectedCounter = meterRegistry.counter("tempera.api.rejected", "reason", "load-shedding");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (loadShedder.tryAcquire()) {
+            request.setAttribute(ADMITTED, Boolean.TRUE);
+            return true;
+        }
+        rejectedCounter.increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            loadShedder.release();
+        }
+    }
+}
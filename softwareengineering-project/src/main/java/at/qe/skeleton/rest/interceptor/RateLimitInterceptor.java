@@ -0,0 +1,78 @@
+package at.qe.skeleton.rest.interceptor;
+
+import at.qe.skeleton.services.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests of AccessPoints that used up the budget of the endpoint (see {@link RateLimiter}) with 429 and a
+ * Retry-After header, before the controller is called. The AccessPoint is identified by the accessPointId or deviceID
+ * in the path, requests without one are not limited.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String[] ACCESS_POINT_ID_VARIABLES = {"accessPointId", "deviceID"};
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        rejectedCounter = meterRegistry.counter("tempera.api.rejected", "reason", "rate-limit");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        String accessPointId = accessPointIdOf(request);
+        if (accessPointId == null) {
+            return true;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(accessPointId, handlerMethod.getMethod().getName());
+        if (waitNanos == 0) {
+            return true;
+        }
+        rejectedCounter.increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String accessPointIdOf(HttpServletRequest request) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return null;
+        }
+        for (String variable : ACCESS_POINT_ID_VARIABLES) {
+            if (variables.containsKey(variable)) {
+                return variables.get(variable);
+            }
+        }
+        return null;
+    }
+}
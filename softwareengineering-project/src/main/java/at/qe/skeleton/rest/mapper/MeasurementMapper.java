@@ -4,13 +4,18 @@ import at.qe.skeleton.model.ClimateMeasurement;
 import at.qe.skeleton.model.Sensor;
 import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
 import at.qe.skeleton.services.TemperaDeviceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class MeasurementMapper {
@@ -37,6 +42,80 @@ public class MeasurementMapper {
             return new ArrayList<>();
         }
 
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceById(dto.temperaDeviceId());
+        return mapFrom(dto, temperaDevice.getSensors());
+    }
+
+    /**
+     * maps a batch of MeasurementDTOs to ClimateMeasurements.
+     * Works like {@link #mapFrom(MeasurementDTO)}, but every TemperaDevice is only retrieved once per batch, no matter
+     * how many MeasurementDTOs it contributed.
+     * @param dtos the MeasurementDTOs to be mapped
+     * @return the mapped ClimateMeasurements per MeasurementDTO in the order of the given list. A MeasurementDTO
+     * whose TemperaDevice could not be found is mapped to an empty list.
+     */
+    public List<List<ClimateMeasurement>> mapAllFrom(List<MeasurementDTO> dtos) {
+        List<List<ClimateMeasurement>> mappedMeasurements = new ArrayList<>();
+        if (dtos == null) {
+            return mappedMeasurements;
+        }
+
+        Map<Long, Optional<TemperaDevice>> temperaDevices = new HashMap<>();
+
+        for (MeasurementDTO dto : dtos) {
+            if (dto == null || dto.temperaDeviceId() == null) {
+                mappedMeasurements.add(new ArrayList<>());
+                continue;
+            }
+            Optional<TemperaDevice> temperaDevice = temperaDevices.computeIfAbsent(dto.temperaDeviceId(),
+                    id -> Optional.ofNullable(temperaDeviceService.findTemperaDeviceById(id)));
+
+            mappedMeasurements.add(temperaDevice
+                    .map(device -> mapFrom(dto, device.getSensors()))
+                    .orElseGet(ArrayList::new));
+        }
+
+        return mappedMeasurements;
+    }
+
+    /**
+     * maps all measurements of a binary MeasurementFrame to ClimateMeasurements.
+     * Works like {@link #mapAllFrom(List)}, but the values are taken straight from the frame.
+     * @param frame the MeasurementFrame to be mapped
+     * @return the mapped ClimateMeasurements per measurement in the order of the frame. A measurement whose
+     * TemperaDevice could not be found is mapped to an empty list.
+     */
+    public List<List<ClimateMeasurement>> mapFrame(MeasurementFrame frame) {
+        List<List<ClimateMeasurement>> mappedMeasurements = new ArrayList<>(frame.size());
+        Map<Long, Optional<TemperaDevice>> temperaDevices = new HashMap<>();
+
+        for (int i = 0; i < frame.size(); i++) {
+            Long temperaDeviceId = frame.temperaDeviceId(i);
+            if (temperaDeviceId == null) {
+                mappedMeasurements.add(new ArrayList<>());
+                continue;
+            }
+            Optional<TemperaDevice> temperaDevice = temperaDevices.computeIfAbsent(temperaDeviceId,
+                    id -> Optional.ofNullable(temperaDeviceService.findTemperaDeviceById(id)));
+
+            int index = i;
+            mappedMeasurements.add(temperaDevice
+                    .map(device -> mapFrom(frame.timestamp(index), frame.airTemperature(index),
+                            frame.airHumidity(index), frame.airQuality(index), frame.lightIntensity(index),
+                            device.getSensors()))
+                    .orElseGet(ArrayList::new));
+        }
+
+        return mappedMeasurements;
+    }
+
+    private List<ClimateMeasurement> mapFrom(MeasurementDTO dto, List<Sensor> sensors) {
+        return mapFrom(dto.timestamp(), dto.airTemperature(), dto.airHumidity(), dto.airQuality(),
+                dto.lightIntensity(), sensors);
+    }
+
+    private List<ClimateMeasurement> mapFrom(LocalDateTime timestamp, float airTemperature, float airHumidity,
+                                             float airQuality, float lightIntensity, List<Sensor> sensors) {
         List<ClimateMeasurement> climateMeasurements = new ArrayList<>();
 
         ClimateMeasurement temperatureMeasurement = new ClimateMeasurement();
@@ -44,20 +123,17 @@ public class MeasurementMapper {
         ClimateMeasurement gasMeasurement = new ClimateMeasurement();
         ClimateMeasurement lightMeasurement = new ClimateMeasurement();
 
-        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceById(dto.temperaDeviceId());
-        List<Sensor> sensors = temperaDevice.getSensors();
-
-        temperatureMeasurement.setTimeStamp(dto.timestamp());
-        temperatureMeasurement.setMeasuredValue(dto.airTemperature());
+        temperatureMeasurement.setTimeStamp(timestamp);
+        temperatureMeasurement.setMeasuredValue(airTemperature);
 
-        humidityMeasurement.setTimeStamp(dto.timestamp());
-        humidityMeasurement.setMeasuredValue(dto.airHumidity());
+        humidityMeasurement.setTimeStamp(timestamp);
+        humidityMeasurement.setMeasuredValue(airHumidity);
 
-        gasMeasurement.setTimeStamp(dto.timestamp());
-        gasMeasurement.setMeasuredValue(dto.airQuality());
+        gasMeasurement.setTimeStamp(timestamp);
+        gasMeasurement.setMeasuredValue(airQuality);
 
-        lightMeasurement.setTimeStamp(dto.timestamp());
-        lightMeasurement.setMeasuredValue(dto.lightIntensity());
+        lightMeasurement.setTimeStamp(timestamp);
+        lightMeasurement.setMeasuredValue(lightIntensity);
 
         for (Sensor sensor : sensors) {
             switch (sensor.getSensorType()) {
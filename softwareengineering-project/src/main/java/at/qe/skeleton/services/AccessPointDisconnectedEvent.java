@@ -0,0 +1,23 @@
+package at.qe.skeleton.services;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * is published by the {@link HeartbeatTracker} as soon as an AccessPoint did not contact the server within the
+ * heartbeat timeout.
+ */
+@Getter
+public class AccessPointDisconnectedEvent extends ApplicationEvent {
+
+    private final Long accessPointId;
+    private final LocalDateTime lastContact;
+
+    public AccessPointDisconnectedEvent(Object source, Long accessPointId, LocalDateTime lastContact) {
+        super(source);
+        this.accessPointId = accessPointId;
+        this.lastContact = lastContact;
+    }
+}
@@ -0,0 +1,151 @@
+package at.qe.skeleton.services;
+
+import at.qe.skeleton.model.DeviceStatus;
+import at.qe.skeleton.repositories.AccessPointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of the AccessPoints that contacted the REST API, holding only their id, status and the ids of
+ * their TemperaDevices. Authenticating a request and checking whether a TemperaDevice belongs to the sending
+ * AccessPoint is a map lookup, instead of loading the AccessPoint with all its TemperaDevices and sensors.
+ * The registry is cleared once a change of an AccessPoint or TemperaDevice ({@link TopologyChangedEvent}) committed.
+ * Every change also increments the generation of the registry, and an AccessPoint loaded while a change was
+ * committed is never used, as its generation is outdated. Unknown ids are remembered separately, so requests with
+ * made-up ids do not query the database every time, and at most tempera.access-point-registry.max-unknown of them
+ * are kept, so they cannot grow the registry without bound. Changes committed by other instances of the application
+ * publish no event here, so an AccessPoint is loaded again once its registration is older than
+ * tempera.access-point-registry.ttl-millis, e.g. to stop accepting the requests of an AccessPoint that was disabled
+ * or deleted on another instance.
+ */
+@Component
+public class AccessPointRegistry {
+
+    @Autowired
+    private AccessPointRepository accessPointRepository;
+
+    /**
+     * time after which a registered AccessPoint is loaded again, 0 or less never reloads it.
+     */
+    @Value("${tempera.access-point-registry.ttl-millis:30000}")
+    private long ttlMillis;
+
+    /**
+     * maximum number of unknown ids remembered, 0 or less remembers none.
+     */
+    @Value("${tempera.access-point-registry.max-unknown:10000}")
+    private int maxUnknown;
+
+    private final ConcurrentMap<Long, Registration> accessPoints = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Registration> unknownAccessPoints = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong(1);
+
+    /**
+     * Retrieves the registered AccessPoint with the given id, loading its status and TemperaDevice ids first if it
+     * is not known yet or its registration expired. Unknown ids are looked up again once their registration expired.
+     * Within a transaction nothing is added to the registry, as the transaction might see uncommitted changes.
+     * @param accessPointId the id of the AccessPoint
+     * @return the registered AccessPoint, its status is null if there is no AccessPoint with the given id
+     */
+    public RegisteredAccessPoint find(Long accessPointId) {
+        long currentGeneration = generation.get();
+        Registration registration = accessPoints.get(accessPointId);
+        if (registration == null) {
+            registration = unknownAccessPoints.get(accessPointId);
+        }
+        if (registration != null && registration.generation() == currentGeneration && !isExpired(registration)) {
+            return registration.accessPoint();
+        }
+        long loadedAt = System.nanoTime();
+        RegisteredAccessPoint registeredAccessPoint = load(accessPointId);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return registeredAccessPoint;
+        }
+        // registered with the generation read before loading, so it is ignored if a change committed meanwhile
+        Registration loaded = new Registration(currentGeneration, registeredAccessPoint, loadedAt);
+        if (registeredAccessPoint.exists()) {
+            accessPoints.put(accessPointId, loaded);
+            unknownAccessPoints.remove(accessPointId);
+        } else {
+            if (registration != null) {
+                // deleted, e.g. by another instance
+                accessPoints.remove(accessPointId, registration);
+            }
+            registerUnknown(accessPointId, loaded);
+        }
+        return registeredAccessPoint;
+    }
+
+    private void registerUnknown(Long accessPointId, Registration registration) {
+        if (maxUnknown <= 0) {
+            return;
+        }
+        if (unknownAccessPoints.size() >= maxUnknown && !unknownAccessPoints.containsKey(accessPointId)) {
+            // made-up ids are not worth an eviction order, they are looked up again after starting over
+            unknownAccessPoints.clear();
+        }
+        unknownAccessPoints.put(accessPointId, registration);
+    }
+
+    /**
+     * clears the registry once the transaction of the change committed, or immediately if the change was made
+     * without a transaction.
+     * @param event the event of the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTopologyChanged(TopologyChangedEvent event) {
+        generation.incrementAndGet();
+        accessPoints.clear();
+        unknownAccessPoints.clear();
+    }
+
+    private RegisteredAccessPoint load(Long accessPointId) {
+        DeviceStatus status = accessPointRepository.findStatusById(accessPointId);
+        if (status == null) {
+            return new RegisteredAccessPoint(accessPointId, null, Set.of());
+        }
+        return new RegisteredAccessPoint(accessPointId, status,
+                Set.copyOf(accessPointRepository.findTemperaDeviceIdsById(accessPointId)));
+    }
+
+    private boolean isExpired(Registration registration) {
+        return ttlMillis > 0 && System.nanoTime() - registration.loadedAt() > Duration.ofMillis(ttlMillis).toNanos();
+    }
+
+    /**
+     * @param loadedAt the {@link System#nanoTime()} before the AccessPoint was loaded
+     */
+    private record Registration(long generation, RegisteredAccessPoint accessPoint, long loadedAt) {
+    }
+
+    /**
+     * @param id the id of the AccessPoint
+     * @param status the status of the AccessPoint, null if it does not exist
+     * @param temperaDeviceIds the ids of the TemperaDevices connected to the AccessPoint
+     */
+    public record RegisteredAccessPoint(Long id, DeviceStatus status, Set<Long> temperaDeviceIds) {
+
+        public boolean exists() {
+            return status != null;
+        }
+
+        public boolean isEnabled() {
+            return status == DeviceStatus.ENABLED;
+        }
+
+        public boolean isConnected(Long temperaDeviceId) {
+            return temperaDeviceIds.contains(temperaDeviceId);
+        }
+    }
+}
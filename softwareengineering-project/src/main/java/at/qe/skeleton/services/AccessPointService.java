@@ -8,7 +8,9 @@ import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.repositories.AccessPointRepository;
 import at.qe.skeleton.repositories.LogTemperaDeviceRepository;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
@@ -27,6 +29,18 @@ public class AccessPointService {
     @Autowired
     private LogTemperaDeviceRepository logTemperaDeviceRepository;
 
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private AccessPointRegistry accessPointRegistry;
+
+    @Autowired
+    private HeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private IngestionCursorService ingestionCursorService;
+
 
     /**
      * checks whether the given AccessPoint is enabled.
@@ -58,12 +72,7 @@ public class AccessPointService {
      */
 
     public AccessPoint getAccessPointById(String accessPointIdString) {
-
-        if (!accessPointIdString.startsWith(NETWORK_PREFIX)) {
-            throw new IllegalArgumentException("AccessPointId must start with " + NETWORK_PREFIX);
-        }
-        long accessPointId = Long.parseLong(accessPointIdString.substring(8));
-        AccessPoint accessPoint = accessPointRepository.findAccessPointById(accessPointId);
+        AccessPoint accessPoint = accessPointRepository.findAccessPointById(authenticate(accessPointIdString).id());
 
         if (accessPoint == null || !accessPoint.getStatus().equals(DeviceStatus.ENABLED)) {
             throw new IllegalArgumentException("No active AccessPoint with id '" + accessPointIdString + "' found");
@@ -72,6 +81,38 @@ public class AccessPointService {
         return accessPoint;
     }
 
+    /**
+     * checks the given AccessPointId like {@link #getAccessPointById(String)}, but only looks it up in the
+     * {@link AccessPointRegistry} instead of loading the AccessPoint with its TemperaDevices.
+     *
+     * @param accessPointIdString the ID of the AccessPoint
+     * @return the id, status and TemperaDevice ids of the active AccessPoint
+     * @throws IllegalArgumentException if the given ID is not a valid AccessPointId, the ID could not be found or the
+     *                                  AccessPoint is not enabled
+     */
+    public AccessPointRegistry.RegisteredAccessPoint authenticate(String accessPointIdString) {
+        AccessPointRegistry.RegisteredAccessPoint registeredAccessPoint =
+                accessPointRegistry.find(parseAccessPointId(accessPointIdString));
+
+        if (!registeredAccessPoint.isEnabled()) {
+            throw new IllegalArgumentException("No active AccessPoint with id '" + accessPointIdString + "' found");
+        }
+
+        return registeredAccessPoint;
+    }
+
+    /**
+     * @param accessPointIdString the ID of an AccessPoint as sent in a request, e.g. G4T2-AP-1 or G4T2-AP-01
+     * @return the id of the AccessPoint
+     * @throws IllegalArgumentException if the given ID is not a valid AccessPointId
+     */
+    public static long parseAccessPointId(String accessPointIdString) {
+        if (!accessPointIdString.startsWith(NETWORK_PREFIX)) {
+            throw new IllegalArgumentException("AccessPointId must start with " + NETWORK_PREFIX);
+        }
+        return Long.parseLong(accessPointIdString.substring(NETWORK_PREFIX.length()));
+    }
+
     /**
      * deletes the latest LogTemperaDevice of the given AccessPoint
      *
@@ -101,9 +142,18 @@ public class AccessPointService {
         return accessPointRepository.findAll();
     }
 
+    /**
+     * @return all AccessPoints with their Room and TemperaDevices, as listed to the admin
+     */
+    public List<AccessPoint> getAllAccessPointsWithTemperaDevices() {
+        return accessPointRepository.findAllWithTemperaDevices();
+    }
+
     @PreAuthorize("hasAnyAuthority('ADMINISTRATOR')")
     public AccessPoint save(AccessPoint accessPoint) {
-        return accessPointRepository.save(accessPoint);
+        AccessPoint savedAccessPoint = accessPointRepository.save(accessPoint);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        return savedAccessPoint;
     }
 
     /**
@@ -115,11 +165,16 @@ public class AccessPointService {
     @PreAuthorize("hasAnyAuthority('ADMINISTRATOR')")
     public void delete(AccessPoint accessPoint) throws EntityStillInUseException {
         List<TemperaDevice> connectedTemperaDevices = accessPoint.getTemperaDevices();
+        boolean hasTemperaDevices = Hibernate.isInitialized(connectedTemperaDevices)
+                ? connectedTemperaDevices != null && !connectedTemperaDevices.isEmpty()
+                : !accessPointRepository.findTemperaDeviceIdsById(accessPoint.getId()).isEmpty();
 
-        if (connectedTemperaDevices != null && !connectedTemperaDevices.isEmpty()) {
+        if (hasTemperaDevices) {
             throw new EntityStillInUseException("A Tempera Device is still connected to this Access Point. Please remove the currently assigned Tempera Device in the 'Tempera Devices'-Menu before deleting the device.");
         }
+        ingestionCursorService.forget(accessPoint.getId());
         accessPointRepository.delete(accessPoint);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
     }
 
     /**
@@ -149,6 +204,17 @@ public class AccessPointService {
         accessPointRepository.save(accessPoint);     
     }
 
+    /**
+     * Records a contact of the Access Point with the given id in the {@link HeartbeatTracker}. The Last Connection is
+     * written to the database later, only an Access Point that was not connected is marked as connected immediately.
+     *
+     * @param accessPointId The id of the Access Point that connected itself.
+     * @return true if the Access Point was not connected before
+     */
+    public boolean updateConnection(Long accessPointId) {
+        return heartbeatTracker.recordContact(accessPointId);
+    }
+
     /**
      * Sets an Access Point to connected (called when connection between AP and Server is established).
      *
@@ -169,6 +235,20 @@ public class AccessPointService {
         accessPointRepository.save(accessPoint);
     }
 
+    /**
+     * Sets an Access Point to disconnected, unless it is not connected anymore or contacted the server after the
+     * given last contact, e.g. through another instance of the application. If several instances notice the lost
+     * connection, only one of them disconnects the Access Point.
+     *
+     * @param accessPointId The id of the Access Point that lost its connection.
+     * @param lastContact The last contact of the Access Point known to the caller.
+     * @return true if the Access Point was disconnected by this call.
+     */
+    @Transactional
+    public boolean setDisconnectedIfNotContactedSince(Long accessPointId, LocalDateTime lastContact) {
+        return accessPointRepository.disconnectIfNotContactedSince(accessPointId, lastContact) > 0;
+    }
+
 
     /**
      * This method is used to register an AccessPoint after first rest contact with server
@@ -181,6 +261,7 @@ public class AccessPointService {
         if (accessPoint.getStatus() == DeviceStatus.NOT_REGISTERED){
             accessPoint.setStatus(DeviceStatus.DISABLED);
             accessPointRepository.save(accessPoint);
+            applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
         }
     }
 
@@ -193,11 +274,10 @@ public class AccessPointService {
      * @throws IllegalArgumentException if id is not of a not_registered device or of no device at all
      */
     public AccessPoint getNotRegisteredAccessPointById(String accessPointIdString) {
-
-        if (!accessPointIdString.startsWith(NETWORK_PREFIX)) {
-            throw new IllegalArgumentException("AccessPointId must start with " + NETWORK_PREFIX);
+        long accessPointId = parseAccessPointId(accessPointIdString);
+        if (accessPointRegistry.find(accessPointId).status() != DeviceStatus.NOT_REGISTERED) {
+            throw new IllegalArgumentException("No not registered AccessPoint with id '" + accessPointIdString + "' found");
         }
-        long accessPointId = Long.parseLong(accessPointIdString.substring(8));
         AccessPoint accessPoint = accessPointRepository.findAccessPointById(accessPointId);
         if (accessPoint == null || !accessPoint.getStatus().equals(DeviceStatus.NOT_REGISTERED)) {
             throw new IllegalArgumentException("No not registered AccessPoint with id '" + accessPointIdString + "' found");
@@ -210,9 +290,7 @@ public class AccessPointService {
      * @return boolean if AccessPoint exists
      */
     public boolean doesAccessPointIDExist(String accessPointIdString){
-        long accessPointId = Long.parseLong(accessPointIdString.substring(8));
-        AccessPoint accessPoint = accessPointRepository.findAccessPointById(accessPointId);
-        return accessPoint != null;
+        return accessPointRegistry.find(parseAccessPointId(accessPointIdString)).exists();
     }
 
 
@@ -239,10 +317,10 @@ public class AccessPointService {
      * @return boolean if TemperaDevice is connected to AccessPoint
      */
     public boolean isTemperaDeviceConnectedToAccessPoint(TemperaDevice temperaDevice, AccessPoint accessPoint) {
-        if(temperaDevice == null || accessPoint == null){
+        if(temperaDevice == null || accessPoint == null || accessPoint.getId() == null){
             return false;
         }
-        return accessPoint.getTemperaDevices().contains(temperaDevice);
+        return accessPointRegistry.find(accessPoint.getId()).isConnected(temperaDevice.getId());
     }
 
 }
@@ -0,0 +1,97 @@
+package at.qe.skeleton.services;
+
+import at.qe.skeleton.model.DeviceTopology;
+import at.qe.skeleton.repositories.TemperaDeviceRepository;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current {@link DeviceTopology}, so the limit checks of incoming measurements can look up the
+ * TemperaDevice, Room and Limits of a sensor without querying the database.
+ * Every committed change of a TemperaDevice, AccessPoint, Room or Limits ({@link TopologyChangedEvent}) increments
+ * the version, and the next lookup rebuilds the snapshot. A snapshot that was built while a change was committed is
+ * never used, as its version is outdated. Changes committed by other instances of the application publish no event
+ * here, so the snapshot is also rebuilt once it is older than tempera.topology.ttl-millis, bypassing the second-level
+ * cache that might still hold the old state.
+ */
+@Component
+public class DeviceTopologyService {
+
+    @Autowired
+    private TemperaDeviceRepository temperaDeviceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * time after which the snapshot is rebuilt even without a change on this instance, 0 or less never rebuilds it.
+     */
+    @Value("${tempera.topology.ttl-millis:30000}")
+    private long ttlMillis;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    private volatile DeviceTopology topology = DeviceTopology.empty();
+
+    private volatile long builtAt;
+
+    /**
+     * the snapshot is read in a separate transaction, so uncommitted changes of the calling transaction never end up
+     * in the shared topology. The transaction is not read-only, so it always reads from the primary database, even
+     * if the topology is rebuilt within a method whose transaction is sent to the read replica.
+     * @param transactionManager the transaction manager of the application
+     */
+    public DeviceTopologyService(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @return the current topology, rebuilt first if it changed since the last call or expired
+     */
+    public DeviceTopology getTopology() {
+        DeviceTopology current = topology;
+        long currentVersion = version.get();
+        if (current.getVersion() == currentVersion && !isExpired()) {
+            return current;
+        }
+        long rebuiltAt = System.nanoTime();
+        DeviceTopology rebuilt = transactionTemplate.execute(status -> {
+            // the Limits and Rooms are read from the database and refreshed in the second-level cache
+            entityManager.setProperty(AvailableHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+            entityManager.setProperty(AvailableHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.REFRESH);
+            return DeviceTopology.of(currentVersion, temperaDeviceRepository.findAllWithSensorsAndRoom());
+        });
+        topology = rebuilt;
+        builtAt = rebuiltAt;
+        return rebuilt;
+    }
+
+    private boolean isExpired() {
+        return ttlMillis > 0 && System.nanoTime() - builtAt > Duration.ofMillis(ttlMillis).toNanos();
+    }
+
+    /**
+     * marks the topology as outdated once the transaction of the change committed, or immediately if the change was
+     * made without a transaction.
+     * @param event the event of the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTopologyChanged(TopologyChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,233 @@
+package at.qe.skeleton.services;
+
+import at.qe.skeleton.model.AccessPoint;
+import at.qe.skeleton.repositories.AccessPointRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Keeps track of the heartbeats of the AccessPoints in memory.
+ * Every contact of an AccessPoint is only recorded in a map, the last connections are written to the database in one
+ * batch every flush interval. Only the state changes are written immediately: an AccessPoint that contacts the server
+ * while it is not connected is marked as connected, and a watcher thread takes the deadlines of the connected
+ * AccessPoints from a {@link DelayQueue} and publishes an {@link AccessPointDisconnectedEvent} as soon as an
+ * AccessPoint did not contact the server within the timeout.
+ */
+@Component
+public class HeartbeatTracker {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+    private static final long POLL_TIMEOUT_MILLIS = 200;
+
+    @Autowired
+    private AccessPointRepository accessPointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${tempera.heartbeat.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    private final ConcurrentMap<Long, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+
+    private ExecutorService watcher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        running = true;
+        watcher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("heartbeat-watcher-"));
+        watcher.execute(this::watch);
+    }
+
+    /**
+     * stops the watcher thread and writes the last connections that were not flushed yet.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        watcher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * starts tracking the AccessPoints that are connected according to the database and contacted the server within
+     * the timeout. The ones that did not are disconnected by {@code NotificationService#checkConnectionOfAccessPoints}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void trackConnectedAccessPoints() {
+        Timestamp oldestContact = Timestamp.valueOf(LocalDateTime.now().minusSeconds(timeoutSeconds));
+        jdbcTemplate.query("SELECT id, last_connection FROM access_point WHERE connected = TRUE AND last_connection >= ?",
+                (RowCallbackHandler) resultSet -> {
+                    Long accessPointId = resultSet.getLong("id");
+                    LocalDateTime lastConnection = resultSet.getTimestamp("last_connection").toLocalDateTime();
+                    heartbeats.computeIfAbsent(accessPointId, id -> {
+                        Heartbeat heartbeat = new Heartbeat();
+                        heartbeat.lastContact = lastConnection;
+                        heartbeat.flushedContact = lastConnection;
+                        heartbeat.connected = true;
+                        deadlines.put(new Deadline(id, lastConnection.plusSeconds(timeoutSeconds)));
+                        return heartbeat;
+                    });
+                }, oldestContact);
+        generalLogger.info("Tracking the heartbeats of {} connected AccessPoints.", heartbeats.size());
+    }
+
+    /**
+     * records a contact of the given AccessPoint. Only if the AccessPoint is not connected yet, the database is
+     * updated immediately.
+     * @param accessPointId the id of the AccessPoint that contacted the server
+     * @return true if the AccessPoint was not connected before
+     */
+    public boolean recordContact(Long accessPointId) {
+        LocalDateTime now = LocalDateTime.now();
+        Heartbeat heartbeat = heartbeats.computeIfAbsent(accessPointId, id -> new Heartbeat());
+        synchronized (heartbeat) {
+            heartbeat.lastContact = now;
+            if (heartbeat.connected) {
+                return false;
+            }
+            // null if there is no AccessPoint with the given id
+            Boolean newlyConnected = transactionTemplate.execute(status -> {
+                if (accessPointRepository.updateLastConnectionIfConnected(accessPointId, now) > 0) {
+                    return false;
+                }
+                return accessPointRepository.updateLastConnectionAndConnect(accessPointId, now) > 0 ? true : null;
+            });
+            if (newlyConnected == null) {
+                heartbeats.remove(accessPointId, heartbeat);
+                return false;
+            }
+            heartbeat.flushedContact = now;
+            heartbeat.connected = true;
+            deadlines.put(new Deadline(accessPointId, now.plusSeconds(timeoutSeconds)));
+            return newlyConnected;
+        }
+    }
+
+    /**
+     * writes the last connections recorded since the previous flush to the database in one batch. The batch bypasses
+     * Hibernate, so the updated AccessPoints are evicted from the second-level cache.
+     */
+    @Scheduled(fixedDelayString = "${tempera.heartbeat.flush-interval-millis:30000}")
+    public void flush() {
+        List<Object[]> parameters = new ArrayList<>();
+        Map<Heartbeat, LocalDateTime> flushedContacts = new HashMap<>();
+        heartbeats.forEach((accessPointId, heartbeat) -> {
+            LocalDateTime lastContact = heartbeat.lastContact;
+            if (lastContact != null && !lastContact.equals(heartbeat.flushedContact)) {
+                parameters.add(new Object[]{Timestamp.valueOf(lastContact), accessPointId});
+                flushedContacts.put(heartbeat, lastContact);
+            }
+        });
+        if (parameters.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE access_point SET last_connection = ? WHERE id = ?", parameters);
+        Cache cache = entityManagerFactory.getCache();
+        parameters.forEach(parameter -> cache.evict(AccessPoint.class, parameter[1]));
+        flushedContacts.forEach((heartbeat, lastContact) -> heartbeat.flushedContact = lastContact);
+    }
+
+    /**
+     * @return the time after which an AccessPoint without contact counts as disconnected
+     */
+    public Duration getTimeout() {
+        return Duration.ofSeconds(timeoutSeconds);
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                Deadline deadline = deadlines.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (deadline != null) {
+                    expire(deadline);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                errorLogger.error("Could not handle the heartbeat deadline of an AccessPoint.", e);
+            }
+        }
+    }
+
+    private void expire(Deadline deadline) {
+        Heartbeat heartbeat = heartbeats.get(deadline.accessPointId());
+        if (heartbeat == null) {
+            return;
+        }
+        synchronized (heartbeat) {
+            if (!heartbeat.connected) {
+                return;
+            }
+            LocalDateTime due = heartbeat.lastContact.plusSeconds(timeoutSeconds);
+            if (due.isAfter(LocalDateTime.now())) {
+                // contacted since the deadline was scheduled
+                deadlines.put(new Deadline(deadline.accessPointId(), due));
+                return;
+            }
+            heartbeat.connected = false;
+            heartbeats.remove(deadline.accessPointId(), heartbeat);
+            applicationEventPublisher.publishEvent(
+                    new AccessPointDisconnectedEvent(this, deadline.accessPointId(), heartbeat.lastContact));
+        }
+    }
+
+    /**
+     * the fields are only changed while holding the lock of the heartbeat, they are volatile for {@link #flush()}.
+     */
+    private static class Heartbeat {
+        private volatile LocalDateTime lastContact;
+        private volatile LocalDateTime flushedContact;
+        private volatile boolean connected;
+    }
+
+    private record Deadline(Long accessPointId, LocalDateTime due) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), due));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package at.qe.skeleton.services;
+
+import at.qe.skeleton.exceptions.InvalidSequenceException;
+import at.qe.skeleton.exceptions.SequenceOutOfWindowException;
+import at.qe.skeleton.model.IngestionCursor;
+import at.qe.skeleton.model.IngestionStream;
+import at.qe.skeleton.model.SequenceWindow;
+import at.qe.skeleton.repositories.IngestionCursorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Makes the ingestion of the items an AccessPoint transmits idempotent.
+ * Every AccessPoint numbers its items per {@link IngestionStream} with increasing sequence numbers (the id of the
+ * DTOs). The sequences already saved are kept as a {@link SequenceWindow} in an {@link IngestionCursor}. The cursor
+ * is read with SELECT ... FOR UPDATE in the transaction that saves the items and updated in it, so an item is saved
+ * exactly once no matter how often the AccessPoint retries it, even if the retries reach different instances of the
+ * application. Items without a sequence number are always saved.
+ * A sequence is only recorded once its item was saved: a request with a sequence beyond the window of the cursor is
+ * rejected as a whole, and the AccessPoint has to resend its items from the acknowledged sequence on.
+ * An AccessPoint that restarts its sequence numbers, e.g. after a factory reset, has to {@link #reset} its cursors
+ * first, otherwise its new items are taken for items received before.
+ */
+@Component
+public class IngestionCursorService {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+
+    @Autowired
+    private IngestionCursorRepository ingestionCursorRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * creates missing cursors in a transaction of their own, so a cursor created concurrently by another instance
+     * does not roll back the transaction of the items, and the items are saved while holding the lock of the cursor.
+     */
+    private TransactionTemplate creationTemplate;
+
+    /**
+     * locks serializing the requests of one AccessPoint and stream within this instance, so they do not queue on
+     * the row lock of the cursor.
+     */
+    private final ConcurrentMap<CursorKey, Object> cursors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        creationTemplate = new TransactionTemplate(transactionManager);
+        creationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * passes the items that were not received before to the writer and records their sequences in the same
+     * transaction. Items of the same AccessPoint and stream are ingested one request after another.
+     * @param accessPointId the id of the AccessPoint that transmitted the items
+     * @param stream the stream the items belong to
+     * @param sequences the sequence numbers of the transmitted items in the order they were sent, null for items
+     *                  without a sequence number
+     * @param writer saves the items at the given indexes, it is not called if all items were received before
+     * @return the indexes of the items that were received before and the sequence up to which the AccessPoint can
+     * discard its items
+     * @throws InvalidSequenceException if a sequence is not positive
+     * @throws SequenceOutOfWindowException if a sequence is more than {@value SequenceWindow#SIZE} above the first
+     * one missing, nothing is written then
+     */
+    public Acknowledgement ingest(Long accessPointId, IngestionStream stream, List<Long> sequences,
+                                  Consumer<Set<Integer>> writer) {
+        checkSequences(sequences);
+        Object lock = cursors.computeIfAbsent(new CursorKey(accessPointId, stream), key -> new Object());
+        synchronized (lock) {
+            return transactionTemplate.execute(status -> {
+                IngestionCursor ingestionCursor = findLocked(accessPointId, stream);
+                SequenceWindow window = ingestionCursor.getWindow();
+                Set<Integer> freshIndexes = new LinkedHashSet<>();
+                Set<Integer> duplicateIndexes = new HashSet<>();
+                for (int i = 0; i < sequences.size(); i++) {
+                    Long sequence = sequences.get(i);
+                    if (sequence == null) {
+                        freshIndexes.add(i);
+                    } else if (window.contains(sequence)) {
+                        duplicateIndexes.add(i);
+                    } else if (window.fits(sequence)) {
+                        window = window.add(sequence);
+                        freshIndexes.add(i);
+                    } else {
+                        long acknowledgedSequence = ingestionCursor.getWindow().highWaterMark();
+                        generalLogger.warn("Rejected the {} of AccessPoint {}: sequence {} is beyond the window above {}.",
+                                stream, accessPointId, sequence, window.highWaterMark());
+                        throw new SequenceOutOfWindowException("Sequence " + sequence + " is beyond the window above "
+                                + window.highWaterMark() + ".", acknowledgedSequence);
+                    }
+                }
+                if (!freshIndexes.isEmpty()) {
+                    writer.accept(freshIndexes);
+                    ingestionCursor.setWindow(window);
+                    ingestionCursorRepository.save(ingestionCursor);
+                }
+                return new Acknowledgement(duplicateIndexes, window.highWaterMark());
+            });
+        }
+    }
+
+    /**
+     * checks the sequence numbers transmitted by an AccessPoint, e.g. before the items are acknowledged without
+     * being ingested immediately.
+     * @param sequences the sequence numbers of the transmitted items, null for items without a sequence number
+     * @throws InvalidSequenceException if a sequence is not positive
+     */
+    public static void checkSequences(List<Long> sequences) {
+        for (Long sequence : sequences) {
+            if (sequence != null && sequence <= 0) {
+                throw new InvalidSequenceException("Sequence " + sequence + " is not positive.");
+            }
+        }
+    }
+
+    /**
+     * starts the sequences of all streams of an AccessPoint over, e.g. after the AccessPoint lost its sequence
+     * counter. Items the AccessPoint sent before have to be acknowledged before, as retries of them would be saved
+     * again afterwards.
+     * @param accessPointId the id of the AccessPoint
+     */
+    @Transactional
+    public void reset(Long accessPointId) {
+        for (IngestionStream stream : IngestionStream.values()) {
+            IngestionCursor ingestionCursor = ingestionCursorRepository.findLockedByAccessPointIdAndStream(accessPointId, stream);
+            if (ingestionCursor != null) {
+                generalLogger.info("Reset the {} sequences of AccessPoint {} at {}.",
+                        stream, accessPointId, ingestionCursor.getHighWaterMark());
+                ingestionCursor.setWindow(SequenceWindow.empty());
+                ingestionCursorRepository.save(ingestionCursor);
+            }
+        }
+    }
+
+    /**
+     * deletes the cursors of a deleted AccessPoint.
+     * @param accessPointId the id of the AccessPoint
+     */
+    @Transactional
+    public void forget(Long accessPointId) {
+        ingestionCursorRepository.deleteAllByAccessPointId(accessPointId);
+        cursors.keySet().removeIf(key -> key.accessPointId().equals(accessPointId));
+    }
+
+    private IngestionCursor findLocked(Long accessPointId, IngestionStream stream) {
+        IngestionCursor ingestionCursor = ingestionCursorRepository.findLockedByAccessPointIdAndStream(accessPointId, stream);
+        if (ingestionCursor != null) {
+            return ingestionCursor;
+        }
+        try {
+            creationTemplate.executeWithoutResult(status -> ingestionCursorRepository.save(
+                    IngestionCursor.builder().accessPointId(accessPointId).stream(stream).build()));
+        } catch (DataIntegrityViolationException e) {
+            // created by another instance in the meantime
+        }
+        ingestionCursor = ingestionCursorRepository.findLockedByAccessPointIdAndStream(accessPointId, stream);
+        if (ingestionCursor == null) {
+            // deleted in the meantime, inserted again together with the items
+            ingestionCursor = IngestionCursor.builder().accessPointId(accessPointId).stream(stream).build();
+        }
+        return ingestionCursor;
+    }
+
+    /**
+     * @param duplicateIndexes the indexes of the items that were received before and therefore not saved again
+     * @param acknowledgedSequence the highest sequence up to which all items were received
+     */
+    public record Acknowledgement(Set<Integer> duplicateIndexes, long acknowledgedSequence) {
+
+        public boolean isDuplicate(int index) {
+            return duplicateIndexes.contains(index);
+        }
+    }
+
+    private record CursorKey(Long accessPointId, IngestionStream stream) {
+    }
+}
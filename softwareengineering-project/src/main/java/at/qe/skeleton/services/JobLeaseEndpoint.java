@@ -0,0 +1,31 @@
+package at.qe.skeleton.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/jobleases) showing which instance holds the lease of which scheduled job.
+ */
+@Component
+@Endpoint(id = "jobleases")
+public class JobLeaseEndpoint {
+
+    @Autowired
+    private JobLeaseManager jobLeaseManager;
+
+    /**
+     * @return the node id of this instance and the leases of all instances
+     */
+    @ReadOperation
+    public Map<String, Object> leases() {
+        Map<String, Object> leases = new LinkedHashMap<>();
+        leases.put("node", jobLeaseManager.getNodeId());
+        leases.put("leases", jobLeaseManager.findLeases());
+        return leases;
+    }
+}
@@ -0,0 +1,305 @@
+package at.qe.skeleton.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes sure every scheduled job runs on exactly one instance, if the application runs as several instances on the
+ * same database.
+ * <p>
+ * A job only runs on the instance that holds its lease ({@link #tryAcquire(String)}). The lease is kept after the job
+ * finished and renewed every renew interval, so the same instance stays the leader of the job; the other instances
+ * take it over once it was not renewed for the lease duration, e.g. because the leader stopped. Leases are therefore
+ * only meant for recurring jobs; a job that runs once, e.g. on startup, has to be idempotent and run on every instance.
+ * On PostgreSQL the leases are session-level advisory locks on a dedicated connection, which are released by the
+ * database as soon as the connection of a crashed instance is closed. On other databases (H2 in the tests) a lease is
+ * a row of the job_lease table that is only taken over once it expired. In both cases the job_lease table shows which
+ * instance holds which lease, see {@link JobLeaseEndpoint}.
+ */
+@Component
+public class JobLeaseManager {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+
+    /**
+     * upper 32 bits of the advisory lock keys, to keep them apart from other advisory locks of the database
+     */
+    private static final long LOCK_NAMESPACE = 0x7E3A_0001L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${tempera.jobs.node-id:}")
+    private String nodeId;
+
+    @Value("${tempera.jobs.lease-seconds:30}")
+    private long leaseSeconds;
+
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+
+    private Boolean postgres;
+
+    /**
+     * dedicated connection holding the advisory locks on PostgreSQL, null while no lock is held
+     */
+    private Connection lockConnection;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        generalLogger.info("Running scheduled jobs as node {}.", nodeId);
+    }
+
+    /**
+     * releases all leases held by this instance, so the other instances can take them over immediately.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (heldLeases.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("UPDATE job_lease SET lease_until = ? WHERE owner = ?", now(), nodeId);
+        } catch (DataAccessException e) {
+            errorLogger.error("Could not release the job leases of node {}.", nodeId, e);
+        }
+        heldLeases.clear();
+        closeLockConnection();
+    }
+
+    /**
+     * acquires or renews the lease of the given job.
+     * @param job the name of the job
+     * @return true if this instance holds the lease and runs the job, false if another instance runs it
+     */
+    public synchronized boolean tryAcquire(String job) {
+        boolean acquired;
+        try {
+            acquired = isPostgres() ? tryAdvisoryLock(job) : tryLeaseRow(job);
+        } catch (DataAccessException | SQLException e) {
+            errorLogger.error("Could not acquire the lease of job {}.", job, e);
+            heldLeases.remove(job);
+            return false;
+        }
+        if (acquired) {
+            if (heldLeases.add(job)) {
+                generalLogger.info("Node {} acquired the lease of job {}.", nodeId, job);
+            }
+        } else {
+            heldLeases.remove(job);
+            generalLogger.info("Skipping job {}, its lease is held by another node.", job);
+        }
+        return acquired;
+    }
+
+    /**
+     * renews the leases held by this instance. Leases that were lost meanwhile, e.g. because the instance could not
+     * reach the database for longer than the lease duration, are dropped.
+     */
+    @Scheduled(fixedDelayString = "${tempera.jobs.renew-interval-millis:10000}")
+    public synchronized void renewLeases() {
+        if (heldLeases.isEmpty()) {
+            return;
+        }
+        try {
+            if (isPostgres() && !lockConnectionValid()) {
+                // the session ended, so the database released the advisory locks
+                errorLogger.error("Lost the connection holding the job leases {}.", heldLeases);
+                heldLeases.clear();
+                closeLockConnection();
+                return;
+            }
+            for (String job : List.copyOf(heldLeases)) {
+                int renewed = jdbcTemplate.update("UPDATE job_lease SET lease_until = ? WHERE name = ? AND owner = ?",
+                        leaseUntil(), job, nodeId);
+                if (renewed == 0 && !isPostgres()) {
+                    errorLogger.error("Node {} lost the lease of job {}.", nodeId, job);
+                    heldLeases.remove(job);
+                }
+            }
+        } catch (DataAccessException e) {
+            errorLogger.error("Could not renew the job leases {}.", heldLeases, e);
+        }
+    }
+
+    /**
+     * @return the leases of all instances from the job_lease table
+     */
+    public List<Lease> findLeases() {
+        return jdbcTemplate.query("SELECT name, owner, lease_until, acquired_at FROM job_lease ORDER BY name",
+                (resultSet, rowNum) -> new Lease(resultSet.getString("name"), resultSet.getString("owner"),
+                        resultSet.getTimestamp("lease_until").toLocalDateTime(),
+                        resultSet.getTimestamp("acquired_at").toLocalDateTime(),
+                        heldLeases.contains(resultSet.getString("name"))));
+    }
+
+    /**
+     * @return the id of this instance, the owner of the leases it holds
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean tryLeaseRow(String job) {
+        Timestamp now = now();
+        int updated = jdbcTemplate.update("UPDATE job_lease SET acquired_at = CASE WHEN owner = ? THEN acquired_at ELSE ? END, "
+                        + "owner = ?, lease_until = ? WHERE name = ? AND (owner = ? OR lease_until < ?)",
+                nodeId, now, nodeId, leaseUntil(), job, nodeId, now);
+        if (updated > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO job_lease (name, owner, lease_until, acquired_at) VALUES (?, ?, ?, ?)",
+                    job, nodeId, leaseUntil(), now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // held by another instance
+            return false;
+        }
+    }
+
+    private boolean tryAdvisoryLock(String job) throws SQLException {
+        if (lockConnection == null) {
+            lockConnection = dataSource.getConnection();
+            lockConnection.setAutoCommit(true);
+        }
+        // session-level advisory locks are reentrant, so a lock already held by this instance is granted again
+        boolean locked;
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, lockKey(job));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                locked = resultSet.next() && resultSet.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            heldLeases.clear();
+            closeLockConnection();
+            throw e;
+        }
+        if (!locked) {
+            return false;
+        }
+        if (heldLeases.contains(job)) {
+            // keep one lock per job
+            try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, lockKey(job));
+                statement.execute();
+            }
+        }
+        recordLease(job);
+        return true;
+    }
+
+    /**
+     * records the advisory lock held by this instance in the job_lease table.
+     */
+    private void recordLease(String job) {
+        Timestamp now = now();
+        int updated = jdbcTemplate.update("UPDATE job_lease SET acquired_at = CASE WHEN owner = ? THEN acquired_at ELSE ? END, "
+                + "owner = ?, lease_until = ? WHERE name = ?", nodeId, now, nodeId, leaseUntil(), job);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO job_lease (name, owner, lease_until, acquired_at) VALUES (?, ?, ?, ?)",
+                        job, nodeId, leaseUntil(), now);
+            } catch (DuplicateKeyException e) {
+                // recorded by the previous holder in the meantime, corrected with the next renewal
+            }
+        }
+    }
+
+    private boolean lockConnectionValid() {
+        try {
+            return lockConnection != null && lockConnection.isValid(5);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closeLockConnection() {
+        if (lockConnection == null) {
+            return;
+        }
+        try {
+            // closing returns the connection to the pool, so the locks have to be released explicitly
+            if (!lockConnection.isClosed()) {
+                try (Statement statement = lockConnection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock_all()");
+                }
+            }
+            lockConnection.close();
+        } catch (SQLException e) {
+            errorLogger.error("Could not close the connection holding the job leases.", e);
+        }
+        lockConnection = null;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return Boolean.TRUE.equals(postgres);
+    }
+
+    private Timestamp leaseUntil() {
+        return Timestamp.valueOf(LocalDateTime.now().plusSeconds(leaseSeconds));
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    private static long lockKey(String job) {
+        // String.hashCode is specified, so all instances use the same key for a job
+        return (LOCK_NAMESPACE << 32) | (job.hashCode() & 0xFFFF_FFFFL);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    /**
+     * @param name the name of the job
+     * @param owner the node id of the instance holding the lease
+     * @param leaseUntil the time the lease expires unless it is renewed
+     * @param acquiredAt the time the owner acquired the lease
+     * @param heldByThisNode true if this instance holds the lease
+     */
+    public record Lease(String name, String owner, LocalDateTime leaseUntil, LocalDateTime acquiredAt,
+                        boolean heldByThisNode) {
+    }
+}
@@ -0,0 +1,126 @@
+package at.qe.skeleton.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds the load of the ingestion endpoints before the database connection pool is exhausted.
+ * At most {@code max-concurrent} ingestion requests are handled at the same time. Additionally no ingestion requests
+ * are accepted while the AccessPoints would have to wait too long for a connection: the average time to acquire a
+ * connection from the pool (the {@code hikaricp.connections.acquire} timers) is sampled at most every
+ * {@code sample-interval-millis}; if no connection was acquired since the last sample, the pool counts as overloaded
+ * as long as threads are waiting for a connection ({@code hikaricp.connections.pending}).
+ */
+@Component
+public class LoadShedder {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    private static final String PENDING_GAUGE = "hikaricp.connections.pending";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.load-shedding.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${tempera.load-shedding.max-pool-wait-millis:200}")
+    private long maxPoolWaitMillis;
+
+    @Value("${tempera.load-shedding.sample-interval-millis:1000}")
+    private long sampleIntervalMillis;
+
+    /**
+     * the connection pool to watch, all pools if empty (e.g. the primary if a read replica is configured)
+     */
+    @Value("${tempera.load-shedding.pool-name:}")
+    private String poolName;
+
+    private Semaphore permits;
+
+    private long sampledAt;
+    private long sampledCount;
+    private double sampledTotalNanos;
+    private volatile boolean overloaded;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+        Gauge.builder("tempera.load-shedding.in-flight", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .description("Ingestion requests being handled")
+                .register(meterRegistry);
+        sample(System.nanoTime());
+    }
+
+    /**
+     * admits an ingestion request, which has to call {@link #release()} once it was handled.
+     * @return true if the request can be handled, false if it has to be rejected
+     */
+    public boolean tryAcquire() {
+        if (isPoolOverloaded()) {
+            return false;
+        }
+        return permits.tryAcquire();
+    }
+
+    /**
+     * releases the permit of an admitted ingestion request.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return true if the average wait for a database connection since the last sample exceeds the threshold
+     */
+    public boolean isPoolOverloaded() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (now - sampledAt >= TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis)) {
+                sample(now);
+            }
+        }
+        return overloaded;
+    }
+
+    private void sample(long now) {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : poolMeters(ACQUIRE_TIMER).timers()) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+
+        boolean wasOverloaded = overloaded;
+        if (count > sampledCount) {
+            double averageWaitNanos = (totalNanos - sampledTotalNanos) / (count - sampledCount);
+            overloaded = averageWaitNanos > TimeUnit.MILLISECONDS.toNanos(maxPoolWaitMillis);
+        } else {
+            overloaded = overloaded && poolMeters(PENDING_GAUGE).gauges().stream()
+                    .anyMatch(gauge -> gauge.value() > 0);
+        }
+        if (overloaded != wasOverloaded) {
+            generalLogger.warn(overloaded ? "Database connection pool overloaded, shedding ingestion requests."
+                    : "Database connection pool recovered, accepting ingestion requests again.");
+        }
+        sampledAt = now;
+        sampledCount = count;
+        sampledTotalNanos = totalNanos;
+    }
+
+    private Search poolMeters(String name) {
+        Search search = meterRegistry.find(name);
+        return poolName == null || poolName.isBlank() ? search : search.tag("pool", poolName);
+    }
+}
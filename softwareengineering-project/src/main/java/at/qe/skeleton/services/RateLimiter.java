@@ -0,0 +1,114 @@
+package at.qe.skeleton.services;
+
+import at.qe.skeleton.configs.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests of every AccessPoint per endpoint with token buckets held in memory.
+ * Deciding about a request is a map lookup and only touches the database when the {@link AccessPointRegistry} has to
+ * load an AccessPoint, so an AccessPoint sending requests in a tight loop is turned away before it can take database
+ * connections from the other AccessPoints and the UI.
+ * Buckets that refilled completely are removed periodically, as they behave like new ones, so the map only holds the
+ * AccessPoints that used their budget recently.
+ * Buckets are kept per parsed AccessPoint id, so spellings of the same id (G4T2-AP-1, G4T2-AP-01) share one budget.
+ * Requests with ids that cannot be parsed or that belong to no AccessPoint share the bucket of
+ * {@link #INVALID_ACCESS_POINT_ID}, so made-up ids neither get a budget of their own nor grow the map.
+ */
+@Component
+public class RateLimiter {
+
+    static final long INVALID_ACCESS_POINT_ID = -1;
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private AccessPointRegistry accessPointRegistry;
+
+    private final ConcurrentMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * takes a token from the bucket of the given AccessPoint and endpoint.
+     * @param accessPointId the id of the AccessPoint as sent in the request
+     * @param endpoint the name of the endpoint's method
+     * @return 0 if the request is within the budget, otherwise the nanoseconds until the next token is available
+     */
+    public long tryAcquire(String accessPointId, String endpoint) {
+        if (!rateLimitProperties.isEnabled()) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(new BucketKey(normalize(accessPointId), endpoint),
+                key -> new TokenBucket(rateLimitProperties.budgetOf(endpoint), System.nanoTime()));
+        return bucket.tryConsume(System.nanoTime());
+    }
+
+    /**
+     * removes the buckets that refilled completely.
+     */
+    @Scheduled(fixedDelayString = "${tempera.rate-limit.cleanup-interval-millis:60000}")
+    public void removeFullBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * @return the number of AccessPoints and endpoints with a bucket
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private long normalize(String accessPointId) {
+        try {
+            long id = AccessPointService.parseAccessPointId(accessPointId);
+            return accessPointRegistry.find(id).exists() ? id : INVALID_ACCESS_POINT_ID;
+        } catch (IllegalArgumentException e) {
+            return INVALID_ACCESS_POINT_ID;
+        }
+    }
+
+    private record BucketKey(long accessPointId, String endpoint) {
+    }
+
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long updated;
+
+        private TokenBucket(RateLimitProperties.Budget budget, long now) {
+            this.capacity = budget.getCapacity();
+            this.tokensPerNano = budget.getRefillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.updated = now;
+        }
+
+        private synchronized long tryConsume(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            if (tokensPerNano <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updated) * tokensPerNano);
+            updated = now;
+        }
+    }
+}
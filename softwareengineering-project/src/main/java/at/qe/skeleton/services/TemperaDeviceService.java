@@ -4,7 +4,9 @@ import at.qe.skeleton.exceptions.EntityStillInUseException;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.*;
 import at.qe.skeleton.exceptions.IdNotFoundException;
+import at.qe.skeleton.services.climate.LatestMeasurementCache;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,6 +35,14 @@ public class TemperaDeviceService {
     private LogTemperaDeviceRepository logTemperaDeviceRepository;
     @Autowired
     private ClimateMeasurementRepository climateMeasurementRepository;
+    @Autowired
+    private DeviceMeasurementRepository deviceMeasurementRepository;
+    @Autowired
+    private MeasurementRollupRepository measurementRollupRepository;
+    @Autowired
+    private LatestMeasurementCache latestMeasurementCache;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
 
     /**
      * Retrieves a TemperaDevice from the database.
@@ -100,10 +110,14 @@ public class TemperaDeviceService {
         if (sensors != null && !sensors.isEmpty()) {
             for (Sensor sensor : sensors) {
                 climateMeasurementRepository.deleteAllBySensor(sensor);
+                measurementRollupRepository.deleteAllBySensor(sensor);
+                latestMeasurementCache.evict(sensor);
             }
         }
+        deviceMeasurementRepository.deleteAllByTemperaDevice(temperaDevice);
 
         temperaDeviceRepository.delete(findTemperaDeviceById(temperaDevice.getId()));
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
     }
 
     private void addDeletionLog(TemperaDevice temperaDevice, AccessPoint connectedAccessPoint) {
@@ -215,9 +229,12 @@ public class TemperaDeviceService {
                 .orElse(null);
     }
 
+    /**
+     * @return all TemperaDevices with their sensors, AccessPoint and Room
+     */
     @PreAuthorize("hasAnyAuthority('ADMINISTRATOR')")
     public List<TemperaDevice> getAllTemperaDevices() {
-        return temperaDeviceRepository.findAll();
+        return temperaDeviceRepository.findAllWithSensorsAndRoom();
     }
 
 
@@ -253,7 +270,9 @@ public class TemperaDeviceService {
 
         // if tempera device is new no need for logging in AccessPoint
         if (temperaDevice.isNew()) {
-            return temperaDeviceRepository.save(temperaDevice);
+            TemperaDevice savedTemperaDevice = temperaDeviceRepository.save(temperaDevice);
+            applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+            return savedTemperaDevice;
         }
 
         boolean hasStatusChanged = temperaDeviceBeforeSave.getStatus() != temperaDevice.getStatus();
@@ -264,7 +283,9 @@ public class TemperaDeviceService {
         if(hasAccessPointChanged){
             logAccessPointChange(temperaDevice);
         }
-        return temperaDeviceRepository.save(temperaDevice);
+        TemperaDevice savedTemperaDevice = temperaDeviceRepository.save(temperaDevice);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        return savedTemperaDevice;
     }
 
     /**
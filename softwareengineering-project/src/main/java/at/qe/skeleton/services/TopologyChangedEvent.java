@@ -0,0 +1,14 @@
+package at.qe.skeleton.services;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * is published whenever a TemperaDevice, AccessPoint, Room or Limits are saved or deleted, so the
+ * {@link DeviceTopologyService} rebuilds its snapshot once the change is committed.
+ */
+public class TopologyChangedEvent extends ApplicationEvent {
+
+    public TopologyChangedEvent(Object source) {
+        super(source);
+    }
+}
@@ -8,10 +8,13 @@ import at.qe.skeleton.repositories.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import at.qe.skeleton.services.climate.LatestMeasurementCache;
+import at.qe.skeleton.services.climate.WarningChangedEvent;
 import at.qe.skeleton.services.climate.WarningService;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -44,7 +47,15 @@ public class UserService {
     @Autowired
     private ClimateMeasurementRepository climateMeasurementRepository;
     @Autowired
+    private DeviceMeasurementRepository deviceMeasurementRepository;
+    @Autowired
+    private MeasurementRollupRepository measurementRollupRepository;
+    @Autowired
+    private LatestMeasurementCache latestMeasurementCache;
+    @Autowired
     private SensorRepository sensorRepository;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
 
     /**
      * Returns a collection of all users.
@@ -94,6 +105,17 @@ public class UserService {
         return userRepository.findFirstByUsername(username);
     }
 
+    /**
+     * Loads a single user identified by its username together with the sensors of its TemperaDevice, as needed by
+     * the dashboard and the climate measurement views of the user.
+     *
+     * @param username the username to search for
+     * @return the user with the given username
+     */
+    public Userx loadDashboardUser(String username) {
+        return userRepository.findDashboardUserByUsername(username);
+    }
+
 
     /**
      * Get all users of a specific role.
@@ -135,6 +157,7 @@ public class UserService {
 
     /**
      * Sets the user to disabled and clears all personal information, roles, workgroups and projects.
+     * The open dashboards of the user are completed once the deletion committed ({@link TopologyChangedEvent}).
      *
      * @param user the user to delete
      */
@@ -178,6 +201,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
     }
 
 
@@ -200,11 +224,19 @@ public class UserService {
         return userRepository.findByTemperaDevice(temperaDevice);
     }
 
+    /**
+     * @return all users that have a TemperaDevice
+     */
+    public List<Userx> getUsersWithTemperaDevice() {
+        return userRepository.findAllWithTemperaDevice();
+    }
+
     /**
      * Sets a user to the temperaDevice. Because the user ones the device in our model we have to inversely set the tempera device to the user.
      * The temperaDevice must not be null as the function acts like a setter for the user to a TD.
      * Thus, when the user is null it should withdraw the TemperaDevice from the old user.
      * Else, it should set the TemperaDevice to the new user only if the temperaDevice does not already belong to another user.
+     * The open dashboards of the previous owner are completed once the change committed ({@link TopologyChangedEvent}).
      * @param user
      * @param temperaDevice
      * @return
@@ -243,7 +275,9 @@ public class UserService {
                 }
 
                 user.setTemperaDevice(temperaDevice);
-                return saveUser(user);
+                Userx savedUser = saveUser(user);
+                applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+                return savedUser;
             }
         } catch (RuntimeException e){
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
@@ -259,6 +293,7 @@ public class UserService {
      * Removes the temperaDevice from the user and clears the Warnings and ClimateMeasurements of the device, because
      * these are seen as personal data of the user and as he has no connection to the TemperaDevice anymore, all the
      * User's data still connected to the TemperaDevice should be removed.
+     * The open dashboards of the user are completed once the change committed ({@link TopologyChangedEvent}).
      * @param user
      * @return
      * @throws EntityValidationException if user cannot be persisted
@@ -273,18 +308,24 @@ public class UserService {
                 for (Warning warning : oldTemperaDevice.getWarnings()) {
                     warningService.deleteWarning(warning, oldTemperaDevice);
                 }
+                applicationEventPublisher.publishEvent(new WarningChangedEvent(this, oldTemperaDevice.getId()));
             }
             for (Sensor sensor : oldTemperaDevice.getSensors()) {
+                measurementRollupRepository.deleteAllBySensor(sensor);
+                latestMeasurementCache.evict(sensor);
                 if (sensor.getClimateMeasurements() != null && !sensor.getClimateMeasurements().isEmpty()){
                     climateMeasurementRepository.deleteAllBySensor(sensor);
                     sensor.getClimateMeasurements().clear();
                     sensorRepository.save(sensor);
                 }
             }
+            deviceMeasurementRepository.deleteAllByTemperaDevice(oldTemperaDevice);
         }
 
         user.setTemperaDevice(null);
-        return saveUser(user);
+        Userx savedUser = saveUser(user);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        return savedUser;
     }
 
     /**
@@ -0,0 +1,104 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.IngestionStream;
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.mapper.MeasurementMapper;
+import at.qe.skeleton.services.IngestionCursorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves measurements that were already acknowledged to their AccessPoint (202 Accepted) and therefore are not sent
+ * again: the requests of the {@link MeasurementIngestionQueue} and the {@link MeasurementWriteAheadLog}.
+ * The measurements of one AccessPoint are saved through the {@link IngestionCursorService}, so their sequences are
+ * only recorded in the transaction that saves them. If they cannot be saved together for another reason than a
+ * database outage, e.g. because one of them violates a constraint, they are saved one after another and only the ones
+ * that still fail are moved to the {@link MeasurementDeadLetterLog}.
+ */
+@Component
+public class AcknowledgedMeasurementWriter {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+
+    @Autowired
+    private IngestionCursorService ingestionCursorService;
+
+    @Autowired
+    private ClimateMeasurementService climateMeasurementService;
+
+    @Autowired
+    private MeasurementMapper measurementMapper;
+
+    @Autowired
+    private MeasurementDeadLetterLog measurementDeadLetterLog;
+
+    /**
+     * saves the measurements of one AccessPoint that were not received before.
+     * @param accessPointId the id of the AccessPoint that transmitted the measurements
+     * @param measurementDTOs the transmitted measurements
+     * @param mappedMeasurements the ClimateMeasurements of every transmitted measurement, empty if its TemperaDevice
+     *                           is unknown
+     * @return the saved ClimateMeasurements, grouped by measurement
+     * @throws RuntimeException if the database is unavailable ({@link MeasurementWriteAheadLog#isOutage}) or a failed
+     * measurement could not be written to the dead-letter log; the measurements saved before are not saved again when
+     * the caller retries them
+     */
+    public List<List<ClimateMeasurement>> write(Long accessPointId, List<MeasurementDTO> measurementDTOs,
+                                                List<List<ClimateMeasurement>> mappedMeasurements) {
+        try {
+            return ingest(accessPointId, measurementDTOs, mappedMeasurements);
+        } catch (RuntimeException e) {
+            if (MeasurementWriteAheadLog.isOutage(e)) {
+                throw e;
+            }
+            if (measurementDTOs.size() == 1) {
+                measurementDeadLetterLog.append(accessPointId, measurementDTOs, e);
+                return List.of();
+            }
+            generalLogger.warn("Could not save {} measurements of AccessPoint {} together, saving them one after another.",
+                    measurementDTOs.size(), accessPointId, e);
+        }
+
+        List<List<ClimateMeasurement>> savedMeasurements = new ArrayList<>();
+        for (int i = 0; i < measurementDTOs.size(); i++) {
+            if (mappedMeasurements.get(i).isEmpty()) {
+                continue;
+            }
+            MeasurementDTO measurementDTO = measurementDTOs.get(i);
+            try {
+                // mapped again, the ClimateMeasurements of the failed attempt might already have ids
+                savedMeasurements.addAll(ingest(accessPointId, List.of(measurementDTO),
+                        List.of(measurementMapper.mapFrom(measurementDTO))));
+            } catch (RuntimeException e) {
+                if (MeasurementWriteAheadLog.isOutage(e)) {
+                    throw e;
+                }
+                measurementDeadLetterLog.append(accessPointId, List.of(measurementDTO), e);
+            }
+        }
+        return savedMeasurements;
+    }
+
+    private List<List<ClimateMeasurement>> ingest(Long accessPointId, List<MeasurementDTO> measurementDTOs,
+                                                  List<List<ClimateMeasurement>> mappedMeasurements) {
+        List<Long> ids = measurementDTOs.stream().map(MeasurementDTO::id).toList();
+        List<List<ClimateMeasurement>> savedMeasurements = new ArrayList<>();
+        ingestionCursorService.ingest(accessPointId, IngestionStream.MEASUREMENTS, ids, fresh -> {
+            List<List<ClimateMeasurement>> freshMeasurements = new ArrayList<>();
+            for (int i : fresh) {
+                if (!mappedMeasurements.get(i).isEmpty()) {
+                    freshMeasurements.add(mappedMeasurements.get(i));
+                }
+            }
+            climateMeasurementService.saveAll(freshMeasurements.stream().flatMap(List::stream).toList());
+            savedMeasurements.addAll(freshMeasurements);
+        });
+        return savedMeasurements;
+    }
+}
@@ -0,0 +1,74 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.Limits;
+import at.qe.skeleton.model.SensorType;
+
+/**
+ * Formats the current measurements of the climate dashboard tiles and computes their colors, shared by the JSF views
+ * and the {@link DashboardPushHub}.
+ */
+public final class ClimateIndicator {
+
+    public static final String RED = "#fd7b83";
+    public static final String ORANGE = "#ffd184";
+    public static final String GREEN = "#92e38a";
+    public static final String GREY = "#dadada";
+
+    private ClimateIndicator() {
+    }
+
+    /**
+     * @param value the measured value
+     * @param sensorType the type of the sensor
+     * @return the value with the unit of the SensorType, e.g. "21.5 C°"
+     */
+    public static String format(double value, SensorType sensorType) {
+        return value + switch (sensorType) {
+            case AIR_TEMPERATURE -> " C°";
+            case AIR_HUMIDITY -> " %";
+            case AIR_QUALITY -> " ppm";
+            default -> " lux";
+        };
+    }
+
+    /**
+     * Retrieves a color based on the measurement: green if it is within the limits, orange if it is close to a limit
+     * and red if it is above or below the limits.
+     * @param value the measured value
+     * @param limits the limits of the room, null if none are configured
+     * @param sensorType the type of the sensor
+     * @return the hex code of the color, grey if no limits are configured
+     */
+    public static String colorOf(double value, Limits limits, SensorType sensorType) {
+        if (limits == null) {
+            return GREY;
+        }
+        Double upperLimit = limits.getUpperLimit();
+        Double lowerLimit = limits.getLowerLimit();
+        if (value < lowerLimit || value > upperLimit) {
+            return RED;
+        } else if (isCloseToLimit(value, upperLimit, lowerLimit, sensorType)) {
+            return ORANGE;
+        }
+        return GREEN;
+    }
+
+    /**
+     * Checks if the current measurement is close to the upper or lower limit for the specified sensor type.
+     * The threshold for being close to the limit is defined based on the sensor type.
+     *
+     * @param measuredValue The current measurement value.
+     * @param upperLimit The upper limit for the sensor.
+     * @param lowerLimit The lower limit for the sensor.
+     * @param sensorType The type of sensor.
+     * @return True if the measurement is close to the limit, otherwise false.
+     */
+    private static boolean isCloseToLimit(double measuredValue, Double upperLimit, Double lowerLimit, SensorType sensorType) {
+        switch (sensorType) {
+            case AIR_TEMPERATURE -> {return (measuredValue < lowerLimit+2 || measuredValue > upperLimit-2);}
+            case AIR_HUMIDITY -> {return (measuredValue < lowerLimit+5 || measuredValue > upperLimit-5);}
+            case AIR_QUALITY -> {return (measuredValue < lowerLimit+5 || measuredValue > upperLimit-5);}
+            default -> {return (measuredValue < lowerLimit+50 || measuredValue > upperLimit-50);}
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * High-throughput write path for climate measurements.
+ * ClimateMeasurements are write-once rows, so there is no need to keep them in the persistence context or to
+ * dirty-check them on flush. This writer inserts them through a Hibernate {@link StatelessSession} that works on the
+ * JDBC connection of the surrounding transaction and sends the inserts in JDBC batches.
+ */
+@Component
+public class ClimateMeasurementBatchWriter {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * inserts the given ClimateMeasurements in JDBC batches. Ids are assigned by the pooled sequence generator of
+     * {@link ClimateMeasurement}. The inserted measurements are not attached to the persistence context.
+     * @param measurements the ClimateMeasurements to be inserted
+     * @return the inserted ClimateMeasurements with their ids set
+     */
+    @Transactional
+    public List<ClimateMeasurement> insertAll(List<ClimateMeasurement> measurements) {
+        if (measurements.isEmpty()) {
+            return measurements;
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        try {
+            session.doWork(connection -> {
+                try (StatelessSession statelessSession = session.getSessionFactory()
+                        .withStatelessOptions()
+                        .connection(connection)
+                        .openStatelessSession()) {
+                    statelessSession.setJdbcBatchSize(batchSize);
+                    for (ClimateMeasurement measurement : measurements) {
+                        statelessSession.insert(measurement);
+                    }
+                }
+            });
+        } catch (PersistenceException e) {
+            // the StatelessSession is not covered by the repository exception translation
+            DataAccessException translatedException = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+            throw translatedException != null ? translatedException : e;
+        }
+        return measurements;
+    }
+}
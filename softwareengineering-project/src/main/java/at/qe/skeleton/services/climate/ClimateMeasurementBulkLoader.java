@@ -0,0 +1,157 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.configs.RequestSqlStatistics;
+import at.qe.skeleton.model.ClimateMeasurement;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk loader for historical climate measurements, e.g. the buffered readings an AccessPoint uploads after an outage.
+ * On PostgreSQL the rows are streamed into the table with {@code COPY ... FROM STDIN}, on every other database
+ * (H2 in the tests) they are written with multi-row INSERT statements.
+ * Ids are reserved from climate_measurement_seq in blocks of {@link #ID_BLOCK_SIZE}, the same way the pooled
+ * generator of {@link ClimateMeasurement} does, so both write paths can be used side by side.
+ */
+@Component
+public class ClimateMeasurementBulkLoader {
+
+    static final String SEQUENCE_NAME = "climate_measurement_seq";
+    static final int ID_BLOCK_SIZE = 50;
+    private static final int ROWS_PER_INSERT = 500;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String COPY_SQL =
+            "COPY climate_measurement (id, time_stamp, sensor_id, measured_value) FROM STDIN WITH (FORMAT csv)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * loads the given ClimateMeasurements into the database, bypassing the persistence context.
+     * The measurements get their ids assigned, but are not managed by JPA afterwards.
+     * @param measurements the ClimateMeasurements to be loaded
+     * @return the number of loaded rows
+     */
+    @Transactional
+    public int load(List<ClimateMeasurement> measurements) {
+        if (measurements.isEmpty()) {
+            return 0;
+        }
+        assignIds(measurements);
+
+        Integer loadedRows = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            if (connection.isWrapperFor(BaseConnection.class)) {
+                long start = System.nanoTime();
+                try {
+                    return copy(connection.unwrap(BaseConnection.class), measurements);
+                } finally {
+                    // executed on the unwrapped connection, so it is not counted by the SqlStatementCountingDataSource
+                    RequestSqlStatistics.record(System.nanoTime() - start);
+                }
+            }
+            return insert(connection, measurements);
+        });
+        return loadedRows == null ? 0 : loadedRows;
+    }
+
+    /**
+     * reserves one block of ids per {@link #ID_BLOCK_SIZE} measurements. A sequence value v stands for the ids
+     * v - ID_BLOCK_SIZE + 1 up to v, matching the hi-based pooled optimizer of Hibernate.
+     */
+    private void assignIds(List<ClimateMeasurement> measurements) {
+        String nextValueSql = dialect().getSequenceSupport().getSequenceNextValString(SEQUENCE_NAME);
+        long nextId = 0;
+        long lastIdOfBlock = -1;
+        for (ClimateMeasurement measurement : measurements) {
+            if (nextId > lastIdOfBlock) {
+                Long sequenceValue = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+                if (sequenceValue == null) {
+                    throw new IllegalStateException("Sequence " + SEQUENCE_NAME + " did not return a value.");
+                }
+                lastIdOfBlock = sequenceValue;
+                nextId = sequenceValue - ID_BLOCK_SIZE + 1;
+            }
+            measurement.setId(nextId++);
+        }
+    }
+
+    private Dialect dialect() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    private int copy(BaseConnection connection, List<ClimateMeasurement> measurements) throws SQLException {
+        CopyIn copyIn = new CopyManager(connection).copyIn(COPY_SQL);
+        try {
+            StringBuilder rows = new StringBuilder(COPY_BUFFER_SIZE + 128);
+            for (ClimateMeasurement measurement : measurements) {
+                rows.append(measurement.getId()).append(',')
+                        .append(measurement.getTimeStamp()).append(',')
+                        .append(measurement.getSensor().getId()).append(',')
+                        .append(measurement.getMeasuredValue()).append('\n');
+                if (rows.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, rows);
+                }
+            }
+            writeToCopy(copyIn, rows);
+            return (int) copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void writeToCopy(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        if (rows.length() == 0) {
+            return;
+        }
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+
+    private int insert(Connection connection, List<ClimateMeasurement> measurements) throws SQLException {
+        int insertedRows = 0;
+        for (int from = 0; from < measurements.size(); from += ROWS_PER_INSERT) {
+            List<ClimateMeasurement> chunk = measurements.subList(from, Math.min(from + ROWS_PER_INSERT, measurements.size()));
+            String sql = "INSERT INTO climate_measurement (id, time_stamp, sensor_id, measured_value) VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?)"));
+
+            List<Object> parameters = new ArrayList<>(chunk.size() * 4);
+            for (ClimateMeasurement measurement : chunk) {
+                parameters.add(measurement.getId());
+                parameters.add(Timestamp.valueOf(measurement.getTimeStamp()));
+                parameters.add(measurement.getSensor().getId());
+                parameters.add(measurement.getMeasuredValue());
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                insertedRows += statement.executeUpdate();
+            }
+        }
+        return insertedRows;
+    }
+}
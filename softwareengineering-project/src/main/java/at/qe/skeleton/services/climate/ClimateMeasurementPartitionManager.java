@@ -0,0 +1,267 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.services.JobLeaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Manages the monthly range partitions of the climate_measurement table on PostgreSQL.
+ * On startup the table created by Hibernate is converted into a table partitioned by time_stamp (primary key
+ * (id, time_stamp), index on (sensor_id, time_stamp)), so queries for a time range only scan the partitions of that
+ * range. A nightly job creates the partitions of the upcoming months and detaches or drops the partitions that are
+ * older than the configured retention.
+ * Measurements outside of the monthly partitions, e.g. a device clock far in the future or an old backfill, are kept
+ * in a DEFAULT partition instead of failing the insert. Once the partition of their month is created, they are moved
+ * into it.
+ * If the application runs as several instances, the conversion is serialized by an advisory lock, so only the first
+ * instance converts the table, and the nightly job only runs on the instance holding its lease
+ * ({@link JobLeaseManager}).
+ * On other databases (H2 in the tests) the table is left as it is and all methods do nothing.
+ */
+@Component
+public class ClimateMeasurementPartitionManager {
+
+    static final String TABLE = "climate_measurement";
+    static final String SENSOR_TIME_INDEX = "climate_measurement_sensor_time_idx";
+    static final String DEFAULT_PARTITION = TABLE + "_default";
+    static final String MAINTAIN_PARTITIONS_JOB = "maintain-measurement-partitions";
+    /**
+     * key of the advisory lock serializing the conversion, apart from the keys of the {@link JobLeaseManager}
+     */
+    static final long CONVERSION_LOCK_KEY = 0x7E3A_0002_0000_0001L;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JobLeaseManager jobLeaseManager;
+
+    @Value("${tempera.measurements.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tempera.measurements.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * number of months to keep, 0 or less keeps all partitions.
+     */
+    @Value("${tempera.measurements.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * if true, expired partitions are dropped, otherwise they are only detached and kept as standalone tables.
+     */
+    @Value("${tempera.measurements.partitioning.drop-expired:false}")
+    private boolean dropExpired;
+
+    private Boolean postgres;
+
+    /**
+     * converts the climate_measurement table into a partitioned table once the application started, if necessary,
+     * and creates the partitions of the upcoming months. Instances starting at the same time wait for the one
+     * converting the table and find it partitioned afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initPartitioning() {
+        if (!isActive()) {
+            return;
+        }
+        if (!isPartitioned()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                // released with the end of the transaction
+                jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + CONVERSION_LOCK_KEY + ")");
+                if (!isPartitioned()) {
+                    convertToPartitionedTable();
+                }
+            });
+        }
+        maintainPartitions();
+    }
+
+    /**
+     * creates the partitions of the current and the upcoming months and removes the expired partitions.
+     * Runs every night at 1 am, on the instance holding the lease of the job.
+     */
+    @Scheduled(cron = "0 0 1 * * *")
+    public void maintainPartitions() {
+        if (!isActive() || !isPartitioned() || !jobLeaseManager.tryAcquire(MAINTAIN_PARTITIONS_JOB)) {
+            return;
+        }
+        YearMonth currentMonth = YearMonth.now();
+        ensurePartitions(currentMonth, currentMonth.plusMonths(monthsAhead));
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKeptMonth = currentMonth.minusMonths(retentionMonths - 1L);
+            for (String partition : findPartitions()) {
+                YearMonth month = monthOf(partition);
+                if (month != null && month.isBefore(oldestKeptMonth)) {
+                    removePartition(partition);
+                }
+            }
+        }
+    }
+
+    /**
+     * makes sure there is a partition for every month between the two given timestamps, e.g. before historical
+     * measurements are loaded.
+     * @param from the oldest timestamp
+     * @param to the newest timestamp
+     */
+    public void ensurePartitions(LocalDateTime from, LocalDateTime to) {
+        if (!isActive() || !isPartitioned()) {
+            return;
+        }
+        ensurePartitions(YearMonth.from(from), YearMonth.from(to));
+    }
+
+    private void ensurePartitions(YearMonth from, YearMonth to) {
+        Set<String> existingPartitions = new HashSet<>(findPartitions());
+        boolean hasDefaultPartition = existingPartitions.contains(DEFAULT_PARTITION);
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            String partition = partitionName(month);
+            if (!existingPartitions.contains(partition)) {
+                createPartition(month, hasDefaultPartition);
+                generalLogger.info("Created partition {}.", partition);
+            }
+        }
+        if (!hasDefaultPartition) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+            generalLogger.info("Created partition {}.", DEFAULT_PARTITION);
+        }
+    }
+
+    /**
+     * creates the partition of the given month. PostgreSQL refuses to create it while the DEFAULT partition holds
+     * measurements of that month, so these are moved into the new partition while the DEFAULT partition is detached.
+     */
+    private void createPartition(YearMonth month, boolean hasDefaultPartition) {
+        String range = "time_stamp >= '" + month.atDay(1).atStartOfDay()
+                + "' AND time_stamp < '" + month.plusMonths(1).atDay(1).atStartOfDay() + "'";
+        Integer defaultRows = hasDefaultPartition
+                ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + DEFAULT_PARTITION + " WHERE " + range, Integer.class)
+                : null;
+        if (defaultRows == null || defaultRows == 0) {
+            jdbcTemplate.execute(createPartitionSql(month));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute(createPartitionSql(month));
+            jdbcTemplate.execute("INSERT INTO " + partitionName(month) + " SELECT * FROM " + DEFAULT_PARTITION + " WHERE " + range);
+            jdbcTemplate.execute("DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        });
+        generalLogger.info("Moved {} measurements from {} into partition {}.", defaultRows, DEFAULT_PARTITION, partitionName(month));
+    }
+
+    private void removePartition(String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+        if (dropExpired) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            generalLogger.info("Dropped expired partition {}.", partition);
+        } else {
+            generalLogger.info("Detached expired partition {}.", partition);
+        }
+    }
+
+    private void convertToPartitionedTable() {
+        String legacyTable = TABLE + "_unpartitioned";
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + legacyTable);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + legacyTable + " INCLUDING DEFAULTS) PARTITION BY RANGE (time_stamp)");
+        // the partition key has to be part of the primary key
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + TABLE + "_partitioned_pkey PRIMARY KEY (id, time_stamp)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + TABLE + "_sensor_fk FOREIGN KEY (sensor_id) REFERENCES sensor (id)");
+
+        LocalDateTime[] range = jdbcTemplate.queryForObject(
+                "SELECT MIN(time_stamp), MAX(time_stamp) FROM " + legacyTable,
+                (resultSet, rowNum) -> new LocalDateTime[]{
+                        resultSet.getObject(1, LocalDateTime.class), resultSet.getObject(2, LocalDateTime.class)});
+        if (range != null && range[0] != null) {
+            ensurePartitions(YearMonth.from(range[0]), YearMonth.from(range[1]));
+        } else {
+            ensurePartitions(YearMonth.now(), YearMonth.now());
+        }
+
+        int copiedRows = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + legacyTable);
+        jdbcTemplate.execute("DROP TABLE " + legacyTable);
+        // created after dropping the old table, which still owns the index of the same name
+        jdbcTemplate.execute("CREATE INDEX " + SENSOR_TIME_INDEX + " ON " + TABLE + " (sensor_id, time_stamp)");
+        generalLogger.info("Converted {} into a partitioned table ({} rows).", TABLE, copiedRows);
+    }
+
+    private boolean isActive() {
+        if (!enabled) {
+            return false;
+        }
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return Boolean.TRUE.equals(postgres);
+    }
+
+    private boolean isPartitioned() {
+        Integer partitionedTables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = ?",
+                Integer.class, TABLE);
+        return partitionedTables != null && partitionedTables > 0;
+    }
+
+    private List<String> findPartitions() {
+        return new ArrayList<>(jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits i "
+                        + "JOIN pg_class parent ON parent.oid = i.inhparent "
+                        + "JOIN pg_class child ON child.oid = i.inhrelid "
+                        + "WHERE parent.relname = ?", String.class, TABLE));
+    }
+
+    /**
+     * @param month the month of the partition
+     * @return the name of the partition holding the measurements of the given month
+     */
+    public static String partitionName(YearMonth month) {
+        return TABLE + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * @param partition the name of a partition
+     * @return the month of the given partition or null, if it is not one of the monthly partitions, e.g. the DEFAULT
+     * partition
+     */
+    public static YearMonth monthOf(String partition) {
+        try {
+            return YearMonth.parse(partition.substring(TABLE.length()), PARTITION_SUFFIX);
+        } catch (RuntimeException e) {
+            // not one of the monthly partitions
+            return null;
+        }
+    }
+
+    private static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1).atStartOfDay() + "') TO ('" + month.plusMonths(1).atDay(1).atStartOfDay() + "')";
+    }
+}
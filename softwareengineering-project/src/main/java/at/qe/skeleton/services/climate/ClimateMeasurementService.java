@@ -3,10 +3,11 @@ package at.qe.skeleton.services.climate;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.ClimateMeasurementRepository;
 
-import at.qe.skeleton.services.TemperaDeviceService;
-import at.qe.skeleton.services.room.LimitService;
+import at.qe.skeleton.services.DeviceTopologyService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -28,24 +30,100 @@ public class ClimateMeasurementService {
     ClimateMeasurementRepository measurementRepository;
 
     @Autowired
-    TemperaDeviceService temperaDeviceService;
+    WarningEngine warningEngine;
 
     @Autowired
-    LimitService limitService;
+    DeviceTopologyService deviceTopologyService;
 
     @Autowired
-    WarningService warningService;
+    ClimateMeasurementBatchWriter batchWriter;
 
+    @Autowired
+    ClimateMeasurementBulkLoader bulkLoader;
+
+    @Autowired
+    DeviceMeasurementService deviceMeasurementService;
+
+    @Autowired
+    ClimateMeasurementPartitionManager partitionManager;
+
+    @Autowired
+    MeasurementRollupService rollupService;
+
+    @Autowired
+    MeasurementSeriesService seriesService;
+
+    @Autowired
+    LatestMeasurementCache latestMeasurementCache;
+
+    @Autowired
+    DashboardPushHub dashboardPushHub;
+
+    @Value("${tempera.measurements.stateless-writes:false}")
+    boolean statelessWrites;
+
+    @Value("${tempera.measurements.wide-rows:false}")
+    boolean wideRows;
+
+    @Value("${tempera.measurements.rollups.enabled:false}")
+    boolean rollups;
 
 
     @Transactional
     public void save(ClimateMeasurement measurement) {
         measurementRepository.save(measurement);
+        latestMeasurementCache.update(List.of(measurement));
     }
 
+    /**
+     * Saves all given measurements in one transaction. If the high-throughput mode is enabled
+     * (tempera.measurements.stateless-writes), the measurements are inserted by the {@link ClimateMeasurementBatchWriter}
+     * without being attached to the persistence context. If the wide-row storage is enabled
+     * (tempera.measurements.wide-rows), the measurements are stored as {@link DeviceMeasurement}s instead.
+     * If rollups are enabled (tempera.measurements.rollups.enabled), they are updated in the same transaction with
+     * the measurements that were stored, i.e. without readings the wide-row storage already had.
+     * @param measurements the measurements to be saved
+     * @return the saved measurements
+     */
     @Transactional
     public List<ClimateMeasurement> saveAll(List<ClimateMeasurement> measurements) {
-        return measurementRepository.saveAll(measurements);
+        latestMeasurementCache.update(measurements);
+        if (wideRows) {
+            addToRollups(deviceMeasurementService.saveAllMeasurements(measurements));
+            return measurements;
+        }
+        List<ClimateMeasurement> savedMeasurements = statelessWrites
+                ? batchWriter.insertAll(measurements)
+                : measurementRepository.saveAll(measurements);
+        addToRollups(measurements);
+        return savedMeasurements;
+    }
+
+    /**
+     * Loads historical measurements with the {@link ClimateMeasurementBulkLoader}. Warnings are not evaluated for
+     * these measurements, see {@link #checkLimits(List)}. Missing partitions for old months are created first.
+     * @param measurements the measurements to be loaded
+     * @return the number of loaded measurements
+     */
+    @Transactional
+    public int backfill(List<ClimateMeasurement> measurements) {
+        latestMeasurementCache.update(measurements);
+        if (wideRows) {
+            List<ClimateMeasurement> insertedMeasurements = deviceMeasurementService.saveAllMeasurements(measurements);
+            addToRollups(insertedMeasurements);
+            return insertedMeasurements.size();
+        }
+        measurements.stream().map(ClimateMeasurement::getTimeStamp).filter(Objects::nonNull).min(LocalDateTime::compareTo)
+                .ifPresent(oldest -> partitionManager.ensurePartitions(oldest, LocalDateTime.now()));
+        int loadedMeasurements = bulkLoader.load(measurements);
+        addToRollups(measurements);
+        return loadedMeasurements;
+    }
+
+    private void addToRollups(List<ClimateMeasurement> measurements) {
+        if (rollups) {
+            rollupService.addAll(measurements);
+        }
     }
 
     @Transactional
@@ -65,6 +143,10 @@ public class ClimateMeasurementService {
         List<ClimateMeasurement> measurements = new ArrayList<>();
         if (user.getTemperaDevice() != null) {
             for (Sensor sensor : user.getTemperaDevice().getSensors()) {
+                if (wideRows) {
+                    measurements.addAll(deviceMeasurementService.findAllBySensor(sensor));
+                    continue;
+                }
                 measurements.addAll(measurementRepository.findAllBySensor(sensor));
             }
         }
@@ -82,6 +164,9 @@ public class ClimateMeasurementService {
     public List<ClimateMeasurement> findSensorMeasurementsBetween(Sensor sensor, LocalDate start, LocalDate end) {
         LocalDateTime after = start.atStartOfDay();
         LocalDateTime before = end.plusDays(1).atStartOfDay();
+        if (wideRows) {
+            return deviceMeasurementService.findSensorMeasurementsBetween(sensor, after, before);
+        }
         return measurementRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(sensor, after, before);
     }
 
@@ -99,8 +184,7 @@ public class ClimateMeasurementService {
             return new ArrayList<>();
         } else {
             Sensor temperatureSensor = user.getTemperaDevice().getTemperatureSensor();
-            List<ClimateMeasurement> allTemperatureMeasurementsBetween = findSensorMeasurementsBetween(temperatureSensor, start, end);
-            return filterMeasurements(allTemperatureMeasurementsBetween, granularityInMinutes);
+            return sensorHistory(temperatureSensor, start, end, granularityInMinutes);
         }
     }
 
@@ -118,8 +202,7 @@ public class ClimateMeasurementService {
             return new ArrayList<>();
         } else {
             Sensor humiditySensor = user.getTemperaDevice().getHumiditySensor();
-            List<ClimateMeasurement> allHumidityMeasurementsBetween = findSensorMeasurementsBetween(humiditySensor, start, end);
-            return filterMeasurements(allHumidityMeasurementsBetween, granularityInMinutes);
+            return sensorHistory(humiditySensor, start, end, granularityInMinutes);
         }
     }
 
@@ -137,8 +220,7 @@ public class ClimateMeasurementService {
             return new ArrayList<>();
         } else {
             Sensor airQualitySensor = user.getTemperaDevice().getAirQualitySensor();
-            List<ClimateMeasurement> allAirQualityMeasurementsBetween = findSensorMeasurementsBetween(airQualitySensor, start, end);
-            return filterMeasurements(allAirQualityMeasurementsBetween, granularityInMinutes);
+            return sensorHistory(airQualitySensor, start, end, granularityInMinutes);
         }
     }
 
@@ -156,14 +238,31 @@ public class ClimateMeasurementService {
             return new ArrayList<>();
         } else {
             Sensor lightSensor = user.getTemperaDevice().getLightSensor();
-            List<ClimateMeasurement> allLightMeasurementsBetween = findSensorMeasurementsBetween(lightSensor, start, end);
-            return filterMeasurements(allLightMeasurementsBetween, granularityInMinutes);
+            return sensorHistory(lightSensor, start, end, granularityInMinutes);
         }
     }
 
+    /**
+     * Retrieves the measurements of a specific type for a given user within a specified time range, downsampled to
+     * the given number of points with the Largest-Triangle-Three-Buckets algorithm, which keeps peaks and dips.
+     * @param user The user for whom to retrieve the history.
+     * @param sensorType The type of sensor for which to retrieve the history.
+     * @param start The start date of the time range.
+     * @param end The end date of the time range.
+     * @param maxPoints The maximum number of points, e.g. the width of the chart in pixels.
+     * @return The downsampled series, empty if the user has no TemperaDevice.
+     */
+    public MeasurementSeries downsampledHistoryForUser(Userx user, SensorType sensorType, LocalDate start, LocalDate end, int maxPoints) {
+        if (user.getTemperaDevice() == null) {
+            return MeasurementSeries.empty();
+        }
+        return seriesService.findDownsampledSeries(getSensor(user, sensorType), start.atStartOfDay(),
+                end.plusDays(1).atStartOfDay(), maxPoints);
+    }
+
 
     /**
-     * Retrieves the most recent measurement of a specific type for a given user.
+     * Retrieves the most recent measurement of a specific type for a given user from the {@link LatestMeasurementCache}.
      * Throws a NoSuchElementException if no current measurement is found.
      * @param user The user for whom to retrieve the measurement.
      * @param sensorType The type of sensor for which to retrieve the measurement.
@@ -171,10 +270,25 @@ public class ClimateMeasurementService {
      * @throws NoSuchElementException If no current measurement is found for the specified sensor type.
      */
     public Double findCurrentMeasurementForUser(Userx user, SensorType sensorType) throws NoSuchElementException {
-        Sensor sensor = getSensor(user, sensorType);
-        ClimateMeasurement currentMeasurement = measurementRepository.findNewestBySensorAndNotOlderThan(sensor.getId(), LocalDateTime.now().minusDays(1))
+        return findNewestValue(getSensor(user, sensorType))
               .orElseThrow(() -> new NoSuchElementException("No current "+ sensorType.toString().toLowerCase() +" measurement found."));
-        return currentMeasurement.getMeasuredValue();
+    }
+
+    /**
+     * Looks up the most recent measurements of the sensors on the open dashboards ({@link DashboardPushHub}) in the
+     * {@link LatestMeasurementCache}. Expired entries are loaded from the database again, so measurements saved by
+     * other instances of the application are published as {@link NewestMeasurementsEvent} and pushed.
+     */
+    @Scheduled(fixedDelayString = "${tempera.dashboard.refresh-interval-millis:10000}")
+    public void refreshDashboardMeasurements() {
+        dashboardPushHub.subscribedSensors().forEach(this::findNewestValue);
+    }
+
+    private Optional<Double> findNewestValue(Sensor sensor) {
+        LocalDateTime minTimestamp = LocalDateTime.now().minusDays(1);
+        return latestMeasurementCache.findNewestValue(sensor, minTimestamp, () -> wideRows
+                ? deviceMeasurementService.findNewestBySensorAndNotOlderThan(sensor, minTimestamp)
+                : measurementRepository.findNewestBySensorAndNotOlderThan(sensor.getId(), minTimestamp));
     }
 
     /**
@@ -200,6 +314,32 @@ public class ClimateMeasurementService {
         return sensor;
     }
 
+    /**
+     * Retrieves the history of a sensor within the specified time range. Every data point is the average of one
+     * granularity-sized bucket, read from the rollups if they are enabled and computed by the database otherwise.
+     * Only the wide-row storage and granularities below one minute still filter the raw measurements with
+     * {@link #filterMeasurements(List, int)}.
+     * @param sensor The sensor for which to retrieve the history.
+     * @param start The start date of the time range.
+     * @param end The end date of the time range.
+     * @param granularityInMinutes The time difference (granularity) in minutes between consecutive measurements.
+     * @return A list of climate measurements ordered by timestamp in ascending order.
+     */
+    private List<ClimateMeasurement> sensorHistory(Sensor sensor, LocalDate start, LocalDate end, int granularityInMinutes) {
+        LocalDateTime after = start.atStartOfDay();
+        LocalDateTime before = end.plusDays(1).atStartOfDay();
+        if (rollups && granularityInMinutes >= 1) {
+            return rollupService.findHistory(sensor, after, before, granularityInMinutes);
+        }
+        if (wideRows || granularityInMinutes < 1) {
+            return filterMeasurements(findSensorMeasurementsBetween(sensor, start, end), granularityInMinutes);
+        }
+        return measurementRepository.findBucketsBySensorAndTimeStampBetween(sensor, after, before, granularityInMinutes * 60L)
+                .stream()
+                .map(bucket -> bucket.toClimateMeasurement(sensor))
+                .toList();
+    }
+
     /**
      * Filters a list of climate measurements based on the specified granularity in minutes.
      * Returns a list of climate measurements ordered by timestamp in ascending order.
@@ -232,38 +372,28 @@ public class ClimateMeasurementService {
 
     /**
      * checks if the values of incoming measurements are within the limits of the respective room where
-     * the TemperaDevice is situated. If a limit transgression is detected, the climateMeasurement is
-     * passed on to the warningService's checkWarning method.
+     * the TemperaDevice is situated. The room and its limits are looked up in the {@link DeviceTopology} held by the
+     * {@link DeviceTopologyService}, so no database access is necessary. If a limit transgression is detected, the
+     * climateMeasurement is passed on to the {@link WarningEngine}, which evaluates the warnings of one TemperaDevice
+     * at a time.
      * @param climateMeasurements list of measurements to be checked coming in from RestController
      */
     public void checkLimits(List<ClimateMeasurement> climateMeasurements) {
-        try {
-            if (Duration.between(climateMeasurements.get(0).getTimeStamp(), LocalDateTime.now()).toMinutes() > 15) {
-                //Measurement older than 15 minutes. Ignoring.
-                return;
-            }
-
-            TemperaDevice temperaDevice = temperaDeviceService
-                    .findTemperaDeviceBySensor(climateMeasurements.get(0).getSensor());
-
-            Room room = temperaDevice.getAccessPoint().getRoom();
-
-            List<Limits> limitsList = room.getLimitsList();
-
-            for (ClimateMeasurement climateMeasurement : climateMeasurements) {
-                Sensor sensor = climateMeasurement.getSensor();
-                SensorType measurementType = sensor.getSensorType();
-
-                Limits limits = limitService.findLimitBySensorType(limitsList, measurementType);
-                double measuredValue = climateMeasurement.getMeasuredValue();
-
-                if (limits.getLowerLimit() > measuredValue || limits.getUpperLimit() < measuredValue) {
-                    warningService.checkWarning(climateMeasurement);
-                }
+        if (Duration.between(climateMeasurements.get(0).getTimeStamp(), LocalDateTime.now()).toMinutes() > 15) {
+            //Measurement older than 15 minutes. Ignoring.
+            return;
+        }
 
+        DeviceTopology topology = deviceTopologyService.getTopology();
+        for (ClimateMeasurement climateMeasurement : climateMeasurements) {
+            DeviceTopology.SensorNode sensorNode = topology.findBySensorId(climateMeasurement.getSensor().getId());
+            if (sensorNode == null || sensorNode.limits() == null) {
+                // no AccessPoint, Room or Limits configured, therefore no warnings.
+                continue;
+            }
+            if (sensorNode.limits().isViolatedBy(climateMeasurement.getMeasuredValue())) {
+                warningEngine.evaluate(climateMeasurement, sensorNode.temperaDeviceId());
             }
-        } catch (NullPointerException e) {
-            // no AccessPoint or Room configured, therefore no Limits and no warnings.
         }
     }
 }
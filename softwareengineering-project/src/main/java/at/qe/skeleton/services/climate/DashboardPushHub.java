@@ -0,0 +1,484 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Limits;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.model.SensorType;
+import at.qe.skeleton.model.TemperaDevice;
+import at.qe.skeleton.model.Userx;
+import at.qe.skeleton.model.Warning;
+import at.qe.skeleton.repositories.UserxRepository;
+import at.qe.skeleton.services.TopologyChangedEvent;
+import at.qe.skeleton.services.room.LimitService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the newest measurements and warning changes to the open climate dashboards as server-sent events.
+ * <p>
+ * Every dashboard subscribes once for its user; the sensors of the user's TemperaDevice and the limits of its room
+ * are loaded with the subscription and kept in memory. Measurements arrive as {@link NewestMeasurementsEvent} from
+ * the {@link LatestMeasurementCache} and warnings from the {@link WarningEngine}, so nothing is queried between two
+ * ingested measurements, no matter how many dashboards are open. Measurements ingested by other instances of the
+ * application are only seen by the cache once their entry expired, so the {@link ClimateMeasurementService} looks up
+ * the {@link #subscribedSensors()} every tempera.dashboard.refresh-interval-millis. When the topology or limits change, the configuration of every
+ * subscribed user is loaded again and only the streams whose TemperaDevice, sensors or limits changed are completed;
+ * their dashboards subscribe again with the new configuration. This includes assigning a TemperaDevice to another
+ * user and deleting a user, so the previous owner does not receive the measurements and warnings of the device
+ * anymore. A stream subscribed while a change was committed is completed as well, as its configuration might have
+ * been loaded before the change.
+ * <p>
+ * Measurements are sent by a single thread with a bounded queue, so a burst of measurements never blocks the
+ * ingestion; if the queue is full, the oldest ones are dropped and counted, as newer ones follow anyway. Warnings
+ * are sent by a thread of their own whose queue is unbounded, as a dropped warning would not be sent again.
+ */
+@Component
+public class DashboardPushHub {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+
+    static final String MEASUREMENT_EVENT = "measurement";
+    static final String WARNING_EVENT = "warning";
+
+    @Autowired
+    private UserxRepository userxRepository;
+
+    @Autowired
+    private LimitService limitService;
+
+    @Autowired
+    private WarningService warningService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.dashboard.stream-timeout-millis:1800000}")
+    private long streamTimeout;
+
+    @Value("${tempera.dashboard.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    @Value("${tempera.dashboard.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptionsBySensor = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptionsByTemperaDevice = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final TransactionTemplate transactionTemplate;
+
+    private ThreadPoolExecutor executor;
+    private ExecutorService warningExecutor;
+
+    /**
+     * the configurations are loaded again in a separate transaction, as topology changes are handled after the
+     * transaction of the change committed.
+     * @param transactionManager the transaction manager of the application
+     */
+    public DashboardPushHub(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        Counter droppedCounter = meterRegistry.counter("tempera.dashboard.dropped");
+        ThreadPoolExecutor.DiscardOldestPolicy discardOldest = new ThreadPoolExecutor.DiscardOldestPolicy();
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads("dashboard-push"), (runnable, pool) -> {
+                    droppedCounter.increment();
+                    discardOldest.rejectedExecution(runnable, pool);
+                });
+        warningExecutor = Executors.newSingleThreadExecutor(daemonThreads("dashboard-push-warnings"));
+        Gauge.builder("tempera.dashboard.streams", this, DashboardPushHub::streamCount)
+                .description("open dashboard streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        warningExecutor.shutdownNow();
+        completeAll();
+    }
+
+    /**
+     * opens a stream of the newest measurements and warnings of the user's TemperaDevice. If the user already has
+     * the maximal number of streams open, the oldest one is completed.
+     * @param username the name of the subscribing user
+     * @return the emitter of the stream, completed immediately if the user has no TemperaDevice
+     */
+    @Transactional
+    public SseEmitter subscribe(String username) {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        long subscribedGeneration = generation.get();
+        Configuration configuration = loadConfiguration(username);
+        if (configuration == null) {
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscription subscription = new Subscription(username, configuration, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+
+        Set<Subscription> userSubscriptions = subscriptionsByUser.computeIfAbsent(username, key -> ConcurrentHashMap.newKeySet());
+        userSubscriptions.add(subscription);
+        subscriptionsByTemperaDevice.computeIfAbsent(configuration.temperaDeviceId(), key -> ConcurrentHashMap.newKeySet()).add(subscription);
+        configuration.sensorTypes().keySet().forEach(sensorId ->
+                subscriptionsBySensor.computeIfAbsent(sensorId, key -> ConcurrentHashMap.newKeySet()).add(subscription));
+
+        while (userSubscriptions.size() > maxStreamsPerUser) {
+            userSubscriptions.stream().min((a, b) -> Long.compare(a.created(), b.created()))
+                    .ifPresent(oldest -> {
+                        unsubscribe(oldest);
+                        oldest.emitter().complete();
+                    });
+        }
+        if (generation.get() != subscribedGeneration) {
+            // a change committed while the configuration was loaded, the dashboard subscribes again
+            unsubscribe(subscription);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * pushes the newest measurements to the streams subscribed to their sensors. Everything that is sent is taken
+     * from the measurements and the subscriptions, the database is not accessed.
+     * @param event the measurements that became the newest of their sensors
+     */
+    @EventListener
+    public void onNewestMeasurements(NewestMeasurementsEvent event) {
+        for (ClimateMeasurement measurement : event.getMeasurements()) {
+            Set<Subscription> subscriptions = subscriptionsBySensor.get(measurement.getSensor().getId());
+            if (subscriptions == null || subscriptions.isEmpty()) {
+                continue;
+            }
+            for (Subscription subscription : subscriptions) {
+                SensorType sensorType = subscription.configuration().sensorTypes().get(measurement.getSensor().getId());
+                if (sensorType == null) {
+                    continue;
+                }
+                double value = measurement.getMeasuredValue();
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("sensorType", sensorType.name());
+                data.put("value", value);
+                data.put("text", ClimateIndicator.format(value, sensorType));
+                data.put("color", ClimateIndicator.colorOf(value, subscription.configuration().limits().get(sensorType), sensorType));
+                data.put("timestamp", measurement.getTimeStamp().toString());
+                executor.execute(() -> send(subscription, MEASUREMENT_EVENT, data));
+            }
+        }
+    }
+
+    /**
+     * pushes a warning created or updated by the limit checks to the streams of its TemperaDevice, once the
+     * transaction saving it committed.
+     * @param temperaDeviceId the id of the TemperaDevice of the warning
+     * @param warning the created or updated warning
+     */
+    public void publishWarning(Long temperaDeviceId, Warning warning) {
+        if (temperaDeviceId == null || !subscriptionsByTemperaDevice.containsKey(temperaDeviceId)) {
+            return;
+        }
+        Map<String, Object> data = warningData(warning.getSensorType(), warning);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendToTemperaDevice(temperaDeviceId, WARNING_EVENT, data);
+                }
+            });
+        } else {
+            sendToTemperaDevice(temperaDeviceId, WARNING_EVENT, data);
+        }
+    }
+
+    /**
+     * pushes the current warnings of the TemperaDevice after a user reacted to a warning or the warnings were
+     * removed. The warnings are loaded on the sending thread, once per changed TemperaDevice with open streams.
+     * @param event the event of the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWarningChanged(WarningChangedEvent event) {
+        Collection<Long> temperaDeviceIds = event.getTemperaDeviceId() == null
+                ? List.copyOf(subscriptionsByTemperaDevice.keySet())
+                : List.of(event.getTemperaDeviceId());
+        for (Long temperaDeviceId : temperaDeviceIds) {
+            if (!subscriptionsByTemperaDevice.containsKey(temperaDeviceId)) {
+                continue;
+            }
+            warningExecutor.execute(() -> {
+                for (SensorType sensorType : SensorType.values()) {
+                    try {
+                        Warning warning = warningService.findActiveWarning(temperaDeviceId, sensorType);
+                        sendNow(temperaDeviceId, WARNING_EVENT, warningData(sensorType, warning));
+                    } catch (RuntimeException e) {
+                        errorLogger.error("Could not load the warnings of TemperaDevice {} for the dashboard.", temperaDeviceId, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * loads the configuration of every subscribed user again and completes the streams whose TemperaDevice, sensors
+     * or limits changed. Their dashboards subscribe again and load the new configuration, all other streams stay
+     * open.
+     * @param event the event of the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTopologyChanged(TopologyChangedEvent event) {
+        generation.incrementAndGet();
+        List<String> usernames = List.copyOf(subscriptionsByUser.keySet());
+        if (usernames.isEmpty()) {
+            return;
+        }
+        Map<String, Configuration> configurations = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    usernames.forEach(username -> configurations.put(username, loadConfiguration(username))));
+        } catch (RuntimeException e) {
+            errorLogger.error("Could not load the dashboard configurations, completing all streams.", e);
+            completeAll();
+            return;
+        }
+        for (String username : usernames) {
+            Configuration configuration = configurations.get(username);
+            for (Subscription subscription : List.copyOf(subscriptionsByUser.getOrDefault(username, Set.of()))) {
+                if (!subscription.configuration().matches(configuration)) {
+                    unsubscribe(subscription);
+                    subscription.emitter().complete();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the sensors of all open streams, each once
+     */
+    public Collection<Sensor> subscribedSensors() {
+        Map<Long, Sensor> sensors = new HashMap<>();
+        for (Set<Subscription> subscriptions : subscriptionsByUser.values()) {
+            subscriptions.forEach(subscription -> subscription.configuration().sensors()
+                    .forEach(sensor -> sensors.putIfAbsent(sensor.getId(), sensor)));
+        }
+        return sensors.values();
+    }
+
+    /**
+     * sends a comment to every stream, so proxies keep idle connections open and closed ones are detected.
+     */
+    @Scheduled(fixedDelayString = "${tempera.dashboard.heartbeat-interval-millis:30000}")
+    public void sendHeartbeats() {
+        for (Set<Subscription> subscriptions : subscriptionsByUser.values()) {
+            for (Subscription subscription : subscriptions) {
+                executor.execute(() -> {
+                    try {
+                        subscription.emitter().send(SseEmitter.event().comment("heartbeat"));
+                    } catch (IOException | IllegalStateException e) {
+                        unsubscribe(subscription);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * @return the number of open streams
+     */
+    public int streamCount() {
+        return subscriptionsByUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * @param username the name of the user
+     * @return the TemperaDevice, sensors and limits of the user's dashboard, null if the user has no TemperaDevice
+     */
+    private Configuration loadConfiguration(String username) {
+        Userx user = userxRepository.findDashboardUserByUsername(username);
+        TemperaDevice temperaDevice = user == null ? null : user.getTemperaDevice();
+        if (temperaDevice == null || temperaDevice.getSensors() == null) {
+            return null;
+        }
+        Map<Long, SensorType> sensorTypes = new LinkedHashMap<>();
+        Map<SensorType, Limits> limits = new EnumMap<>(SensorType.class);
+        for (Sensor sensor : temperaDevice.getSensors()) {
+            sensorTypes.put(sensor.getId(), sensor.getSensorType());
+            if (!limits.containsKey(sensor.getSensorType())) {
+                limits.put(sensor.getSensorType(), findLimits(user, sensor.getSensorType()));
+            }
+        }
+        return new Configuration(temperaDevice.getId(), Map.copyOf(sensorTypes), limits, List.copyOf(temperaDevice.getSensors()));
+    }
+
+    private Limits findLimits(Userx user, SensorType sensorType) {
+        try {
+            return limitService.getLimitsForUserAndSensorType(user, sensorType);
+        } catch (NoSuchElementException | NullPointerException e) {
+            // no AccessPoint, Room or Limits configured, the tiles are shown grey
+            return null;
+        }
+    }
+
+    private static Map<String, Object> warningData(SensorType sensorType, Warning warning) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("sensorType", sensorType.name());
+        data.put("status", warning == null ? null : warning.getWarningStatus().name());
+        return data;
+    }
+
+    private void sendToTemperaDevice(Long temperaDeviceId, String name, Map<String, Object> data) {
+        warningExecutor.execute(() -> sendNow(temperaDeviceId, name, data));
+    }
+
+    private void sendNow(Long temperaDeviceId, String name, Map<String, Object> data) {
+        Set<Subscription> subscriptions = subscriptionsByTemperaDevice.get(temperaDeviceId);
+        if (subscriptions != null) {
+            subscriptions.forEach(subscription -> send(subscription, name, data));
+        }
+    }
+
+    private void send(Subscription subscription, String name, Map<String, Object> data) {
+        try {
+            subscription.emitter().send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // the dashboard was closed, the emitter is completed by the container
+            generalLogger.debug("Dashboard stream of {} closed.", subscription.username());
+            unsubscribe(subscription);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        remove(subscriptionsByUser, subscription.username(), subscription);
+        remove(subscriptionsByTemperaDevice, subscription.configuration().temperaDeviceId(), subscription);
+        subscription.configuration().sensorTypes().keySet().forEach(sensorId -> remove(subscriptionsBySensor, sensorId, subscription));
+    }
+
+    private static <K> void remove(ConcurrentMap<K, Set<Subscription>> index, K key, Subscription subscription) {
+        index.computeIfPresent(key, (k, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    private void completeAll() {
+        List<Subscription> subscriptions = new ArrayList<>();
+        subscriptionsByUser.values().forEach(subscriptions::addAll);
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+            subscription.emitter().complete();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @param temperaDeviceId the id of the user's TemperaDevice
+     * @param sensorTypes the SensorType of every sensor of the TemperaDevice by the sensor's id
+     * @param limits the limits of the TemperaDevice's room by SensorType, null values if none are configured
+     * @param sensors the sensors of the TemperaDevice, to look up their newest measurements
+     */
+    private record Configuration(Long temperaDeviceId, Map<Long, SensorType> sensorTypes,
+                                 Map<SensorType, Limits> limits, List<Sensor> sensors) {
+
+        /**
+         * compares the values shown by the dashboard, the Limits entities themselves are compared by their bounds.
+         * @param other the configuration loaded after a change, null if the user has no TemperaDevice anymore
+         * @return whether the stream can stay open
+         */
+        private boolean matches(Configuration other) {
+            if (other == null || !Objects.equals(temperaDeviceId, other.temperaDeviceId())
+                    || !sensorTypes.equals(other.sensorTypes()) || !limits.keySet().equals(other.limits().keySet())) {
+                return false;
+            }
+            for (Map.Entry<SensorType, Limits> entry : limits.entrySet()) {
+                Limits otherLimits = other.limits().get(entry.getKey());
+                if (entry.getValue() == null || otherLimits == null) {
+                    if (entry.getValue() != otherLimits) {
+                        return false;
+                    }
+                } else if (entry.getValue().getLowerLimit() != otherLimits.getLowerLimit()
+                        || entry.getValue().getUpperLimit() != otherLimits.getUpperLimit()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @param username the name of the subscribed user
+     * @param configuration the TemperaDevice, sensors and limits loaded with the subscription
+     * @param emitter the emitter of the stream
+     * @param created the time the stream was opened in nanoseconds, to find the oldest stream of the user
+     */
+    private record Subscription(String username, Configuration configuration, SseEmitter emitter, long created) {
+
+        private Subscription(String username, Configuration configuration, SseEmitter emitter) {
+            this(username, configuration, emitter, System.nanoTime());
+        }
+
+        // identity semantics, as two streams of the same user hold equal values
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
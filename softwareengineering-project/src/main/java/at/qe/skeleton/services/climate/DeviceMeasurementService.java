@@ -0,0 +1,291 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.*;
+import at.qe.skeleton.repositories.DataMigrationRepository;
+import at.qe.skeleton.repositories.DeviceMeasurementRepository;
+import at.qe.skeleton.services.TemperaDeviceService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service class for the wide-row measurement storage ({@link DeviceMeasurement}).
+ * It is used by the {@link ClimateMeasurementService} if tempera.measurements.wide-rows is enabled and offers the
+ * same use cases as the ClimateMeasurement table, converting the rows to ClimateMeasurements where needed.
+ * A TemperaDevice has at most one row per timestamp; rows for timestamps that are already stored (e.g. a reading
+ * the AccessPoint sent again) are skipped instead of failing the whole batch.
+ */
+@Component
+public class DeviceMeasurementService {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final String MIGRATION_NAME = "climate_measurement_to_device_measurement";
+
+    @Autowired
+    DeviceMeasurementRepository deviceMeasurementRepository;
+
+    @Autowired
+    DataMigrationRepository dataMigrationRepository;
+
+    @Autowired
+    TemperaDeviceService temperaDeviceService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${tempera.measurements.wide-rows:false}")
+    boolean wideRows;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    int batchSize;
+
+    private String insertSql;
+
+    /**
+     * Combines the given ClimateMeasurements to one DeviceMeasurement per TemperaDevice and timestamp and inserts them
+     * in JDBC batches. DeviceMeasurements whose TemperaDevice already has a row with the same timestamp are skipped.
+     * @param measurements the measurements to be saved, e.g. the result of mapping MeasurementDTOs
+     * @return the inserted DeviceMeasurements, without ids
+     */
+    @Transactional
+    public List<DeviceMeasurement> saveAll(List<ClimateMeasurement> measurements) {
+        return insert(measurements).stream().map(InsertedRow::row).toList();
+    }
+
+    /**
+     * Saves the given ClimateMeasurements like {@link #saveAll(List)}.
+     * @param measurements the measurements to be saved
+     * @return the given measurements whose DeviceMeasurement was inserted, without the ones of skipped rows, e.g. to
+     * add only them to the rollups
+     */
+    @Transactional
+    public List<ClimateMeasurement> saveAllMeasurements(List<ClimateMeasurement> measurements) {
+        return insert(measurements).stream().flatMap(insertedRow -> insertedRow.measurements().stream()).toList();
+    }
+
+    private List<InsertedRow> insert(List<ClimateMeasurement> measurements) {
+        Map<Long, TemperaDevice> temperaDevicesBySensorId = new HashMap<>();
+        Map<DeviceTimeStamp, InsertedRow> deviceMeasurements = new LinkedHashMap<>();
+
+        for (ClimateMeasurement measurement : measurements) {
+            Sensor sensor = measurement.getSensor();
+            TemperaDevice temperaDevice = temperaDevicesBySensorId.computeIfAbsent(sensor.getId(),
+                    id -> temperaDeviceService.findTemperaDeviceBySensor(sensor));
+
+            InsertedRow insertedRow = deviceMeasurements.computeIfAbsent(
+                    new DeviceTimeStamp(temperaDevice.getId(), measurement.getTimeStamp()),
+                    key -> new InsertedRow(DeviceMeasurement.builder()
+                            .temperaDevice(temperaDevice)
+                            .timeStamp(measurement.getTimeStamp())
+                            .build(), new ArrayList<>()));
+            insertedRow.row().setValue(sensor.getSensorType(), measurement.getMeasuredValue());
+            insertedRow.measurements().add(measurement);
+        }
+
+        List<InsertedRow> rows = new ArrayList<>(deviceMeasurements.values());
+        int[][] updateCounts = jdbcTemplate.batchUpdate(insertSql(), rows, batchSize, (statement, insertedRow) -> {
+            DeviceMeasurement row = insertedRow.row();
+            statement.setLong(1, row.getTemperaDevice().getId());
+            statement.setTimestamp(2, Timestamp.valueOf(row.getTimeStamp()));
+            statement.setFloat(3, row.getAirTemperature());
+            statement.setFloat(4, row.getAirHumidity());
+            statement.setFloat(5, row.getAirQuality());
+            statement.setFloat(6, row.getLightIntensity());
+        });
+
+        List<InsertedRow> insertedRows = new ArrayList<>(rows.size());
+        int index = 0;
+        for (int[] batch : updateCounts) {
+            for (int updateCount : batch) {
+                // 0 if the row already existed, drivers rewriting the batch report SUCCESS_NO_INFO
+                if (updateCount != 0) {
+                    insertedRows.add(rows.get(index));
+                }
+                index++;
+            }
+        }
+        if (insertedRows.size() < rows.size()) {
+            generalLogger.info("Skipped {} DeviceMeasurements that were already stored.", rows.size() - insertedRows.size());
+        }
+        return insertedRows;
+    }
+
+    /**
+     * Retrieves all measurements of a sensor, sorted by their timestamp.
+     * @param sensor the sensor for which to retrieve the measurements
+     * @return the measurements of the sensor as ClimateMeasurements
+     */
+    public List<ClimateMeasurement> findAllBySensor(Sensor sensor) {
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceBySensor(sensor);
+        if (temperaDevice == null) {
+            return new ArrayList<>();
+        }
+        return deviceMeasurementRepository.findAllByTemperaDeviceOrderByTimeStamp(temperaDevice).stream()
+                .map(deviceMeasurement -> deviceMeasurement.toClimateMeasurement(sensor))
+                .toList();
+    }
+
+    /**
+     * Retrieves the measurements of a sensor within the given time range (both exclusive), sorted by their timestamp.
+     * @param sensor the sensor for which to retrieve the measurements
+     * @param after the start of the time range
+     * @param before the end of the time range
+     * @return the measurements of the sensor as ClimateMeasurements
+     */
+    public List<ClimateMeasurement> findSensorMeasurementsBetween(Sensor sensor, LocalDateTime after, LocalDateTime before) {
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceBySensor(sensor);
+        if (temperaDevice == null) {
+            return new ArrayList<>();
+        }
+        return deviceMeasurementRepository
+                .findAllByTemperaDeviceAndTimeStampAfterAndTimeStampBeforeOrderByTimeStamp(temperaDevice, after, before)
+                .stream()
+                .map(deviceMeasurement -> deviceMeasurement.toClimateMeasurement(sensor))
+                .toList();
+    }
+
+    /**
+     * Retrieves the newest measurement of a sensor, if it is not older than the given timestamp.
+     * @param sensor the sensor for which to retrieve the measurement
+     * @param minTimestamp the oldest accepted timestamp
+     * @return the newest measurement of the sensor as ClimateMeasurement
+     */
+    public Optional<ClimateMeasurement> findNewestBySensorAndNotOlderThan(Sensor sensor, LocalDateTime minTimestamp) {
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceBySensor(sensor);
+        if (temperaDevice == null) {
+            return Optional.empty();
+        }
+        return deviceMeasurementRepository.findNewestByTemperaDeviceAndNotOlderThan(temperaDevice.getId(), minTimestamp)
+                .map(deviceMeasurement -> deviceMeasurement.toClimateMeasurement(sensor));
+    }
+
+    /**
+     * Copies the rows of the ClimateMeasurement table into the DeviceMeasurement table, one day per transaction.
+     * Timestamps already present for a TemperaDevice are skipped, so the migration can be repeated or resumed.
+     * The ClimateMeasurement table is left untouched.
+     * @param from the first day to be migrated
+     * @param to the last day to be migrated
+     * @return the number of created DeviceMeasurements
+     */
+    public int migrateClimateMeasurements(LocalDate from, LocalDate to) {
+        Dialect dialect = dialect();
+        String nextId = dialect.getSequenceSupport().getSelectSequenceNextValString("device_measurement_seq");
+        String sql = "INSERT INTO device_measurement "
+                + "(id, tempera_device_id, time_stamp, air_temperature, air_humidity, air_quality, light_intensity) "
+                + "SELECT " + nextId + ", m.tempera_device_id, m.time_stamp, m.air_temperature, m.air_humidity, m.air_quality, m.light_intensity "
+                + "FROM (SELECT tds.tempera_device_id, cm.time_stamp, "
+                + valueOf(SensorType.AIR_TEMPERATURE) + " AS air_temperature, "
+                + valueOf(SensorType.AIR_HUMIDITY) + " AS air_humidity, "
+                + valueOf(SensorType.AIR_QUALITY) + " AS air_quality, "
+                + valueOf(SensorType.LIGHT_INTENSITY) + " AS light_intensity "
+                + "FROM climate_measurement cm "
+                + "JOIN sensor s ON s.id = cm.sensor_id "
+                + "JOIN tempera_device_sensors tds ON tds.sensors_id = s.id "
+                + "WHERE cm.time_stamp >= ? AND cm.time_stamp < ? "
+                + "AND NOT EXISTS (SELECT 1 FROM device_measurement dm "
+                + "WHERE dm.tempera_device_id = tds.tempera_device_id AND dm.time_stamp = cm.time_stamp) "
+                + "GROUP BY tds.tempera_device_id, cm.time_stamp) m"
+                // rows inserted concurrently, e.g. by another instance migrating at the same time
+                + (dialect instanceof PostgreSQLDialect ? " ON CONFLICT (tempera_device_id, time_stamp) DO NOTHING" : "");
+
+        int migratedRows = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+            Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+            Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(sql, start, end));
+            migratedRows += rows == null ? 0 : rows;
+        }
+        return migratedRows;
+    }
+
+    /**
+     * Migrates all existing ClimateMeasurements once the application started, if the wide-row storage is enabled and
+     * the migration did not finish before. Once it finished, it is recorded as a {@link DataMigration}; delete it to
+     * migrate the ClimateMeasurements written in the meantime (e.g. while the wide-row storage was disabled).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!wideRows || dataMigrationRepository.findById(MIGRATION_NAME).isPresent()) {
+            return;
+        }
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(time_stamp) AS first_time_stamp, MAX(time_stamp) AS last_time_stamp FROM climate_measurement");
+        int migratedRows = 0;
+        if (range.get("first_time_stamp") != null) {
+            LocalDate from = ((Timestamp) range.get("first_time_stamp")).toLocalDateTime().toLocalDate();
+            LocalDate to = ((Timestamp) range.get("last_time_stamp")).toLocalDateTime().toLocalDate();
+            migratedRows = migrateClimateMeasurements(from, to);
+            generalLogger.info("Migrated ClimateMeasurements from {} to {} into {} DeviceMeasurements.", from, to, migratedRows);
+        }
+        dataMigrationRepository.save(DataMigration.builder()
+                .name(MIGRATION_NAME)
+                .completedAt(LocalDateTime.now())
+                .migratedRows(migratedRows)
+                .build());
+    }
+
+    private String insertSql() {
+        if (insertSql == null) {
+            Dialect dialect = dialect();
+            String nextId = dialect.getSequenceSupport().getSelectSequenceNextValString("device_measurement_seq");
+            if (dialect instanceof PostgreSQLDialect) {
+                insertSql = "INSERT INTO device_measurement "
+                        + "(id, tempera_device_id, time_stamp, air_temperature, air_humidity, air_quality, light_intensity) "
+                        + "VALUES (" + nextId + ", ?, ?, ?, ?, ?, ?) "
+                        + "ON CONFLICT (tempera_device_id, time_stamp) DO NOTHING";
+            } else {
+                insertSql = "MERGE INTO device_measurement d USING (SELECT "
+                        + "CAST(? AS BIGINT) AS tempera_device_id, CAST(? AS TIMESTAMP) AS time_stamp, "
+                        + "CAST(? AS REAL) AS air_temperature, CAST(? AS REAL) AS air_humidity, "
+                        + "CAST(? AS REAL) AS air_quality, CAST(? AS REAL) AS light_intensity) v "
+                        + "ON (d.tempera_device_id = v.tempera_device_id AND d.time_stamp = v.time_stamp) "
+                        + "WHEN NOT MATCHED THEN INSERT "
+                        + "(id, tempera_device_id, time_stamp, air_temperature, air_humidity, air_quality, light_intensity) "
+                        + "VALUES (" + nextId + ", v.tempera_device_id, v.time_stamp, v.air_temperature, v.air_humidity, v.air_quality, v.light_intensity)";
+            }
+        }
+        return insertSql;
+    }
+
+    private Dialect dialect() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    /**
+     * missing sensor values of a TemperaDevice are stored as 0, as the value columns are not nullable.
+     */
+    private static String valueOf(SensorType sensorType) {
+        return "COALESCE(MAX(CASE WHEN s.sensor_type = '" + sensorType.name() + "' THEN cm.measured_value END), 0)";
+    }
+
+    private record DeviceTimeStamp(Long temperaDeviceId, LocalDateTime timeStamp) {
+    }
+
+    /**
+     * a DeviceMeasurement together with the ClimateMeasurements it was combined from.
+     */
+    private record InsertedRow(DeviceMeasurement row, List<ClimateMeasurement> measurements) {
+    }
+}
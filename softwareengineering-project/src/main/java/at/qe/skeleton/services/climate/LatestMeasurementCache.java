@@ -0,0 +1,187 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of the newest measurement per sensor, e.g. for the tiles of the climate dashboard.
+ * The cache is updated on the write path by the {@link ClimateMeasurementService} once the transaction saving the
+ * measurements committed, so for measurements saved by this instance no further query is necessary. A sensor without
+ * a recent measurement is remembered as well. Measurements saved by other instances of the application are not seen
+ * by the write path, so an entry is loaded from the database again once it is older than
+ * tempera.latest-value.cache.ttl-millis. Measurements that become the newest of their sensor are published as a
+ * {@link NewestMeasurementsEvent}, the ones saved by other instances once they are loaded with an expired entry.
+ */
+@Component
+public class LatestMeasurementCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * time after which a cached entry is loaded from the database again, 0 or less never reloads.
+     */
+    @Value("${tempera.latest-value.cache.ttl-millis:30000}")
+    private long ttlMillis;
+
+    private final ConcurrentMap<Long, LatestValue> latestValues = new ConcurrentHashMap<>();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("tempera.latest-value.cache.size", latestValues, Map::size)
+                .description("sensors with a cached newest measurement")
+                .register(meterRegistry);
+        hitCounter = meterRegistry.counter("tempera.latest-value.cache", "result", "hit");
+        missCounter = meterRegistry.counter("tempera.latest-value.cache", "result", "miss");
+    }
+
+    /**
+     * Retrieves the newest measured value of a sensor, if it is not older than the given timestamp.
+     * Only if the sensor is not cached yet or its entry expired, its newest measurement is loaded with the given
+     * loader.
+     * @param sensor the sensor for which to retrieve the value
+     * @param minTimestamp the oldest accepted timestamp
+     * @param loader loads the newest measurement of the sensor not older than minTimestamp from the database
+     * @return the newest measured value or an empty Optional, if there is none since minTimestamp
+     */
+    public Optional<Double> findNewestValue(Sensor sensor, LocalDateTime minTimestamp, Supplier<Optional<ClimateMeasurement>> loader) {
+        if (sensor.getId() == null) {
+            return loader.get().map(ClimateMeasurement::getMeasuredValue);
+        }
+        LatestValue latestValue = latestValues.get(sensor.getId());
+        if (latestValue == null || isExpired(latestValue)) {
+            missCounter.increment();
+            Optional<ClimateMeasurement> loaded = loader.get();
+            LatestValue loadedValue = loaded
+                    .filter(measurement -> measurement.getTimeStamp() != null)
+                    .map(measurement -> LatestValue.of(measurement.getTimeStamp(), measurement.getMeasuredValue()))
+                    .orElseGet(LatestValue::none);
+            if (latestValue == null) {
+                latestValues.merge(sensor.getId(), loadedValue, LatestValue::newer);
+            } else if (latestValues.replace(sensor.getId(), latestValue, loadedValue) && loadedValue.isAfter(latestValue)) {
+                // the database is authoritative for expired entries, unless a measurement was saved meanwhile;
+                // a newer measurement was saved by another instance
+                applicationEventPublisher.publishEvent(new NewestMeasurementsEvent(this, List.of(loaded.get())));
+            }
+            return loaded.map(ClimateMeasurement::getMeasuredValue);
+        }
+        hitCounter.increment();
+        if (latestValue.timeStamp() == null || latestValue.timeStamp().isBefore(minTimestamp)) {
+            return Optional.empty();
+        }
+        return Optional.of(latestValue.value());
+    }
+
+    /**
+     * remembers the newest of the given measurements per sensor. Within a transaction the cache is updated after
+     * the commit, so measurements that are rolled back never show up.
+     * @param measurements the saved measurements
+     */
+    public void update(List<ClimateMeasurement> measurements) {
+        Map<Long, ClimateMeasurement> newest = new HashMap<>();
+        for (ClimateMeasurement measurement : measurements) {
+            if (measurement.getSensor() == null || measurement.getSensor().getId() == null || measurement.getTimeStamp() == null) {
+                continue;
+            }
+            newest.merge(measurement.getSensor().getId(), measurement,
+                    (current, candidate) -> candidate.getTimeStamp().isBefore(current.getTimeStamp()) ? current : candidate);
+        }
+        if (newest.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(newest);
+                }
+            });
+        } else {
+            apply(newest);
+        }
+    }
+
+    private void apply(Map<Long, ClimateMeasurement> newest) {
+        List<ClimateMeasurement> changed = new ArrayList<>();
+        newest.forEach((sensorId, measurement) -> {
+            LatestValue value = LatestValue.of(measurement.getTimeStamp(), measurement.getMeasuredValue());
+            if (latestValues.merge(sensorId, value, LatestValue::newer) == value) {
+                changed.add(measurement);
+            }
+        });
+        if (!changed.isEmpty()) {
+            applicationEventPublisher.publishEvent(new NewestMeasurementsEvent(this, changed));
+        }
+    }
+
+    /**
+     * removes a sensor from the cache, e.g. after its measurements were deleted.
+     * @param sensor the sensor to be removed
+     */
+    public void evict(Sensor sensor) {
+        if (sensor.getId() != null) {
+            latestValues.remove(sensor.getId());
+        }
+    }
+
+    private boolean isExpired(LatestValue latestValue) {
+        return ttlMillis > 0 && System.nanoTime() - latestValue.cachedAt() > Duration.ofMillis(ttlMillis).toNanos();
+    }
+
+    /**
+     * @param timeStamp the timestamp of the newest measurement, null if the sensor has no recent measurement
+     * @param value the measured value
+     * @param cachedAt the {@link System#nanoTime()} at which the value was loaded or saved
+     */
+    private record LatestValue(LocalDateTime timeStamp, double value, long cachedAt) {
+
+        private static LatestValue of(LocalDateTime timeStamp, double value) {
+            return new LatestValue(timeStamp, value, System.nanoTime());
+        }
+
+        private static LatestValue none() {
+            return of(null, 0);
+        }
+
+        private boolean isAfter(LatestValue other) {
+            return timeStamp != null && (other.timeStamp() == null || timeStamp.isAfter(other.timeStamp()));
+        }
+
+        private static LatestValue newer(LatestValue current, LatestValue candidate) {
+            if (current.timeStamp() == null) {
+                return candidate;
+            }
+            if (candidate.timeStamp() == null || candidate.timeStamp().isBefore(current.timeStamp())) {
+                return current;
+            }
+            return candidate;
+        }
+    }
+}
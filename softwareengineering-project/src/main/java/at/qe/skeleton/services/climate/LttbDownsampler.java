@@ -0,0 +1,80 @@
+package at.qe.skeleton.services.climate;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for chart series.
+ * The series is split into as many buckets as points are requested; from every bucket the point is kept that forms
+ * the largest triangle with the previously kept point and the average of the next bucket. Unlike thinning the series
+ * by a fixed interval this keeps peaks and dips, e.g. short limit violations, visible in the chart.
+ * The downsampler works on primitive arrays, so series of several hundred thousand points can be reduced without
+ * creating an object per point.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * selects the points of a series that are kept by the downsampling.
+     * @param x the x values (e.g. timestamps) of the series in ascending order
+     * @param y the y values of the series
+     * @param length the number of valid points in the arrays, the arrays may be longer
+     * @param threshold the number of points to keep, e.g. the width of the chart in pixels
+     * @return the indices of the kept points in ascending order, all indices if the series is not longer than the
+     * threshold or the threshold is less than 3
+     */
+    public static int[] downsample(long[] x, double[] y, int length, int threshold) {
+        if (length < 0 || length > x.length || length > y.length) {
+            throw new IllegalArgumentException("Length exceeds the series.");
+        }
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        int sampledIndex = 0;
+        // the first and the last point are always kept, the others are split into threshold - 2 buckets
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        long origin = x[0];
+        int a = 0;
+        sampled[sampledIndex++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextBucketStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextBucketEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextBucketStart; i < nextBucketEnd; i++) {
+                averageX += x[i] - origin;
+                averageY += y[i];
+            }
+            int nextBucketLength = nextBucketEnd - nextBucketStart;
+            averageX /= nextBucketLength;
+            averageY /= nextBucketLength;
+
+            int bucketStart = (int) Math.floor(bucket * bucketSize) + 1;
+            int bucketEnd = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double pointAX = x[a] - (double) origin;
+            double pointAY = y[a];
+            double maxArea = -1;
+            int next = bucketStart;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                // twice the area of the triangle, which does not change the maximum
+                double area = Math.abs((pointAX - averageX) * (y[i] - pointAY)
+                        - (pointAX - (x[i] - origin)) * (averageY - pointAY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            sampled[sampledIndex++] = next;
+            a = next;
+        }
+
+        sampled[sampledIndex] = length - 1;
+        return sampled;
+    }
+}
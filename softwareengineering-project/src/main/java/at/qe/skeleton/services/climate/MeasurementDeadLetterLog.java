@@ -0,0 +1,110 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Keeps the measurements that were acknowledged to an AccessPoint but cannot be saved, e.g. because they violate a
+ * constraint of the database. They are appended to a {@link WriteAheadLog} in the dead-letter subdirectory of the
+ * measurement write-ahead log, in the same format as the records of the {@link MeasurementWriteAheadLog}, and are
+ * never replayed automatically, so they can be inspected and saved once the cause is fixed.
+ */
+@Component
+public class MeasurementDeadLetterLog {
+
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.measurements.wal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tempera.measurements.wal.directory:wal}")
+    private String directory;
+
+    @Value("${tempera.measurements.wal.segment-size-bytes:16777216}")
+    private int segmentSize;
+
+    private WriteAheadLog deadLetters;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        deadLetters = new WriteAheadLog(Path.of(directory, "dead-letter"), segmentSize);
+        Gauge.builder("tempera.ingestion.dead-letters", deadLetters, WriteAheadLog::pendingCount)
+                .description("Acknowledged requests that could not be saved")
+                .register(meterRegistry);
+        if (deadLetters.hasPending()) {
+            errorLogger.warn("The measurement dead-letter log contains {} requests that could not be saved.",
+                    deadLetters.pendingCount());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (deadLetters != null) {
+            deadLetters.close();
+        }
+    }
+
+    /**
+     * appends measurements that cannot be saved and forces them to the disk.
+     * @param accessPointId the id of the AccessPoint that transmitted the measurements
+     * @param measurementDTOs the measurements that cannot be saved
+     * @param cause the exception thrown while saving them
+     * @throws UncheckedIOException if the log is disabled or could not be written, the caller has to keep the
+     * measurements then
+     */
+    public void append(Long accessPointId, List<MeasurementDTO> measurementDTOs, RuntimeException cause) {
+        appendRecord(MeasurementWriteAheadLog.payload(accessPointId, measurementDTOs), cause);
+        errorLogger.error("Could not save {} measurements of AccessPoint {}, they were moved to the dead-letter log.",
+                measurementDTOs.size(), accessPointId, cause);
+    }
+
+    /**
+     * appends a record of the {@link MeasurementWriteAheadLog} that cannot be read anymore, e.g. because it was
+     * written by another version of the application, and forces it to the disk.
+     * @param record the record of the write-ahead log
+     * @param cause the exception thrown while reading it
+     * @throws UncheckedIOException if the log is disabled or could not be written, the caller has to keep the record
+     * then
+     */
+    public void appendUnreadable(byte[] record, RuntimeException cause) {
+        appendRecord(record, cause);
+        errorLogger.error("Could not read a request of the write-ahead log, it was moved to the dead-letter log.", cause);
+    }
+
+    private void appendRecord(byte[] record, RuntimeException cause) {
+        if (deadLetters == null) {
+            throw new UncheckedIOException(new IOException("The measurement dead-letter log is disabled.", cause));
+        }
+        try {
+            deadLetters.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of requests in the dead-letter log
+     */
+    public int size() {
+        return deadLetters == null ? 0 : deadLetters.pendingCount();
+    }
+}
@@ -0,0 +1,269 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.configs.ReadOnlyTransactional;
+import at.qe.skeleton.model.SensorType;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service class for exporting the measurement history as NDJSON or CSV.
+ * The rows are read with a forward-only JDBC cursor with a fixed fetch size and written to the output stream one by
+ * one, so the memory used does not depend on the number of exported measurements. The room of a measurement is the
+ * room its TemperaDevice's AccessPoint is currently located in.
+ */
+@Component
+public class MeasurementExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    @Autowired
+    DataSource dataSource;
+
+    @Value("${tempera.measurements.wide-rows:false}")
+    boolean wideRows;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        // a separate template, so the fetch size does not apply to every other query
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * writes all measurements matching the filter, sorted by timestamp, to the given output stream.
+     * The transaction keeps the connection out of auto-commit mode, which PostgreSQL needs to fetch the rows in
+     * portions instead of all at once.
+     * @param filter the filter of the measurements, null values are not filtered
+     * @param format the format to write
+     * @param gzip true to compress the output with gzip
+     * @param outputStream the stream to write to, it is not closed
+     * @return the number of exported measurements
+     * @throws IOException if writing to the output stream failed
+     */
+    @ReadOnlyTransactional
+    @PreAuthorize("hasAuthority('ADMINISTRATOR')")
+    public long export(ExportFilter filter, ExportFormat format, boolean gzip, OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzipOutputStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipOutputStream : outputStream,
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rowWriter = new RowWriter(writer, format);
+        List<Object> parameters = new ArrayList<>();
+        String sql = exportSql(filter, parameters);
+
+        try {
+            rowWriter.writeHeader();
+            streamingJdbcTemplate.query(sql, (RowCallbackHandler) resultSet -> writeRow(resultSet, filter, rowWriter),
+                    parameters.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (gzipOutputStream != null) {
+            gzipOutputStream.finish();
+        }
+        return rowWriter.rows;
+    }
+
+    private void writeRow(ResultSet resultSet, ExportFilter filter, RowWriter rowWriter) throws SQLException {
+        LocalDateTime timeStamp = resultSet.getTimestamp(1).toLocalDateTime();
+        long temperaDeviceId = resultSet.getLong(2);
+        String roomNumber = resultSet.getString(3);
+        if (!wideRows) {
+            rowWriter.write(timeStamp, temperaDeviceId, roomNumber, SensorType.valueOf(resultSet.getString(4)),
+                    resultSet.getDouble(5));
+            return;
+        }
+        for (int i = 0; i < SENSOR_TYPES.length; i++) {
+            if (filter.sensorType() == null || filter.sensorType() == SENSOR_TYPES[i]) {
+                rowWriter.write(timeStamp, temperaDeviceId, roomNumber, SENSOR_TYPES[i], resultSet.getFloat(4 + i));
+            }
+        }
+    }
+
+    private String exportSql(ExportFilter filter, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder();
+        String timeStampColumn;
+        String temperaDeviceColumn;
+        if (wideRows) {
+            // the value columns in the order of SensorType
+            sql.append("SELECT dm.time_stamp, dm.tempera_device_id, ap.room_number, dm.air_temperature, ")
+                    .append("dm.air_humidity, dm.air_quality, dm.light_intensity FROM device_measurement dm ");
+            timeStampColumn = "dm.time_stamp";
+            temperaDeviceColumn = "dm.tempera_device_id";
+        } else {
+            sql.append("SELECT cm.time_stamp, tds.tempera_device_id, ap.room_number, s.sensor_type, cm.measured_value ")
+                    .append("FROM climate_measurement cm ")
+                    .append("JOIN sensor s ON s.id = cm.sensor_id ")
+                    .append("JOIN tempera_device_sensors tds ON tds.sensors_id = s.id ");
+            timeStampColumn = "cm.time_stamp";
+            temperaDeviceColumn = "tds.tempera_device_id";
+        }
+        sql.append("LEFT JOIN access_point_tempera_devices aptd ON aptd.tempera_devices_id = ").append(temperaDeviceColumn)
+                .append(" LEFT JOIN access_point ap ON ap.id = aptd.access_point_id WHERE 1 = 1");
+
+        if (!wideRows && filter.sensorType() != null) {
+            sql.append(" AND s.sensor_type = ?");
+            parameters.add(filter.sensorType().name());
+        }
+        if (filter.temperaDeviceId() != null) {
+            sql.append(" AND ").append(temperaDeviceColumn).append(" = ?");
+            parameters.add(filter.temperaDeviceId());
+        }
+        if (filter.roomNumber() != null) {
+            sql.append(" AND ap.room_number = ?");
+            parameters.add(filter.roomNumber());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND ").append(timeStampColumn).append(" >= ?");
+            parameters.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND ").append(timeStampColumn).append(" < ?");
+            parameters.add(Timestamp.valueOf(filter.to()));
+        }
+        return sql.append(" ORDER BY ").append(timeStampColumn).append(", ").append(temperaDeviceColumn).toString();
+    }
+
+    /**
+     * @param sensorType only measurements of this SensorType
+     * @param temperaDeviceId only measurements of the TemperaDevice with this id
+     * @param roomNumber only measurements of TemperaDevices in the room with this number
+     * @param from only measurements taken at or after this time
+     * @param to only measurements taken before this time
+     */
+    public record ExportFilter(SensorType sensorType, Long temperaDeviceId, String roomNumber, LocalDateTime from,
+                               LocalDateTime to) {
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        ExportFormat(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
+
+    /**
+     * writes the rows in the chosen format without building any intermediate objects.
+     */
+    private static class RowWriter {
+        private final Writer writer;
+        private final ExportFormat format;
+        private long rows;
+
+        private RowWriter(Writer writer, ExportFormat format) {
+            this.writer = writer;
+            this.format = format;
+        }
+
+        private void writeHeader() throws IOException {
+            if (format == ExportFormat.CSV) {
+                writer.write("timestamp,temperaDeviceId,roomNumber,sensorType,value\n");
+            }
+        }
+
+        private void write(LocalDateTime timeStamp, long temperaDeviceId, String roomNumber, SensorType sensorType,
+                           double value) {
+            try {
+                if (format == ExportFormat.CSV) {
+                    writer.write(timeStamp.toString());
+                    writer.write(',');
+                    writer.write(Long.toString(temperaDeviceId));
+                    writer.write(',');
+                    writeCsv(roomNumber);
+                    writer.write(',');
+                    writer.write(sensorType.name());
+                    writer.write(',');
+                    writer.write(Double.toString(value));
+                } else {
+                    writer.write("{\"timestamp\":\"");
+                    writer.write(timeStamp.toString());
+                    writer.write("\",\"temperaDeviceId\":");
+                    writer.write(Long.toString(temperaDeviceId));
+                    writer.write(",\"roomNumber\":");
+                    writeJson(roomNumber);
+                    writer.write(",\"sensorType\":\"");
+                    writer.write(sensorType.name());
+                    writer.write("\",\"value\":");
+                    writer.write(Double.toString(value));
+                    writer.write('}');
+                }
+                writer.write('\n');
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeCsv(String text) throws IOException {
+            if (text == null) {
+                return;
+            }
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private void writeJson(String text) throws IOException {
+            if (text == null) {
+                writer.write("null");
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writer.write('\\');
+                    writer.write(c);
+                } else if (c < 0x20) {
+                    writer.write(String.format("\\u%04x", (int) c));
+                } else {
+                    writer.write(c);
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
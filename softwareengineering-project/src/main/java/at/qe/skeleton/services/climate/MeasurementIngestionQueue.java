@@ -0,0 +1,219 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-memory queue for the asynchronous ingestion of ClimateMeasurements.
+ * The REST endpoint only validates and enqueues the measurements of one MeasurementDTO, a pool of writer threads
+ * drains the queue in batches, saves the measurements of every AccessPoint in the batch with the
+ * {@link AcknowledgedMeasurementWriter} and runs the limit checks afterwards. The sequences of the measurements are
+ * only recorded once they are saved; measurements that cannot be saved because the database is unavailable are
+ * written to the {@link MeasurementWriteAheadLog}. If the queue is full, measurements are not accepted and the caller
+ * has to retry later. On shutdown no new measurements are accepted and the writer threads save everything that is
+ * still queued.
+ */
+@Component
+public class MeasurementIngestionQueue {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+    private static final long POLL_TIMEOUT_MILLIS = 200;
+
+    @Autowired
+    private ClimateMeasurementService climateMeasurementService;
+
+    @Autowired
+    private AcknowledgedMeasurementWriter acknowledgedMeasurementWriter;
+
+    @Autowired
+    private MeasurementWriteAheadLog measurementWriteAheadLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.measurements.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${tempera.measurements.ingestion.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${tempera.measurements.ingestion.batch-size:200}")
+    private int batchSize;
+
+    @Value("${tempera.measurements.ingestion.shutdown-timeout-seconds:30}")
+    private int shutdownTimeoutSeconds;
+
+    private BlockingQueue<QueuedMeasurement> queue;
+    private ExecutorService writers;
+    private volatile boolean accepting;
+
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter persistedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("tempera.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("MeasurementDTOs waiting to be saved")
+                .register(meterRegistry);
+        Gauge.builder("tempera.ingestion.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("MeasurementDTOs that can still be queued")
+                .register(meterRegistry);
+        acceptedCounter = meterRegistry.counter("tempera.ingestion.measurements", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("tempera.ingestion.measurements", "result", "rejected");
+        persistedCounter = meterRegistry.counter("tempera.ingestion.measurements", "result", "persisted");
+        failedCounter = meterRegistry.counter("tempera.ingestion.measurements", "result", "failed");
+
+        accepting = true;
+        writers = Executors.newFixedThreadPool(writerThreads, new CustomizableThreadFactory("measurement-writer-"));
+        for (int i = 0; i < writerThreads; i++) {
+            writers.execute(this::drain);
+        }
+    }
+
+    /**
+     * stops accepting measurements and waits until the writer threads saved the remaining queue.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            errorLogger.error("Measurement ingestion queue did not drain within {} s, {} MeasurementDTOs were lost.",
+                    shutdownTimeoutSeconds, queue.size());
+            writers.shutdownNow();
+            return;
+        }
+        // measurements offered while the writers were stopping
+        List<QueuedMeasurement> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    /**
+     * enqueues the ClimateMeasurements of one MeasurementDTO.
+     * @param accessPointId the id of the AccessPoint that transmitted the MeasurementDTO
+     * @param measurementDTO the transmitted MeasurementDTO
+     * @param climateMeasurements the ClimateMeasurements of the MeasurementDTO to be saved
+     * @return true if the measurements were queued, false if the queue is full or shutting down
+     */
+    public boolean offer(Long accessPointId, MeasurementDTO measurementDTO, List<ClimateMeasurement> climateMeasurements) {
+        if (accepting && queue.offer(new QueuedMeasurement(accessPointId, measurementDTO, climateMeasurements))) {
+            acceptedCounter.increment(climateMeasurements.size());
+            return true;
+        }
+        rejectedCounter.increment(climateMeasurements.size());
+        return false;
+    }
+
+    /**
+     * @return the number of MeasurementDTOs waiting to be saved
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<QueuedMeasurement> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                QueuedMeasurement first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+        generalLogger.info("Measurement writer {} stopped.", Thread.currentThread().getName());
+    }
+
+    private void write(List<QueuedMeasurement> batch) {
+        Map<Long, List<QueuedMeasurement>> byAccessPoint = batch.stream().collect(
+                Collectors.groupingBy(QueuedMeasurement::accessPointId, LinkedHashMap::new, Collectors.toList()));
+        byAccessPoint.forEach(this::write);
+    }
+
+    private void write(Long accessPointId, List<QueuedMeasurement> queuedMeasurements) {
+        List<MeasurementDTO> measurementDTOs = queuedMeasurements.stream().map(QueuedMeasurement::measurementDTO).toList();
+        List<List<ClimateMeasurement>> mappedMeasurements = queuedMeasurements.stream()
+                .map(QueuedMeasurement::climateMeasurements).toList();
+        List<List<ClimateMeasurement>> savedMeasurements;
+        try {
+            savedMeasurements = acknowledgedMeasurementWriter.write(accessPointId, measurementDTOs, mappedMeasurements);
+        } catch (RuntimeException e) {
+            keepInWriteAheadLog(accessPointId, measurementDTOs, mappedMeasurements, e);
+            return;
+        }
+        persistedCounter.increment(savedMeasurements.stream().mapToInt(List::size).sum());
+
+        for (List<ClimateMeasurement> group : savedMeasurements) {
+            try {
+                // no surrounding transaction, every warning transition commits while its TemperaDevice is locked
+                climateMeasurementService.checkLimits(group);
+            } catch (RuntimeException e) {
+                errorLogger.error("Could not check limits of queued measurements.", e);
+            }
+        }
+    }
+
+    /**
+     * writes measurements that could not be saved to the write-ahead log, the measurements saved before are skipped
+     * when it is replayed.
+     */
+    private void keepInWriteAheadLog(Long accessPointId, List<MeasurementDTO> measurementDTOs,
+                                     List<List<ClimateMeasurement>> mappedMeasurements, RuntimeException cause) {
+        int count = mappedMeasurements.stream().mapToInt(List::size).sum();
+        List<MeasurementDTO> replayableDTOs = measurementDTOs.stream()
+                .filter(measurementDTO -> measurementDTO.timestamp() != null)
+                .toList();
+        if (!replayableDTOs.isEmpty() && measurementWriteAheadLog.append(accessPointId, replayableDTOs)) {
+            generalLogger.warn("Could not save {} queued measurements of AccessPoint {}, they were written to the write-ahead log.",
+                    count, accessPointId, cause);
+            return;
+        }
+        failedCounter.increment(count);
+        errorLogger.error("Could not save {} queued measurements of AccessPoint {}, they are lost.", count, accessPointId, cause);
+    }
+
+    /**
+     * the ClimateMeasurements of one MeasurementDTO waiting to be saved.
+     */
+    private record QueuedMeasurement(Long accessPointId, MeasurementDTO measurementDTO,
+                                     List<ClimateMeasurement> climateMeasurements) {
+    }
+}
@@ -0,0 +1,215 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.MeasurementRollup;
+import at.qe.skeleton.model.RollupResolution;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.MeasurementRollupRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Service class for the minute, hour and day rollups of ClimateMeasurements.
+ * Every saved batch of measurements is added to the rollups of its sensors with one upsert per affected bucket
+ * (ON CONFLICT on PostgreSQL, MERGE on other databases), so the rollups never have to be recomputed from the raw
+ * measurements. Charts and histories read the coarsest rollup that still satisfies the requested granularity.
+ */
+@Component
+public class MeasurementRollupService {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final String SEQUENCE_NAME = "measurement_rollup_seq";
+
+    @Autowired
+    MeasurementRollupRepository rollupRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${tempera.measurements.rollups.enabled:false}")
+    boolean enabled;
+
+    private String upsertSql;
+
+    /**
+     * adds the given measurements to the minute, hour and day rollups of their sensors.
+     * @param measurements the measurements that were saved
+     */
+    @Transactional
+    public void addAll(List<ClimateMeasurement> measurements) {
+        Map<BucketKey, Aggregate> aggregates = new TreeMap<>();
+        for (ClimateMeasurement measurement : measurements) {
+            if (measurement.getSensor() == null || measurement.getSensor().getId() == null || measurement.getTimeStamp() == null) {
+                continue;
+            }
+            for (RollupResolution resolution : RollupResolution.values()) {
+                BucketKey key = new BucketKey(measurement.getSensor().getId(), resolution,
+                        resolution.bucketStart(measurement.getTimeStamp()));
+                aggregates.computeIfAbsent(key, k -> new Aggregate()).add(measurement.getMeasuredValue());
+            }
+        }
+        if (aggregates.isEmpty()) {
+            return;
+        }
+
+        // the keys are sorted, so concurrent writers lock the rollup rows in the same order
+        List<Object[]> parameters = new ArrayList<>(aggregates.size());
+        aggregates.forEach((key, aggregate) -> parameters.add(new Object[]{
+                key.sensorId(), key.resolution().name(), Timestamp.valueOf(key.bucketStart()),
+                aggregate.min, aggregate.max, aggregate.sum, aggregate.count}));
+        jdbcTemplate.batchUpdate(upsertSql(), parameters);
+    }
+
+    /**
+     * Retrieves the history of a sensor from the coarsest rollup that satisfies the given granularity. If the
+     * granularity is not a multiple of the rollup resolution, the rollups are combined into buckets of the
+     * requested granularity.
+     * @param sensor the sensor for which to retrieve the history
+     * @param from the start of the time range (inclusive)
+     * @param to the end of the time range (exclusive)
+     * @param granularityInMinutes the width of one data point in minutes, at least one minute
+     * @return one ClimateMeasurement per bucket holding the average value, sorted by timestamp
+     */
+    public List<ClimateMeasurement> findHistory(Sensor sensor, LocalDateTime from, LocalDateTime to, int granularityInMinutes) {
+        RollupResolution resolution = RollupResolution.coarsestFor(granularityInMinutes);
+        if (resolution == null) {
+            throw new IllegalArgumentException("Rollups have a resolution of at least one minute.");
+        }
+        List<MeasurementRollup> rollups = rollupRepository
+                .findAllBySensorAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(sensor, resolution, from, to);
+
+        List<ClimateMeasurement> history = new ArrayList<>();
+        long currentBucket = Long.MIN_VALUE;
+        LocalDateTime bucketTimeStamp = null;
+        double sum = 0;
+        long count = 0;
+        for (MeasurementRollup rollup : rollups) {
+            long bucket = rollup.getBucketStart().toEpochSecond(ZoneOffset.UTC) / 60 / granularityInMinutes;
+            if (bucket != currentBucket) {
+                if (count > 0) {
+                    history.add(new ClimateMeasurement(null, bucketTimeStamp, sensor, sum / count));
+                }
+                currentBucket = bucket;
+                bucketTimeStamp = rollup.getBucketStart();
+                sum = 0;
+                count = 0;
+            }
+            sum += rollup.getSumValue();
+            count += rollup.getSampleCount();
+        }
+        if (count > 0) {
+            history.add(new ClimateMeasurement(null, bucketTimeStamp, sensor, sum / count));
+        }
+        return history;
+    }
+
+    /**
+     * recomputes all rollups from the climate_measurement table.
+     * @return the number of created rollups
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM measurement_rollup");
+        String nextId = dialect().getSequenceSupport().getSelectSequenceNextValString(SEQUENCE_NAME);
+        int rollups = 0;
+        for (RollupResolution resolution : RollupResolution.values()) {
+            String bucketStart = "DATE_TRUNC('" + resolution.getUnit().name().toLowerCase().replaceAll("s$", "") + "', time_stamp)";
+            rollups += jdbcTemplate.update("INSERT INTO measurement_rollup "
+                    + "(id, sensor_id, resolution, bucket_start, min_value, max_value, sum_value, sample_count) "
+                    + "SELECT " + nextId + ", b.sensor_id, '" + resolution.name() + "', b.bucket_start, b.min_value, b.max_value, b.sum_value, b.sample_count "
+                    + "FROM (SELECT sensor_id, " + bucketStart + " AS bucket_start, MIN(measured_value) AS min_value, "
+                    + "MAX(measured_value) AS max_value, SUM(measured_value) AS sum_value, COUNT(*) AS sample_count "
+                    + "FROM climate_measurement WHERE sensor_id IS NOT NULL AND time_stamp IS NOT NULL "
+                    + "GROUP BY sensor_id, " + bucketStart + ") b");
+        }
+        return rollups;
+    }
+
+    /**
+     * builds the rollups of the existing measurements once the application started, if rollups are enabled and
+     * there are none yet (e.g. after the measurements were imported with SQL).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled && rollupRepository.count() == 0) {
+            generalLogger.info("Built {} measurement rollups.", rebuild());
+        }
+    }
+
+    private String upsertSql() {
+        if (upsertSql == null) {
+            Dialect dialect = dialect();
+            String nextId = dialect.getSequenceSupport().getSelectSequenceNextValString(SEQUENCE_NAME);
+            if (dialect instanceof PostgreSQLDialect) {
+                upsertSql = "INSERT INTO measurement_rollup AS r "
+                        + "(id, sensor_id, resolution, bucket_start, min_value, max_value, sum_value, sample_count) "
+                        + "VALUES (" + nextId + ", ?, ?, ?, ?, ?, ?, ?) "
+                        + "ON CONFLICT (sensor_id, resolution, bucket_start) DO UPDATE SET "
+                        + "min_value = LEAST(r.min_value, EXCLUDED.min_value), "
+                        + "max_value = GREATEST(r.max_value, EXCLUDED.max_value), "
+                        + "sum_value = r.sum_value + EXCLUDED.sum_value, "
+                        + "sample_count = r.sample_count + EXCLUDED.sample_count";
+            } else {
+                upsertSql = "MERGE INTO measurement_rollup r USING (SELECT "
+                        + "CAST(? AS BIGINT) AS sensor_id, CAST(? AS VARCHAR(10)) AS resolution, CAST(? AS TIMESTAMP) AS bucket_start, "
+                        + "CAST(? AS DOUBLE PRECISION) AS min_value, CAST(? AS DOUBLE PRECISION) AS max_value, "
+                        + "CAST(? AS DOUBLE PRECISION) AS sum_value, CAST(? AS BIGINT) AS sample_count) v "
+                        + "ON (r.sensor_id = v.sensor_id AND r.resolution = v.resolution AND r.bucket_start = v.bucket_start) "
+                        + "WHEN MATCHED THEN UPDATE SET "
+                        + "min_value = LEAST(r.min_value, v.min_value), max_value = GREATEST(r.max_value, v.max_value), "
+                        + "sum_value = r.sum_value + v.sum_value, sample_count = r.sample_count + v.sample_count "
+                        + "WHEN NOT MATCHED THEN INSERT "
+                        + "(id, sensor_id, resolution, bucket_start, min_value, max_value, sum_value, sample_count) "
+                        + "VALUES (" + nextId + ", v.sensor_id, v.resolution, v.bucket_start, v.min_value, v.max_value, v.sum_value, v.sample_count)";
+            }
+        }
+        return upsertSql;
+    }
+
+    private Dialect dialect() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    private record BucketKey(Long sensorId, RollupResolution resolution, LocalDateTime bucketStart) implements Comparable<BucketKey> {
+        @Override
+        public int compareTo(BucketKey other) {
+            return Comparator.comparing(BucketKey::sensorId)
+                    .thenComparing(BucketKey::resolution)
+                    .thenComparing(BucketKey::bucketStart)
+                    .compare(this, other);
+        }
+    }
+
+    private static class Aggregate {
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+
+        private void add(double value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.configs.ReadOnlyTransactional;
+import at.qe.skeleton.model.MeasurementSeries;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.model.SensorType;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Service class for downsampled chart series.
+ * The measurements of a sensor are read with a plain JDBC cursor straight into primitive arrays, without creating
+ * ClimateMeasurement entities, and reduced with the {@link LttbDownsampler} afterwards.
+ */
+@Component
+public class MeasurementSeriesService {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Value("${tempera.measurements.wide-rows:false}")
+    boolean wideRows;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        // a separate template, so the fetch size does not apply to every other query
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Retrieves the measurements of a sensor within the given time range (both exclusive), downsampled to at most
+     * the given number of points.
+     * @param sensor the sensor for which to retrieve the measurements
+     * @param after the start of the time range
+     * @param before the end of the time range
+     * @param maxPoints the maximum number of points, e.g. the width of the chart in pixels
+     * @return the downsampled series, sorted by timestamp
+     */
+    @ReadOnlyTransactional
+    public MeasurementSeries findDownsampledSeries(Sensor sensor, LocalDateTime after, LocalDateTime before, int maxPoints) {
+        SeriesBuffer buffer = new SeriesBuffer();
+        streamingJdbcTemplate.query(seriesSql(sensor.getSensorType()),
+                (RowCallbackHandler) resultSet -> buffer.add(resultSet.getTimestamp(1), resultSet.getDouble(2)),
+                sensor.getId(), Timestamp.valueOf(after), Timestamp.valueOf(before));
+
+        int[] kept = LttbDownsampler.downsample(buffer.timeStamps, buffer.values, buffer.size, maxPoints);
+        long[] timeStamps = new long[kept.length];
+        double[] values = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            timeStamps[i] = buffer.timeStamps[kept[i]];
+            values[i] = buffer.values[kept[i]];
+        }
+        return new MeasurementSeries(timeStamps, values);
+    }
+
+    private String seriesSql(SensorType sensorType) {
+        if (wideRows) {
+            return "SELECT dm.time_stamp, dm." + valueColumn(sensorType) + " FROM device_measurement dm "
+                    + "JOIN tempera_device_sensors tds ON tds.tempera_device_id = dm.tempera_device_id "
+                    + "WHERE tds.sensors_id = ? AND dm.time_stamp > ? AND dm.time_stamp < ? ORDER BY dm.time_stamp";
+        }
+        return "SELECT time_stamp, measured_value FROM climate_measurement "
+                + "WHERE sensor_id = ? AND time_stamp > ? AND time_stamp < ? ORDER BY time_stamp";
+    }
+
+    private static String valueColumn(SensorType sensorType) {
+        return switch (sensorType) {
+            case AIR_HUMIDITY -> "air_humidity";
+            case AIR_QUALITY -> "air_quality";
+            case LIGHT_INTENSITY -> "light_intensity";
+            default -> "air_temperature";
+        };
+    }
+
+    /**
+     * growing primitive arrays for the rows of one query.
+     */
+    private static class SeriesBuffer {
+        private long[] timeStamps = new long[FETCH_SIZE];
+        private double[] values = new double[FETCH_SIZE];
+        private int size;
+
+        private void add(Timestamp timeStamp, double value) {
+            if (size == timeStamps.length) {
+                timeStamps = Arrays.copyOf(timeStamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timeStamps[size] = MeasurementSeries.toEpochMilli(timeStamp.toLocalDateTime());
+            values[size] = value;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
+import at.qe.skeleton.rest.mapper.MeasurementMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Keeps the measurements of AccessPoints while the database is unavailable.
+ * The measurements are appended to a {@link WriteAheadLog} on the local disk, one record per request with the id of
+ * the AccessPoint followed by the measurements as a {@link MeasurementFrame}. Once the database is available again,
+ * the records are replayed in the order they were received through the {@link AcknowledgedMeasurementWriter}, so
+ * measurements the AccessPoint sent again in the meantime are not saved twice, and measurements that cannot be saved
+ * for another reason than an outage are moved to the {@link MeasurementDeadLetterLog} one by one. A record is only
+ * marked as replayed once all its measurements are saved or in the dead-letter log; otherwise the replay stops and
+ * is retried later. As long as records are pending, new measurements have to be appended as well, otherwise they
+ * would overtake the older ones.
+ */
+@Component
+public class MeasurementWriteAheadLog {
+
+    private static final Logger generalLogger = LoggerFactory.getLogger("generalLogger");
+    private static final Logger errorLogger = LoggerFactory.getLogger("errorLogger");
+    private static final int REPLAY_BATCH_SIZE = 100;
+
+    @Autowired
+    private AcknowledgedMeasurementWriter acknowledgedMeasurementWriter;
+
+    @Autowired
+    private MeasurementDeadLetterLog measurementDeadLetterLog;
+
+    @Autowired
+    private ClimateMeasurementService climateMeasurementService;
+
+    @Autowired
+    private MeasurementMapper measurementMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tempera.measurements.wal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tempera.measurements.wal.directory:wal}")
+    private String directory;
+
+    @Value("${tempera.measurements.wal.segment-size-bytes:16777216}")
+    private int segmentSize;
+
+    private WriteAheadLog writeAheadLog;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        writeAheadLog = new WriteAheadLog(Path.of(directory), segmentSize);
+        Gauge.builder("tempera.ingestion.wal.pending", writeAheadLog, WriteAheadLog::pendingCount)
+                .description("Requests in the write-ahead log waiting to be saved")
+                .register(meterRegistry);
+        if (writeAheadLog.hasPending()) {
+            generalLogger.warn("Recovered {} requests from the measurement write-ahead log.", writeAheadLog.pendingCount());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    /**
+     * @param e the exception thrown while saving measurements
+     * @return true if the exception is caused by the database being unavailable, so the measurements can be saved later
+     */
+    public static boolean isOutage(RuntimeException e) {
+        return e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * @return true if there are measurements that were not saved yet, new measurements have to be appended then
+     */
+    public boolean hasPending() {
+        return writeAheadLog != null && writeAheadLog.hasPending();
+    }
+
+    /**
+     * appends the measurements of one request and forces them to the disk.
+     * @param accessPointId the id of the AccessPoint that transmitted the measurements
+     * @param measurementDTOs the measurements to be saved later
+     * @return true if the measurements were appended, false if the log is disabled or could not be written
+     */
+    public boolean append(Long accessPointId, List<MeasurementDTO> measurementDTOs) {
+        if (writeAheadLog == null || measurementDTOs.isEmpty()) {
+            return false;
+        }
+        try {
+            writeAheadLog.append(payload(accessPointId, measurementDTOs));
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            errorLogger.error("Could not append {} measurements of AccessPoint {} to the write-ahead log.",
+                    measurementDTOs.size(), accessPointId, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return the record of one request: the id of the AccessPoint followed by the measurements as a MeasurementFrame
+     */
+    static byte[] payload(Long accessPointId, List<MeasurementDTO> measurementDTOs) {
+        byte[] frame = MeasurementFrame.write(measurementDTOs);
+        return ByteBuffer.allocate(Long.BYTES + frame.length).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(accessPointId).put(frame).array();
+    }
+
+    /**
+     * saves the pending measurements in the order they were received until the log is empty, the database is still
+     * unavailable or a request could neither be saved nor moved to the dead-letter log.
+     * @return the number of replayed requests
+     */
+    @Scheduled(fixedDelayString = "${tempera.measurements.wal.replay-interval-millis:5000}")
+    public synchronized int replay() {
+        if (writeAheadLog == null) {
+            return 0;
+        }
+        int replayed = 0;
+        List<WriteAheadLog.Entry> entries = writeAheadLog.pending(REPLAY_BATCH_SIZE);
+        while (!entries.isEmpty()) {
+            for (WriteAheadLog.Entry entry : entries) {
+                try {
+                    replay(entry);
+                } catch (RuntimeException e) {
+                    if (isOutage(e)) {
+                        generalLogger.info("Database still unavailable, {} requests remain in the write-ahead log.",
+                                writeAheadLog.pendingCount());
+                        return replayed;
+                    }
+                    errorLogger.error("Could not replay a request of the write-ahead log, it is kept and replayed again later.", e);
+                    return replayed;
+                }
+                try {
+                    writeAheadLog.markReplayed(entry);
+                } catch (IOException e) {
+                    errorLogger.error("Could not delete a replayed segment of the write-ahead log.", e);
+                }
+                replayed++;
+            }
+            entries = writeAheadLog.pending(REPLAY_BATCH_SIZE);
+        }
+        if (replayed > 0) {
+            generalLogger.info("Replayed {} requests of the measurement write-ahead log.", replayed);
+        }
+        return replayed;
+    }
+
+    private void replay(WriteAheadLog.Entry entry) {
+        long accessPointId;
+        MeasurementFrame frame;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(entry.payload()).order(ByteOrder.LITTLE_ENDIAN);
+            accessPointId = buffer.getLong();
+            frame = MeasurementFrame.read(buffer.slice());
+        } catch (RuntimeException e) {
+            measurementDeadLetterLog.appendUnreadable(entry.payload(), e);
+            return;
+        }
+
+        List<List<ClimateMeasurement>> savedMeasurements = acknowledgedMeasurementWriter.write(accessPointId,
+                frame.toMeasurementDTOs(), measurementMapper.mapFrame(frame));
+
+        for (List<ClimateMeasurement> climateMeasurements : savedMeasurements) {
+            try {
+                climateMeasurementService.checkLimits(climateMeasurements);
+            } catch (RuntimeException e) {
+                errorLogger.error("Could not check limits of replayed measurements.", e);
+            }
+        }
+    }
+}
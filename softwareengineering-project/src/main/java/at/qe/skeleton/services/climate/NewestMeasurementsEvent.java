@@ -0,0 +1,25 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * is published by the {@link LatestMeasurementCache} once saved measurements committed that are newer than the
+ * cached measurements of their sensors, e.g. so the {@link DashboardPushHub} can push them to the open dashboards.
+ */
+@Getter
+public class NewestMeasurementsEvent extends ApplicationEvent {
+
+    /**
+     * the newest measurement of every sensor whose cached measurement changed
+     */
+    private final List<ClimateMeasurement> measurements;
+
+    public NewestMeasurementsEvent(Object source, List<ClimateMeasurement> measurements) {
+        super(source);
+        this.measurements = measurements;
+    }
+}
@@ -0,0 +1,23 @@
+package at.qe.skeleton.services.climate;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * is published whenever the warnings of a TemperaDevice are changed outside the limit checks, e.g. by the reaction
+ * of a user or by removing the TemperaDevice from its user, so the {@link DashboardPushHub} pushes the warnings of
+ * the TemperaDevice to the open dashboards once the change is committed.
+ */
+@Getter
+public class WarningChangedEvent extends ApplicationEvent {
+
+    /**
+     * the id of the TemperaDevice whose warnings changed, null if unknown
+     */
+    private final Long temperaDeviceId;
+
+    public WarningChangedEvent(Object source, Long temperaDeviceId) {
+        super(source);
+        this.temperaDeviceId = temperaDeviceId;
+    }
+}
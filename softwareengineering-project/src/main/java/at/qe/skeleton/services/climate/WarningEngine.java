@@ -0,0 +1,69 @@
+package at.qe.skeleton.services.climate;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Warning;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates the limit transgressions of the incoming measurements one TemperaDevice at a time.
+ * {@link WarningService#checkWarning(ClimateMeasurement)} locks the row of the TemperaDevice in the database, so two
+ * concurrent measurements of the same TemperaDevice can never both create a warning for the same SensorType, not
+ * even on different instances of the application. Within one instance the evaluations of a TemperaDevice are
+ * additionally serialized by the lock of its stripe, so they do not compete for the database lock, while
+ * measurements of different TemperaDevices are evaluated in parallel.
+ * Created or updated warnings are pushed to the open dashboards by the {@link DashboardPushHub}.
+ */
+@Component
+public class WarningEngine {
+
+    @Autowired
+    private WarningService warningService;
+
+    @Autowired
+    private DashboardPushHub dashboardPushHub;
+
+    @Value("${tempera.warnings.lock-stripes:64}")
+    private int lockStripes;
+
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    public void init() {
+        locks = new ReentrantLock[Math.max(1, lockStripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * evaluates a measurement violating the limits of the room of its TemperaDevice.
+     * @param climateMeasurement the measurement violating the limits
+     * @param temperaDeviceId the id of the TemperaDevice of the measurement's sensor, null if unknown
+     * @return the warning that was created or updated, null if nothing changed
+     */
+    public Warning evaluate(ClimateMeasurement climateMeasurement, Long temperaDeviceId) {
+        ReentrantLock lock = lockOf(temperaDeviceId);
+        lock.lock();
+        try {
+            Warning warning = warningService.checkWarning(climateMeasurement);
+            if (warning != null) {
+                dashboardPushHub.publishWarning(temperaDeviceId, warning);
+            }
+            return warning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(Long temperaDeviceId) {
+        if (temperaDeviceId == null) {
+            return locks[0];
+        }
+        return locks[Math.floorMod(temperaDeviceId.hashCode(), locks.length)];
+    }
+}
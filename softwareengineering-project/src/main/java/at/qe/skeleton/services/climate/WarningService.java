@@ -3,6 +3,7 @@ package at.qe.skeleton.services.climate;
 import at.qe.skeleton.services.notifications.NotificationEvent;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.*;
+import at.qe.skeleton.services.DeviceTopologyService;
 import at.qe.skeleton.services.TemperaDeviceService;
 import at.qe.skeleton.services.notifications.TokenService;
 import at.qe.skeleton.services.timeTracking.TimeRecordService;
@@ -15,6 +16,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class WarningService {
@@ -27,6 +29,9 @@ public class WarningService {
     @Autowired
     private TemperaDeviceService temperaDeviceService;
 
+    @Autowired
+    private DeviceTopologyService deviceTopologyService;
+
     @Autowired
     private WarningRepository warningRepository;
 
@@ -56,7 +61,7 @@ public class WarningService {
      */
     @Transactional
     public Warning checkWarning(ClimateMeasurement climateMeasurement) {
-        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceBySensor(climateMeasurement.getSensor());
+        TemperaDevice temperaDevice = findTemperaDevice(climateMeasurement.getSensor());
         SensorType sensorType = climateMeasurement.getSensor().getSensorType();
         Warning warning = temperaDeviceService.getActiveWarning(temperaDevice, sensorType);
 
@@ -87,6 +92,27 @@ public class WarningService {
         return null;
     }
 
+    /**
+     * loads the TemperaDevice of a sensor by its id, which is known from the {@link DeviceTopology}. Only sensors
+     * missing in the topology are looked up by a query over the sensors of all TemperaDevices.
+     * The row of the TemperaDevice is locked until the transaction ends, so concurrent checks of its measurements,
+     * also on other instances of the application, wait and then see the warning created by the first one.
+     */
+    private TemperaDevice findTemperaDevice(Sensor sensor) {
+        DeviceTopology.SensorNode sensorNode = deviceTopologyService.getTopology().findBySensorId(sensor.getId());
+        if (sensorNode != null) {
+            Optional<TemperaDevice> temperaDevice = temperaDeviceRepository.findLockedById(sensorNode.temperaDeviceId());
+            if (temperaDevice.isPresent()) {
+                return temperaDevice.get();
+            }
+        }
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceBySensor(sensor);
+        if (temperaDevice == null) {
+            return null;
+        }
+        return temperaDeviceRepository.findLockedById(temperaDevice.getId()).orElse(temperaDevice);
+    }
+
     private Warning checkUnseenWarning(TemperaDevice temperaDevice, Warning warning, ClimateMeasurement climateMeasurement) {
         Userx user = temperaDeviceService.findUserOfTemperaDevice(temperaDevice.getId());
         WorkMode currentWorkMode = timeRecordService.getCurrentWorkModeOfUser(user);
@@ -153,7 +179,20 @@ public class WarningService {
         return warning;
     }
 
-    private Boolean shallWarningBeRenewed(int minutesPassed, WarningStatus warningStatus) {
+    /**
+     * loads the active warning of the given TemperaDevice for the given SensorType.
+     * @param temperaDeviceId id of the TemperaDevice
+     * @param sensorType SensorType of the warning
+     * @return the active warning, null if there is none or the TemperaDevice does not exist
+     */
+    @Transactional
+    public Warning findActiveWarning(Long temperaDeviceId, SensorType sensorType) {
+        return temperaDeviceRepository.findById(temperaDeviceId)
+                .map(temperaDevice -> temperaDeviceService.getActiveWarning(temperaDevice, sensorType))
+                .orElse(null);
+    }
+
+    private static boolean shallWarningBeRenewed(int minutesPassed, WarningStatus warningStatus) {
         if(minutesPassed > TIME_DESTROY){
             return true;
         }
@@ -166,6 +205,7 @@ public class WarningService {
     /**
      * finds the Warning belonging to the warningId, the WarningStatus as well as the User's TemperaDevice and pass it
      * on tho updateWarningStatus(Warning warning, WarningStatus warningStatus, TemperaDevice temperaDevice).
+     * As this is a reaction of the user, a {@link WarningChangedEvent} is published as well.
      * @param warningId id of the warningId that should be updated.
      * @param status ordinal value of the WarningStatus that should be set.
      */
@@ -176,6 +216,8 @@ public class WarningService {
         TemperaDevice temperaDevice = temperaDeviceRepository.findTemperaDeviceByWarningsContains(warning);
         warning.setTimestamp(LocalDateTime.now());
         updateWarningStatus(warning, warningStatus, temperaDevice);
+        applicationEventPublisher.publishEvent(
+                new WarningChangedEvent(this, temperaDevice != null ? temperaDevice.getId() : null));
     }
 
     /**
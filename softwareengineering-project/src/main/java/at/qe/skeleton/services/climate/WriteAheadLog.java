@@ -0,0 +1,273 @@
+package at.qe.skeleton.services.climate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files of a fixed size.
+ * <p>
+ * Every record is framed by its length (int32) and the CRC32C of its payload (int32), followed by the payload. The
+ * payload and checksum are written before the length, so a record only becomes visible once it was written
+ * completely, and every append is forced to the storage device before it returns. When a segment is full, a new one is
+ * started. On opening, the segments are scanned in order; a record with a wrong checksum (torn by a crash while it was
+ * written) ends its segment and is overwritten by the next append.
+ * <p>
+ * Records are read back in the order they were appended with {@link #pending(int)} and marked as replayed one after
+ * another with {@link #markReplayed(Entry)}, which negates their length. Segments containing only replayed records are
+ * deleted.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class WriteAheadLog implements Closeable {
+
+    public static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{16})\\.wal");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    /**
+     * opens the log in the given directory and recovers the records of its segments.
+     * @param directory the directory of the segment files, created if it does not exist
+     * @param segmentSize the size of every segment file in bytes
+     * @throws IOException if the segments cannot be read or created
+     */
+    public WriteAheadLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size " + segmentSize + " is too small.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches()).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = Segment.open(file, segmentSize);
+            if (segment.isReplayed() && !file.equals(files.get(files.size() - 1))) {
+                Files.delete(file);
+            } else {
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.open(segmentFile(0), segmentSize));
+        }
+    }
+
+    /**
+     * appends a record and forces it to the storage device.
+     * @param payload the payload of the record
+     * @throws IOException if a new segment cannot be created
+     * @throws IllegalArgumentException if the record does not fit into a segment
+     */
+    public synchronized void append(byte[] payload) throws IOException {
+        if (payload.length > segmentSize - RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit into a segment.");
+        }
+        Segment active = segments.getLast();
+        if (!active.fits(payload.length)) {
+            active.buffer.force();
+            active = Segment.open(segmentFile(active.id + 1), segmentSize);
+            segments.add(active);
+        }
+        active.append(payload);
+    }
+
+    /**
+     * @param max the maximal number of returned entries
+     * @return the oldest records that were not replayed yet, in the order they were appended
+     */
+    public synchronized List<Entry> pending(int max) {
+        List<Entry> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            int position = segment.readPosition;
+            while (position < segment.writePosition && entries.size() < max) {
+                int length = segment.buffer.getInt(position);
+                byte[] payload = new byte[length];
+                segment.buffer.get(position + RECORD_HEADER_SIZE, payload);
+                entries.add(new Entry(segment.id, position, payload));
+                position += RECORD_HEADER_SIZE + length;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return true if there are records that were not replayed yet
+     */
+    public synchronized boolean hasPending() {
+        return segments.stream().anyMatch(segment -> !segment.isReplayed());
+    }
+
+    /**
+     * @return the number of records that were not replayed yet
+     */
+    public synchronized int pendingCount() {
+        return segments.stream().mapToInt(Segment::pendingCount).sum();
+    }
+
+    /**
+     * marks the oldest pending record as replayed and deletes its segment if it is not needed anymore.
+     * @param entry the oldest pending record, as returned by {@link #pending(int)}
+     * @throws IOException if the segment cannot be deleted
+     * @throws IllegalStateException if the entry is not the oldest pending record
+     */
+    public synchronized void markReplayed(Entry entry) throws IOException {
+        Segment segment = segments.stream().filter(s -> !s.isReplayed()).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No records are pending."));
+        if (segment.id != entry.segmentId() || segment.readPosition != entry.position()) {
+            throw new IllegalStateException("Records have to be replayed in the order they were appended.");
+        }
+        segment.markReplayed();
+        while (segments.size() > 1 && segments.getFirst().isReplayed()) {
+            Files.delete(segments.removeFirst().file);
+        }
+    }
+
+    /**
+     * forces all segments to the storage device.
+     */
+    @Override
+    public synchronized void close() {
+        segments.forEach(segment -> segment.buffer.force());
+    }
+
+    private Path segmentFile(long id) {
+        return directory.resolve(String.format("segment-%016d.wal", id));
+    }
+
+    /**
+     * @param segmentId the id of the segment of the record
+     * @param position the position of the record in its segment
+     * @param payload the payload of the record
+     */
+    public record Entry(long segmentId, int position, byte[] payload) {
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+        private int pendingCount;
+
+        private Segment(long id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private static Segment open(Path file, int segmentSize) throws IOException {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Not a segment file: " + file);
+            }
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            Segment segment = new Segment(Long.parseLong(matcher.group(1)), file, buffer);
+            segment.recover();
+            return segment;
+        }
+
+        /**
+         * scans the records up to the first empty or torn one. Records are replayed in order, so the replayed ones
+         * are always followed by the pending ones.
+         */
+        private void recover() {
+            int position = 0;
+            readPosition = -1;
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                int payloadLength = Math.abs(length);
+                if (length == 0 || length == Integer.MIN_VALUE
+                        || payloadLength > buffer.capacity() - position - RECORD_HEADER_SIZE
+                        || checksum(position + RECORD_HEADER_SIZE, payloadLength) != buffer.getInt(position + Integer.BYTES)) {
+                    break;
+                }
+                if (length > 0) {
+                    pendingCount++;
+                    if (readPosition < 0) {
+                        readPosition = position;
+                    }
+                }
+                position += RECORD_HEADER_SIZE + payloadLength;
+            }
+            writePosition = position;
+            if (readPosition < 0) {
+                readPosition = writePosition;
+            }
+            // clear what is left of a torn record, so it cannot be mistaken for a record after the next append
+            for (int i = writePosition; i < buffer.capacity() && i < writePosition + RECORD_HEADER_SIZE; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        private boolean fits(int payloadLength) {
+            return writePosition + RECORD_HEADER_SIZE + payloadLength <= buffer.capacity();
+        }
+
+        private void append(byte[] payload) {
+            int position = writePosition;
+            int end = position + RECORD_HEADER_SIZE + payload.length;
+            buffer.put(position + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(position + Integer.BYTES, checksum(position + RECORD_HEADER_SIZE, payload.length));
+            if (end + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                // the length of the next record, in case this space held a torn record before
+                buffer.putInt(end, 0);
+            }
+            buffer.force(position, Math.min(end + Integer.BYTES, buffer.capacity()) - position);
+            // the record becomes visible with its length
+            buffer.putInt(position, payload.length);
+            buffer.force(position, Integer.BYTES);
+            writePosition = end;
+            pendingCount++;
+        }
+
+        private void markReplayed() {
+            int length = buffer.getInt(readPosition);
+            buffer.putInt(readPosition, -length);
+            buffer.force(readPosition, Integer.BYTES);
+            readPosition += RECORD_HEADER_SIZE + length;
+            pendingCount--;
+        }
+
+        private boolean isReplayed() {
+            return readPosition == writePosition;
+        }
+
+        private int pendingCount() {
+            return pendingCount;
+        }
+
+        private int checksum(int position, int length) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position, length));
+            return (int) crc.getValue();
+        }
+    }
+}
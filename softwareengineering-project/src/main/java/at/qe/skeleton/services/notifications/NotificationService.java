@@ -7,9 +7,12 @@ import at.qe.skeleton.repositories.NotificationRepository;
 import at.qe.skeleton.repositories.UserxRepository;
 import at.qe.skeleton.services.*;
 import at.qe.skeleton.services.climate.WarningService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Scope;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
 
@@ -43,6 +46,16 @@ public class NotificationService {
     @Autowired
     private UserxRepository userxRepository;
 
+    @Autowired
+    private HeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * @param user the user whose notifications are shown in the bell
+     * @return the notifications of the user with their buttons
+     */
     public List<Notification> getNotificationsByUser(Userx user) {
         return notificationRepository.findAllByUser(user);
     }
@@ -60,11 +73,7 @@ public class NotificationService {
             if (user != null){
                 notification.setUser(user);
                 notification = notificationRepository.save(notification);
-                if(user.getNotifications() == null){
-                    user.setNotifications(new ArrayList<>(List.of(notification)));
-                } else {
-                    user.getNotifications().add(notification);
-                }
+                addToNotificationsOfUser(user, notification);
                 userxRepository.save(user);
             }
         }
@@ -88,15 +97,24 @@ public class NotificationService {
             APINotification notificationCopy = new APINotification(notification);
             notificationCopy.setUser(admin);
             Notification notificationSaved = notificationRepository.save(notificationCopy);
-            if(admin.getNotifications() == null){
-                admin.setNotifications(new ArrayList<>(List.of(notificationSaved)));
-            } else {
-                admin.getNotifications().add(notificationSaved);
-            }
+            addToNotificationsOfUser(admin, notificationSaved);
             userxRepository.save(admin);
         }
     }
 
+    /**
+     * Adds the notification to the notifications of the user, if they are loaded or the user is managed by the
+     * current transaction. The relation is owned by the notification, so the lazily fetched notifications of a
+     * detached user are not loaded just to add one.
+     */
+    private void addToNotificationsOfUser(Userx user, Notification notification) {
+        if (user.getNotifications() == null) {
+            user.setNotifications(new ArrayList<>(List.of(notification)));
+        } else if (Hibernate.isInitialized(user.getNotifications()) || entityManager.contains(user)) {
+            user.getNotifications().add(notification);
+        }
+    }
+
     /**
      * Deletes the given Notification from the database. Users can only delete their own notifications
      * @param notification
@@ -111,7 +129,9 @@ public class NotificationService {
 
         Userx user = notification.getUser();
 
-        user.getNotifications().remove(notification);
+        if (Hibernate.isInitialized(user.getNotifications()) || entityManager.contains(user)) {
+            user.getNotifications().remove(notification);
+        }
         userService.saveUser(user);
         notificationRepository.delete(notification);
     }
@@ -192,29 +212,51 @@ public class NotificationService {
      * @return the number of notifications
      */
     public long getNumberOfNotifications(Userx currentUser) {
-        Userx user = userxRepository.findFirstByUsername(currentUser.getUsername());
-        return user.getNotifications().stream().count();
+        if (currentUser == null) {
+            return 0;
+        }
+        return notificationRepository.countByUser(currentUser);
     }
 
 
     /**
-     * Method that automatically checks if enabled Access Points have checked with server in the last 2 minutes 
-     * (delay can happen since normal interval is 1 min)
+     * Method that checks if enabled Access Points have checked with server within the heartbeat timeout (2 minutes by
+     * default, delay can happen since normal interval is 1 min).
+     * Runs once on startup for the Access Points that lost their connection while the server was down, afterwards the
+     * {@link HeartbeatTracker} reports every lost connection ({@link #onAccessPointDisconnected}).
+     * Runs on every instance without a job lease, as an Access Point is only disconnected if it did not contact any
+     * instance since the loaded last connection, so the admins are informed once even if several instances start.
      *
     */
-    @Scheduled(cron = "0 * * * * *") // every minute (s min h dayOM month dayOW)
+    @EventListener(ApplicationReadyEvent.class)
     public void checkConnectionOfAccessPoints() throws EntityValidationException{
         List<AccessPoint> listAP = accessPointService.getAllAccessPoints();
+        LocalDateTime oldestContact = LocalDateTime.now().minus(heartbeatTracker.getTimeout());
         for(AccessPoint ap : listAP){
-            if (ap.getStatus() == DeviceStatus.ENABLED && ap.isConnected() && ap.getLastConnection().isBefore(LocalDateTime.now().minusMinutes(2))) {
+            if (ap.getStatus() == DeviceStatus.ENABLED && ap.isConnected() && ap.getLastConnection().isBefore(oldestContact)
+                    && accessPointService.setDisconnectedIfNotContactedSince(ap.getId(), ap.getLastConnection())) {
                 // disconnected
-                accessPointService.setDisconnected(ap);
                 informAdminsAboutDisconnectedAP(ap);
             }
         }
         
     }
 
+    /**
+     * sets an enabled Access Point to disconnected and informs the admins, once the {@link HeartbeatTracker} did not
+     * receive a heartbeat of it within the timeout. If the Access Point contacted another instance of the application
+     * in the meantime or another instance already disconnected it, nothing happens.
+     * @param event the event of the lost connection
+     */
+    @EventListener
+    public void onAccessPointDisconnected(AccessPointDisconnectedEvent event) throws EntityValidationException {
+        AccessPoint ap = accessPointService.getAccessPointById(event.getAccessPointId());
+        if (ap != null && ap.getStatus() == DeviceStatus.ENABLED && ap.isConnected()
+                && accessPointService.setDisconnectedIfNotContactedSince(ap.getId(), event.getLastContact())) {
+            informAdminsAboutDisconnectedAP(ap);
+        }
+    }
+
     public void informAdminsAboutDisconnectedAP(AccessPoint accessPoint) throws EntityValidationException{
             APINotification notification = new APINotification();
             notification.setDeviceType(DeviceType.SERVER);
@@ -5,6 +5,7 @@ import at.qe.skeleton.model.Warning;
 import at.qe.skeleton.model.WarningStatus;
 import at.qe.skeleton.repositories.TokenRepository;
 import at.qe.skeleton.repositories.WarningRepository;
+import at.qe.skeleton.services.JobLeaseManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -17,6 +18,10 @@ public class TokenService {
     private WarningRepository warningRepository;
     @Autowired
     private TokenRepository tokenRepository;
+    @Autowired
+    private JobLeaseManager jobLeaseManager;
+
+    static final String DELETE_TOKENS_JOB = "delete-old-disabled-tokens";
 
     /**
      * generates a token for a warning to be mailed to the respective user within a link.
@@ -82,10 +87,13 @@ public class TokenService {
     }
 
     /**
-     * deletes all disabled tokens every sunday at midnight.
+     * deletes all disabled tokens every sunday at midnight, on the instance holding the lease of the job.
      */
     @Scheduled(cron = "0 0 0 * * SUN") //every sunday at midnight
     public void deleteOldDisabledTokens() {
+        if (!jobLeaseManager.tryAcquire(DELETE_TOKENS_JOB)) {
+            return;
+        }
         tokenRepository.findAllByConsumedTrue().forEach(tokenRepository::delete);
     }
 }
@@ -6,7 +6,9 @@ import at.qe.skeleton.model.Room;
 import at.qe.skeleton.model.SensorType;
 import at.qe.skeleton.model.Userx;
 import at.qe.skeleton.repositories.LimitsRepository;
+import at.qe.skeleton.services.TopologyChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
@@ -20,6 +22,9 @@ public class LimitService {
     @Autowired
     LimitsRepository limitsRepository;
 
+    @Autowired
+    ApplicationEventPublisher applicationEventPublisher;
+
 
     /**
      * Checks if all limits of a list of limits are valid (upperlimit > lowerlimit).
@@ -78,6 +83,8 @@ public class LimitService {
 
 
     public Limits saveLimit(Limits limits) {
-        return limitsRepository.save(limits);
+        Limits savedLimits = limitsRepository.save(limits);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        return savedLimits;
     }
 }
@@ -7,7 +7,9 @@ import at.qe.skeleton.model.AccessPoint;
 import at.qe.skeleton.model.Room;
 import at.qe.skeleton.repositories.AccessPointRepository;
 import at.qe.skeleton.repositories.RoomRepository;
+import at.qe.skeleton.services.TopologyChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
@@ -28,6 +30,9 @@ public class RoomService {
     @Autowired
     private AccessPointRepository accessPointRepository;
 
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
 
     public List<Room> getAllRooms() {
         return roomRepository.findAll();
@@ -60,7 +65,9 @@ public class RoomService {
 
 
         }
-        return roomRepository.save(room);
+        Room savedRoom = roomRepository.save(room);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        return savedRoom;
     }
 
     /**
@@ -77,6 +84,7 @@ public class RoomService {
             throw new EntityStillInUseException("Room is still in use by an access point.");
         }
         roomRepository.delete(room);
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
     }
 
 
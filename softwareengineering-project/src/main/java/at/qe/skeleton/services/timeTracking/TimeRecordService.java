@@ -1,7 +1,9 @@
 package at.qe.skeleton.services.timeTracking;
 
+import at.qe.skeleton.configs.ReadOnlyTransactional;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.TimeRecordRepository;
+import at.qe.skeleton.services.JobLeaseManager;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
@@ -22,6 +24,8 @@ import java.util.stream.Collectors;
 @Scope("application")
 public class TimeRecordService {
 
+    static final String CLOSE_TIME_RECORDS_JOB = "close-open-time-records";
+
     @Autowired
     TimeRecordRepository timeRecordRepository;
 
@@ -31,6 +35,9 @@ public class TimeRecordService {
     @Autowired
     ProjectService projectService;
 
+    @Autowired
+    JobLeaseManager jobLeaseManager;
+
     /**
      * Loads a TimeRecord by its ID.
      *
@@ -130,10 +137,15 @@ public class TimeRecordService {
 
     /**
      * Automatically closes all open TimeRecords at midnight and opens new ones for the new day.
+     * Only runs on the instance holding the lease of the job; TimeRecords started today are left open, so running it
+     * twice does not close the new ones.
      */
     @Scheduled(cron = "0 0 0 * * *")
     public void closeOpenTimeRecords() {
-        List<TimeRecord> openTimeRecords = timeRecordRepository.findAllByEndTimeIsNull();
+        if (!jobLeaseManager.tryAcquire(CLOSE_TIME_RECORDS_JOB)) {
+            return;
+        }
+        List<TimeRecord> openTimeRecords = timeRecordRepository.findAllByEndTimeIsNullAndStartTimeBefore(LocalDate.now().atStartOfDay());
         for (TimeRecord oldTimeRecord : openTimeRecords) {
             oldTimeRecord.setEndTime(oldTimeRecord.getStartTime().toLocalDate().atTime(23, 59, 59));
             oldTimeRecord = timeRecordRepository.save(oldTimeRecord);
@@ -155,6 +167,7 @@ public class TimeRecordService {
      * @return A list of TimeRecords for the Group Leader's groups, excluding OUT_OF_OFFICE records.
      */
     @PreAuthorize("hasAuthority('GROUP_LEADER')")
+    @ReadOnlyTransactional
     public List<TimeRecord> getTimeRecordsForGroupLeader(Userx groupLeader) {
         List<TimeRecord> timeRecordsForGroupLeader = new ArrayList<>();
         List<WorkGroup> groupLeadersWorkGroups = workGroupService.getGroupsByGroupLeader(groupLeader);
@@ -173,6 +186,7 @@ public class TimeRecordService {
      * @return A list of TimeRecords for the Manager's projects, excluding OUT_OF_OFFICE records.
      */
     @PreAuthorize("hasAuthority('MANAGER')")
+    @ReadOnlyTransactional
     public List<TimeRecord> getTimeRecordsForManager(Userx manager) {
         List<TimeRecord> timeRecordsForManager = new ArrayList<>();
         List<Project> managersProjects = projectService.getProjectByManager(manager);
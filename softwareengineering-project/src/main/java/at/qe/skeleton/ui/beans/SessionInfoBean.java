@@ -31,7 +31,8 @@ public class SessionInfoBean implements Serializable {
 
     /**
      * Returns the currently logged on user, null if no user is authenticated
-     * for this session.
+     * for this session. The user is loaded with the sensors of its
+     * TemperaDevice, but without its notifications.
      *
      * @return
      */
@@ -41,7 +42,7 @@ public class SessionInfoBean implements Serializable {
             if (currentUserName.isEmpty()) {
                 return null;
             }
-            currentUser = userService.loadUser(currentUserName);
+            currentUser = userService.loadDashboardUser(currentUserName);
         }
         return currentUser;
     }
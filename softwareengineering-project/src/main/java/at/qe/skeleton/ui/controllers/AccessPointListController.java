@@ -27,7 +27,7 @@ public class AccessPointListController implements Serializable {
 
     @PostConstruct
     public void init() {
-        accessPoints = accessPointService.getAllAccessPoints();
+        accessPoints = accessPointService.getAllAccessPointsWithTemperaDevices();
     }
 
 
@@ -43,7 +43,7 @@ public class AccessPointListController implements Serializable {
      * e.g. after creating a new accessPoint the AccessPointDetailController calls this method to update the list in the ui.
      */
     public void update(){
-        accessPoints = accessPointService.getAllAccessPoints();
+        accessPoints = accessPointService.getAllAccessPointsWithTemperaDevices();
     }
 
 }
@@ -1,6 +1,7 @@
 package at.qe.skeleton.ui.controllers;
 
 import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.MeasurementSeries;
 import at.qe.skeleton.model.SensorType;
 import at.qe.skeleton.model.Userx;
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
@@ -23,6 +24,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,12 +54,22 @@ public class ClimateMeasurementChartController implements Serializable {
 
     private int granularity;
 
+    /**
+     * if true, the chart shows at most {@link #maxPoints} points selected by LTTB downsampling instead of one point
+     * per granularity.
+     */
+    private boolean downsampled;
+
+    private int maxPoints;
+
 
     @PostConstruct
     private void prepareDefaultSettings() {
         dataType = "Air Temperature";
         range = List.of(LocalDate.now().minusDays(1), LocalDate.now());
         granularity = 15;
+        downsampled = false;
+        maxPoints = 500;
         createChart();
     }
 
@@ -111,8 +123,11 @@ public class ClimateMeasurementChartController implements Serializable {
      * @return The chart data.
      */
     private ChartData getChartData(SensorType sensorType, LocalDate start, LocalDate end, int granularityInMinutes) {
-        ChartData data = new ChartData();
         Userx currentUser = sessionInfoBean.getCurrentUser();
+        if (downsampled) {
+            return getDownsampledChartData(currentUser, sensorType, start, end);
+        }
+        ChartData data = new ChartData();
         // Retrieve measurement history based on the selected sensor type, specified time range, and granularity
         List<ClimateMeasurement> measurements;
         switch (sensorType) {
@@ -126,24 +141,52 @@ public class ClimateMeasurementChartController implements Serializable {
             FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(FacesMessage.SEVERITY_WARN, "Warning", "No measurements have been found for the selected period."));
         }
 
-        data.addChartDataSet(createDataSet(measurements, sensorType));
-        List<String> labels = getLabels(measurements);
-        data.setLabels(labels);
+        List<Object> values = new ArrayList<>();
+        List<LocalDateTime> timeStamps = new ArrayList<>();
+        for (ClimateMeasurement measurement : measurements) {
+            values.add(measurement.getMeasuredValue());
+            timeStamps.add(measurement.getTimeStamp());
+        }
+        data.addChartDataSet(createDataSet(values, sensorType));
+        data.setLabels(getLabels(timeStamps));
+        return data;
+    }
+
+    /**
+     * Creates ChartData for the given user and sensor type with at most {@link #maxPoints} points, selected by
+     * LTTB downsampling of all measurements in the specified time range.
+     * @param user The user for whom to retrieve the data.
+     * @param sensorType The type of sensor for which to retrieve the data.
+     * @param start The start date of the time range.
+     * @param end The end date of the time range.
+     * @return The chart data.
+     */
+    private ChartData getDownsampledChartData(Userx user, SensorType sensorType, LocalDate start, LocalDate end) {
+        ChartData data = new ChartData();
+        MeasurementSeries series = climateMeasurementService.downsampledHistoryForUser(user, sensorType, start, end, maxPoints);
+        if (series.size() == 0) {
+            FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(FacesMessage.SEVERITY_WARN, "Warning", "No measurements have been found for the selected period."));
+        }
+
+        List<Object> values = new ArrayList<>(series.size());
+        List<LocalDateTime> timeStamps = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            values.add(series.values()[i]);
+            timeStamps.add(series.timeStampAt(i));
+        }
+        data.addChartDataSet(createDataSet(values, sensorType));
+        data.setLabels(getLabels(timeStamps));
         return data;
     }
 
     /**
-     * Creates a data set containing the measured values based on the provided measurement list and sensor type.
-     * @param measurements The list of climate measurements.
+     * Creates a data set containing the measured values based on the provided values and sensor type.
+     * @param values The measured values.
      * @param sensorType The type of sensor for which the data set is created.
      * @return The chart data set.
      */
-    private ChartDataSet createDataSet(List<ClimateMeasurement> measurements, SensorType sensorType) {
+    private ChartDataSet createDataSet(List<Object> values, SensorType sensorType) {
         LineChartDataSet dataSet = new LineChartDataSet();
-        List<Object> values = new ArrayList<>();
-        for (ClimateMeasurement measurement : measurements) {
-            values.add(measurement.getMeasuredValue());
-        }
         dataSet.setData(values);
         dataSet.setFill(false);
         dataSet.setTension(0.1);
@@ -158,15 +201,15 @@ public class ClimateMeasurementChartController implements Serializable {
 
 
     /**
-     * Generates labels for the chart based on the timestamps of the provided measurements.
-     * @param measurements The list of climate measurements.
+     * Generates labels for the chart based on the provided timestamps.
+     * @param timeStamps The timestamps of the measurements.
      * @return The list of labels formatted as strings.
      */
-    private List<String> getLabels(List<ClimateMeasurement> measurements) {
+    private List<String> getLabels(List<LocalDateTime> timeStamps) {
         List<String> labels = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yy HH:mm");
-        for (ClimateMeasurement measurement : measurements) {
-            labels.add(formatter.format(measurement.getTimeStamp()));
+        for (LocalDateTime timeStamp : timeStamps) {
+            labels.add(formatter.format(timeStamp));
         }
         return labels;
     }
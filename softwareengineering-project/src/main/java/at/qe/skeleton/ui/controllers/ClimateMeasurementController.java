@@ -3,7 +3,7 @@ package at.qe.skeleton.ui.controllers;
 import at.qe.skeleton.model.ClimateMeasurement;
 import at.qe.skeleton.model.Limits;
 import at.qe.skeleton.model.SensorType;
-import at.qe.skeleton.model.Userx;
+import at.qe.skeleton.services.climate.ClimateIndicator;
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
 import at.qe.skeleton.services.room.LimitService;
 import at.qe.skeleton.ui.beans.SessionInfoBean;
@@ -17,7 +17,9 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -42,20 +44,17 @@ public class ClimateMeasurementController implements Serializable {
 
     private List<ClimateMeasurement> allMeasurementsForList;
 
+    /**
+     * limits of the current user's room, loaded once per view instead of once per getter.
+     */
+    private transient Map<SensorType, Limits> limitsBySensorType;
+
     @PostConstruct
     public void init() {
         getAllMeasurements();
     }
 
 
-    /**
-     * Returns a list of all measurements.
-     * Only for developing.
-     */
-    public List<ClimateMeasurement> getAllMeasurementsTest() {
-        return climateMeasurementService.findAllMeasurements();
-    }
-
     /**
      * Returns a list of all measurements for the current user.
      */
@@ -75,8 +74,8 @@ public class ClimateMeasurementController implements Serializable {
      */
     public String getTemperature() {
         try {
-            Double currentTemperature = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_TEMPERATURE);
-            return currentTemperature.toString()+" C°";
+            Double currentMeasurement = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_TEMPERATURE);
+            return ClimateIndicator.format(currentMeasurement, SensorType.AIR_TEMPERATURE);
         } catch (NoSuchElementException e) {
             return e.getMessage();
         }
@@ -92,8 +91,8 @@ public class ClimateMeasurementController implements Serializable {
      */
     public String getHumidity() {
         try {
-            Double currentTemperature = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_HUMIDITY);
-            return currentTemperature.toString()+" %";
+            Double currentMeasurement = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_HUMIDITY);
+            return ClimateIndicator.format(currentMeasurement, SensorType.AIR_HUMIDITY);
         } catch (NoSuchElementException e) {
             return e.getMessage();
         }
@@ -109,8 +108,8 @@ public class ClimateMeasurementController implements Serializable {
      */
     public String getAirQuality() {
         try {
-            Double currentTemperature = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_QUALITY);
-            return currentTemperature.toString()+" ppm";
+            Double currentMeasurement = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.AIR_QUALITY);
+            return ClimateIndicator.format(currentMeasurement, SensorType.AIR_QUALITY);
         } catch (NoSuchElementException e) {
             return e.getMessage();
         }
@@ -126,8 +125,8 @@ public class ClimateMeasurementController implements Serializable {
      */
     public String getLight() {
         try {
-            Double currentTemperature = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.LIGHT_INTENSITY);
-            return currentTemperature.toString()+" lux";
+            Double currentMeasurement = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), SensorType.LIGHT_INTENSITY);
+            return ClimateIndicator.format(currentMeasurement, SensorType.LIGHT_INTENSITY);
         } catch (NoSuchElementException e) {
             return e.getMessage();
         }
@@ -168,7 +167,7 @@ public class ClimateMeasurementController implements Serializable {
 
     public String getTemperatureMessageUpper() {
         try {
-            Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_TEMPERATURE);
+            Limits limits = getLimits(SensorType.AIR_TEMPERATURE);
             return limits.getMessageUpper();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -176,7 +175,7 @@ public class ClimateMeasurementController implements Serializable {
     }
     public String getTemperatureMessageLower() {
         try {
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_TEMPERATURE);
+        Limits limits = getLimits(SensorType.AIR_TEMPERATURE);
         return limits.getMessageLower();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -185,7 +184,7 @@ public class ClimateMeasurementController implements Serializable {
 
     public String getHumidityMessageUpper() {
         try {
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_HUMIDITY);
+        Limits limits = getLimits(SensorType.AIR_HUMIDITY);
         return limits.getMessageUpper();
     } catch (NoSuchElementException e) {
         return e.getMessage();
@@ -193,7 +192,7 @@ public class ClimateMeasurementController implements Serializable {
     }
     public String getHumidityMessageLower() {
         try {
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_HUMIDITY);
+        Limits limits = getLimits(SensorType.AIR_HUMIDITY);
         return limits.getMessageLower();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -202,7 +201,7 @@ public class ClimateMeasurementController implements Serializable {
 
     public String getAirQualityMessageUpper() {
         try {
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_QUALITY);
+        Limits limits = getLimits(SensorType.AIR_QUALITY);
         return limits.getMessageUpper();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -210,7 +209,7 @@ public class ClimateMeasurementController implements Serializable {
     }
     public String getAirQualityMessageLower() {
         try {
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.AIR_QUALITY);
+        Limits limits = getLimits(SensorType.AIR_QUALITY);
         return limits.getMessageLower();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -219,7 +218,7 @@ public class ClimateMeasurementController implements Serializable {
 
     public String getLightMessageUpper() {
         try{
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.LIGHT_INTENSITY);
+        Limits limits = getLimits(SensorType.LIGHT_INTENSITY);
         return limits.getMessageUpper();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -227,7 +226,7 @@ public class ClimateMeasurementController implements Serializable {
     }
     public String getLightMessageLower() {
         try{
-        Limits limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), SensorType.LIGHT_INTENSITY);
+        Limits limits = getLimits(SensorType.LIGHT_INTENSITY);
         return limits.getMessageLower();
         } catch (NoSuchElementException e) {
             return e.getMessage();
@@ -243,45 +242,36 @@ public class ClimateMeasurementController implements Serializable {
      */
     private String getColorForMeasurement(SensorType sensorType) {
         try {
-            Userx currentUser = sessionInfoBean.getCurrentUser();
             Double currentMeasurement = climateMeasurementService.findCurrentMeasurementForUser(sessionInfoBean.getCurrentUser(), sensorType);
-            Limits limits = limitService.getLimitsForUserAndSensorType(currentUser, sensorType);
-            Double upperLimit = limits.getUpperLimit();
-            Double lowerLimit = limits.getLowerLimit();
-            if ((currentMeasurement < lowerLimit) || (currentMeasurement > upperLimit)) {
-                return "#fd7b83"; // red
-            } else if (isCloseToLimit(currentMeasurement, upperLimit, lowerLimit, sensorType)) {
-                return "#ffd184"; // orange
-            } else {
-                return "#92e38a"; // green
-            }
+            return ClimateIndicator.colorOf(currentMeasurement, getLimits(sensorType), sensorType);
         } catch (NoSuchElementException e) {
             // If no threshold values are configured for the user, display an info message and return a default grey color, but not in the welcome page.
             String viewId = FacesContext.getCurrentInstance().getViewRoot().getViewId();
             if (!"/secured/welcome.xhtml".equals(viewId)) {
                 FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO, "Info", "No temperature threshold values are configured for your room."));
             }
-            return "#dadada"; // grey
+            return ClimateIndicator.GREY;
         }
     }
 
     /**
-     * Checks if the current measurement is close to the upper or lower limit for the specified sensor type.
-     * The threshold for being close to the limit is defined based on the sensor type.
+     * Retrieves the limits of the current user's room for the specified sensor type. The limits are loaded once per
+     * view, so rendering the dashboard does not query them for every message and color.
      *
-     * @param measuredValue The current measurement value.
-     * @param upperLimit The upper limit for the sensor.
-     * @param lowerLimit The lower limit for the sensor.
-     * @param sensorType The type of sensor.
-     * @return True if the measurement is close to the limit, otherwise false.
+     * @param sensorType The type of sensor for which to retrieve the limits.
+     * @return The limits for the specified sensor type.
+     * @throws NoSuchElementException If the user has no TemperaDevice or no limits are configured.
      */
-    private boolean isCloseToLimit(double measuredValue, Double upperLimit, Double lowerLimit, SensorType sensorType) {
-        switch (sensorType) {
-            case AIR_TEMPERATURE -> {return (measuredValue < lowerLimit+2 || measuredValue > upperLimit-2);}
-            case AIR_HUMIDITY -> {return (measuredValue < lowerLimit+5 || measuredValue > upperLimit-5);}
-            case AIR_QUALITY -> {return (measuredValue < lowerLimit+5 || measuredValue > upperLimit-5);}
-            default -> {return (measuredValue < lowerLimit+50 || measuredValue > upperLimit-50);}
+    private Limits getLimits(SensorType sensorType) {
+        if (limitsBySensorType == null) {
+            limitsBySensorType = new EnumMap<>(SensorType.class);
+        }
+        Limits limits = limitsBySensorType.get(sensorType);
+        if (limits == null) {
+            limits = limitService.getLimitsForUserAndSensorType(sessionInfoBean.getCurrentUser(), sensorType);
+            limitsBySensorType.put(sensorType, limits);
         }
+        return limits;
     }
 
 
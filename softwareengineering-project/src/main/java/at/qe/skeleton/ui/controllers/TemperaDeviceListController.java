@@ -3,7 +3,6 @@ package at.qe.skeleton.ui.controllers;
 import at.qe.skeleton.model.AccessPoint;
 import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.model.Userx;
-import at.qe.skeleton.services.AccessPointService;
 import at.qe.skeleton.services.TemperaDeviceService;
 import at.qe.skeleton.services.UserService;
 import at.qe.skeleton.ui.beans.TemperaDeviceBean;
@@ -19,6 +18,8 @@ import org.springframework.stereotype.Component;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @Scope("view")
@@ -30,9 +31,6 @@ public class TemperaDeviceListController implements Serializable {
     @Autowired
     private transient UserService userService;
 
-    @Autowired
-    private transient AccessPointService accessPointService;
-
     @Setter
     @Getter
     private List<TemperaDeviceBean> temperaDeviceBeans;
@@ -46,14 +44,17 @@ public class TemperaDeviceListController implements Serializable {
     }
 
     /**
-     * @return a list of all TemperaDevices
+     * @return a list of all TemperaDevices. The TemperaDevices (with their AccessPoints) and their users are each
+     * loaded with one query.
      */
     private List<TemperaDeviceBean> updateTemperaDeviceBeans(){
         List<TemperaDevice> temperaDeviceList = temperaDeviceService.getAllTemperaDevices();
+        Map<Long, Userx> usersByTemperaDevice = userService.getUsersWithTemperaDevice().stream()
+                .collect(Collectors.toMap(user -> user.getTemperaDevice().getId(), user -> user, (first, second) -> first));
         temperaDeviceBeans = new ArrayList<>();
         for(TemperaDevice temperaDevice : temperaDeviceList){
-            Userx connectedUser = userService.getUserByTemperaDevice(temperaDevice);
-            AccessPoint connectedAccessPoint = accessPointService.getAccessPointByTemperaDevice(temperaDevice);
+            Userx connectedUser = usersByTemperaDevice.get(temperaDevice.getId());
+            AccessPoint connectedAccessPoint = temperaDevice.getAccessPoint();
 
             TemperaDeviceBean temperaDeviceBean = new TemperaDeviceBean();
             temperaDeviceBean.setTemperaDevice(temperaDevice);
@@ -0,0 +1,101 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.DeviceStatus;
+import at.qe.skeleton.repositories.AccessPointRepository;
+import at.qe.skeleton.services.AccessPointRegistry;
+import at.qe.skeleton.services.TopologyChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccessPointRegistryTest {
+
+    private AccessPointRepository accessPointRepository;
+
+    private AccessPointRegistry accessPointRegistry;
+
+    @BeforeEach
+    void setUp() {
+        accessPointRepository = Mockito.mock(AccessPointRepository.class);
+        accessPointRegistry = new AccessPointRegistry();
+        ReflectionTestUtils.setField(accessPointRegistry, "accessPointRepository", accessPointRepository);
+        ReflectionTestUtils.setField(accessPointRegistry, "maxUnknown", 100);
+    }
+
+    @Test
+    void testKnownAccessPointIsLoadedOnce() {
+        when(accessPointRepository.findStatusById(1L)).thenReturn(DeviceStatus.ENABLED);
+        when(accessPointRepository.findTemperaDeviceIdsById(1L)).thenReturn(List.of(1L, 2L));
+
+        assertTrue(accessPointRegistry.find(1L).isConnected(2L));
+        assertTrue(accessPointRegistry.find(1L).isEnabled());
+
+        verify(accessPointRepository, times(1)).findStatusById(1L);
+    }
+
+    @Test
+    void testUnknownIdsAreRemembered() {
+        when(accessPointRepository.findStatusById(99L)).thenReturn(null, DeviceStatus.NOT_REGISTERED);
+
+        assertFalse(accessPointRegistry.find(99L).exists());
+        assertFalse(accessPointRegistry.find(99L).exists());
+        verify(accessPointRepository, times(1)).findStatusById(99L);
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(accessPointRegistry, "accessPoints")).isEmpty());
+
+        // the AccessPoint is created
+        accessPointRegistry.onTopologyChanged(new TopologyChangedEvent(this));
+        assertTrue(accessPointRegistry.find(99L).exists());
+        verify(accessPointRepository, times(2)).findStatusById(99L);
+        assertEquals(1, ((Map<?, ?>) ReflectionTestUtils.getField(accessPointRegistry, "accessPoints")).size());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(accessPointRegistry, "unknownAccessPoints")).isEmpty());
+    }
+
+    @Test
+    void testUnknownIdsAreBounded() {
+        for (long id = 100; id < 350; id++) {
+            assertFalse(accessPointRegistry.find(id).exists());
+        }
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(accessPointRegistry, "unknownAccessPoints")).size() <= 100);
+    }
+
+    @Test
+    void testAccessPointLoadedDuringAChangeIsLoadedAgain() {
+        when(accessPointRepository.findStatusById(1L)).thenAnswer(invocation -> {
+            // the change is committed while the old status is being loaded
+            accessPointRegistry.onTopologyChanged(new TopologyChangedEvent(this));
+            return DeviceStatus.ENABLED;
+        }).thenReturn(DeviceStatus.DISABLED);
+        when(accessPointRepository.findTemperaDeviceIdsById(1L)).thenReturn(List.of());
+
+        assertTrue(accessPointRegistry.find(1L).isEnabled());
+        assertEquals(DeviceStatus.DISABLED, accessPointRegistry.find(1L).status());
+        assertEquals(DeviceStatus.DISABLED, accessPointRegistry.find(1L).status());
+
+        verify(accessPointRepository, times(2)).findStatusById(1L);
+    }
+
+    @Test
+    void testExpiredAccessPointIsLoadedAgain() throws InterruptedException {
+        ReflectionTestUtils.setField(accessPointRegistry, "ttlMillis", 1L);
+        // disabled and afterwards deleted by another instance
+        when(accessPointRepository.findStatusById(1L)).thenReturn(DeviceStatus.ENABLED, DeviceStatus.DISABLED, null);
+        when(accessPointRepository.findTemperaDeviceIdsById(1L)).thenReturn(List.of(1L));
+
+        assertTrue(accessPointRegistry.find(1L).isEnabled());
+        Thread.sleep(5);
+        assertEquals(DeviceStatus.DISABLED, accessPointRegistry.find(1L).status());
+        Thread.sleep(5);
+        assertFalse(accessPointRegistry.find(1L).exists());
+
+        verify(accessPointRepository, times(3)).findStatusById(1L);
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(accessPointRegistry, "accessPoints")).isEmpty());
+    }
+}
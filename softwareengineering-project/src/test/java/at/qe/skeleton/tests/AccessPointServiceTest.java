@@ -143,6 +143,23 @@ public class AccessPointServiceTest {
         assertThrows(IllegalArgumentException.class, () -> accessPointService.getActiveAccessPointById("G4T2-AP-"+apID));
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    public void testAuthenticateSeesSavedStatus() throws EntityStillInUseException {
+        AccessPoint accessPoint = accessPointService.save(AccessPoint.builder().status(DeviceStatus.ENABLED).build());
+        String accessPointId = "G4T2-AP-" + accessPoint.getId();
+        try {
+            assertEquals(accessPoint.getId(), accessPointService.authenticate(accessPointId).id());
+
+            accessPoint.setStatus(DeviceStatus.DISABLED);
+            accessPoint = accessPointService.save(accessPoint);
+            assertThrows(IllegalArgumentException.class, () -> accessPointService.authenticate(accessPointId));
+        } finally {
+            accessPointService.delete(accessPoint);
+        }
+        assertFalse(accessPointService.doesAccessPointIDExist(accessPointId));
+    }
+
     @Test
     public void testGetActiveAccessPointByIdValidIdNotInDatabase() {
 
@@ -595,6 +595,48 @@ public class AuditAspectTest {
         assert logger.isErrorEnabled();
     }
 
+    @Test
+    public void testLogEnqueueMeasurementFailure() {
+        MeasurementDTO measurementDTO = new MeasurementDTO(null, null, null, 10.0f, 10.0f, 10.5f, 10.5f);
+
+        ResponseEntity<MeasurementDTO> response = new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
+
+        mockAuthentication("admin");
+
+        auditAspect.logEnqueueMeasurementFailure(measurementDTO, "1", response);
+
+        verify(logRepository, times(1)).save(any(AuditLog.class));
+        assert logger.isErrorEnabled();
+    }
+
+    @Test
+    public void testLogCreateMeasurementsFailure() {
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(null, null, null, 10.0f, 10.0f, 10.5f, 10.5f));
+
+        ResponseEntity<List<MeasurementStatusDTO>> response = new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        mockAuthentication("admin");
+
+        auditAspect.logCreateMeasurementsFailure(measurementDTOs, "1", response);
+
+        verify(logRepository, times(1)).save(any(AuditLog.class));
+        assert logger.isErrorEnabled();
+    }
+
+    @Test
+    public void testLogBackfillMeasurementsFailure() {
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(null, null, null, 10.0f, 10.0f, 10.5f, 10.5f));
+
+        ResponseEntity<List<MeasurementStatusDTO>> response = new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+        mockAuthentication("admin");
+
+        auditAspect.logBackfillMeasurementsFailure(measurementDTOs, "1", response);
+
+        verify(logRepository, times(1)).save(any(AuditLog.class));
+        assert logger.isErrorEnabled();
+    }
+
     @Test
     public void testLogGetLogTemperaDeviceByAccessPointIdFailure() {
         ResponseEntity<LogTemperaDeviceDTO> response = new ResponseEntity<>(HttpStatus.FORBIDDEN);
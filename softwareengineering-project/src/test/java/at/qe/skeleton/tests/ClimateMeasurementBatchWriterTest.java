@@ -0,0 +1,64 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.climate.ClimateMeasurementBatchWriter;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ClimateMeasurementBatchWriterTest {
+
+    @Autowired
+    private ClimateMeasurementBatchWriter batchWriter;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    @Transactional
+    void testInsertAllAssignsIdsAndPersistsAllMeasurements() {
+        Sensor sensor = sensorRepository.findSensorById(1L);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            measurements.add(ClimateMeasurement.builder()
+                    .sensor(sensor)
+                    .timeStamp(start.plusMinutes(i))
+                    .measuredValue(20 + i * 0.01)
+                    .build());
+        }
+
+        batchWriter.insertAll(measurements);
+
+        Set<Long> ids = new HashSet<>();
+        measurements.forEach(measurement -> ids.add(measurement.getId()));
+        assertEquals(120, ids.size());
+        assertFalse(ids.contains(null));
+
+        List<ClimateMeasurement> persisted = climateMeasurementRepository
+                .findAllBySensorAndTimeStampAfterAndTimeStampBefore(sensor, start.minusSeconds(1), start.plusDays(1));
+        assertEquals(120, persisted.size());
+    }
+
+    @Test
+    void testInsertAllWithEmptyList() {
+        assertTrue(batchWriter.insertAll(new ArrayList<>()).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.climate.ClimateMeasurementBulkLoader;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ClimateMeasurementBulkLoaderTest {
+
+    @Autowired
+    private ClimateMeasurementBulkLoader bulkLoader;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    @Transactional
+    void testLoadInsertsAllRowsWithUniqueIds() {
+        Sensor sensor = sensorRepository.findSensorById(2L);
+        LocalDateTime start = LocalDateTime.of(2019, 6, 1, 0, 0);
+
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            measurements.add(ClimateMeasurement.builder()
+                    .sensor(sensor)
+                    .timeStamp(start.plusMinutes(i))
+                    .measuredValue(40 + i % 10)
+                    .build());
+        }
+
+        assertEquals(1234, bulkLoader.load(measurements));
+
+        Set<Long> ids = new HashSet<>();
+        measurements.forEach(measurement -> ids.add(measurement.getId()));
+        assertEquals(1234, ids.size());
+
+        List<ClimateMeasurement> loaded = climateMeasurementRepository
+                .findAllBySensorAndTimeStampAfterAndTimeStampBefore(sensor, start.minusSeconds(1), start.plusDays(1));
+        assertEquals(1234, loaded.size());
+        assertEquals(41, loaded.stream().filter(m -> m.getTimeStamp().equals(start.plusMinutes(1))).findFirst().orElseThrow().getMeasuredValue());
+    }
+
+    @Test
+    @Transactional
+    void testLoadAndPooledGeneratorDoNotCollide() {
+        Sensor sensor = sensorRepository.findSensorById(3L);
+        LocalDateTime start = LocalDateTime.of(2019, 7, 1, 0, 0);
+
+        List<ClimateMeasurement> loaded = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            loaded.add(ClimateMeasurement.builder().sensor(sensor).timeStamp(start.plusMinutes(i)).measuredValue(i).build());
+        }
+        bulkLoader.load(loaded);
+
+        List<ClimateMeasurement> saved = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            saved.add(ClimateMeasurement.builder().sensor(sensor).timeStamp(start.plusHours(5).plusMinutes(i)).measuredValue(i).build());
+        }
+        climateMeasurementRepository.saveAll(saved);
+
+        Set<Long> ids = new HashSet<>();
+        loaded.forEach(measurement -> ids.add(measurement.getId()));
+        saved.forEach(measurement -> ids.add(measurement.getId()));
+        assertEquals(140, ids.size());
+    }
+
+    @Test
+    void testLoadEmptyList() {
+        assertEquals(0, bulkLoader.load(new ArrayList<>()));
+    }
+}
@@ -0,0 +1,180 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.JobLeaseManager;
+import at.qe.skeleton.services.climate.ClimateMeasurementPartitionManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class ClimateMeasurementPartitionManagerTest {
+
+    private static final String MAINTAIN_PARTITIONS_JOB = "maintain-measurement-partitions";
+    private static final String CONVERSION_LOCK = "SELECT pg_advisory_xact_lock(" + 0x7E3A_0002_0000_0001L + ")";
+
+    @Autowired
+    private ClimateMeasurementPartitionManager partitionManager;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    void testPartitionNames() {
+        YearMonth month = YearMonth.of(2024, 5);
+        assertEquals("climate_measurement_p2024_05", ClimateMeasurementPartitionManager.partitionName(month));
+        assertEquals(month, ClimateMeasurementPartitionManager.monthOf("climate_measurement_p2024_05"));
+        assertNull(ClimateMeasurementPartitionManager.monthOf("climate_measurement_default"));
+    }
+
+    @Test
+    void testPartitioningIsSkippedOnH2() {
+        assertDoesNotThrow(() -> {
+            partitionManager.initPartitioning();
+            partitionManager.maintainPartitions();
+            partitionManager.ensurePartitions(LocalDateTime.now().minusYears(1), LocalDateTime.now());
+        });
+    }
+
+    @Test
+    @Transactional
+    void testDeleteAllBySensor() {
+        Sensor sensor = sensorRepository.findSensorById(4L);
+        Sensor otherSensor = sensorRepository.findSensorById(3L);
+        climateMeasurementRepository.save(ClimateMeasurement.builder().sensor(sensor)
+                .timeStamp(LocalDateTime.now()).measuredValue(500).build());
+        int otherMeasurements = climateMeasurementRepository.findAllBySensor(otherSensor).size();
+
+        climateMeasurementRepository.deleteAllBySensor(sensor);
+
+        assertTrue(climateMeasurementRepository.findAllBySensor(sensor).isEmpty());
+        assertEquals(otherMeasurements, climateMeasurementRepository.findAllBySensor(otherSensor).size());
+    }
+
+    @Test
+    void testConversionToPartitionedTableOnPostgres() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ClimateMeasurementPartitionManager postgresPartitionManager = postgresPartitionManager(jdbcTemplate);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM pg_partitioned_table"), eq(Integer.class), eq("climate_measurement")))
+                .thenReturn(0, 0, 1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT child.relname"), eq(String.class), eq("climate_measurement")))
+                .thenReturn(List.of(), List.of("climate_measurement_default"));
+        Mockito.<LocalDateTime[]>when(jdbcTemplate.queryForObject(startsWith("SELECT MIN(time_stamp)"), Mockito.<RowMapper<LocalDateTime[]>>any()))
+                .thenReturn(new LocalDateTime[]{LocalDateTime.of(2024, 1, 15, 10, 0), LocalDateTime.of(2024, 3, 2, 8, 30)});
+
+        postgresPartitionManager.initPartitioning();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute(CONVERSION_LOCK);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE climate_measurement RENAME TO climate_measurement_unpartitioned");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE climate_measurement (LIKE climate_measurement_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (time_stamp)");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE climate_measurement ADD CONSTRAINT climate_measurement_partitioned_pkey PRIMARY KEY (id, time_stamp)");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE climate_measurement ADD CONSTRAINT climate_measurement_sensor_fk FOREIGN KEY (sensor_id) REFERENCES sensor (id)");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS climate_measurement_p2024_01 PARTITION OF climate_measurement FOR VALUES FROM ('2024-01-01T00:00') TO ('2024-02-01T00:00')");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS climate_measurement_p2024_02 PARTITION OF climate_measurement FOR VALUES FROM ('2024-02-01T00:00') TO ('2024-03-01T00:00')");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS climate_measurement_p2024_03 PARTITION OF climate_measurement FOR VALUES FROM ('2024-03-01T00:00') TO ('2024-04-01T00:00')");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS climate_measurement_default PARTITION OF climate_measurement DEFAULT");
+        inOrder.verify(jdbcTemplate).update("INSERT INTO climate_measurement SELECT * FROM climate_measurement_unpartitioned");
+        inOrder.verify(jdbcTemplate).execute("DROP TABLE climate_measurement_unpartitioned");
+        inOrder.verify(jdbcTemplate).execute("CREATE INDEX climate_measurement_sensor_time_idx ON climate_measurement (sensor_id, time_stamp)");
+        // the partition of the current month is created by the maintenance afterwards
+        inOrder.verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + ClimateMeasurementPartitionManager.partitionName(YearMonth.now()) + " "));
+    }
+
+    @Test
+    void testTableConvertedByAnotherInstanceIsNotConvertedAgain() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ClimateMeasurementPartitionManager postgresPartitionManager = postgresPartitionManager(jdbcTemplate);
+        // converted by the other instance while waiting for the lock
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM pg_partitioned_table"), eq(Integer.class), eq("climate_measurement")))
+                .thenReturn(0, 1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT child.relname"), eq(String.class), eq("climate_measurement")))
+                .thenReturn(List.of("climate_measurement_default"));
+
+        postgresPartitionManager.initPartitioning();
+
+        verify(jdbcTemplate).execute(CONVERSION_LOCK);
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE climate_measurement RENAME"));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + ClimateMeasurementPartitionManager.partitionName(YearMonth.now()) + " "));
+    }
+
+    @Test
+    void testMaintenanceOnlyRunsWithTheLease() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ClimateMeasurementPartitionManager postgresPartitionManager = postgresPartitionManager(jdbcTemplate);
+        JobLeaseManager jobLeaseManager = Mockito.mock(JobLeaseManager.class);
+        ReflectionTestUtils.setField(postgresPartitionManager, "jobLeaseManager", jobLeaseManager);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM pg_partitioned_table"), eq(Integer.class), eq("climate_measurement")))
+                .thenReturn(1);
+
+        postgresPartitionManager.maintainPartitions();
+
+        verify(jobLeaseManager).tryAcquire(MAINTAIN_PARTITIONS_JOB);
+        verify(jdbcTemplate, never()).queryForList(startsWith("SELECT child.relname"), eq(String.class), any());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testNewPartitionTakesOverMeasurementsOfTheDefaultPartition() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ClimateMeasurementPartitionManager postgresPartitionManager = postgresPartitionManager(jdbcTemplate);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM pg_partitioned_table"), eq(Integer.class), eq("climate_measurement")))
+                .thenReturn(1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT child.relname"), eq(String.class), eq("climate_measurement")))
+                .thenReturn(List.of("climate_measurement_default"));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM climate_measurement_default"), eq(Integer.class)))
+                .thenReturn(5);
+
+        postgresPartitionManager.ensurePartitions(LocalDateTime.of(2030, 1, 10, 12, 0), LocalDateTime.of(2030, 1, 20, 12, 0));
+
+        String range = "time_stamp >= '2030-01-01T00:00' AND time_stamp < '2030-02-01T00:00'";
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE climate_measurement DETACH PARTITION climate_measurement_default");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS climate_measurement_p2030_01 PARTITION OF climate_measurement FOR VALUES FROM ('2030-01-01T00:00') TO ('2030-02-01T00:00')");
+        inOrder.verify(jdbcTemplate).execute("INSERT INTO climate_measurement_p2030_01 SELECT * FROM climate_measurement_default WHERE " + range);
+        inOrder.verify(jdbcTemplate).execute("DELETE FROM climate_measurement_default WHERE " + range);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE climate_measurement ATTACH PARTITION climate_measurement_default DEFAULT");
+        verify(jdbcTemplate, never()).execute(contains("PARTITION OF climate_measurement DEFAULT"));
+    }
+
+    private static ClimateMeasurementPartitionManager postgresPartitionManager(JdbcTemplate jdbcTemplate) {
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        ClimateMeasurementPartitionManager postgresPartitionManager = new ClimateMeasurementPartitionManager();
+        ReflectionTestUtils.setField(postgresPartitionManager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(postgresPartitionManager, "transactionTemplate", transactionTemplate);
+        JobLeaseManager jobLeaseManager = Mockito.mock(JobLeaseManager.class);
+        when(jobLeaseManager.tryAcquire(MAINTAIN_PARTITIONS_JOB)).thenReturn(true);
+        ReflectionTestUtils.setField(postgresPartitionManager, "jobLeaseManager", jobLeaseManager);
+        ReflectionTestUtils.setField(postgresPartitionManager, "enabled", true);
+        ReflectionTestUtils.setField(postgresPartitionManager, "monthsAhead", 0);
+        ReflectionTestUtils.setField(postgresPartitionManager, "postgres", true);
+        return postgresPartitionManager;
+    }
+}
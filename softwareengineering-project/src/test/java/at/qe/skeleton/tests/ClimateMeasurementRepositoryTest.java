@@ -0,0 +1,57 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.MeasurementBucket;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ClimateMeasurementRepositoryTest {
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    @Transactional
+    void testFindBucketsAggregatesPerBucket() {
+        Sensor sensor = sensorRepository.findSensorById(1L);
+        LocalDateTime start = LocalDateTime.of(2018, 2, 1, 0, 0);
+
+        // one measurement per minute for two hours, value = minute of the day
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        for (int minute = 0; minute < 120; minute++) {
+            measurements.add(ClimateMeasurement.builder()
+                    .sensor(sensor)
+                    .timeStamp(start.plusMinutes(minute))
+                    .measuredValue(minute)
+                    .build());
+        }
+        climateMeasurementRepository.saveAll(measurements);
+
+        List<MeasurementBucket> buckets = climateMeasurementRepository.findBucketsBySensorAndTimeStampBetween(
+                sensor, start.minusSeconds(1), start.plusHours(2), 15 * 60L);
+
+        assertEquals(8, buckets.size());
+        MeasurementBucket first = buckets.get(0);
+        assertEquals(start, first.timeStamp());
+        assertEquals(7.0, first.average(), 0.0001);
+        assertEquals(0.0, first.minimum());
+        assertEquals(14.0, first.maximum());
+        assertEquals(start.plusMinutes(105), buckets.get(7).timeStamp());
+        assertEquals(112.0, buckets.get(7).average(), 0.0001);
+    }
+}
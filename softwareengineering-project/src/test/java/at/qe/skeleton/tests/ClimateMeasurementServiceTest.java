@@ -2,14 +2,20 @@ package at.qe.skeleton.tests;
 
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.services.climate.ClimateMeasurementBatchWriter;
+import at.qe.skeleton.services.climate.ClimateMeasurementBulkLoader;
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.DeviceMeasurementService;
+import at.qe.skeleton.services.climate.MeasurementRollupService;
+import at.qe.skeleton.services.climate.MeasurementSeriesService;
+import at.qe.skeleton.services.DeviceTopologyService;
 import at.qe.skeleton.services.TemperaDeviceService;
 import at.qe.skeleton.services.climate.WarningService;
-import at.qe.skeleton.services.room.LimitService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import java.time.LocalDate;
@@ -32,15 +38,30 @@ class ClimateMeasurementServiceTest {
     @MockBean
     ClimateMeasurementRepository cmRepository;
 
-    @MockBean
-    LimitService limitService;
-
     @MockBean
     TemperaDeviceService temperaDeviceService;
 
     @MockBean
     WarningService warningService;
 
+    @MockBean
+    ClimateMeasurementBatchWriter batchWriter;
+
+    @MockBean
+    ClimateMeasurementBulkLoader bulkLoader;
+
+    @MockBean
+    DeviceMeasurementService deviceMeasurementService;
+
+    @MockBean
+    MeasurementRollupService rollupService;
+
+    @MockBean
+    MeasurementSeriesService seriesService;
+
+    @MockBean
+    DeviceTopologyService deviceTopologyService;
+
     @Test
     void testSave() {
         ClimateMeasurement measurement = new ClimateMeasurement();
@@ -53,6 +74,105 @@ class ClimateMeasurementServiceTest {
         List<ClimateMeasurement> measurements = new ArrayList<>();
         cmService.saveAll(measurements);
         verify(cmRepository, times(1)).saveAll(measurements);
+        verifyNoInteractions(batchWriter);
+    }
+
+    @Test
+    void testSaveAllStateless() {
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        ReflectionTestUtils.setField(cmService, "statelessWrites", true);
+        try {
+            cmService.saveAll(measurements);
+        } finally {
+            ReflectionTestUtils.setField(cmService, "statelessWrites", false);
+        }
+        verify(batchWriter, times(1)).insertAll(measurements);
+        verify(cmRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testWideRowStorage() {
+        List<ClimateMeasurement> measurements = List.of(new ClimateMeasurement());
+        Sensor sensor = new Sensor();
+        LocalDate day = LocalDate.of(2024, 5, 29);
+        ReflectionTestUtils.setField(cmService, "wideRows", true);
+        try {
+            cmService.saveAll(measurements);
+            cmService.findSensorMeasurementsBetween(sensor, day, day);
+        } finally {
+            ReflectionTestUtils.setField(cmService, "wideRows", false);
+        }
+        verify(deviceMeasurementService, times(1)).saveAllMeasurements(measurements);
+        verify(deviceMeasurementService, times(1)).findSensorMeasurementsBetween(sensor, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        verifyNoInteractions(cmRepository);
+    }
+
+    @Test
+    void testRollups() {
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        Sensor temperatureSensor = new Sensor();
+        temperatureSensor.setSensorType(SensorType.AIR_TEMPERATURE);
+        TemperaDevice device = new TemperaDevice();
+        device.setSensors(List.of(temperatureSensor));
+        Userx user = new Userx();
+        user.setTemperaDevice(device);
+        LocalDate day = LocalDate.of(2024, 5, 29);
+        ReflectionTestUtils.setField(cmService, "rollups", true);
+        try {
+            cmService.saveAll(measurements);
+            cmService.temperatureHistoryForUser(user, day, day, 15);
+        } finally {
+            ReflectionTestUtils.setField(cmService, "rollups", false);
+        }
+        verify(rollupService, times(1)).addAll(measurements);
+        verify(rollupService, times(1)).findHistory(temperatureSensor, day.atStartOfDay(), day.plusDays(1).atStartOfDay(), 15);
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+    }
+
+    @Test
+    void testRollupsOnlyContainTheInsertedWideRows() {
+        ClimateMeasurement stored = new ClimateMeasurement();
+        ClimateMeasurement resent = new ClimateMeasurement();
+        List<ClimateMeasurement> measurements = List.of(stored, resent);
+        when(deviceMeasurementService.saveAllMeasurements(measurements)).thenReturn(List.of(stored));
+        ReflectionTestUtils.setField(cmService, "wideRows", true);
+        ReflectionTestUtils.setField(cmService, "rollups", true);
+        try {
+            cmService.saveAll(measurements);
+            assertEquals(1, cmService.backfill(measurements));
+        } finally {
+            ReflectionTestUtils.setField(cmService, "wideRows", false);
+            ReflectionTestUtils.setField(cmService, "rollups", false);
+        }
+        verify(rollupService, times(2)).addAll(List.of(stored));
+        verify(rollupService, never()).addAll(measurements);
+    }
+
+    @Test
+    void testDownsampledHistoryForUser() {
+        Sensor lightSensor = new Sensor();
+        lightSensor.setSensorType(SensorType.LIGHT_INTENSITY);
+        TemperaDevice device = new TemperaDevice();
+        device.setSensors(List.of(lightSensor));
+        Userx user = new Userx();
+        LocalDate day = LocalDate.of(2024, 5, 29);
+
+        assertEquals(0, cmService.downsampledHistoryForUser(user, SensorType.LIGHT_INTENSITY, day, day, 300).size());
+
+        user.setTemperaDevice(device);
+        MeasurementSeries series = new MeasurementSeries(new long[]{1L}, new double[]{400.0});
+        when(seriesService.findDownsampledSeries(lightSensor, day.atStartOfDay(), day.plusDays(1).atStartOfDay(), 300))
+                .thenReturn(series);
+        assertSame(series, cmService.downsampledHistoryForUser(user, SensorType.LIGHT_INTENSITY, day, day, 300));
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+    }
+
+    @Test
+    void testBackfill() {
+        List<ClimateMeasurement> measurements = List.of(new ClimateMeasurement());
+        when(bulkLoader.load(measurements)).thenReturn(1);
+        assertEquals(1, cmService.backfill(measurements));
+        verify(cmRepository, never()).saveAll(any());
     }
 
     @Test
@@ -205,23 +325,26 @@ class ClimateMeasurementServiceTest {
         mockMeasurements.add(new ClimateMeasurement(2L, LocalDateTime.now().minusMinutes(10), temperatureSensor, 30.0));
         mockMeasurements.add(new ClimateMeasurement(3L, LocalDateTime.now().minusMinutes(15), temperatureSensor, 40.0));
 
-        when(cmRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(eq(temperatureSensor), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockMeasurements);
+        when(cmRepository.findBucketsBySensorAndTimeStampBetween(eq(temperatureSensor), any(LocalDateTime.class), any(LocalDateTime.class), eq(3600L)))
+                .thenReturn(toBuckets(mockMeasurements));
 
         // time range and granularity
         LocalDate start = LocalDate.now().minusDays(7);
         LocalDate end = LocalDate.now();
-        int granularityInMinutes = 1; // test filtering for granularity via the dedicated test further down (tests for private methods)
+        int granularityInMinutes = 60; // bucketing itself is done by the database, see ClimateMeasurementRepositoryTest
 
         // Calling service method
         List<ClimateMeasurement> result = cmService.temperatureHistoryForUser(user, start, end, granularityInMinutes);
 
         // Verify that repository method was called with correct arguments
-        verify(cmRepository, times(1)).findAllBySensorAndTimeStampAfterAndTimeStampBefore(temperatureSensor,
-                start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        // Verify that returned measurements match mock measurements
+        verify(cmRepository, times(1)).findBucketsBySensorAndTimeStampBetween(temperatureSensor,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(), 3600L);
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+        // Verify that returned measurements match the averages of the buckets
         assertEquals(mockMeasurements.size(), result.size(), "Size not as expected.");
-        assertTrue(result.containsAll(mockMeasurements), "Result doesn't contain all expected measurements.");
+        assertEquals(mockMeasurements.stream().map(ClimateMeasurement::getMeasuredValue).toList(),
+                result.stream().map(ClimateMeasurement::getMeasuredValue).toList(), "Result doesn't contain all expected measurements.");
+        assertTrue(result.stream().allMatch(measurement -> measurement.getSensor() == temperatureSensor));
     }
 
     @Test
@@ -240,23 +363,26 @@ class ClimateMeasurementServiceTest {
         mockMeasurements.add(new ClimateMeasurement(2L, LocalDateTime.now().minusMinutes(10), humiditySensor, 30.0));
         mockMeasurements.add(new ClimateMeasurement(3L, LocalDateTime.now().minusMinutes(15), humiditySensor, 40.0));
 
-        when(cmRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(eq(humiditySensor), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockMeasurements);
+        when(cmRepository.findBucketsBySensorAndTimeStampBetween(eq(humiditySensor), any(LocalDateTime.class), any(LocalDateTime.class), eq(3600L)))
+                .thenReturn(toBuckets(mockMeasurements));
 
         // time range and granularity
         LocalDate start = LocalDate.now().minusDays(7);
         LocalDate end = LocalDate.now();
-        int granularityInMinutes = 1; // test filtering for granularity via the dedicated test further down (tests for private methods)
+        int granularityInMinutes = 60; // bucketing itself is done by the database, see ClimateMeasurementRepositoryTest
 
         // Calling service method
         List<ClimateMeasurement> result = cmService.humidityHistoryForUser(user, start, end, granularityInMinutes);
 
         // Verify that repository method was called with correct arguments
-        verify(cmRepository, times(1)).findAllBySensorAndTimeStampAfterAndTimeStampBefore(humiditySensor,
-                start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        // Verify that returned measurements match mock measurements
+        verify(cmRepository, times(1)).findBucketsBySensorAndTimeStampBetween(humiditySensor,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(), 3600L);
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+        // Verify that returned measurements match the averages of the buckets
         assertEquals(mockMeasurements.size(), result.size(), "Size not as expected.");
-        assertTrue(result.containsAll(mockMeasurements), "Result doesn't contain all expected measurements.");
+        assertEquals(mockMeasurements.stream().map(ClimateMeasurement::getMeasuredValue).toList(),
+                result.stream().map(ClimateMeasurement::getMeasuredValue).toList(), "Result doesn't contain all expected measurements.");
+        assertTrue(result.stream().allMatch(measurement -> measurement.getSensor() == humiditySensor));
     }
 
     @Test
@@ -275,23 +401,26 @@ class ClimateMeasurementServiceTest {
         mockMeasurements.add(new ClimateMeasurement(2L, LocalDateTime.now().minusMinutes(10), airQualitySensor, 30.0));
         mockMeasurements.add(new ClimateMeasurement(3L, LocalDateTime.now().minusMinutes(15), airQualitySensor, 40.0));
 
-        when(cmRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(eq(airQualitySensor), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockMeasurements);
+        when(cmRepository.findBucketsBySensorAndTimeStampBetween(eq(airQualitySensor), any(LocalDateTime.class), any(LocalDateTime.class), eq(3600L)))
+                .thenReturn(toBuckets(mockMeasurements));
 
         // time range and granularity
         LocalDate start = LocalDate.now().minusDays(7);
         LocalDate end = LocalDate.now();
-        int granularityInMinutes = 1; // test filtering for granularity via the dedicated test further down (tests for private methods)
+        int granularityInMinutes = 60; // bucketing itself is done by the database, see ClimateMeasurementRepositoryTest
 
         // Calling service method
         List<ClimateMeasurement> result = cmService.airQualityHistoryForUser(user, start, end, granularityInMinutes);
 
         // Verify that repository method was called with correct arguments
-        verify(cmRepository, times(1)).findAllBySensorAndTimeStampAfterAndTimeStampBefore(airQualitySensor,
-                start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        // Verify that returned measurements match mock measurements
+        verify(cmRepository, times(1)).findBucketsBySensorAndTimeStampBetween(airQualitySensor,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(), 3600L);
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+        // Verify that returned measurements match the averages of the buckets
         assertEquals(mockMeasurements.size(), result.size(), "Size not as expected.");
-        assertTrue(result.containsAll(mockMeasurements), "Result doesn't contain all expected measurements.");
+        assertEquals(mockMeasurements.stream().map(ClimateMeasurement::getMeasuredValue).toList(),
+                result.stream().map(ClimateMeasurement::getMeasuredValue).toList(), "Result doesn't contain all expected measurements.");
+        assertTrue(result.stream().allMatch(measurement -> measurement.getSensor() == airQualitySensor));
     }
 
 
@@ -311,23 +440,26 @@ class ClimateMeasurementServiceTest {
         mockMeasurements.add(new ClimateMeasurement(2L, LocalDateTime.now().minusMinutes(10), lightSensor, 30.0));
         mockMeasurements.add(new ClimateMeasurement(3L, LocalDateTime.now().minusMinutes(15), lightSensor, 40.0));
 
-        when(cmRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(eq(lightSensor), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockMeasurements);
+        when(cmRepository.findBucketsBySensorAndTimeStampBetween(eq(lightSensor), any(LocalDateTime.class), any(LocalDateTime.class), eq(3600L)))
+                .thenReturn(toBuckets(mockMeasurements));
 
         // time range and granularity
         LocalDate start = LocalDate.now().minusDays(7);
         LocalDate end = LocalDate.now();
-        int granularityInMinutes = 1; // test filtering for granularity via the dedicated test further down (tests for private methods)
+        int granularityInMinutes = 60; // bucketing itself is done by the database, see ClimateMeasurementRepositoryTest
 
         // Calling service method
         List<ClimateMeasurement> result = cmService.lightHistoryForUser(user, start, end, granularityInMinutes);
 
         // Verify that repository method was called with correct arguments
-        verify(cmRepository, times(1)).findAllBySensorAndTimeStampAfterAndTimeStampBefore(lightSensor,
-                start.atStartOfDay(), end.plusDays(1).atStartOfDay());
-        // Verify that returned measurements match mock measurements
+        verify(cmRepository, times(1)).findBucketsBySensorAndTimeStampBetween(lightSensor,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(), 3600L);
+        verify(cmRepository, never()).findAllBySensorAndTimeStampAfterAndTimeStampBefore(any(), any(), any());
+        // Verify that returned measurements match the averages of the buckets
         assertEquals(mockMeasurements.size(), result.size(), "Size not as expected.");
-        assertTrue(result.containsAll(mockMeasurements), "Result doesn't contain all expected measurements.");
+        assertEquals(mockMeasurements.stream().map(ClimateMeasurement::getMeasuredValue).toList(),
+                result.stream().map(ClimateMeasurement::getMeasuredValue).toList(), "Result doesn't contain all expected measurements.");
+        assertTrue(result.stream().allMatch(measurement -> measurement.getSensor() == lightSensor));
     }
 
 
@@ -405,6 +537,7 @@ class ClimateMeasurementServiceTest {
     public void testCheckLimitsWithViolations() {
         // Create TemperaDevice containing a temperature sensor
         Sensor temperatureSensor = new Sensor();
+        temperatureSensor.setId(11L);
         temperatureSensor.setSensorType(SensorType.AIR_TEMPERATURE);
 
         Limits limits = new Limits();
@@ -439,16 +572,15 @@ class ClimateMeasurementServiceTest {
         measurements.add(cmUpperViolation);
         measurements.add(cmLowerViolation);
 
-        when(temperaDeviceService.findTemperaDeviceBySensor(any())).thenReturn(device);
-        when(limitService.findLimitBySensorType(anyList(), eq(SensorType.AIR_TEMPERATURE))).thenReturn(limits);
+        when(deviceTopologyService.getTopology()).thenReturn(DeviceTopology.of(2, List.of(device)));
         when(warningService.checkWarning(any())).thenReturn(null);
 
         // When
         cmService.checkLimits(measurements);
 
         // Then
-        verify(temperaDeviceService, times(1)).findTemperaDeviceBySensor(any());
-        verify(limitService, times(2)).findLimitBySensorType(anyList(), eq(SensorType.AIR_TEMPERATURE));
+        verify(deviceTopologyService, times(1)).getTopology();
+        verifyNoInteractions(temperaDeviceService);
         verify(warningService, times(2)).checkWarning(any());
     }
 
@@ -456,6 +588,7 @@ class ClimateMeasurementServiceTest {
     public void testCheckLimitsWithoutViolations() {
         // Create TemperaDevice containing a humidity sensor
         Sensor humiditySensor = new Sensor();
+        humiditySensor.setId(12L);
         humiditySensor.setSensorType(SensorType.AIR_HUMIDITY);
 
         Limits limits = new Limits();
@@ -488,16 +621,15 @@ class ClimateMeasurementServiceTest {
         measurements.add(cmUpperViolation);
         measurements.add(cmLowerViolation);
 
-        when(temperaDeviceService.findTemperaDeviceBySensor(any())).thenReturn(device);
-        when(limitService.findLimitBySensorType(anyList(), eq(SensorType.AIR_HUMIDITY))).thenReturn(limits);
+        when(deviceTopologyService.getTopology()).thenReturn(DeviceTopology.of(2, List.of(device)));
         when(warningService.checkWarning(any())).thenReturn(null);
 
         // When
         cmService.checkLimits(measurements);
 
         // Then
-        verify(temperaDeviceService, times(1)).findTemperaDeviceBySensor(any());
-        verify(limitService, times(2)).findLimitBySensorType(anyList(), eq(SensorType.AIR_HUMIDITY));
+        verify(deviceTopologyService, times(1)).getTopology();
+        verifyNoInteractions(temperaDeviceService);
         verify(warningService, times(0)).checkWarning(any());
     }
 
@@ -516,9 +648,15 @@ class ClimateMeasurementServiceTest {
         cmService.checkLimits(List.of(cmViolation));
 
         // Then
-        verify(temperaDeviceService, never()).findTemperaDeviceBySensor(any());
-        verify(limitService, never()).findLimitBySensorType(anyList(), any());
+        verify(deviceTopologyService, never()).getTopology();
         verify(warningService, never()).checkWarning(any());
     }
 
-}
\ No newline at end of file
+
+    private static List<MeasurementBucket> toBuckets(List<ClimateMeasurement> measurements) {
+        return measurements.stream()
+                .map(measurement -> new MeasurementBucket(measurement.getTimeStamp(), measurement.getMeasuredValue(),
+                        measurement.getMeasuredValue(), measurement.getMeasuredValue()))
+                .toList();
+    }
+}
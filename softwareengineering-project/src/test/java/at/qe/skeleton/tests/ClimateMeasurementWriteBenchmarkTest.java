@@ -0,0 +1,117 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.climate.ClimateMeasurementBatchWriter;
+import at.qe.skeleton.services.climate.ClimateMeasurementBulkLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the throughput of the measurement write paths against the test database.
+ * Disabled by default, run it with: mvn test -Dtest=ClimateMeasurementWriteBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ClimateMeasurementWriteBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClimateMeasurementWriteBenchmarkTest.class);
+    private static final int ROWS = 20_000;
+    private static final int ROWS_PER_REQUEST = 4;
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private ClimateMeasurementBatchWriter batchWriter;
+
+    @Autowired
+    private ClimateMeasurementBulkLoader bulkLoader;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void deleteBenchmarkRows() {
+        jdbcTemplate.update("DELETE FROM climate_measurement WHERE time_stamp < ?", START.plusYears(1));
+    }
+
+    @Test
+    void compareWritePaths() {
+        List<ClimateMeasurement> warmUp = createMeasurements(2_000);
+        transactionTemplate.executeWithoutResult(status -> climateMeasurementRepository.saveAll(warmUp));
+        batchWriter.insertAll(createMeasurements(2_000));
+        bulkLoader.load(createMeasurements(2_000));
+        deleteBenchmarkRows();
+
+        // one transaction per MeasurementDTO, as the single measurement endpoint does
+        List<ClimateMeasurement> perRequest = createMeasurements(ROWS);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i += ROWS_PER_REQUEST) {
+            List<ClimateMeasurement> request = perRequest.subList(i, i + ROWS_PER_REQUEST);
+            transactionTemplate.executeWithoutResult(status -> climateMeasurementRepository.saveAll(request));
+        }
+        report("repository.saveAll per request", start);
+
+        List<ClimateMeasurement> persistenceContext = createMeasurements(ROWS);
+        start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> climateMeasurementRepository.saveAll(persistenceContext));
+        report("repository.saveAll per batch", start);
+
+        List<ClimateMeasurement> stateless = createMeasurements(ROWS);
+        start = System.nanoTime();
+        batchWriter.insertAll(stateless);
+        report("StatelessSession per batch", start);
+
+        List<ClimateMeasurement> bulk = createMeasurements(ROWS);
+        start = System.nanoTime();
+        bulkLoader.load(bulk);
+        report("bulk loader per batch", start);
+
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM climate_measurement WHERE time_stamp < ?",
+                Long.class, START.plusYears(1));
+        assertEquals(4L * ROWS, count);
+    }
+
+    private List<ClimateMeasurement> createMeasurements(int rows) {
+        List<Sensor> sensors = List.of(sensorRepository.findSensorById(1L), sensorRepository.findSensorById(2L),
+                sensorRepository.findSensorById(3L), sensorRepository.findSensorById(4L));
+        List<ClimateMeasurement> measurements = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            measurements.add(ClimateMeasurement.builder()
+                    .sensor(sensors.get(i % sensors.size()))
+                    .timeStamp(START.plusSeconds(i / sensors.size()))
+                    .measuredValue(i % 100)
+                    .build());
+        }
+        return measurements;
+    }
+
+    private void report(String writePath, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        logger.info("{}: {} rows in {} s = {} rows/s", writePath, ROWS, String.format("%.2f", seconds),
+                String.format("%.0f", ROWS / seconds));
+    }
+}
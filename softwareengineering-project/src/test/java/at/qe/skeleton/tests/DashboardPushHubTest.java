@@ -0,0 +1,205 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.exceptions.EntityValidationException;
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.DeviceStatus;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.model.SensorType;
+import at.qe.skeleton.model.TemperaDevice;
+import at.qe.skeleton.model.Userx;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.repositories.TemperaDeviceRepository;
+import at.qe.skeleton.repositories.UserxRepository;
+import at.qe.skeleton.services.TemperaDeviceService;
+import at.qe.skeleton.services.TopologyChangedEvent;
+import at.qe.skeleton.services.UserService;
+import at.qe.skeleton.services.climate.ClimateIndicator;
+import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.DashboardPushHub;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = {"tempera.dashboard.max-streams-per-user=2", "tempera.latest-value.cache.ttl-millis=1"})
+@AutoConfigureMockMvc
+class DashboardPushHubTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DashboardPushHub dashboardPushHub;
+
+    @Autowired
+    private ClimateMeasurementService climateMeasurementService;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private UserxRepository userxRepository;
+
+    @Autowired
+    private TemperaDeviceRepository temperaDeviceRepository;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private TemperaDeviceService temperaDeviceService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    @WithMockUser(username = "user2", authorities = "EMPLOYEE")
+    void testSavedMeasurementIsPushedToTheDashboardOfItsUser() throws Exception {
+        MvcResult result = mockMvc.perform(get("/secured/dashboard/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+
+        // sensor 1 is the temperature sensor of TemperaDevice 1 in Room1 with limits from 20 to 30
+        Sensor sensor = sensorRepository.findById(1L).orElseThrow();
+        climateMeasurementService.saveAll(List.of(ClimateMeasurement.builder()
+                .sensor(sensor).timeStamp(LocalDateTime.now().plusMinutes(1)).measuredValue(25.0).build()));
+
+        awaitTrue(() -> contentOf(response).contains("event:measurement"));
+        String content = contentOf(response);
+        assertTrue(content.contains("\"sensorType\":\"AIR_TEMPERATURE\""));
+        assertTrue(content.contains("\"text\":\"25.0 C°\""));
+        assertTrue(content.contains("\"color\":\"" + ClimateIndicator.GREEN + "\""));
+
+        // sensor 5 belongs to TemperaDevice 2 of another user
+        Sensor otherSensor = sensorRepository.findById(5L).orElseThrow();
+        climateMeasurementService.saveAll(List.of(ClimateMeasurement.builder()
+                .sensor(otherSensor).timeStamp(LocalDateTime.now().plusMinutes(1)).measuredValue(31.0).build()));
+        Thread.sleep(200);
+        assertFalse(contentOf(response).contains("31.0"));
+    }
+
+    @Test
+    @WithMockUser(username = "user2", authorities = "EMPLOYEE")
+    void testMeasurementOfAnotherInstanceIsPushedOnceItIsLoaded() throws Exception {
+        MvcResult result = mockMvc.perform(get("/secured/dashboard/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        climateMeasurementService.refreshDashboardMeasurements();
+
+        // saved without the ClimateMeasurementService, as another instance of the application would
+        Sensor sensor = sensorRepository.findById(1L).orElseThrow();
+        climateMeasurementRepository.save(ClimateMeasurement.builder()
+                .sensor(sensor).timeStamp(LocalDateTime.now().plusMinutes(5)).measuredValue(27.5).build());
+        Thread.sleep(5);
+        climateMeasurementService.refreshDashboardMeasurements();
+
+        awaitTrue(() -> contentOf(response).contains("\"text\":\"27.5 C°\""));
+    }
+
+    @Test
+    void testOldestStreamIsCompletedAboveTheLimitPerUser() {
+        SseEmitter first = dashboardPushHub.subscribe("user2");
+        SseEmitter second = dashboardPushHub.subscribe("user2");
+        int streams = dashboardPushHub.streamCount();
+
+        dashboardPushHub.subscribe("user2");
+        assertEquals(streams, dashboardPushHub.streamCount());
+        assertThrows(IllegalStateException.class, () -> first.send("test"));
+
+        // nothing changed, so the streams stay open
+        applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+        assertEquals(streams, dashboardPushHub.streamCount());
+        assertDoesNotThrow(() -> second.send("test"));
+    }
+
+    @Test
+    void testTopologyChangeOnlyCompletesTheStreamsOfChangedTemperaDevices() {
+        SseEmitter userStream = dashboardPushHub.subscribe("user2");
+        SseEmitter adminStream = dashboardPushHub.subscribe("admin");
+
+        Userx user = userxRepository.findFirstByUsername("user2");
+        user.setTemperaDevice(null);
+        userxRepository.save(user);
+        try {
+            applicationEventPublisher.publishEvent(new TopologyChangedEvent(this));
+
+            assertThrows(IllegalStateException.class, () -> userStream.send("test"));
+            assertDoesNotThrow(() -> adminStream.send("test"));
+        } finally {
+            user = userxRepository.findFirstByUsername("user2");
+            user.setTemperaDevice(temperaDeviceRepository.findById(1L).orElseThrow());
+            userxRepository.save(user);
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    @WithMockUser(username = "admin", authorities = "ADMINISTRATOR")
+    void testStreamsOfTheOwnerAreCompletedWhenTheTemperaDeviceIsReassignedOrTheUserIsDeleted() throws EntityValidationException {
+        TemperaDevice temperaDevice = temperaDeviceService.save(TemperaDevice.builder()
+                .status(DeviceStatus.ENABLED)
+                .sensors(new ArrayList<>(List.of(Sensor.builder().sensorType(SensorType.AIR_TEMPERATURE).build())))
+                .build());
+        userService.saveUser(Userx.builder().username("previousOwner").password("password").enabled(true)
+                .temperaDevice(temperaDevice).build());
+        Userx newOwner = userService.saveUser(Userx.builder().username("newOwner").password("password").enabled(true).build());
+        SseEmitter previousOwnerStream = dashboardPushHub.subscribe("previousOwner");
+        assertDoesNotThrow(() -> previousOwnerStream.send("test"));
+
+        userService.setTemperaDevice(newOwner, temperaDevice);
+        assertThrows(IllegalStateException.class, () -> previousOwnerStream.send("test"));
+
+        SseEmitter newOwnerStream = dashboardPushHub.subscribe("newOwner");
+        assertDoesNotThrow(() -> newOwnerStream.send("test"));
+        userService.deleteUser(userService.loadUser("newOwner"));
+        assertThrows(IllegalStateException.class, () -> newOwnerStream.send("test"));
+    }
+
+    @Test
+    void testUserWithoutTemperaDeviceIsNotSubscribed() {
+        int streams = dashboardPushHub.streamCount();
+        SseEmitter emitter = dashboardPushHub.subscribe("user1");
+        assertEquals(streams, dashboardPushHub.streamCount());
+        assertThrows(IllegalStateException.class, () -> emitter.send("test"));
+    }
+
+    private static String contentOf(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString(StandardCharsets.UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,154 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.*;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.DataMigrationRepository;
+import at.qe.skeleton.repositories.DeviceMeasurementRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.TemperaDeviceService;
+import at.qe.skeleton.services.climate.DeviceMeasurementService;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeviceMeasurementServiceTest {
+
+    @Autowired
+    private DeviceMeasurementService deviceMeasurementService;
+
+    @Autowired
+    private DeviceMeasurementRepository deviceMeasurementRepository;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    @Autowired
+    private TemperaDeviceService temperaDeviceService;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private DataMigrationRepository dataMigrationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    void testSaveAllCombinesOneRowPerDeviceAndTimestamp() {
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceById(1L);
+        LocalDateTime timeStamp = LocalDateTime.of(2021, 3, 1, 12, 0);
+
+        List<ClimateMeasurement> measurements = temperaDevice.getSensors().stream()
+                .map(sensor -> ClimateMeasurement.builder()
+                        .sensor(sensor)
+                        .timeStamp(timeStamp)
+                        .measuredValue(sensor.getSensorType().ordinal() + 20.5)
+                        .build())
+                .toList();
+
+        List<DeviceMeasurement> saved = deviceMeasurementService.saveAll(measurements);
+
+        assertEquals(1, saved.size());
+        DeviceMeasurement deviceMeasurement = saved.get(0);
+        assertEquals(temperaDevice, deviceMeasurement.getTemperaDevice());
+        assertEquals(20.5f, deviceMeasurement.getAirTemperature());
+        assertEquals(21.5f, deviceMeasurement.getAirHumidity());
+        assertEquals(22.5f, deviceMeasurement.getAirQuality());
+        assertEquals(23.5f, deviceMeasurement.getLightIntensity());
+
+        Sensor humiditySensor = temperaDevice.getHumiditySensor();
+        List<ClimateMeasurement> humidity = deviceMeasurementService.findSensorMeasurementsBetween(humiditySensor,
+                timeStamp.minusMinutes(1), timeStamp.plusMinutes(1));
+        assertEquals(1, humidity.size());
+        assertEquals(21.5, humidity.get(0).getMeasuredValue());
+        assertEquals(humiditySensor, humidity.get(0).getSensor());
+
+        Optional<ClimateMeasurement> newest = deviceMeasurementService
+                .findNewestBySensorAndNotOlderThan(temperaDevice.getLightSensor(), timeStamp.minusDays(1));
+        assertTrue(newest.isPresent());
+        assertEquals(23.5, newest.get().getMeasuredValue());
+        assertTrue(deviceMeasurementService
+                .findNewestBySensorAndNotOlderThan(temperaDevice.getLightSensor(), timeStamp.plusMinutes(1)).isEmpty());
+    }
+
+    @Test
+    @Transactional
+    void testSaveAllSkipsStoredTimestamps() {
+        TemperaDevice temperaDevice = temperaDeviceService.findTemperaDeviceById(1L);
+        LocalDateTime timeStamp = LocalDateTime.of(2021, 3, 2, 12, 0);
+        List<ClimateMeasurement> measurements = temperaDevice.getSensors().stream()
+                .map(sensor -> ClimateMeasurement.builder().sensor(sensor).timeStamp(timeStamp).measuredValue(20).build())
+                .toList();
+        List<ClimateMeasurement> resent = temperaDevice.getSensors().stream()
+                .map(sensor -> ClimateMeasurement.builder().sensor(sensor).timeStamp(timeStamp).measuredValue(30).build())
+                .toList();
+
+        assertEquals(1, deviceMeasurementService.saveAll(measurements).size());
+        assertTrue(deviceMeasurementService.saveAll(resent).isEmpty(), "the resent reading should be skipped");
+        assertTrue(deviceMeasurementService.saveAllMeasurements(resent).isEmpty(),
+                "the measurements of a skipped reading should not be returned");
+
+        List<ClimateMeasurement> stored = deviceMeasurementService.findSensorMeasurementsBetween(
+                temperaDevice.getTemperatureSensor(), timeStamp.minusMinutes(1), timeStamp.plusMinutes(1));
+        assertEquals(1, stored.size());
+        assertEquals(20, stored.get(0).getMeasuredValue());
+    }
+
+    @Test
+    @Transactional
+    void testMigrationOnStartupRunsOnce() {
+        ReflectionTestUtils.setField(deviceMeasurementService, "wideRows", true);
+        try {
+            deviceMeasurementService.migrateOnStartup();
+            assertTrue(dataMigrationRepository.findById("climate_measurement_to_device_measurement").isPresent());
+
+            jdbcTemplate.update("DELETE FROM device_measurement");
+            deviceMeasurementService.migrateOnStartup();
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM device_measurement", Integer.class),
+                    "the finished migration should not be repeated");
+        } finally {
+            ReflectionTestUtils.setField(deviceMeasurementService, "wideRows", false);
+        }
+    }
+
+    @Test
+    @Transactional
+    void testMigrateClimateMeasurements() {
+        LocalDate day = LocalDate.of(2024, 5, 29);
+        Sensor temperatureSensor = sensorRepository.findSensorById(1L);
+        List<ClimateMeasurement> narrowRows = climateMeasurementRepository.findAllBySensorAndTimeStampAfterAndTimeStampBefore(
+                temperatureSensor, day.atStartOfDay().minusSeconds(1), day.plusDays(1).atStartOfDay());
+        Long expectedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT DISTINCT tds.tempera_device_id, cm.time_stamp "
+                + "FROM climate_measurement cm JOIN tempera_device_sensors tds ON tds.sensors_id = cm.sensor_id "
+                + "WHERE cm.time_stamp >= ? AND cm.time_stamp < ?) d", Long.class, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+
+        int migratedRows = deviceMeasurementService.migrateClimateMeasurements(day, day);
+
+        assertEquals(expectedRows.intValue(), migratedRows);
+        assertFalse(narrowRows.isEmpty());
+        List<ClimateMeasurement> wideRows = deviceMeasurementService.findSensorMeasurementsBetween(temperatureSensor,
+                day.atStartOfDay().minusSeconds(1), day.plusDays(1).atStartOfDay());
+        assertEquals(narrowRows.size(), wideRows.size());
+        ClimateMeasurement narrow = narrowRows.get(0);
+        ClimateMeasurement wide = wideRows.stream().filter(m -> m.getTimeStamp().equals(narrow.getTimeStamp())).findFirst().orElseThrow();
+        assertEquals((float) narrow.getMeasuredValue(), (float) wide.getMeasuredValue());
+
+        // repeated runs skip the rows that were already migrated
+        assertEquals(0, deviceMeasurementService.migrateClimateMeasurements(day, day));
+        assertEquals(expectedRows.intValue(), deviceMeasurementRepository.findAll().stream()
+                .filter(m -> m.getTimeStamp().toLocalDate().equals(day)).count());
+    }
+}
@@ -0,0 +1,112 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.DeviceTopology;
+import at.qe.skeleton.model.Limits;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.model.TemperaDevice;
+import at.qe.skeleton.repositories.LimitsRepository;
+import at.qe.skeleton.repositories.RoomRepository;
+import at.qe.skeleton.services.DeviceTopologyService;
+import at.qe.skeleton.services.TemperaDeviceService;
+import at.qe.skeleton.services.TopologyChangedEvent;
+import at.qe.skeleton.services.room.LimitService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeviceTopologyServiceTest {
+
+    @Autowired
+    private DeviceTopologyService deviceTopologyService;
+
+    @Autowired
+    private TemperaDeviceService temperaDeviceService;
+
+    @Autowired
+    private LimitService limitService;
+
+    @Autowired
+    private LimitsRepository limitsRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testTopologyContainsAllSensors() {
+        DeviceTopology topology = deviceTopologyService.getTopology();
+        List<TemperaDevice> temperaDevices = temperaDeviceService.getAllTemperaDevices();
+
+        assertEquals(temperaDevices.stream().flatMap(temperaDevice -> temperaDevice.getSensors().stream())
+                .map(Sensor::getId).distinct().count(), topology.size());
+        assertSame(topology, deviceTopologyService.getTopology());
+        assertNull(topology.findBySensorId(-1L));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testSavedLimitsAreVisibleInNewVersion() {
+        DeviceTopology topology = deviceTopologyService.getTopology();
+        DeviceTopology.SensorNode sensorNode = temperaDeviceService.getAllTemperaDevices().stream()
+                .flatMap(temperaDevice -> temperaDevice.getSensors().stream())
+                .map(sensor -> topology.findBySensorId(sensor.getId()))
+                .filter(node -> node.limits() != null)
+                .findFirst()
+                .orElseThrow();
+        Limits limits = limitsRepository.findFirstByRoomAndSensorTypeIs(
+                roomRepository.findByRoomNumber(sensorNode.roomId()), sensorNode.sensorType()).orElseThrow();
+        double upperLimit = limits.getUpperLimit();
+
+        limits.setUpperLimit(upperLimit + 100);
+        limitService.saveLimit(limits);
+        try {
+            DeviceTopology changedTopology = deviceTopologyService.getTopology();
+            assertTrue(changedTopology.getVersion() > topology.getVersion());
+            assertEquals(upperLimit + 100, changedTopology.findBySensorId(sensorNode.sensorId()).limits().upperLimit());
+        } finally {
+            limits.setUpperLimit(upperLimit);
+            limitService.saveLimit(limits);
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testChangesOfOtherInstancesAreVisibleOnceTheTopologyExpired() throws InterruptedException {
+        DeviceTopology topology = deviceTopologyService.getTopology();
+        DeviceTopology.SensorNode sensorNode = temperaDeviceService.getAllTemperaDevices().stream()
+                .flatMap(temperaDevice -> temperaDevice.getSensors().stream())
+                .map(sensor -> topology.findBySensorId(sensor.getId()))
+                .filter(node -> node.limits() != null)
+                .findFirst()
+                .orElseThrow();
+        double upperLimit = sensorNode.limits().upperLimit();
+        String updateSql = "UPDATE limits SET upper_limit = ? WHERE room_number = ? AND sensor_type = ?";
+
+        // changed by another instance, no event is published on this one
+        jdbcTemplate.update(updateSql, upperLimit + 100, sensorNode.roomId(), sensorNode.sensorType().name());
+        try {
+            assertSame(topology, deviceTopologyService.getTopology());
+
+            ReflectionTestUtils.setField(deviceTopologyService, "ttlMillis", 1L);
+            Thread.sleep(5);
+            DeviceTopology expiredTopology = deviceTopologyService.getTopology();
+            assertNotSame(topology, expiredTopology);
+            assertEquals(upperLimit + 100, expiredTopology.findBySensorId(sensorNode.sensorId()).limits().upperLimit());
+        } finally {
+            ReflectionTestUtils.setField(deviceTopologyService, "ttlMillis", 30000L);
+            jdbcTemplate.update(updateSql, upperLimit, sensorNode.roomId(), sensorNode.sensorType().name());
+            deviceTopologyService.onTopologyChanged(new TopologyChangedEvent(this));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.AccessPoint;
+import at.qe.skeleton.model.TemperaDevice;
+import at.qe.skeleton.model.Userx;
+import at.qe.skeleton.model.notifications.APINotification;
+import at.qe.skeleton.model.notifications.Notification;
+import at.qe.skeleton.repositories.AccessPointRepository;
+import at.qe.skeleton.repositories.NotificationRepository;
+import at.qe.skeleton.repositories.TemperaDeviceRepository;
+import at.qe.skeleton.repositories.UserxRepository;
+import at.qe.skeleton.services.AccessPointRegistry;
+import at.qe.skeleton.services.TopologyChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the entities are detached after the repository calls, so every association outside the fetch plan stays uninitialized
+@SpringBootTest
+class FetchPlanTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserxRepository userxRepository;
+
+    @Autowired
+    private TemperaDeviceRepository temperaDeviceRepository;
+
+    @Autowired
+    private AccessPointRepository accessPointRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private AccessPointRegistry accessPointRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearCache() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testDashboardUserIsLoadedWithDeviceAndSensors() {
+        Userx user = userxRepository.findDashboardUserByUsername("user2");
+
+        // the user with device and sensors, the default project, the AccessPoint with its room and the roles
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertTrue(Hibernate.isInitialized(user.getTemperaDevice().getSensors()));
+        assertEquals(4, user.getTemperaDevice().getSensors().size());
+        assertFalse(user.getRoles().isEmpty(), "the roles should still be loaded eagerly");
+        assertFalse(Hibernate.isInitialized(user.getNotifications()), "the notifications are not part of the dashboard");
+    }
+
+    @Test
+    void testDeviceListIsLoadedWithoutQueriesPerDevice() {
+        List<TemperaDevice> temperaDevices = temperaDeviceRepository.findAllWithSensorsAndRoom();
+
+        assertEquals(1, statistics.getPrepareStatementCount(),
+                "expected the devices to be loaded with their sensors and rooms at once");
+        assertFalse(temperaDevices.isEmpty());
+        for (TemperaDevice temperaDevice : temperaDevices) {
+            assertTrue(Hibernate.isInitialized(temperaDevice.getSensors()));
+            assertTrue(Hibernate.isInitialized(temperaDevice.getAccessPoint()));
+            assertEquals("Room1", temperaDevice.getAccessPoint().getRoom().getRoomNumber());
+        }
+
+        // the users of the list are looked up at once, their default projects and roles are batch fetched
+        List<Userx> users = userxRepository.findAllWithTemperaDevice();
+
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertFalse(users.isEmpty());
+    }
+
+    @Test
+    void testAccessPointListIsLoadedWithoutQueriesPerAccessPoint() {
+        List<AccessPoint> accessPoints = accessPointRepository.findAllWithTemperaDevices();
+
+        assertEquals(1, statistics.getPrepareStatementCount(),
+                "expected the AccessPoints to be loaded with their rooms and TemperaDevices at once");
+        AccessPoint accessPoint = accessPoints.stream()
+                .filter(candidate -> candidate.getId() == 1L)
+                .findFirst().orElseThrow();
+        assertTrue(Hibernate.isInitialized(accessPoint.getTemperaDevices()));
+        assertEquals(2, accessPoint.getTemperaDevices().size());
+        assertFalse(Hibernate.isInitialized(accessPoint.getTemperaDevices().get(0).getSensors()),
+                "the sensors are not shown in the AccessPoint list");
+    }
+
+    @Test
+    void testIngestionAuthenticationOnlyQueriesStatusAndDeviceIds() {
+        accessPointRegistry.onTopologyChanged(new TopologyChangedEvent(this));
+
+        assertTrue(accessPointRegistry.find(1L).isConnected(1L));
+        assertEquals(2, statistics.getPrepareStatementCount(), "expected only the status and the TemperaDevice ids");
+
+        assertTrue(accessPointRegistry.find(1L).isEnabled());
+        assertEquals(2, statistics.getPrepareStatementCount(), "a registered AccessPoint should not be queried again");
+
+        // the TemperaDevice of a measurement with its sensors, and its AccessPoint with the room
+        statistics.clear();
+        TemperaDevice temperaDevice = temperaDeviceRepository.findTemperaDeviceById(1L);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertTrue(Hibernate.isInitialized(temperaDevice.getSensors()));
+        assertEquals(4, temperaDevice.getSensors().size());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testNotificationBellIsLoadedWithoutQueriesPerNotification() {
+        Userx user = new Userx();
+        user.setUsername("fetchPlanTestUser");
+        user.setPassword("fetchPlanTestPassword");
+        Userx savedUser = userxRepository.save(user);
+        List<Notification> savedNotifications = notificationRepository.saveAll(List.of(
+                notificationOf(savedUser), notificationOf(savedUser), notificationOf(savedUser)));
+        try {
+            clearCache();
+
+            List<Notification> notifications = notificationRepository.findAllByUser(savedUser);
+
+            // the notifications with their buttons, the user with its default project and the roles of the user
+            assertEquals(3, statistics.getPrepareStatementCount());
+            assertEquals(3, notifications.size());
+            for (Notification notification : notifications) {
+                assertTrue(Hibernate.isInitialized(notification.getButtons()));
+                assertEquals(1, notification.getButtons().size());
+            }
+
+            statistics.clear();
+            assertEquals(3, notificationRepository.countByUser(savedUser));
+            assertEquals(1, statistics.getPrepareStatementCount(), "the notifications should be counted in the database");
+        } finally {
+            notificationRepository.deleteAll(savedNotifications);
+            userxRepository.delete(savedUser);
+        }
+    }
+
+    private static Notification notificationOf(Userx user) {
+        APINotification notification = new APINotification();
+        notification.setUser(user);
+        return notification;
+    }
+}
@@ -0,0 +1,64 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.exceptions.EntityStillInUseException;
+import at.qe.skeleton.model.AccessPoint;
+import at.qe.skeleton.model.DeviceStatus;
+import at.qe.skeleton.repositories.AccessPointRepository;
+import at.qe.skeleton.services.AccessPointService;
+import at.qe.skeleton.services.HeartbeatTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HeartbeatTrackerTest {
+
+    @Autowired
+    private HeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private AccessPointService accessPointService;
+
+    @Autowired
+    private AccessPointRepository accessPointRepository;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testHeartbeatsAreFlushedAndExpire() throws EntityStillInUseException, InterruptedException {
+        LocalDateTime previousTime = LocalDateTime.of(2024, 3, 1, 0, 0);
+        AccessPoint accessPoint = accessPointService.save(AccessPoint.builder()
+                .status(DeviceStatus.ENABLED).lastConnection(previousTime).build());
+        Object timeoutSeconds = ReflectionTestUtils.getField(heartbeatTracker, "timeoutSeconds");
+        ReflectionTestUtils.setField(heartbeatTracker, "timeoutSeconds", 1L);
+        try {
+            assertTrue(heartbeatTracker.recordContact(accessPoint.getId()), "first contact should connect the AP");
+            LocalDateTime connectedAt = accessPointRepository.findAccessPointById(accessPoint.getId()).getLastConnection();
+            assertTrue(connectedAt.isAfter(previousTime));
+
+            Thread.sleep(50);
+            assertFalse(heartbeatTracker.recordContact(accessPoint.getId()), "AP is already connected");
+            assertEquals(connectedAt, accessPointRepository.findAccessPointById(accessPoint.getId()).getLastConnection(),
+                    "contacts of a connected AP should not be written immediately");
+
+            heartbeatTracker.flush();
+            assertTrue(accessPointRepository.findAccessPointById(accessPoint.getId()).getLastConnection().isAfter(connectedAt),
+                    "flush should write the last contact");
+
+            AccessPoint disconnected = accessPointRepository.findAccessPointById(accessPoint.getId());
+            for (int i = 0; i < 50 && disconnected.isConnected(); i++) {
+                Thread.sleep(100);
+                disconnected = accessPointRepository.findAccessPointById(accessPoint.getId());
+            }
+            assertFalse(disconnected.isConnected(), "AP should be disconnected once the timeout passed");
+        } finally {
+            ReflectionTestUtils.setField(heartbeatTracker, "timeoutSeconds", timeoutSeconds);
+            accessPointService.delete(accessPointRepository.findAccessPointById(accessPoint.getId()));
+        }
+    }
+}
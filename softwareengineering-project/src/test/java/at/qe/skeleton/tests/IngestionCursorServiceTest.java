@@ -0,0 +1,227 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.exceptions.InvalidSequenceException;
+import at.qe.skeleton.exceptions.SequenceOutOfWindowException;
+import at.qe.skeleton.model.IngestionStream;
+import at.qe.skeleton.model.SequenceWindow;
+import at.qe.skeleton.repositories.IngestionCursorRepository;
+import at.qe.skeleton.services.IngestionCursorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IngestionCursorServiceTest {
+
+    private static final Long ACCESS_POINT_ID = 987654L;
+
+    @Autowired
+    private IngestionCursorService ingestionCursorService;
+
+    @Autowired
+    private IngestionCursorRepository ingestionCursorRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        ingestionCursorService.forget(ACCESS_POINT_ID);
+    }
+
+    @Test
+    void testRetriedItemsAreNotWrittenAgain() {
+        List<Set<Integer>> written = new ArrayList<>();
+
+        IngestionCursorService.Acknowledgement first = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(1L, 2L), written::add);
+        IngestionCursorService.Acknowledgement retry = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(2L, 3L), written::add);
+
+        assertEquals(List.of(Set.of(0, 1), Set.of(1)), written);
+        assertEquals(2, first.acknowledgedSequence());
+        assertTrue(retry.isDuplicate(0));
+        assertFalse(retry.isDuplicate(1));
+        assertEquals(3, retry.acknowledgedSequence());
+    }
+
+    @Test
+    void testStreamsHaveSeparateCursors() {
+        List<Set<Integer>> written = new ArrayList<>();
+
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(1L), written::add);
+        IngestionCursorService.Acknowledgement timeRecords = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.TIME_RECORDS, List.of(1L), written::add);
+
+        assertEquals(List.of(Set.of(0), Set.of(0)), written);
+        assertFalse(timeRecords.isDuplicate(0));
+    }
+
+    @Test
+    void testCursorIsPersisted() {
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(1L, 2L, 4L), indexes -> {
+        });
+        // forget the cursors kept in memory, as after a restart
+        ((Map<?, ?>) ReflectionTestUtils.getField(ingestionCursorService, "cursors")).clear();
+
+        List<Set<Integer>> written = new ArrayList<>();
+        IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(2L, 3L, 4L), written::add);
+
+        assertEquals(List.of(Set.of(1)), written);
+        assertEquals(4, acknowledgement.acknowledgedSequence());
+    }
+
+    @Test
+    void testFailedWriteIsNotAcknowledged() {
+        assertThrows(IllegalStateException.class, () -> ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(1L), indexes -> {
+                    throw new IllegalStateException("write failed");
+                }));
+
+        List<Set<Integer>> written = new ArrayList<>();
+        IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(1L), written::add);
+
+        assertEquals(List.of(Set.of(0)), written);
+        assertEquals(1, acknowledgement.acknowledgedSequence());
+    }
+
+    @Test
+    void testRetriesOnSeveralInstancesAreWrittenOnce() throws Exception {
+        // a second instance of the application, sharing only the database
+        IngestionCursorService otherInstance = new IngestionCursorService();
+        ReflectionTestUtils.setField(otherInstance, "ingestionCursorRepository", ingestionCursorRepository);
+        ReflectionTestUtils.setField(otherInstance, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(otherInstance, "transactionManager", transactionManager);
+        otherInstance.init();
+
+        List<Long> written = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long sequence = 1; sequence <= 20; sequence++) {
+                List<Long> sequences = List.of(sequence);
+                for (IngestionCursorService instance : List.of(ingestionCursorService, otherInstance)) {
+                    futures.add(executor.submit(() -> instance.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS,
+                            sequences, indexes -> written.add(sequences.get(0)))));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20, written.size(), "every sequence should be written by exactly one instance");
+        assertEquals(20, Set.copyOf(written).size());
+    }
+
+    @Test
+    void testResetStartsTheSequencesOver() {
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(1L, 2L, 3L), indexes -> {
+        });
+        assertTrue(ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(1L),
+                indexes -> fail("sequence 1 was received before")).isDuplicate(0));
+
+        ingestionCursorService.reset(ACCESS_POINT_ID);
+
+        List<Set<Integer>> written = new ArrayList<>();
+        IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(1L), written::add);
+        assertEquals(List.of(Set.of(0)), written);
+        assertEquals(1, acknowledgement.acknowledgedSequence());
+    }
+
+    @Test
+    void testItemsWithoutSequenceAreAlwaysWritten() {
+        List<Set<Integer>> written = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        sequences.add(null);
+
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, sequences, written::add);
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, sequences, written::add);
+
+        assertEquals(List.of(Set.of(0), Set.of(0)), written);
+    }
+
+    @Test
+    void testSequenceWindowOutOfOrder() {
+        SequenceWindow window = SequenceWindow.empty().add(3).add(2);
+        assertEquals(0, window.highWaterMark());
+        assertTrue(window.contains(2));
+        assertTrue(window.contains(3));
+        assertFalse(window.contains(1));
+
+        window = window.add(1);
+        assertEquals(3, window.highWaterMark());
+        assertEquals(0, window.received());
+    }
+
+    @Test
+    void testSequenceWindowDoesNotMovePastGaps() {
+        SequenceWindow window = SequenceWindow.empty().add(1).add(3);
+        long beyond = 2 + SequenceWindow.SIZE;
+        assertTrue(window.fits(beyond - 1));
+        assertFalse(window.fits(beyond));
+        assertThrows(IllegalArgumentException.class, () -> SequenceWindow.empty().add(1).add(3).add(beyond));
+
+        window = window.add(beyond - 1);
+        assertFalse(window.contains(2), "the gap stays open");
+        assertEquals(1, window.highWaterMark());
+        window = window.add(2);
+        assertEquals(3, window.highWaterMark());
+        assertTrue(window.fits(beyond));
+    }
+
+    @Test
+    void testSequencesBeyondTheWindowAreRejected() {
+        ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(1L), indexes -> {
+        });
+
+        List<Set<Integer>> written = new ArrayList<>();
+        long beyond = 2 + SequenceWindow.SIZE;
+        SequenceOutOfWindowException e = assertThrows(SequenceOutOfWindowException.class,
+                () -> ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS,
+                        List.of(3L, beyond), written::add));
+        assertEquals(1, e.getAcknowledgedSequence());
+        assertTrue(written.isEmpty(), "nothing of the rejected items should be written");
+
+        // the AccessPoint resends in order from the acknowledged sequence on
+        IngestionCursorService.Acknowledgement acknowledgement = ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(2L, 3L), written::add);
+        assertEquals(List.of(Set.of(0, 1)), written);
+        assertEquals(3, acknowledgement.acknowledgedSequence());
+        assertFalse(ingestionCursorService.ingest(ACCESS_POINT_ID, IngestionStream.MEASUREMENTS, List.of(beyond),
+                written::add).isDuplicate(0));
+    }
+
+    @Test
+    void testNonPositiveSequencesAreInvalid() {
+        List<Set<Integer>> written = new ArrayList<>();
+        assertThrows(InvalidSequenceException.class, () -> ingestionCursorService.ingest(ACCESS_POINT_ID,
+                IngestionStream.MEASUREMENTS, List.of(1L, 0L), written::add));
+        assertThrows(InvalidSequenceException.class, () -> IngestionCursorService.checkSequences(List.of(-1L)));
+        assertTrue(written.isEmpty());
+        IngestionCursorService.checkSequences(Collections.singletonList(null));
+    }
+}
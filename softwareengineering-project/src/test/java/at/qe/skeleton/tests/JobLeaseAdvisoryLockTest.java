@@ -0,0 +1,130 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.services.JobLeaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the PostgreSQL path of the {@link JobLeaseManager}, which holds the leases as advisory locks on one connection.
+ */
+class JobLeaseAdvisoryLockTest {
+
+    private static final String LOCK = "SELECT pg_try_advisory_lock(?)";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+    private static final String UNLOCK_ALL = "SELECT pg_advisory_unlock_all()";
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSource dataSource;
+    private Connection connection;
+    private PreparedStatement lockStatement;
+    private PreparedStatement unlockStatement;
+    private Statement statement;
+    private ResultSet resultSet;
+
+    private JobLeaseManager jobLeaseManager;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        dataSource = Mockito.mock(DataSource.class);
+        connection = Mockito.mock(Connection.class);
+        lockStatement = Mockito.mock(PreparedStatement.class);
+        unlockStatement = Mockito.mock(PreparedStatement.class);
+        statement = Mockito.mock(Statement.class);
+        resultSet = Mockito.mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(LOCK)).thenReturn(lockStatement);
+        when(connection.prepareStatement(UNLOCK)).thenReturn(unlockStatement);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(lockStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+
+        jobLeaseManager = new JobLeaseManager();
+        ReflectionTestUtils.setField(jobLeaseManager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(jobLeaseManager, "dataSource", dataSource);
+        ReflectionTestUtils.setField(jobLeaseManager, "nodeId", "node-a");
+        ReflectionTestUtils.setField(jobLeaseManager, "leaseSeconds", 30L);
+        ReflectionTestUtils.setField(jobLeaseManager, "postgres", Boolean.TRUE);
+    }
+
+    @Test
+    void testLocksOfAllJobsShareOneConnection() throws SQLException {
+        assertTrue(jobLeaseManager.tryAcquire("job-a"));
+        assertTrue(jobLeaseManager.tryAcquire("job-b"));
+        assertTrue(jobLeaseManager.tryAcquire("job-a"), "the holder should get its lock again");
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection).setAutoCommit(true);
+        verify(lockStatement, times(3)).executeQuery();
+        // the reentrant lock taken again for job-a is released, so one lock per job is held
+        verify(unlockStatement, times(1)).execute();
+        verify(connection, never()).close();
+        verify(jdbcTemplate, atLeastOnce()).update(eq("INSERT INTO job_lease (name, owner, lease_until, acquired_at) VALUES (?, ?, ?, ?)"),
+                eq("job-a"), eq("node-a"), any(Timestamp.class), any(Timestamp.class));
+    }
+
+    @Test
+    void testLockHeldByAnotherInstanceIsNotAcquired() throws SQLException {
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        assertFalse(jobLeaseManager.tryAcquire("job-a"));
+
+        verifyNoInteractions(jdbcTemplate);
+        verify(unlockStatement, never()).execute();
+    }
+
+    @Test
+    void testLostConnectionDropsTheLeases() throws SQLException {
+        assertTrue(jobLeaseManager.tryAcquire("job-a"));
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        jobLeaseManager.renewLeases();
+
+        verify(statement).execute(UNLOCK_ALL);
+        verify(connection).close();
+        verify(jdbcTemplate, never()).update(eq("UPDATE job_lease SET lease_until = ? WHERE name = ? AND owner = ?"),
+                any(Timestamp.class), eq("job-a"), eq("node-a"));
+
+        // the next attempt opens a new connection
+        when(connection.isValid(anyInt())).thenReturn(true);
+        assertTrue(jobLeaseManager.tryAcquire("job-a"));
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    void testFailedLockClosesTheConnection() throws SQLException {
+        when(lockStatement.executeQuery()).thenThrow(new SQLException("connection reset"));
+
+        assertFalse(jobLeaseManager.tryAcquire("job-a"));
+
+        verify(connection).close();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testShutdownReleasesTheLocks() throws SQLException {
+        assertTrue(jobLeaseManager.tryAcquire("job-a"));
+
+        jobLeaseManager.shutdown();
+
+        verify(jdbcTemplate).update(eq("UPDATE job_lease SET lease_until = ? WHERE owner = ?"), any(Timestamp.class), eq("node-a"));
+        verify(statement).execute(UNLOCK_ALL);
+        verify(connection).close();
+    }
+}
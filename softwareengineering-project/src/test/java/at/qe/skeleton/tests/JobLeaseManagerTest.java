@@ -0,0 +1,79 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.services.JobLeaseEndpoint;
+import at.qe.skeleton.services.JobLeaseManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JobLeaseManagerTest {
+
+    @Autowired
+    private JobLeaseManager jobLeaseManager;
+
+    @Autowired
+    private JobLeaseEndpoint jobLeaseEndpoint;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLeaseIsKeptAndRenewedByItsOwner() {
+        assertTrue(jobLeaseManager.tryAcquire("test-own-job"));
+        LocalDateTime leaseUntil = leaseOf("test-own-job").leaseUntil();
+        assertTrue(leaseUntil.isAfter(LocalDateTime.now()));
+
+        assertTrue(jobLeaseManager.tryAcquire("test-own-job"), "the owner should get its lease again");
+        jobLeaseManager.renewLeases();
+        JobLeaseManager.Lease lease = leaseOf("test-own-job");
+        assertEquals(jobLeaseManager.getNodeId(), lease.owner());
+        assertTrue(lease.heldByThisNode());
+        assertFalse(lease.leaseUntil().isBefore(leaseUntil));
+    }
+
+    @Test
+    void testLeaseOfAnotherNodeIsOnlyTakenOverOnceExpired() {
+        jdbcTemplate.update("INSERT INTO job_lease (name, owner, lease_until, acquired_at) VALUES (?, ?, ?, ?)",
+                "test-other-job", "other-node", Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)),
+                Timestamp.valueOf(LocalDateTime.now()));
+        assertFalse(jobLeaseManager.tryAcquire("test-other-job"));
+        assertEquals("other-node", leaseOf("test-other-job").owner());
+
+        jdbcTemplate.update("UPDATE job_lease SET lease_until = ? WHERE name = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), "test-other-job");
+        assertTrue(jobLeaseManager.tryAcquire("test-other-job"), "an expired lease should be taken over");
+        assertEquals(jobLeaseManager.getNodeId(), leaseOf("test-other-job").owner());
+    }
+
+    @Test
+    void testLostLeaseIsDroppedOnRenewal() {
+        assertTrue(jobLeaseManager.tryAcquire("test-lost-job"));
+        jdbcTemplate.update("UPDATE job_lease SET owner = ? WHERE name = ?", "other-node", "test-lost-job");
+
+        jobLeaseManager.renewLeases();
+        assertFalse(leaseOf("test-lost-job").heldByThisNode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEndpointShowsLeases() {
+        assertTrue(jobLeaseManager.tryAcquire("test-endpoint-job"));
+        Map<String, Object> leases = jobLeaseEndpoint.leases();
+        assertEquals(jobLeaseManager.getNodeId(), leases.get("node"));
+        assertTrue(((List<JobLeaseManager.Lease>) leases.get("leases")).stream()
+                .anyMatch(lease -> lease.name().equals("test-endpoint-job") && lease.heldByThisNode()));
+    }
+
+    private JobLeaseManager.Lease leaseOf(String job) {
+        return jobLeaseManager.findLeases().stream().filter(lease -> lease.name().equals(job)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,91 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.services.climate.LatestMeasurementCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class LatestMeasurementCacheTest {
+
+    @Autowired
+    private LatestMeasurementCache cache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testLoaderIsOnlyCalledOnce() {
+        Sensor sensor = sensor(9001L);
+        LocalDateTime now = LocalDateTime.now();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<ClimateMeasurement>> loader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(new ClimateMeasurement(1L, now.minusMinutes(2), sensor, 21.5));
+        };
+        double hits = meterRegistry.counter("tempera.latest-value.cache", "result", "hit").count();
+
+        assertEquals(Optional.of(21.5), cache.findNewestValue(sensor, now.minusDays(1), loader));
+        assertEquals(Optional.of(21.5), cache.findNewestValue(sensor, now.minusDays(1), loader));
+        assertEquals(Optional.empty(), cache.findNewestValue(sensor, now.minusMinutes(1), loader));
+
+        assertEquals(1, loads.get());
+        assertEquals(hits + 2, meterRegistry.counter("tempera.latest-value.cache", "result", "hit").count());
+    }
+
+    @Test
+    void testUpdateKeepsNewestMeasurement() {
+        Sensor sensor = sensor(9002L);
+        LocalDateTime now = LocalDateTime.now();
+        Supplier<Optional<ClimateMeasurement>> noMeasurement = Optional::empty;
+
+        assertEquals(Optional.empty(), cache.findNewestValue(sensor, now.minusDays(1), noMeasurement));
+
+        cache.update(List.of(new ClimateMeasurement(null, now.minusMinutes(5), sensor, 40.0),
+                new ClimateMeasurement(null, now.minusMinutes(1), sensor, 42.0)));
+        cache.update(List.of(new ClimateMeasurement(null, now.minusHours(3), sensor, 10.0)));
+        assertEquals(Optional.of(42.0), cache.findNewestValue(sensor, now.minusDays(1),
+                () -> fail("cached sensor must not be loaded")));
+
+        cache.evict(sensor);
+        assertEquals(Optional.empty(), cache.findNewestValue(sensor, now.minusDays(1), noMeasurement));
+    }
+
+    private static Sensor sensor(Long id) {
+        Sensor sensor = new Sensor();
+        sensor.setId(id);
+        return sensor;
+    }
+
+    @Test
+    void testExpiredEntryIsLoadedAgain() throws InterruptedException {
+        Sensor sensor = sensor(9003L);
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(Optional.of(20.0), cache.findNewestValue(sensor, now.minusDays(1),
+                () -> Optional.of(new ClimateMeasurement(1L, now.minusMinutes(3), sensor, 20.0))));
+
+        ReflectionTestUtils.setField(cache, "ttlMillis", 1L);
+        try {
+            Thread.sleep(5);
+            // saved by another instance of the application, so the write path of this cache did not see it
+            assertEquals(Optional.of(23.0), cache.findNewestValue(sensor, now.minusDays(1),
+                    () -> Optional.of(new ClimateMeasurement(2L, now.minusMinutes(1), sensor, 23.0))));
+        } finally {
+            ReflectionTestUtils.setField(cache, "ttlMillis", 30000L);
+        }
+        assertEquals(Optional.of(23.0), cache.findNewestValue(sensor, now.minusDays(1),
+                () -> fail("entry must not be loaded again before it expires")));
+    }
+}
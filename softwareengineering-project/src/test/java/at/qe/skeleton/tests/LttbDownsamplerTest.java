@@ -0,0 +1,58 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.services.climate.LttbDownsampler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTest {
+
+    @Test
+    void testShortSeriesIsKept() {
+        long[] x = {1, 2, 3, 4};
+        double[] y = {5, 6, 7, 8};
+        assertArrayEquals(new int[]{0, 1, 2, 3}, LttbDownsampler.downsample(x, y, 4, 10));
+        assertArrayEquals(new int[]{0, 1, 2}, LttbDownsampler.downsample(x, y, 3, 2));
+        assertEquals(0, LttbDownsampler.downsample(x, y, 0, 10).length);
+    }
+
+    @Test
+    void testDownsampleKeepsEndpointsAndSpikes() {
+        int length = 10_000;
+        long[] x = new long[length];
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = 1_700_000_000_000L + i * 60_000L;
+            y[i] = 21.0 + Math.sin(i / 500.0);
+        }
+        y[4321] = 35.0;
+        y[7777] = 5.0;
+
+        int[] kept = LttbDownsampler.downsample(x, y, length, 100);
+
+        assertEquals(100, kept.length);
+        assertEquals(0, kept[0]);
+        assertEquals(length - 1, kept[99]);
+        for (int i = 1; i < kept.length; i++) {
+            assertTrue(kept[i] > kept[i - 1], "indices must be ascending");
+        }
+        assertTrue(Arrays.stream(kept).anyMatch(index -> index == 4321), "upper spike was dropped");
+        assertTrue(Arrays.stream(kept).anyMatch(index -> index == 7777), "lower spike was dropped");
+    }
+
+    @Test
+    void testLengthLimitsSeries() {
+        long[] x = new long[1000];
+        double[] y = new double[1000];
+        for (int i = 0; i < 500; i++) {
+            x[i] = i;
+            y[i] = i % 7;
+        }
+        int[] kept = LttbDownsampler.downsample(x, y, 500, 50);
+        assertEquals(50, kept.length);
+        assertEquals(499, kept[49]);
+        assertThrows(IllegalArgumentException.class, () -> LttbDownsampler.downsample(x, y, 2000, 50));
+    }
+}
@@ -0,0 +1,98 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.SensorType;
+import at.qe.skeleton.services.climate.MeasurementExportService;
+import at.qe.skeleton.services.climate.MeasurementExportService.ExportFilter;
+import at.qe.skeleton.services.climate.MeasurementExportService.ExportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MeasurementExportServiceTest {
+
+    @Autowired
+    private MeasurementExportService measurementExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testCsvExportOfDeviceAndSensorType() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long rows = measurementExportService.export(new ExportFilter(SensorType.AIR_TEMPERATURE, 2L, null, null, null),
+                ExportFormat.CSV, false, outputStream);
+
+        List<String> lines = outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+        Integer expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM climate_measurement WHERE sensor_id = 5",
+                Integer.class);
+        assertEquals(expected.longValue(), rows);
+        assertEquals(expected + 1, lines.size());
+        assertEquals("timestamp,temperaDeviceId,roomNumber,sensorType,value", lines.get(0));
+        assertTrue(lines.stream().skip(1).allMatch(line -> line.contains(",2,Room1,AIR_TEMPERATURE,")));
+        assertTrue(lines.contains("2024-05-29T14:45,2,Room1,AIR_TEMPERATURE,26.0"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testGzippedNdjsonExportOfRoomAndTimeRange() throws IOException {
+        LocalDateTime from = LocalDateTime.of(2024, 5, 29, 14, 45);
+        LocalDateTime to = LocalDateTime.of(2024, 5, 29, 14, 47);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long rows = measurementExportService.export(new ExportFilter(null, null, "Room1", from, to),
+                ExportFormat.NDJSON, true, outputStream);
+
+        String ndjson;
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ndjson = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = ndjson.lines().toList();
+        Integer expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM climate_measurement cm "
+                + "JOIN tempera_device_sensors tds ON tds.sensors_id = cm.sensor_id "
+                + "WHERE tds.tempera_device_id IN (1, 2) AND cm.time_stamp >= ? AND cm.time_stamp < ?",
+                Integer.class, from, to);
+        assertTrue(rows > 0);
+        assertEquals(expected.longValue(), rows);
+        assertEquals(expected, lines.size());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        LocalDateTime previous = from;
+        for (String line : lines) {
+            JsonNode row = objectMapper.readTree(line);
+            LocalDateTime timeStamp = LocalDateTime.parse(row.get("timestamp").asText());
+            assertEquals("Room1", row.get("roomNumber").asText());
+            assertFalse(timeStamp.isBefore(previous), "rows should be sorted by timestamp");
+            assertTrue(timeStamp.isBefore(to));
+            previous = timeStamp;
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testExportOfUnknownRoomIsEmpty() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long rows = measurementExportService.export(new ExportFilter(null, null, "NoSuchRoom", null, null),
+                ExportFormat.NDJSON, false, outputStream);
+
+        assertEquals(0, rows);
+        assertEquals(0, outputStream.size());
+    }
+}
@@ -0,0 +1,95 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.rest.converter.MeasurementFrameHttpMessageConverter;
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeasurementFrameTest {
+
+    private final MeasurementFrameHttpMessageConverter converter = new MeasurementFrameHttpMessageConverter();
+
+    @Test
+    void testFrameRoundTrip() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 250_000_000);
+        List<MeasurementDTO> measurementDTOs = List.of(
+                new MeasurementDTO(41L, timestamp, 3L, 21.5f, 45.0f, 12.0f, 300.0f),
+                new MeasurementDTO(42L, timestamp.plusSeconds(30), 3L, 21.6f, 45.5f, 12.5f, 310.0f),
+                new MeasurementDTO(null, timestamp.minusSeconds(5), 4L, -3.0f, 80.0f, 0.0f, 0.5f));
+
+        byte[] bytes = MeasurementFrame.write(measurementDTOs);
+        MeasurementFrame frame = MeasurementFrame.read(ByteBuffer.wrap(bytes));
+
+        assertEquals(MeasurementFrame.HEADER_SIZE + 3 * MeasurementFrame.RECORD_SIZE, bytes.length);
+        assertEquals(3, frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            MeasurementDTO measurementDTO = measurementDTOs.get(i);
+            assertEquals(measurementDTO.id(), frame.id(i));
+            assertEquals(measurementDTO.timestamp(), frame.timestamp(i));
+            assertEquals(measurementDTO.temperaDeviceId(), frame.temperaDeviceId(i));
+            assertEquals(measurementDTO.airTemperature(), frame.airTemperature(i));
+            assertEquals(measurementDTO.airHumidity(), frame.airHumidity(i));
+            assertEquals(measurementDTO.airQuality(), frame.airQuality(i));
+            assertEquals(measurementDTO.lightIntensity(), frame.lightIntensity(i));
+        }
+    }
+
+    @Test
+    void testConverterReadsOnlyFrames() throws IOException {
+        byte[] bytes = MeasurementFrame.write(List.of(new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0)));
+
+        assertTrue(converter.canRead(MeasurementFrame.class, MeasurementFrame.MEDIA_TYPE));
+        assertFalse(converter.canRead(MeasurementFrame.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(MeasurementFrame.class, MeasurementFrame.MEDIA_TYPE));
+        assertEquals(1, converter.read(MeasurementFrame.class, new MockHttpInputMessage(bytes)).size());
+    }
+
+    @Test
+    void testConverterRejectsInvalidFrames() {
+        byte[] bytes = MeasurementFrame.write(List.of(new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0)));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        byte[] wrongVersion = bytes.clone();
+        wrongVersion[0] = 2;
+
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(MeasurementFrame.class, new MockHttpInputMessage(truncated)));
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(MeasurementFrame.class, new MockHttpInputMessage(wrongVersion)));
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(MeasurementFrame.class, new MockHttpInputMessage(new byte[0])));
+    }
+
+    @Test
+    void testConverterRejectsFramesAboveTheMaximumSize() throws IOException {
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0),
+                new MeasurementDTO(2L, LocalDateTime.now(), 1L, 0, 0, 0, 0));
+        byte[] bytes = MeasurementFrame.write(measurementDTOs);
+        MeasurementFrameHttpMessageConverter limitedConverter = new MeasurementFrameHttpMessageConverter();
+        ReflectionTestUtils.setField(limitedConverter, "maxFrameBytes", MeasurementFrame.HEADER_SIZE + MeasurementFrame.RECORD_SIZE);
+
+        ResponseStatusException tooLarge = assertThrows(ResponseStatusException.class,
+                () -> limitedConverter.read(MeasurementFrame.class, new MockHttpInputMessage(bytes)));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getStatusCode());
+
+        MockHttpInputMessage announcedTooLarge = new MockHttpInputMessage(new byte[0]);
+        announcedTooLarge.getHeaders().setContentLength(bytes.length);
+        assertThrows(ResponseStatusException.class, () -> limitedConverter.read(MeasurementFrame.class, announcedTooLarge));
+
+        byte[] oneRecord = MeasurementFrame.write(measurementDTOs.subList(0, 1));
+        assertEquals(1, limitedConverter.read(MeasurementFrame.class, new MockHttpInputMessage(oneRecord)).size());
+    }
+}
@@ -0,0 +1,133 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.mapper.MeasurementMapper;
+import at.qe.skeleton.services.climate.AcknowledgedMeasurementWriter;
+import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.MeasurementDeadLetterLog;
+import at.qe.skeleton.services.climate.MeasurementIngestionQueue;
+import at.qe.skeleton.services.climate.MeasurementWriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "tempera.measurements.ingestion.queue-capacity=2",
+        "tempera.measurements.ingestion.writer-threads=1"
+})
+class MeasurementIngestionQueueTest {
+
+    @Autowired
+    private MeasurementIngestionQueue measurementIngestionQueue;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AcknowledgedMeasurementWriter acknowledgedMeasurementWriter;
+
+    @Autowired
+    private MeasurementMapper measurementMapper;
+
+    @MockBean
+    private ClimateMeasurementService climateMeasurementService;
+
+    @MockBean
+    private MeasurementWriteAheadLog measurementWriteAheadLog;
+
+    @MockBean
+    private MeasurementDeadLetterLog measurementDeadLetterLog;
+
+    @Test
+    void testQueuedMeasurementsAreSavedAndChecked() {
+        List<ClimateMeasurement> climateMeasurements = List.of(createMeasurement(), createMeasurement());
+
+        assertTrue(measurementIngestionQueue.offer(1L, createMeasurementDTO(21.0f), climateMeasurements));
+
+        verify(climateMeasurementService, timeout(5000)).saveAll(climateMeasurements);
+        verify(climateMeasurementService, timeout(5000)).checkLimits(climateMeasurements);
+    }
+
+    @Test
+    void testOfferIsRejectedWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        when(climateMeasurementService.saveAll(any())).thenAnswer(invocation -> {
+            writerBlocked.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+
+        try {
+            // the first offer is taken by the writer, which then blocks
+            assertTrue(measurementIngestionQueue.offer(1L, createMeasurementDTO(21.0f), List.of(createMeasurement())));
+            assertTrue(writerBlocked.await(5, TimeUnit.SECONDS));
+
+            assertTrue(measurementIngestionQueue.offer(1L, createMeasurementDTO(21.0f), List.of(createMeasurement())));
+            assertTrue(measurementIngestionQueue.offer(1L, createMeasurementDTO(21.0f), List.of(createMeasurement())));
+            assertFalse(measurementIngestionQueue.offer(1L, createMeasurementDTO(21.0f), List.of(createMeasurement())));
+            assertEquals(2, meterRegistry.get("tempera.ingestion.queue.depth").gauge().value());
+        } finally {
+            releaseWriter.countDown();
+        }
+
+        verify(climateMeasurementService, timeout(5000).times(2)).saveAll(any());
+        assertTrue(meterRegistry.get("tempera.ingestion.measurements").tag("result", "rejected").counter().count() >= 1);
+    }
+
+    @Test
+    void testMeasurementsAreKeptInTheWriteAheadLogDuringAnOutage() {
+        MeasurementDTO measurementDTO = createMeasurementDTO(21.0f);
+        when(climateMeasurementService.saveAll(any())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        when(measurementWriteAheadLog.append(any(), any())).thenReturn(true);
+
+        assertTrue(measurementIngestionQueue.offer(1L, measurementDTO, List.of(createMeasurement())));
+
+        verify(measurementWriteAheadLog, timeout(5000)).append(1L, List.of(measurementDTO));
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    void testFailingMeasurementDoesNotDropTheOthers() {
+        MeasurementDTO valid = createMeasurementDTO(21.0f);
+        MeasurementDTO invalid = createMeasurementDTO(-1.0f);
+        List<ClimateMeasurement> validMeasurements = measurementMapper.mapFrom(valid);
+        when(climateMeasurementService.saveAll(argThat(measurements -> measurements != null
+                && measurements.stream().anyMatch(measurement -> measurement.getMeasuredValue() < 0))))
+                .thenThrow(new DataIntegrityViolationException("Constraint violated"));
+
+        List<List<ClimateMeasurement>> savedMeasurements = acknowledgedMeasurementWriter.write(1L, List.of(valid, invalid),
+                List.of(validMeasurements, measurementMapper.mapFrom(invalid)));
+
+        assertEquals(1, savedMeasurements.size());
+        assertEquals(21.0, savedMeasurements.get(0).get(0).getMeasuredValue());
+        verify(measurementDeadLetterLog).append(eq(1L), eq(List.of(invalid)), any(DataIntegrityViolationException.class));
+    }
+
+    private MeasurementDTO createMeasurementDTO(float value) {
+        // without a sequence number, so the measurement is never a duplicate
+        return new MeasurementDTO(null, LocalDateTime.now(), 1L, value, value, value, value);
+    }
+
+    private ClimateMeasurement createMeasurement() {
+        ClimateMeasurement climateMeasurement = new ClimateMeasurement();
+        climateMeasurement.setTimeStamp(LocalDateTime.now());
+        return climateMeasurement;
+    }
+}
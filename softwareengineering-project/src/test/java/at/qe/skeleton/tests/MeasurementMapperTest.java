@@ -1,13 +1,14 @@
 package at.qe.skeleton.tests;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 import at.qe.skeleton.model.ClimateMeasurement;
 import at.qe.skeleton.model.Sensor;
 import at.qe.skeleton.model.SensorType;
 import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
 import at.qe.skeleton.rest.mapper.MeasurementMapper;
 import at.qe.skeleton.services.TemperaDeviceService;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -79,5 +81,71 @@ class MeasurementMapperTest {
 
     }
 
+    @Test
+    public void testMapAllFromShouldRetrieveEachTemperaDeviceOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        MeasurementDTO first = new MeasurementDTO(1L, now.minusMinutes(1), 1L, 20.5f, 40.0f, 30.0f, 500.0f);
+        MeasurementDTO second = new MeasurementDTO(2L, now, 1L, 21.0f, 41.0f, 31.0f, 510.0f);
+        MeasurementDTO unknownDevice = new MeasurementDTO(3L, now, 99L, 21.0f, 41.0f, 31.0f, 510.0f);
+
+        Sensor temperatureSensor = new Sensor();
+        temperatureSensor.setId(1L);
+        temperatureSensor.setSensorType(SensorType.AIR_TEMPERATURE);
+
+        Sensor humiditySensor = new Sensor();
+        humiditySensor.setId(2L);
+        humiditySensor.setSensorType(SensorType.AIR_HUMIDITY);
+
+        TemperaDevice temperaDevice = new TemperaDevice();
+        temperaDevice.setId(1L);
+        temperaDevice.setSensors(List.of(temperatureSensor, humiditySensor));
+
+        when(temperaDeviceService.findTemperaDeviceById(1L)).thenReturn(temperaDevice);
+        when(temperaDeviceService.findTemperaDeviceById(99L)).thenReturn(null);
+
+        List<List<ClimateMeasurement>> climateMeasurements = measurementMapper.mapAllFrom(List.of(first, second, unknownDevice));
+
+        assertEquals(3, climateMeasurements.size());
+        assertEquals(2, climateMeasurements.get(0).size());
+        assertEquals(first.timestamp(), climateMeasurements.get(0).get(0).getTimeStamp());
+        assertEquals(first.airTemperature(), climateMeasurements.get(0).get(0).getMeasuredValue());
+        assertEquals(second.airHumidity(), climateMeasurements.get(1).get(1).getMeasuredValue());
+        assertEquals(humiditySensor, climateMeasurements.get(1).get(1).getSensor());
+        assertTrue(climateMeasurements.get(2).isEmpty());
+        verify(temperaDeviceService, times(1)).findTemperaDeviceById(1L);
+    }
+
+    @Test
+    public void testMapFrameShouldMapValuesWithoutDTOs() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 0, 30);
+        MeasurementFrame frame = MeasurementFrame.read(ByteBuffer.wrap(MeasurementFrame.write(List.of(
+                new MeasurementDTO(1L, timestamp, 1L, 20.5f, 40.0f, 30.0f, 500.0f),
+                new MeasurementDTO(2L, timestamp.plusSeconds(30), 99L, 21.0f, 41.0f, 31.0f, 510.0f)))));
+
+        Sensor temperatureSensor = new Sensor();
+        temperatureSensor.setId(1L);
+        temperatureSensor.setSensorType(SensorType.AIR_TEMPERATURE);
+
+        TemperaDevice temperaDevice = new TemperaDevice();
+        temperaDevice.setId(1L);
+        temperaDevice.setSensors(List.of(temperatureSensor));
+
+        when(temperaDeviceService.findTemperaDeviceById(1L)).thenReturn(temperaDevice);
+        when(temperaDeviceService.findTemperaDeviceById(99L)).thenReturn(null);
+
+        List<List<ClimateMeasurement>> climateMeasurements = measurementMapper.mapFrame(frame);
+
+        assertEquals(2, climateMeasurements.size());
+        assertEquals(timestamp, climateMeasurements.get(0).get(0).getTimeStamp());
+        assertEquals(20.5f, climateMeasurements.get(0).get(0).getMeasuredValue());
+        assertEquals(temperatureSensor, climateMeasurements.get(0).get(0).getSensor());
+        assertTrue(climateMeasurements.get(1).isEmpty());
+    }
+
+    @Test
+    public void testMapAllFromWithNullListShouldReturnEmptyList() {
+        assertTrue(measurementMapper.mapAllFrom(null).isEmpty());
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.*;
+import at.qe.skeleton.repositories.MeasurementRollupRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.climate.MeasurementRollupService;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MeasurementRollupServiceTest {
+
+    @Autowired
+    private MeasurementRollupService rollupService;
+
+    @Autowired
+    private MeasurementRollupRepository rollupRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    private static final LocalDateTime START = LocalDateTime.of(2019, 6, 3, 10, 0);
+
+    @Test
+    @Transactional
+    void testAddAllMergesIntoExistingBuckets() {
+        Sensor sensor = sensorRepository.findAll().get(0);
+
+        rollupService.addAll(List.of(measurement(sensor, START.plusSeconds(10), 20.0),
+                measurement(sensor, START.plusSeconds(40), 22.0)));
+        rollupService.addAll(List.of(measurement(sensor, START.plusSeconds(50), 18.0),
+                measurement(sensor, START.plusMinutes(1), 30.0)));
+
+        List<MeasurementRollup> minutes = rollupRepository
+                .findAllBySensorAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                        sensor, RollupResolution.MINUTE, START, START.plusHours(1));
+        assertEquals(2, minutes.size());
+        MeasurementRollup first = minutes.get(0);
+        assertEquals(START, first.getBucketStart());
+        assertEquals(3, first.getSampleCount());
+        assertEquals(18.0, first.getMinValue());
+        assertEquals(22.0, first.getMaxValue());
+        assertEquals(20.0, first.getAverage(), 0.0001);
+
+        List<MeasurementRollup> hours = rollupRepository
+                .findAllBySensorAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                        sensor, RollupResolution.HOUR, START, START.plusHours(1));
+        assertEquals(1, hours.size());
+        assertEquals(4, hours.get(0).getSampleCount());
+        assertEquals(90.0, hours.get(0).getSumValue(), 0.0001);
+        assertEquals(30.0, hours.get(0).getMaxValue());
+    }
+
+    @Test
+    @Transactional
+    void testFindHistoryCombinesRollupsToGranularity() {
+        Sensor sensor = sensorRepository.findAll().get(0);
+        rollupService.addAll(List.of(
+                measurement(sensor, START, 10.0),
+                measurement(sensor, START.plusMinutes(5), 20.0),
+                measurement(sensor, START.plusMinutes(14), 30.0),
+                measurement(sensor, START.plusMinutes(15), 40.0),
+                measurement(sensor, START.plusHours(2), 50.0)));
+
+        List<ClimateMeasurement> quarterHours = rollupService.findHistory(sensor, START, START.plusDays(1), 15);
+        assertEquals(3, quarterHours.size());
+        assertEquals(START, quarterHours.get(0).getTimeStamp());
+        assertEquals(20.0, quarterHours.get(0).getMeasuredValue(), 0.0001);
+        assertEquals(START.plusMinutes(15), quarterHours.get(1).getTimeStamp());
+        assertEquals(40.0, quarterHours.get(1).getMeasuredValue(), 0.0001);
+        assertEquals(sensor, quarterHours.get(2).getSensor());
+
+        List<ClimateMeasurement> hours = rollupService.findHistory(sensor, START, START.plusDays(1), 60);
+        assertEquals(2, hours.size());
+        assertEquals(25.0, hours.get(0).getMeasuredValue(), 0.0001);
+
+        List<ClimateMeasurement> days = rollupService.findHistory(sensor, START.minusHours(10), START.plusDays(1), 1440);
+        assertEquals(1, days.size());
+        assertEquals(30.0, days.get(0).getMeasuredValue(), 0.0001);
+
+        assertThrows(IllegalArgumentException.class, () -> rollupService.findHistory(sensor, START, START.plusDays(1), 0));
+    }
+
+    @Test
+    @Transactional
+    void testRebuildAggregatesExistingMeasurements() {
+        Sensor sensor = sensorRepository.findAll().get(0);
+        rollupService.addAll(List.of(measurement(sensor, START, 10.0)));
+
+        int rollups = rollupService.rebuild();
+
+        assertEquals(rollupRepository.count(), rollups);
+        assertTrue(rollupRepository
+                .findAllBySensorAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                        sensor, RollupResolution.MINUTE, START, START.plusMinutes(1)).isEmpty());
+    }
+
+    private static ClimateMeasurement measurement(Sensor sensor, LocalDateTime timeStamp, double value) {
+        return ClimateMeasurement.builder().sensor(sensor).timeStamp(timeStamp).measuredValue(value).build();
+    }
+}
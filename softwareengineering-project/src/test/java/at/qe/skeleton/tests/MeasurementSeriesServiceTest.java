@@ -0,0 +1,58 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.MeasurementSeries;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.repositories.SensorRepository;
+import at.qe.skeleton.services.climate.ClimateMeasurementBatchWriter;
+import at.qe.skeleton.services.climate.MeasurementSeriesService;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MeasurementSeriesServiceTest {
+
+    @Autowired
+    private MeasurementSeriesService seriesService;
+
+    @Autowired
+    private ClimateMeasurementBatchWriter batchWriter;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    @Transactional
+    void testFindDownsampledSeries() {
+        Sensor sensor = sensorRepository.findSensorById(1L);
+        LocalDateTime start = LocalDateTime.of(2017, 4, 1, 0, 0);
+        List<ClimateMeasurement> measurements = new ArrayList<>();
+        for (int minute = 0; minute < 3000; minute++) {
+            measurements.add(ClimateMeasurement.builder()
+                    .sensor(sensor)
+                    .timeStamp(start.plusMinutes(minute))
+                    .measuredValue(minute == 1234 ? 99.0 : 20.0)
+                    .build());
+        }
+        batchWriter.insertAll(measurements);
+
+        MeasurementSeries series = seriesService.findDownsampledSeries(sensor, start.minusSeconds(1), start.plusDays(3), 200);
+
+        assertEquals(200, series.size());
+        assertEquals(start, series.timeStampAt(0));
+        assertEquals(start.plusMinutes(2999), series.timeStampAt(199));
+        assertTrue(Arrays.stream(series.values()).anyMatch(value -> value == 99.0));
+
+        MeasurementSeries all = seriesService.findDownsampledSeries(sensor, start.minusSeconds(1), start.plusMinutes(10), 200);
+        assertEquals(10, all.size());
+    }
+}
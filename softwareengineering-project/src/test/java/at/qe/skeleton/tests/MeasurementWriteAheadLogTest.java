@@ -0,0 +1,123 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.MeasurementDeadLetterLog;
+import at.qe.skeleton.services.climate.MeasurementWriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doThrow;
+
+// a context of its own, so the sequences of the AccessPoint are not shared with other tests
+@SpringBootTest(properties = "tempera.measurements.wal.replay-interval-millis=3600000")
+class MeasurementWriteAheadLogTest {
+
+    @Autowired
+    private MeasurementWriteAheadLog measurementWriteAheadLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private ClimateMeasurementService climateMeasurementService;
+
+    @SpyBean
+    private MeasurementDeadLetterLog measurementDeadLetterLog;
+
+    @AfterEach
+    void tearDown() {
+        Mockito.reset(climateMeasurementService, measurementDeadLetterLog);
+    }
+
+    @Test
+    void testAppendedMeasurementsAreReplayedOnce() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 7, 1, 10, 0);
+        MeasurementDTO first = new MeasurementDTO(1L, timestamp, 1L, 21.0f, 40.0f, 10.0f, 300.0f);
+        MeasurementDTO second = new MeasurementDTO(2L, timestamp.plusMinutes(1), 1L, 21.5f, 41.0f, 11.0f, 310.0f);
+        int measurementsBefore = countMeasurementsOfDevice1();
+
+        assertTrue(measurementWriteAheadLog.append(1L, List.of(first)));
+        assertTrue(measurementWriteAheadLog.append(1L, List.of(first, second)));
+        assertTrue(measurementWriteAheadLog.hasPending());
+
+        assertEquals(2, measurementWriteAheadLog.replay());
+
+        assertFalse(measurementWriteAheadLog.hasPending());
+        assertEquals(measurementsBefore + 8, countMeasurementsOfDevice1(),
+                "the measurement sent twice should only be saved once");
+        assertEquals(0, measurementWriteAheadLog.replay());
+    }
+
+    @Test
+    void testFailingMeasurementIsMovedToTheDeadLetterLog() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 7, 2, 10, 0);
+        MeasurementDTO valid = new MeasurementDTO(10L, timestamp, 1L, 21.0f, 40.0f, 10.0f, 300.0f);
+        MeasurementDTO invalid = new MeasurementDTO(11L, timestamp.plusMinutes(1), 1L, -1.0f, -1.0f, -1.0f, -1.0f);
+        rejectNegativeValues();
+        int measurementsBefore = countMeasurementsOfDevice1();
+        int deadLettersBefore = measurementDeadLetterLog.size();
+
+        assertTrue(measurementWriteAheadLog.append(1L, List.of(valid, invalid)));
+        assertEquals(1, measurementWriteAheadLog.replay());
+
+        assertFalse(measurementWriteAheadLog.hasPending());
+        assertEquals(measurementsBefore + 4, countMeasurementsOfDevice1(), "the valid measurement should be saved");
+        assertEquals(deadLettersBefore + 1, measurementDeadLetterLog.size());
+    }
+
+    @Test
+    void testRequestIsKeptUntilItsMeasurementsAreSavedOrMovedToTheDeadLetterLog() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 7, 3, 10, 0);
+        MeasurementDTO valid = new MeasurementDTO(20L, timestamp, 1L, 21.0f, 40.0f, 10.0f, 300.0f);
+        MeasurementDTO invalid = new MeasurementDTO(21L, timestamp.plusMinutes(1), 1L, -1.0f, -1.0f, -1.0f, -1.0f);
+        rejectNegativeValues();
+        doThrow(new UncheckedIOException(new IOException("Disk full"))).when(measurementDeadLetterLog)
+                .append(anyLong(), anyList(), any(RuntimeException.class));
+        int measurementsBefore = countMeasurementsOfDevice1();
+
+        assertTrue(measurementWriteAheadLog.append(1L, List.of(valid, invalid)));
+        assertEquals(0, measurementWriteAheadLog.replay());
+        assertTrue(measurementWriteAheadLog.hasPending(), "the request must not be discarded");
+
+        Mockito.reset(measurementDeadLetterLog);
+        assertEquals(1, measurementWriteAheadLog.replay());
+        assertFalse(measurementWriteAheadLog.hasPending());
+        assertEquals(measurementsBefore + 4, countMeasurementsOfDevice1(),
+                "the valid measurement should be saved once");
+    }
+
+    private void rejectNegativeValues() {
+        doThrow(new DataIntegrityViolationException("Constraint violated")).when(climateMeasurementService)
+                .saveAll(argThat(measurements -> measurements != null
+                        && measurements.stream().anyMatch(measurement -> measurement.getMeasuredValue() < 0)));
+    }
+
+    @Test
+    void testOnlyOutagesAreKeptInTheLog() {
+        assertTrue(MeasurementWriteAheadLog.isOutage(new DataAccessResourceFailureException("Connection refused")));
+        assertTrue(MeasurementWriteAheadLog.isOutage(new CannotCreateTransactionException("Connection refused")));
+        assertFalse(MeasurementWriteAheadLog.isOutage(new DataIntegrityViolationException("Constraint violated")));
+    }
+
+    private int countMeasurementsOfDevice1() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM climate_measurement cm "
+                + "JOIN tempera_device_sensors tds ON tds.sensors_id = cm.sensor_id WHERE tds.tempera_device_id = 1",
+                Integer.class);
+    }
+}
@@ -0,0 +1,144 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.DeviceStatus;
+import at.qe.skeleton.services.AccessPointRegistry;
+import at.qe.skeleton.services.AccessPointService;
+import at.qe.skeleton.services.LoadShedder;
+import at.qe.skeleton.services.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "tempera.rate-limit.default-budget.refill-per-second=1000",
+        "tempera.rate-limit.endpoints.getLogTemperaDeviceByAccessPointId.capacity=2",
+        "tempera.rate-limit.endpoints.getLogTemperaDeviceByAccessPointId.refill-per-second=0.01",
+        "tempera.load-shedding.max-concurrent=1",
+        "tempera.load-shedding.max-pool-wait-millis=100",
+        "tempera.load-shedding.sample-interval-millis=0"
+})
+@AutoConfigureMockMvc
+class RateLimiterTest {
+
+    private static final String ENDPOINT = "getLogTemperaDeviceByAccessPointId";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private LoadShedder loadShedder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private AccessPointService accessPointService;
+
+    @MockBean
+    private AccessPointRegistry accessPointRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // the AccessPoints below 100 exist
+        when(accessPointRegistry.find(any())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            return new AccessPointRegistry.RegisteredAccessPoint(id, id < 100 ? DeviceStatus.ENABLED : null, Set.of());
+        });
+    }
+
+    @Test
+    void testOverBudgetRequestsAreRejectedBeforeTheController() throws Exception {
+        when(accessPointService.getActiveAccessPointById(any())).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(get("/api/temperaDevices/G4T2-AP-41")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/temperaDevices/G4T2-AP-41")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/temperaDevices/G4T2-AP-41"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "100"));
+        // the budget is kept per AccessPoint
+        mockMvc.perform(get("/api/temperaDevices/G4T2-AP-42")).andExpect(status().isForbidden());
+
+        verify(accessPointService, times(3)).getActiveAccessPointById(any());
+        assertTrue(meterRegistry.get("tempera.api.rejected").tag("reason", "rate-limit").counter().count() >= 1);
+    }
+
+    @Test
+    void testBucketsAreKeptPerEndpoint() throws InterruptedException {
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-43", ENDPOINT));
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-43", ENDPOINT));
+        assertTrue(rateLimiter.tryAcquire("G4T2-AP-43", ENDPOINT) > TimeUnit.SECONDS.toNanos(50));
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-43", "createTimeRecord"));
+
+        int buckets = rateLimiter.size();
+        Thread.sleep(50);
+        rateLimiter.removeFullBuckets();
+        assertTrue(rateLimiter.size() < buckets, "the refilled bucket of createTimeRecord should be removed");
+    }
+
+    @Test
+    void testSpellingsOfTheSameAccessPointIdShareABucket() {
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-44", ENDPOINT));
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-044", ENDPOINT));
+        assertTrue(rateLimiter.tryAcquire("G4T2-AP-0044", ENDPOINT) > 0);
+
+        assertEquals(0, rateLimiter.tryAcquire("made-up", ENDPOINT));
+        assertEquals(0, rateLimiter.tryAcquire("G4T2-AP-x", ENDPOINT));
+        assertTrue(rateLimiter.tryAcquire("another-made-up", ENDPOINT) > 0,
+                "ids that cannot be parsed should share one bucket");
+        assertTrue(rateLimiter.tryAcquire("G4T2-AP-1000", ENDPOINT) > 0,
+                "ids of AccessPoints that do not exist should share the bucket of invalid ids");
+    }
+
+    @Test
+    void testMadeUpAccessPointIdsDoNotGrowTheBuckets() {
+        int buckets = rateLimiter.size();
+        for (int i = 1000; i < 1100; i++) {
+            rateLimiter.tryAcquire("G4T2-AP-" + i, "createTimeRecord");
+        }
+
+        assertTrue(rateLimiter.size() <= buckets + 1);
+    }
+
+    @Test
+    void testLoadIsShedWhenConcurrencyLimitIsReached() {
+        assertTrue(loadShedder.tryAcquire());
+        try {
+            assertFalse(loadShedder.tryAcquire());
+        } finally {
+            loadShedder.release();
+        }
+        assertTrue(loadShedder.tryAcquire());
+        loadShedder.release();
+    }
+
+    @Test
+    void testLoadIsShedWhileConnectionsAreAcquiredSlowly() {
+        assertFalse(loadShedder.isPoolOverloaded());
+
+        meterRegistry.timer("hikaricp.connections.acquire", "pool", "test").record(500, TimeUnit.MILLISECONDS);
+        assertFalse(loadShedder.tryAcquire());
+
+        meterRegistry.timer("hikaricp.connections.acquire", "pool", "test").record(1, TimeUnit.MILLISECONDS);
+        meterRegistry.timer("hikaricp.connections.acquire", "pool", "test").record(1, TimeUnit.MILLISECONDS);
+        assertFalse(loadShedder.isPoolOverloaded());
+    }
+}
@@ -0,0 +1,134 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.configs.ReadOnlyTransactional;
+import at.qe.skeleton.configs.ReadWriteRoutingDataSource;
+import at.qe.skeleton.configs.ReadWriteRoutingDataSource.Route;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// primary and replica are two connection pools of the same in-memory database
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-test;DB_CLOSE_DELAY=-1",
+        "tempera.datasource.replica.url=jdbc:h2:mem:routing-test;DB_CLOSE_DELAY=-1",
+        "tempera.datasource.replica.username=sa",
+        "tempera.datasource.replica.read-your-writes-millis=60000",
+        "tempera.datasource.replica.max-lag-millis=1000",
+        "tempera.datasource.replica.lag-check-interval-millis=3600000"})
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RouteProbe routeProbe;
+
+    @AfterEach
+    void resetLag() {
+        routingDataSource.updateReplicaLag(0);
+    }
+
+    @Test
+    void testReadOnlyTransactionalMethodsAreSentToTheReplica() {
+        assertEquals(Route.REPLICA, routeProbe.readOnlyRoute());
+        assertEquals(Route.PRIMARY, routeOf(false));
+    }
+
+    @Test
+    void testOtherReadOnlyTransactionsUseThePrimary() {
+        // e.g. the implicit read-only transactions of the repositories' find methods, which load the caches
+        assertEquals(Route.PRIMARY, routeOf(true), "only @ReadOnlyTransactional methods may use the replica");
+        assertEquals(Route.REPLICA, routeProbe.readOnlyRoute());
+    }
+
+    @Test
+    void testLaggingReplicaIsNotUsed() {
+        routingDataSource.updateReplicaLag(5000);
+        assertEquals(Route.PRIMARY, routeProbe.readOnlyRoute());
+
+        routingDataSource.updateReplicaLag(-1);
+        assertEquals(Route.PRIMARY, routeProbe.readOnlyRoute(), "an unavailable replica should not be used");
+
+        routingDataSource.updateReplicaLag(0);
+        assertEquals(Route.REPLICA, routeProbe.readOnlyRoute());
+    }
+
+    @Test
+    @WithMockUser(username = "routing-writer", authorities = "EMPLOYEE")
+    void testUserReadsOwnWritesFromThePrimary() {
+        assertEquals(Route.REPLICA, routeProbe.readOnlyRoute());
+
+        write();
+        assertEquals(Route.PRIMARY, routeProbe.readOnlyRoute(), "reads after the user's own write should use the primary");
+    }
+
+    @Test
+    @WithMockUser(username = "routing-reader", authorities = "EMPLOYEE")
+    void testWritesOfOtherUsersDoNotAffectTheRoute() {
+        Authentication reader = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("routing-other-writer", null, "EMPLOYEE"));
+        try {
+            write();
+            assertEquals(Route.PRIMARY, routeProbe.readOnlyRoute(), "the write of the other user should be recorded");
+        } finally {
+            SecurityContextHolder.getContext().setAuthentication(reader);
+        }
+
+        assertEquals(Route.REPLICA, routeProbe.readOnlyRoute());
+    }
+
+    private void write() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE userx SET first_name = first_name WHERE username = ?", "admin"));
+    }
+
+    private Route routeOf(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> routingDataSource.currentRoute());
+    }
+
+    @TestConfiguration
+    static class RouteProbeConfiguration {
+
+        @Bean
+        RouteProbe routeProbe(ReadWriteRoutingDataSource routingDataSource) {
+            return new RouteProbe(routingDataSource);
+        }
+    }
+
+    /**
+     * reports the route of the transactions it runs.
+     */
+    public static class RouteProbe {
+
+        private final ReadWriteRoutingDataSource routingDataSource;
+
+        public RouteProbe(ReadWriteRoutingDataSource routingDataSource) {
+            this.routingDataSource = routingDataSource;
+        }
+
+        @ReadOnlyTransactional
+        public Route readOnlyRoute() {
+            return routingDataSource.currentRoute();
+        }
+    }
+}
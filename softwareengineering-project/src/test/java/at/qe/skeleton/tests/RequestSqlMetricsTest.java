@@ -0,0 +1,99 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.configs.RequestSqlMetricsFilter;
+import at.qe.skeleton.configs.RequestSqlStatistics;
+import at.qe.skeleton.configs.SqlStatementCountingDataSource;
+import at.qe.skeleton.repositories.UserxRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestSqlMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserxRepository userxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testStatementsAreCountedWhileARequestIsHandled() {
+        RequestSqlStatistics statistics = RequestSqlStatistics.start();
+        try {
+            userxRepository.findFirstByUsername("admin");
+            userxRepository.findFirstByUsername("user2");
+        } finally {
+            RequestSqlStatistics.stop();
+        }
+        int statements = statistics.getStatementCount();
+        assertTrue(statements >= 2, "both users should be queried");
+        assertTrue(statistics.getSlowestNanos() > 0);
+        assertTrue(statistics.getTotalNanos() >= statistics.getSlowestNanos());
+
+        userxRepository.findFirstByUsername("admin");
+        assertEquals(statements, statistics.getStatementCount(), "statements outside of the request should not be counted");
+        assertNull(RequestSqlStatistics.current());
+    }
+
+    @Test
+    void testStatementsOfJdbcTemplatesAreCounted() throws Exception {
+        RequestSqlStatistics statistics = RequestSqlStatistics.start();
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM userx", Integer.class);
+            jdbcTemplate.update("UPDATE userx SET phone = phone WHERE username = ?", "admin");
+            jdbcTemplate.batchUpdate("UPDATE userx SET phone = phone WHERE username = ?",
+                    List.of(new Object[]{"admin"}, new Object[]{"user2"}));
+        } finally {
+            RequestSqlStatistics.stop();
+        }
+
+        assertEquals(3, statistics.getStatementCount(), "a query, an update and one JDBC batch");
+        // the pool is still reachable behind the counting data source, e.g. for its metrics
+        assertInstanceOf(SqlStatementCountingDataSource.class, dataSource);
+        assertTrue(dataSource.isWrapperFor(HikariDataSource.class));
+    }
+
+    @Test
+    void testStatementsArePublishedPerRoute() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/warnings").param("token", "unknown-token").param("status", "2"))
+                .andExpect(status().isForbidden())
+                .andReturn();
+
+        int statements = Integer.parseInt(result.getResponse().getHeader(RequestSqlMetricsFilter.STATEMENTS_HEADER));
+        assertTrue(statements >= 1, "the token should be looked up in the database");
+        assertTrue(result.getResponse().getHeader(RequestSqlMetricsFilter.SERVER_TIMING_HEADER).startsWith("db;dur="));
+
+        DistributionSummary summary = meterRegistry.get("tempera.http.sql.statements")
+                .tag("method", "GET")
+                .tag("route", "/api/warnings")
+                .summary();
+        assertTrue(summary.count() >= 1);
+        assertTrue(summary.totalAmount() >= statements);
+        assertTrue(meterRegistry.get("tempera.http.sql.slowest").tag("route", "/api/warnings").timer().count() >= 1);
+    }
+}
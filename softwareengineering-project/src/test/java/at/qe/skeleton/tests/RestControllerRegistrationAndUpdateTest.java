@@ -218,6 +218,8 @@ public class RestControllerRegistrationAndUpdateTest {
         listTD.add(notRegisteredTemperaDevice);
         accessPoint.setTemperaDevices(listTD);
         accessPointService.save(accessPoint);
+        notRegisteredTemperaDevice.setAccessPoint(accessPoint);
+        temperaDeviceService.save(notRegisteredTemperaDevice);
 
         AccessPoint savedAccessPoint = accessPointService.getAccessPointById(accessPoint.getId());
         Assertions.assertNotNull(savedAccessPoint,"AP should be reachable through database");
@@ -265,6 +267,8 @@ public class RestControllerRegistrationAndUpdateTest {
         listTD.add(disabledTemperaDevice);
         accessPoint.setTemperaDevices(listTD);
         accessPointService.save(accessPoint);
+        disabledTemperaDevice.setAccessPoint(accessPoint);
+        temperaDeviceService.save(disabledTemperaDevice);
 
         AccessPoint savedAccessPoint = accessPointService.getAccessPointById(accessPoint.getId());
         Assertions.assertNotNull(savedAccessPoint,"AP should be reachable through database");
@@ -310,6 +314,8 @@ public class RestControllerRegistrationAndUpdateTest {
         listTD.add(enabledTemperaDevice);
         accessPoint.setTemperaDevices(listTD);
         accessPointService.save(accessPoint);
+        enabledTemperaDevice.setAccessPoint(accessPoint);
+        temperaDeviceService.save(enabledTemperaDevice);
 
         AccessPoint savedAccessPoint = accessPointService.getAccessPointById(accessPoint.getId());
         Assertions.assertNotNull(savedAccessPoint,"AP should be reachable through database");
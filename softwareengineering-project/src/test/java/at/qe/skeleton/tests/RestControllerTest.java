@@ -3,37 +3,53 @@ package at.qe.skeleton.tests;
 import at.qe.skeleton.exceptions.EntityStillInUseException;
 import at.qe.skeleton.exceptions.EntityValidationException;
 import at.qe.skeleton.exceptions.IdNotFoundException;
+import at.qe.skeleton.exceptions.SequenceOutOfWindowException;
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.model.notifications.APINotificationAPBody;
 import at.qe.skeleton.rest.controllers.RestController;
 import at.qe.skeleton.rest.dto.APINotificationDTO;
 import at.qe.skeleton.rest.dto.LogTemperaDeviceDTO;
 import at.qe.skeleton.rest.dto.MeasurementDTO;
+import at.qe.skeleton.rest.dto.MeasurementFrame;
+import at.qe.skeleton.rest.dto.MeasurementStatusDTO;
 import at.qe.skeleton.rest.mapper.APINotificationDeviceBodyDTOMapper;
 import at.qe.skeleton.rest.mapper.LogTemperaDeviceDTOMapper;
 import at.qe.skeleton.rest.mapper.MeasurementMapper;
 import at.qe.skeleton.services.*;
 import at.qe.skeleton.services.climate.ClimateMeasurementService;
+import at.qe.skeleton.services.climate.MeasurementIngestionQueue;
+import at.qe.skeleton.services.climate.MeasurementWriteAheadLog;
 import at.qe.skeleton.services.climate.WarningService;
 import at.qe.skeleton.services.notifications.NotificationService;
 import at.qe.skeleton.services.notifications.TokenService;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -65,9 +81,37 @@ public class RestControllerTest {
     @Mock
     private APINotificationDeviceBodyDTOMapper apiNotificationDeviceBodyDTOMapper;
 
+    @Mock
+    private MeasurementIngestionQueue measurementIngestionQueue;
+
+    @Mock
+    private IngestionCursorService ingestionCursorService;
+
+    @Mock
+    private MeasurementWriteAheadLog measurementWriteAheadLog;
+
     @InjectMocks
     private RestController restController;
 
+    @BeforeEach
+    public void setUp() {
+        // by default no item was received before
+        stubIngestion(Set.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubIngestion(Set<Integer> duplicateIndexes) {
+        doAnswer(invocation -> {
+            List<Long> sequences = invocation.getArgument(2);
+            Set<Integer> freshIndexes = IntStream.range(0, sequences.size()).filter(i -> !duplicateIndexes.contains(i))
+                    .boxed().collect(Collectors.toCollection(LinkedHashSet::new));
+            if (!freshIndexes.isEmpty()) {
+                ((Consumer<Set<Integer>>) invocation.getArgument(3)).accept(freshIndexes);
+            }
+            return new IngestionCursorService.Acknowledgement(duplicateIndexes, sequences.size());
+        }).when(ingestionCursorService).ingest(any(), any(), any(), any());
+    }
+
 
     @Test
     public void testCreateMeasurementInvalidAccessPointId() throws EntityValidationException{
@@ -75,7 +119,7 @@ public class RestControllerTest {
         MeasurementDTO measurementDTO = new MeasurementDTO(null, null, null, 0, 0, 0, 0);
         String accessPointId = "invalidAccessPointId";
 
-        when(accessPointService.getActiveAccessPointById(accessPointId)).thenThrow(new IllegalArgumentException());
+        when(accessPointService.authenticate(accessPointId)).thenThrow(new IllegalArgumentException());
 
         // When
         ResponseEntity<MeasurementDTO> response = restController.createMeasurement(measurementDTO, accessPointId);
@@ -89,10 +133,10 @@ public class RestControllerTest {
         // Given
         MeasurementDTO measurementDTO = new MeasurementDTO(null, null, null, 0, 0, 0, 0);
         String accessPointId = "validAccessPointId";
-        AccessPoint accessPoint = new AccessPoint();
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of());
         List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
 
-        when(accessPointService.getActiveAccessPointById(accessPointId)).thenReturn(accessPoint);
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
         when(measurementMapper.mapFrom(measurementDTO)).thenReturn(climateMeasurements);
         when(climateMeasurementService.saveAll(climateMeasurements)).thenThrow(new DataIntegrityViolationException("Database error"));
 
@@ -108,10 +152,10 @@ public class RestControllerTest {
         // Given
         MeasurementDTO measurementDTO = new MeasurementDTO(null, null, null, 0, 0, 0, 0);
         String accessPointId = "validAccessPointId";
-        AccessPoint accessPoint = new AccessPoint();
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of());
         List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
 
-        when(accessPointService.getActiveAccessPointById(accessPointId)).thenReturn(accessPoint);
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
         when(measurementMapper.mapFrom(measurementDTO)).thenReturn(climateMeasurements);
         when(climateMeasurementService.saveAll(climateMeasurements)).thenReturn(climateMeasurements);
         doNothing().when(climateMeasurementService).checkLimits(climateMeasurements);
@@ -126,6 +170,379 @@ public class RestControllerTest {
         verify(climateMeasurementService).checkLimits(climateMeasurements);
     }
 
+    @Test
+    public void testCreateMeasurementAlreadyReceived() throws EntityValidationException {
+        // Given
+        MeasurementDTO measurementDTO = new MeasurementDTO(7L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        String accessPointId = "validAccessPointId";
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+        List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapFrom(measurementDTO)).thenReturn(climateMeasurements);
+        stubIngestion(Set.of(0));
+
+        // When
+        ResponseEntity<MeasurementDTO> response = restController.createMeasurement(measurementDTO, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("1", response.getHeaders().getFirst(RestController.ACKNOWLEDGED_SEQUENCE_HEADER));
+        verify(ingestionCursorService).ingest(eq(1L), eq(IngestionStream.MEASUREMENTS), eq(List.of(7L)), any());
+        verify(climateMeasurementService, never()).saveAll(any());
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    public void testEnqueueMeasurementAccepted() throws EntityValidationException {
+        // Given
+        MeasurementDTO measurementDTO = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        String accessPointId = "validAccessPointId";
+        List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of()));
+        when(measurementMapper.mapFrom(measurementDTO)).thenReturn(climateMeasurements);
+        when(measurementIngestionQueue.offer(1L, measurementDTO, climateMeasurements)).thenReturn(true);
+
+        // When
+        ResponseEntity<MeasurementDTO> response = restController.enqueueMeasurement(measurementDTO, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        Assertions.assertEquals(measurementDTO, response.getBody());
+        verify(climateMeasurementService, never()).saveAll(any());
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    public void testEnqueueMeasurementQueueFull() throws EntityValidationException {
+        // Given
+        MeasurementDTO measurementDTO = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        String accessPointId = "validAccessPointId";
+        List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of()));
+        when(measurementMapper.mapFrom(measurementDTO)).thenReturn(climateMeasurements);
+        when(measurementIngestionQueue.offer(1L, measurementDTO, climateMeasurements)).thenReturn(false);
+
+        // When
+        ResponseEntity<MeasurementDTO> response = restController.enqueueMeasurement(measurementDTO, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        Assertions.assertTrue(response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void testCreateMeasurementsInvalidAccessPointId() throws EntityValidationException {
+        // Given
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(1L, null, 1L, 0, 0, 0, 0));
+        String accessPointId = "invalidAccessPointId";
+
+        when(accessPointService.authenticate(accessPointId)).thenThrow(new IllegalArgumentException());
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(measurementMapper, never()).mapAllFrom(any());
+    }
+
+    @Test
+    public void testCreateMeasurementsRejectsNullElements() throws EntityValidationException {
+        // Given
+        List<MeasurementDTO> measurementDTOs = Arrays.asList(new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0), null);
+        String accessPointId = "validAccessPointId";
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+        ResponseEntity<List<MeasurementStatusDTO>> backfillResponse = restController.backfillMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, backfillResponse.getStatusCode());
+        verify(accessPointService, never()).authenticate(any());
+        verify(measurementMapper, never()).mapAllFrom(any());
+    }
+
+    @Test
+    public void testCreateMeasurementsReturnsStatusPerItem() throws EntityValidationException {
+        // Given
+        MeasurementDTO connectedDevice = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        MeasurementDTO foreignDevice = new MeasurementDTO(2L, LocalDateTime.now(), 2L, 0, 0, 0, 0);
+        MeasurementDTO unknownDevice = new MeasurementDTO(3L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        List<MeasurementDTO> measurementDTOs = List.of(connectedDevice, foreignDevice, unknownDevice);
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+
+        List<ClimateMeasurement> acceptedMeasurements = List.of(new ClimateMeasurement(), new ClimateMeasurement());
+        List<ClimateMeasurement> foreignMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenReturn(List.of(acceptedMeasurements, foreignMeasurements, List.of()));
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        Assertions.assertEquals(List.of(
+                new MeasurementStatusDTO(1L, MeasurementStatusDTO.ACCEPTED),
+                new MeasurementStatusDTO(2L, MeasurementStatusDTO.REJECTED),
+                new MeasurementStatusDTO(3L, MeasurementStatusDTO.REJECTED)), response.getBody());
+        verify(climateMeasurementService).saveAll(acceptedMeasurements);
+        verify(climateMeasurementService).checkLimits(acceptedMeasurements);
+        verify(climateMeasurementService, never()).checkLimits(foreignMeasurements);
+        verify(accessPointService, times(1)).authenticate(accessPointId);
+        verify(accessPointService, never()).getActiveAccessPointById(any());
+    }
+
+    @Test
+    public void testCreateMeasurementsReportsDuplicates() throws EntityValidationException {
+        // Given
+        MeasurementDTO retried = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        MeasurementDTO fresh = new MeasurementDTO(2L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        List<MeasurementDTO> measurementDTOs = List.of(retried, fresh);
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+        List<ClimateMeasurement> retriedMeasurements = List.of(new ClimateMeasurement());
+        List<ClimateMeasurement> freshMeasurements = List.of(new ClimateMeasurement(), new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenReturn(List.of(retriedMeasurements, freshMeasurements));
+        stubIngestion(Set.of(0));
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        Assertions.assertEquals(List.of(
+                new MeasurementStatusDTO(1L, MeasurementStatusDTO.DUPLICATE),
+                new MeasurementStatusDTO(2L, MeasurementStatusDTO.ACCEPTED)), response.getBody());
+        Assertions.assertEquals("2", response.getHeaders().getFirst(RestController.ACKNOWLEDGED_SEQUENCE_HEADER));
+        verify(climateMeasurementService).saveAll(freshMeasurements);
+        verify(climateMeasurementService).checkLimits(freshMeasurements);
+        verify(climateMeasurementService, never()).checkLimits(retriedMeasurements);
+    }
+
+    @Test
+    public void testCreateMeasurementsRejectsSequencesBeyondTheWindow() throws EntityValidationException {
+        // Given
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(100L, LocalDateTime.now(), 1L, 0, 0, 0, 0));
+        String accessPointId = "validAccessPointId";
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenReturn(List.of(List.of(new ClimateMeasurement())));
+        doThrow(new SequenceOutOfWindowException("beyond the window", 20L))
+                .when(ingestionCursorService).ingest(any(), any(), any(), any());
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        Assertions.assertEquals("20", response.getHeaders().getFirst(RestController.ACKNOWLEDGED_SEQUENCE_HEADER));
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    public void testCreateMeasurementRejectsNonPositiveSequence() throws EntityValidationException {
+        // Given
+        MeasurementDTO measurementDTO = new MeasurementDTO(0L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        String accessPointId = "validAccessPointId";
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementWriteAheadLog.hasPending()).thenReturn(true);
+
+        // When
+        ResponseEntity<MeasurementDTO> response = restController.createMeasurement(measurementDTO, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(measurementWriteAheadLog, never()).append(anyLong(), any());
+        verify(ingestionCursorService, never()).ingest(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCreateMeasurementsFromFrameReturnsStatusPerItem() throws EntityValidationException {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.now();
+        MeasurementFrame frame = MeasurementFrame.read(ByteBuffer.wrap(MeasurementFrame.write(List.of(
+                new MeasurementDTO(1L, timestamp, 1L, 0, 0, 0, 0),
+                new MeasurementDTO(2L, timestamp.plusSeconds(10), 2L, 0, 0, 0, 0)))));
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+        List<ClimateMeasurement> acceptedMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapFrame(frame)).thenReturn(List.of(acceptedMeasurements, List.of(new ClimateMeasurement())));
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurementsFromFrame(frame, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        Assertions.assertEquals(List.of(
+                new MeasurementStatusDTO(1L, MeasurementStatusDTO.ACCEPTED),
+                new MeasurementStatusDTO(2L, MeasurementStatusDTO.REJECTED)), response.getBody());
+        verify(climateMeasurementService).saveAll(acceptedMeasurements);
+        verify(climateMeasurementService).checkLimits(acceptedMeasurements);
+        verify(measurementMapper, never()).mapAllFrom(any());
+    }
+
+    @Test
+    public void testCreateMeasurementFromFrameRequiresOneMeasurement() throws EntityValidationException {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.now();
+        MeasurementFrame frame = MeasurementFrame.read(ByteBuffer.wrap(MeasurementFrame.write(List.of(
+                new MeasurementDTO(1L, timestamp, 1L, 0, 0, 0, 0),
+                new MeasurementDTO(2L, timestamp, 1L, 0, 0, 0, 0)))));
+
+        // When
+        ResponseEntity<Void> response = restController.createMeasurementFromFrame(frame, "validAccessPointId");
+
+        // Then
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(climateMeasurementService, never()).saveAll(any());
+    }
+
+    @Test
+    public void testCreateMeasurementFromFrameSuccess() throws EntityValidationException {
+        // Given
+        MeasurementFrame frame = MeasurementFrame.read(ByteBuffer.wrap(MeasurementFrame.write(List.of(
+                new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0)))));
+        String accessPointId = "validAccessPointId";
+        List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L)));
+        when(measurementMapper.mapFrame(frame)).thenReturn(List.of(climateMeasurements));
+
+        // When
+        ResponseEntity<Void> response = restController.createMeasurementFromFrame(frame, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        Assertions.assertEquals("1", response.getHeaders().getFirst(RestController.ACKNOWLEDGED_SEQUENCE_HEADER));
+        verify(climateMeasurementService).saveAll(climateMeasurements);
+    }
+
+    @Test
+    public void testBackfillMeasurementsSkipsWarnings() throws EntityValidationException {
+        // Given
+        MeasurementDTO connectedDevice = new MeasurementDTO(1L, LocalDateTime.now().minusHours(5), 1L, 0, 0, 0, 0);
+        MeasurementDTO foreignDevice = new MeasurementDTO(2L, LocalDateTime.now().minusHours(5), 2L, 0, 0, 0, 0);
+        List<MeasurementDTO> measurementDTOs = List.of(connectedDevice, foreignDevice);
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+        List<ClimateMeasurement> acceptedMeasurements = List.of(new ClimateMeasurement(), new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenReturn(List.of(acceptedMeasurements, List.of(new ClimateMeasurement())));
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.backfillMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        Assertions.assertEquals(List.of(
+                new MeasurementStatusDTO(1L, MeasurementStatusDTO.ACCEPTED),
+                new MeasurementStatusDTO(2L, MeasurementStatusDTO.REJECTED)), response.getBody());
+        verify(climateMeasurementService).backfill(acceptedMeasurements);
+        verify(climateMeasurementService, never()).saveAll(any());
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    public void testBackfillMeasurementsInvalidAccessPointId() throws EntityValidationException {
+        // Given
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(1L, null, 1L, 0, 0, 0, 0));
+        String accessPointId = "invalidAccessPointId";
+
+        when(accessPointService.authenticate(accessPointId)).thenThrow(new IllegalArgumentException());
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.backfillMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(climateMeasurementService, never()).backfill(any());
+    }
+
+    @Test
+    public void testCreateMeasurementsDatabaseError() throws EntityValidationException {
+        // Given
+        List<MeasurementDTO> measurementDTOs = List.of(new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0));
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+        List<ClimateMeasurement> climateMeasurements = List.of(new ClimateMeasurement());
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenReturn(List.of(climateMeasurements));
+        when(climateMeasurementService.saveAll(climateMeasurements)).thenThrow(new DataIntegrityViolationException("Database error"));
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(climateMeasurementService, never()).checkLimits(any());
+    }
+
+    @Test
+    public void testCreateMeasurementsDatabaseUnavailable() throws EntityValidationException {
+        // Given
+        MeasurementDTO connectedDevice = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        MeasurementDTO foreignDevice = new MeasurementDTO(2L, LocalDateTime.now(), 2L, 0, 0, 0, 0);
+        List<MeasurementDTO> measurementDTOs = List.of(connectedDevice, foreignDevice);
+        String accessPointId = "validAccessPointId";
+
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementMapper.mapAllFrom(measurementDTOs)).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        when(measurementWriteAheadLog.append(1L, List.of(connectedDevice))).thenReturn(true);
+
+        // When
+        ResponseEntity<List<MeasurementStatusDTO>> response = restController.createMeasurements(measurementDTOs, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        Assertions.assertEquals(List.of(
+                new MeasurementStatusDTO(1L, MeasurementStatusDTO.QUEUED),
+                new MeasurementStatusDTO(2L, MeasurementStatusDTO.REJECTED)), response.getBody());
+        verify(measurementWriteAheadLog).append(1L, List.of(connectedDevice));
+        verify(climateMeasurementService, never()).saveAll(any());
+    }
+
+    @Test
+    public void testCreateMeasurementWhileWriteAheadLogIsPending() throws EntityValidationException {
+        // Given
+        MeasurementDTO measurementDTO = new MeasurementDTO(1L, LocalDateTime.now(), 1L, 0, 0, 0, 0);
+        String accessPointId = "validAccessPointId";
+        AccessPointRegistry.RegisteredAccessPoint accessPoint = new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L));
+
+        when(accessPointService.authenticate(accessPointId)).thenReturn(accessPoint);
+        when(measurementWriteAheadLog.hasPending()).thenReturn(true);
+        when(measurementWriteAheadLog.append(1L, List.of(measurementDTO))).thenReturn(true);
+
+        // When
+        ResponseEntity<MeasurementDTO> response = restController.createMeasurement(measurementDTO, accessPointId);
+
+        // Then
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(ingestionCursorService, never()).ingest(any(), any(), any(), any());
+        verify(climateMeasurementService, never()).saveAll(any());
+    }
+
     @Test
     public void testGetLogTemperaDeviceByAccessPointId_Success() throws EntityValidationException {
         // Given
@@ -243,6 +660,28 @@ public class RestControllerTest {
         Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
 
+    @Test
+    public void testResetIngestionCursorsSuccess() throws EntityValidationException {
+        String accessPointId = "validAccessPointId";
+        when(accessPointService.authenticate(accessPointId)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of()));
+
+        ResponseEntity<String> response = restController.resetIngestionCursors(accessPointId);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(ingestionCursorService).reset(1L);
+    }
+
+    @Test
+    public void testResetIngestionCursorsInvalidAccessPointId() throws EntityValidationException {
+        String accessPointId = "invalidAccessPointId";
+        when(accessPointService.authenticate(accessPointId)).thenThrow(new IllegalArgumentException());
+
+        ResponseEntity<String> response = restController.resetIngestionCursors(accessPointId);
+
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(ingestionCursorService, never()).reset(anyLong());
+    }
+
     @Test
     public void testUpdateWarningStatus_Success() {
         // Given
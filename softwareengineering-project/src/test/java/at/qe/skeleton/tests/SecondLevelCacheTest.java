@@ -0,0 +1,100 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.model.ClimateMeasurement;
+import at.qe.skeleton.model.Limits;
+import at.qe.skeleton.model.Room;
+import at.qe.skeleton.model.Sensor;
+import at.qe.skeleton.model.SensorType;
+import at.qe.skeleton.repositories.ClimateMeasurementRepository;
+import at.qe.skeleton.repositories.LimitsRepository;
+import at.qe.skeleton.repositories.RoomRepository;
+import at.qe.skeleton.repositories.SensorRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private LimitsRepository limitsRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ClimateMeasurementRepository climateMeasurementRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearCache() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testReferenceEntitiesAreReadFromTheCache() {
+        Sensor sensor = transactionTemplate.execute(status -> sensorRepository.findById(1L).orElseThrow());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("sensor").getPutCount());
+
+        Sensor cachedSensor = transactionTemplate.execute(status -> sensorRepository.findById(1L).orElseThrow());
+        assertEquals(sensor.getSensorType(), cachedSensor.getSensorType());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("sensor").getHitCount());
+    }
+
+    @Test
+    void testCacheableQueriesAreAnsweredFromTheQueryCache() {
+        Room room = transactionTemplate.execute(status -> roomRepository.findByRoomNumber("Room1"));
+        transactionTemplate.execute(status -> limitsRepository.findFirstByRoomAndSensorTypeIs(room, SensorType.AIR_TEMPERATURE));
+        long queriesExecuted = statistics.getQueryExecutionCount();
+
+        Limits limits = transactionTemplate.execute(status ->
+                limitsRepository.findFirstByRoomAndSensorTypeIs(room, SensorType.AIR_TEMPERATURE).orElseThrow());
+        assertEquals(queriesExecuted, statistics.getQueryExecutionCount(), "the limits should not be queried again");
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+        assertEquals(SensorType.AIR_TEMPERATURE, limits.getSensorType());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = "ADMINISTRATOR")
+    void testChangedEntitiesAreNotReadStaleFromTheCache() {
+        Limits limits = transactionTemplate.execute(status -> limitsRepository.findById(1L).orElseThrow());
+        double upperLimit = limits.getUpperLimit();
+        try {
+            limits.setUpperLimit(upperLimit + 1);
+            transactionTemplate.executeWithoutResult(status -> limitsRepository.save(limits));
+
+            Limits reloaded = transactionTemplate.execute(status -> limitsRepository.findById(1L).orElseThrow());
+            assertEquals(upperLimit + 1, reloaded.getUpperLimit());
+        } finally {
+            limits.setUpperLimit(upperLimit);
+            transactionTemplate.executeWithoutResult(status -> limitsRepository.save(limits));
+        }
+    }
+
+    @Test
+    void testMeasurementsAreNotCached() {
+        transactionTemplate.execute(status -> climateMeasurementRepository.findById(1L).orElseThrow());
+        assertFalse(entityManagerFactory.getCache().contains(ClimateMeasurement.class, 1L));
+        assertTrue(entityManagerFactory.getCache().contains(Sensor.class, 5L), "the sensor of the measurement should be cached");
+    }
+}
@@ -0,0 +1,121 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.exceptions.EntityStillInUseException;
+import at.qe.skeleton.model.*;
+import at.qe.skeleton.repositories.TemperaDeviceRepository;
+import at.qe.skeleton.services.TemperaDeviceService;
+import at.qe.skeleton.services.climate.WarningEngine;
+import at.qe.skeleton.services.climate.WarningService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class WarningEngineTest {
+
+    private static final int DEVICES = 4;
+    private static final int REPETITIONS = 40;
+    // pairs of measurements 3 minutes apart, 200 minutes between the pairs: only DRAFT-warnings are created or renewed
+    private static final long[] MINUTES = {0, 3, 200, 203, 400, 403};
+
+    @Autowired
+    private WarningEngine warningEngine;
+
+    @Autowired
+    private WarningService warningService;
+
+    @Autowired
+    private TemperaDeviceService temperaDeviceService;
+
+    @Autowired
+    private TemperaDeviceRepository temperaDeviceRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testConcurrentEvaluationKeepsOneWarningPerSensorType() throws Exception {
+        assertConcurrentEvaluationKeepsOneWarningPerSensorType(true);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMINISTRATOR"})
+    void testConcurrentChecksOfSeveralInstancesKeepOneWarningPerSensorType() throws Exception {
+        // bypasses the locks of the WarningEngine like measurements handled by different instances of the application
+        assertConcurrentEvaluationKeepsOneWarningPerSensorType(false);
+    }
+
+    private void assertConcurrentEvaluationKeepsOneWarningPerSensorType(boolean throughEngine) throws Exception {
+        List<TemperaDevice> temperaDevices = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            temperaDevices.add(temperaDeviceService.save(temperaDeviceService.createTemperaDevice()));
+        }
+        LocalDateTime baseTime = LocalDateTime.now().minusMinutes(500);
+
+        List<Runnable> evaluations = new ArrayList<>();
+        for (TemperaDevice temperaDevice : temperaDevices) {
+            for (Sensor sensor : temperaDevice.getSensors()) {
+                if (sensor.getSensorType() != SensorType.AIR_TEMPERATURE && sensor.getSensorType() != SensorType.AIR_HUMIDITY) {
+                    continue;
+                }
+                for (int i = 0; i < REPETITIONS; i++) {
+                    for (long minutes : MINUTES) {
+                        ClimateMeasurement measurement = ClimateMeasurement.builder()
+                                .sensor(sensor).measuredValue(99.0).timeStamp(baseTime.plusMinutes(minutes)).build();
+                        evaluations.add(throughEngine
+                                ? () -> warningEngine.evaluate(measurement, temperaDevice.getId())
+                                : () -> warningService.checkWarning(measurement));
+                    }
+                }
+            }
+        }
+        Collections.shuffle(evaluations, new Random(42));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable evaluation : evaluations) {
+                futures.add(executor.submit(evaluation));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            for (TemperaDevice temperaDevice : temperaDevices) {
+                Map<SensorType, Long> warningsPerSensorType = transactionTemplate.execute(status ->
+                        temperaDeviceRepository.findTemperaDeviceById(temperaDevice.getId()).getWarnings().stream()
+                                .collect(Collectors.groupingBy(Warning::getSensorType, Collectors.counting())));
+                assertEquals(Map.of(SensorType.AIR_TEMPERATURE, 1L, SensorType.AIR_HUMIDITY, 1L), warningsPerSensorType,
+                        "every TemperaDevice should have exactly one warning per violated SensorType");
+            }
+
+            Sensor sensor = temperaDevices.get(0).getSensors().stream()
+                    .filter(s -> s.getSensorType() == SensorType.AIR_TEMPERATURE).findFirst().orElseThrow();
+            ClimateMeasurement measurement = ClimateMeasurement.builder()
+                    .sensor(sensor).measuredValue(99.0).timeStamp(baseTime.plusMinutes(404)).build();
+            assertNull(warningEngine.evaluate(measurement, temperaDevices.get(0).getId()),
+                    "a transgression without transition should not change the warning");
+        } finally {
+            executor.shutdownNow();
+            for (TemperaDevice temperaDevice : temperaDevices) {
+                deleteTemperaDevice(temperaDevice);
+            }
+        }
+    }
+
+    private void deleteTemperaDevice(TemperaDevice temperaDevice) throws EntityStillInUseException {
+        temperaDeviceService.delete(temperaDeviceRepository.findTemperaDeviceById(temperaDevice.getId()));
+    }
+}
@@ -2,6 +2,7 @@ package at.qe.skeleton.tests;
 
 import at.qe.skeleton.model.*;
 import at.qe.skeleton.repositories.*;
+import at.qe.skeleton.services.DeviceTopologyService;
 import at.qe.skeleton.services.TemperaDeviceService;
 import at.qe.skeleton.services.timeTracking.TimeRecordService;
 import at.qe.skeleton.services.notifications.TokenService;
@@ -43,6 +44,9 @@ import static org.mockito.Mockito.*;
         @Mock
         private TokenService tokenService;
 
+        @Mock
+        private DeviceTopologyService deviceTopologyService;
+
         @InjectMocks
         private WarningService warningService;
 
@@ -58,6 +62,7 @@ import static org.mockito.Mockito.*;
             temperaDevice.setSensors(Arrays.asList(sensor));
 
             when(temperaDeviceService.findTemperaDeviceBySensor(any())).thenReturn(temperaDevice);
+            when(deviceTopologyService.getTopology()).thenReturn(DeviceTopology.empty());
             doNothing().when(applicationEventPublisher).publishEvent(any()); //does not work
         }
 
@@ -0,0 +1,36 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.services.climate.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Appends records to a {@link WriteAheadLog} until the process is killed, used by {@link WriteAheadLogTest}.
+ * The number of every appended record is printed once its append returned.
+ */
+public class WriteAheadLogCrashProcess {
+
+    public static void main(String[] args) throws IOException {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(Path.of(args[0]), Integer.parseInt(args[1]));
+        for (int i = 0; ; i++) {
+            writeAheadLog.append(payload(i));
+            System.out.println(i);
+            System.out.flush();
+        }
+    }
+
+    /**
+     * @param i the number of the record
+     * @return a payload of a length between 4 and 203 bytes, which can be told apart from the payloads of all other
+     * numbers
+     */
+    static byte[] payload(int i) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + i % 200).putInt(i);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) (i + buffer.position()));
+        }
+        return buffer.array();
+    }
+}
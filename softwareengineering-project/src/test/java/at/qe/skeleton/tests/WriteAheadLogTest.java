@@ -0,0 +1,131 @@
+package at.qe.skeleton.tests;
+
+import at.qe.skeleton.services.climate.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordsAreReplayedInOrderAcrossSegments() throws IOException {
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            for (int i = 0; i < 100; i++) {
+                writeAheadLog.append(WriteAheadLogCrashProcess.payload(i));
+            }
+            assertTrue(segmentCount() > 1, "the records should not fit into one segment");
+            assertEquals(100, writeAheadLog.pendingCount());
+
+            List<WriteAheadLog.Entry> entries = writeAheadLog.pending(60);
+            assertEquals(60, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertArrayEquals(WriteAheadLogCrashProcess.payload(i), entries.get(i).payload());
+            }
+            assertThrows(IllegalStateException.class, () -> writeAheadLog.markReplayed(entries.get(1)));
+            for (WriteAheadLog.Entry entry : entries) {
+                writeAheadLog.markReplayed(entry);
+            }
+            assertEquals(40, writeAheadLog.pendingCount());
+        }
+
+        // replayed records stay replayed after reopening
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            List<WriteAheadLog.Entry> entries = writeAheadLog.pending(Integer.MAX_VALUE);
+            assertEquals(40, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertArrayEquals(WriteAheadLogCrashProcess.payload(60 + i), entries.get(i).payload());
+            }
+            for (WriteAheadLog.Entry entry : entries) {
+                writeAheadLog.markReplayed(entry);
+            }
+            assertFalse(writeAheadLog.hasPending());
+            assertEquals(1, segmentCount(), "only the active segment should be kept");
+        }
+    }
+
+    @Test
+    void testTornRecordIsDiscardedAndOverwritten() throws IOException {
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            writeAheadLog.append(WriteAheadLogCrashProcess.payload(0));
+            writeAheadLog.append(WriteAheadLogCrashProcess.payload(1));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // a record whose length was written, but not its whole payload
+        int position = 2 * WriteAheadLog.RECORD_HEADER_SIZE + WriteAheadLogCrashProcess.payload(0).length
+                + WriteAheadLogCrashProcess.payload(1).length;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putInt(100).putInt(42).putInt(7).flip(),
+                    position);
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            assertEquals(2, writeAheadLog.pendingCount());
+            writeAheadLog.append(WriteAheadLogCrashProcess.payload(2));
+        }
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            List<WriteAheadLog.Entry> entries = writeAheadLog.pending(Integer.MAX_VALUE);
+            assertEquals(3, entries.size());
+            assertArrayEquals(WriteAheadLogCrashProcess.payload(2), entries.get(2).payload());
+        }
+    }
+
+    @Test
+    void testRecoveryAfterProcessIsKilledWhileAppending() throws Exception {
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), WriteAheadLogCrashProcess.class.getName(),
+                directory.toString(), String.valueOf(SEGMENT_SIZE))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int lastAppended = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (lastAppended < 2000 && (line = reader.readLine()) != null) {
+                lastAppended = Integer.parseInt(line);
+            }
+            // SIGKILL, the process is stopped while it is appending
+            process.destroyForcibly();
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        }
+        assertEquals(2000, lastAppended, "the process should have appended records before it was killed");
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            List<WriteAheadLog.Entry> entries = writeAheadLog.pending(Integer.MAX_VALUE);
+            assertTrue(entries.size() > lastAppended, "every acknowledged record should be recovered");
+            for (int i = 0; i < entries.size(); i++) {
+                assertArrayEquals(WriteAheadLogCrashProcess.payload(i), entries.get(i).payload());
+            }
+
+            writeAheadLog.append(WriteAheadLogCrashProcess.payload(entries.size()));
+            assertEquals(entries.size() + 1, writeAheadLog.pendingCount());
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
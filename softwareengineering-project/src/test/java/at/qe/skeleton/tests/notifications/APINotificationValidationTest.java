@@ -6,6 +6,7 @@ import at.qe.skeleton.model.TemperaDevice;
 import at.qe.skeleton.model.notifications.APINotificationAPBody;
 import at.qe.skeleton.repositories.AccessPointRepository;
 import at.qe.skeleton.rest.controllers.RestController;
+import at.qe.skeleton.services.AccessPointRegistry;
 import at.qe.skeleton.services.AccessPointService;
 import at.qe.skeleton.services.notifications.NotificationService;
 import org.junit.jupiter.api.Assertions;
@@ -17,6 +18,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.anyLong;
 
@@ -33,6 +35,9 @@ public class APINotificationValidationTest {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private AccessPointRegistry accessPointRegistry;
+
     @InjectMocks
     private AccessPointService accessPointService;
 
@@ -63,7 +68,8 @@ public class APINotificationValidationTest {
     @Test
     public void testDoesAccessPointIDExist() {
 
-        Mockito.when(accessPointRepository.findAccessPointById(1L)).thenReturn(new AccessPoint());
+        Mockito.when(accessPointRegistry.find(1L)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of()));
+        Mockito.when(accessPointRegistry.find(2L)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(2L, null, Set.of()));
 
         Assertions.assertTrue(accessPointService.doesAccessPointIDExist("G4T2-AP-1"));
         Assertions.assertFalse(accessPointService.doesAccessPointIDExist("G4T2-AP-2"));
@@ -98,6 +104,7 @@ public class APINotificationValidationTest {
         TemperaDevice temperaDevice3 = TemperaDevice.builder().id(3L).build();
 
         AccessPoint accessPoint = AccessPoint.builder().id(1L).temperaDevices(List.of(temperaDevice1, temperaDevice2)).build();
+        Mockito.when(accessPointRegistry.find(1L)).thenReturn(new AccessPointRegistry.RegisteredAccessPoint(1L, DeviceStatus.ENABLED, Set.of(1L, 2L)));
 
         Assertions.assertTrue(accessPointService.isTemperaDeviceConnectedToAccessPoint(temperaDevice1, accessPoint));
         Assertions.assertTrue(accessPointService.isTemperaDeviceConnectedToAccessPoint(temperaDevice2, accessPoint));